@@ -94,7 +94,12 @@ public interface NetCDFUtil {
 
     /**
      * Organizes OmObservation collection into a list of NetCDFObservation
-     * blocks, each of which contain a single feature type
+     * blocks, each of which contain a single feature type.
+     * <p>
+     * All values are collected before the blocks are created, because the
+     * feature type and the dimensions of a sensor are only known after all
+     * its observations are processed, and the NetCDF file can not be created
+     * before.
      *
      * @param omObservations
      *            The collection of observations to transform
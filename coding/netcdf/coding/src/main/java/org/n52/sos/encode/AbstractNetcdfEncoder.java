@@ -27,9 +27,12 @@
  */
 package org.n52.sos.encode;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -40,6 +43,8 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
 
@@ -102,6 +107,8 @@ import org.n52.svalbard.encode.EncodingContext;
 import org.n52.svalbard.encode.ObservationEncoder;
 import org.n52.svalbard.encode.exception.EncodingException;
 import org.n52.svalbard.encode.exception.UnsupportedEncoderInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.axiomalaska.cf4j.CFStandardNames;
 import com.axiomalaska.cf4j.constants.ACDDConstants;
@@ -145,6 +152,8 @@ import ucar.nc2.jni.netcdf.Nc4Iosp;
 public abstract class AbstractNetcdfEncoder
         implements ObservationEncoder<BinaryAttachmentResponse, Object>, NetCDFUtil {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractNetcdfEncoder.class);
+
     private final Set<SupportedType> SUPPORTED_TYPES =
             ImmutableSet.<SupportedType>builder().add(OmConstants.OBS_TYPE_TRUTH_OBSERVATION_TYPE).build();
 
@@ -1380,6 +1389,50 @@ public abstract class AbstractNetcdfEncoder
         return pathBuffer.toString();
     }
 
+    /**
+     * Create a zip file containing the files of the directory in this
+     * directory. The files are streamed into the zip file and deleted after
+     * they have been added.
+     *
+     * @param dirToZip
+     *            The directory containing the files to zip
+     * @return The zip file
+     * @throws IOException
+     *             If the zip file could not be created
+     */
+    protected File createZip(File dirToZip) throws IOException {
+        File[] listFiles = dirToZip.listFiles();
+        File zip = File.createTempFile("netcdf", ".zip", dirToZip);
+        try (ZipOutputStream zipfile = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zip)))) {
+            if (listFiles != null) {
+                for (File file : listFiles) {
+                    zipfile.putNextEntry(new ZipEntry(file.getName()));
+                    Files.copy(file.toPath(), zipfile);
+                    zipfile.closeEntry();
+                    LOGGER.debug("Temporary file {} deleted: {}", file.getName(), file.delete());
+                }
+            }
+        }
+        return zip;
+    }
+
+    /**
+     * Delete a temporary directory with its content, e.g. if the encoding
+     * failed
+     *
+     * @param tempDir
+     *            The directory to delete
+     */
+    protected void deleteTempDir(File tempDir) {
+        File[] listFiles = tempDir.listFiles();
+        if (listFiles != null) {
+            for (File file : listFiles) {
+                LOGGER.debug("Temporary file {} deleted: {}", file.getName(), file.delete());
+            }
+        }
+        LOGGER.debug("Temporary directory deleted: {}", tempDir.delete());
+    }
+
     @Override
     public GeometryHandler getGeometryHandler() {
         return geometryHandler;
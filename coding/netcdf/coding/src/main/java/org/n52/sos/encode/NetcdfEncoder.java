@@ -48,6 +48,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.netcdf.NetcdfConstants;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderKey;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
 import org.n52.svalbard.encode.exception.EncodingException;
@@ -141,12 +142,14 @@ public class NetcdfEncoder extends AbstractBasicNetcdfEncoder {
         File netcdfFile = new File(tempDir, filename);
         try {
             encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-            return new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
+            return new FileAttachmentResponse(netcdfFile, tempDir, getContentType(),
                     String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
         } catch (IOException e) {
+            deleteTempDir(tempDir);
             throw new EncodingException("Couldn't create netCDF file", e);
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
+        } catch (EncodingException | RuntimeException e) {
+            deleteTempDir(tempDir);
+            throw e;
         }
     }
 
@@ -48,6 +48,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.oceansites.OceanSITESConstants;
 import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderKey;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
 import org.n52.svalbard.encode.exception.EncodingException;
@@ -143,17 +144,14 @@ public class OceanSITESEncoder extends AbstractOceanSITESEncoder {
         File tempDir = Files.createTempDir();
         String filename = getFilename(sensorDataset);
         File netcdfFile = new File(tempDir, filename);
-        encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-
-        BinaryAttachmentResponse response = null;
         try {
-            response = new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
+            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
+            return new FileAttachmentResponse(netcdfFile, tempDir, getContentType(),
                     String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
+        } catch (IOException | EncodingException | RuntimeException e) {
+            deleteTempDir(tempDir);
+            throw e;
         }
-
-        return response;
     }
 
     private void throwTooManyFeatureTypesOrSensorsException(List<NetCDFObservation> netCDFObsList,
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import java.util.Objects;
+
+import org.n52.shetland.ogc.om.AbstractObservationStream;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * {@link ObservationStream} that merges consecutive observations of the
+ * wrapped stream as they are pulled. Unlike
+ * {@link ObservationStream#merge(ObservationMergeIndicator)} the wrapped
+ * stream is not drained in advance, so this relies on mergeable observations
+ * being adjacent, as is the case for the values of a single dataset as long
+ * as the result time is not included in merging.
+ *
+ * @since 6.0.0
+ */
+public class MergingObservationStream extends AbstractObservationStream {
+
+    private final ObservationStream delegate;
+
+    private final ObservationMergeIndicator indicator;
+
+    private OmObservation pending;
+
+    private int observationId = 1;
+
+    public MergingObservationStream(ObservationStream delegate, ObservationMergeIndicator indicator) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.indicator = Objects.requireNonNull(indicator);
+    }
+
+    @Override
+    protected OmObservation computeNext() throws OwsExceptionReport {
+        OmObservation current = pending != null ? pending : nextObservation();
+        pending = null;
+        if (current == null) {
+            return endOfData();
+        }
+        OmObservation observation;
+        while ((observation = nextObservation()) != null) {
+            if (current.checkForMerge(observation, indicator)) {
+                current.mergeWithObservation(observation);
+            } else {
+                pending = observation;
+                break;
+            }
+        }
+        if (!current.isSetGmlID()) {
+            current.setObservationID(Integer.toString(observationId++));
+        }
+        return current;
+    }
+
+    private OmObservation nextObservation() throws OwsExceptionReport {
+        while (delegate.hasNext()) {
+            OmObservation observation = delegate.next();
+            if (observation != null) {
+                return observation;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+}
@@ -31,7 +31,6 @@ import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -353,19 +352,17 @@ public class SplitMergeObservations
                 ObservationMergeIndicator.sameObservationConstellation().setResultTime(includeResultTimeForMerging);
         if (checkForMergeObservationsInResponse || checkEncoderForMergeObservations) {
             ObservationStream observationStream = response.getObservationCollection().merge(indicator);
-            List<OmObservation> processed = new LinkedList<>();
-            while (observationStream.hasNext()) {
-                OmObservation observation = observationStream.next();
+            response.setObservationCollection(observationStream.flatMap(observation -> {
                 if (observation.getValue() instanceof AbstractStreaming) {
-                    ObservationStream valueStream = ((AbstractStreaming) observation.getValue()).merge(indicator);
-                    while (valueStream.hasNext()) {
-                        processed.add(valueStream.next());
+                    AbstractStreaming streaming = (AbstractStreaming) observation.getValue();
+                    // values with different result times are not adjacent
+                    if (includeResultTimeForMerging) {
+                        return streaming.merge(indicator);
                     }
-                } else {
-                    processed.add(observation);
+                    return new MergingObservationStream(streaming, indicator);
                 }
-            }
-            response.setObservationCollection(ObservationStream.of(processed));
+                return ObservationStream.of(observation);
+            }));
         }
         return response;
     }
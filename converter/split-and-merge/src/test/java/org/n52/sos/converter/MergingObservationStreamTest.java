@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.converter;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.core.Is;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+
+public class MergingObservationStreamTest {
+
+    private int pulled;
+
+    @Test
+    public void shouldMergeAdjacentObservationsLazily() throws OwsExceptionReport {
+        List<OmObservation> source = new LinkedList<>();
+        source.add(observation("a", 1));
+        source.add(observation("a", 2));
+        source.add(observation("a", 3));
+        source.add(observation("b", 4));
+        source.add(observation("b", 5));
+        ObservationStream stream = new MergingObservationStream(ObservationStream.of(source).map(o -> {
+            pulled++;
+            return o;
+        }), ObservationMergeIndicator.sameObservationConstellation());
+
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(true));
+        OmObservation first = stream.next();
+        // the second group has not been pulled from the source yet
+        MatcherAssert.assertThat(pulled, Is.is(4));
+        MatcherAssert.assertThat(first.getObservationID(), Is.is("1"));
+        MatcherAssert.assertThat(size(first), Is.is(3));
+
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(true));
+        OmObservation second = stream.next();
+        MatcherAssert.assertThat(second.getObservationID(), Is.is("2"));
+        MatcherAssert.assertThat(size(second), Is.is(2));
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(false));
+    }
+
+    @Test
+    public void shouldHandleEmptyStream() throws OwsExceptionReport {
+        ObservationStream stream = new MergingObservationStream(ObservationStream.empty(),
+                ObservationMergeIndicator.sameObservationConstellation());
+        MatcherAssert.assertThat(stream.hasNext(), Is.is(false));
+    }
+
+    @Test
+    public void shouldCloseDelegate() {
+        boolean[] closed = new boolean[1];
+        ObservationStream delegate = new ObservationStream() {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public OmObservation next() {
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        new MergingObservationStream(delegate, ObservationMergeIndicator.sameObservationConstellation()).close();
+        MatcherAssert.assertThat(closed[0], Is.is(true));
+    }
+
+    private int size(OmObservation observation) {
+        MatcherAssert.assertThat(observation.getValue() instanceof MultiObservationValues, Is.is(true));
+        return ((TVPValue) observation.getValue().getValue()).getValue().size();
+    }
+
+    private OmObservation observation(String observableProperty, int value) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType("procedure", "format", "xml"));
+        constellation.setObservableProperty(new OmObservableProperty(observableProperty));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(new DateTime(value * 1000L)),
+                new QuantityValue((double) value, "m")));
+        return observation;
+    }
+
+}
@@ -43,9 +43,7 @@ import javax.inject.Inject;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
-import org.locationtech.jts.geom.PrecisionModel;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.convert.RequestResponseModifier;
 import org.n52.iceland.convert.RequestResponseModifierFacilitator;
@@ -621,26 +619,24 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
 
 
 
-            GeometryFactory factory = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING), sourceCrs);
-            Coordinate coordinate = null;
+            double[] coordinate;
             if (getGeomtryHandler().is3dCrs(sourceCrs)) {
                 double z = 0.0;
                 if (altitude != null && altitude.getValue() != null && altitude.getValue().getValue() != null) {
                     z = altitude.getValue().getValue().doubleValue();
                 }
-                coordinate = getGeomtryHandler().transform(factory.createPoint(new Coordinate(x, y, z)), targetCrs)
-                        .getCoordinate();
+                coordinate = new double[] { x, y, z };
             } else {
-                coordinate = getGeomtryHandler().transform(factory.createPoint(new Coordinate(x, y)), targetCrs)
-                        .getCoordinate();
+                coordinate = new double[] { x, y };
             }
+            coordinate = getGeomtryHandler().transform(coordinate, coordinate.length, sourceCrs, targetCrs);
 
             if (getGeomtryHandler().isNorthingFirstEpsgCode(targetCrs)) {
-                x = coordinate.y;
-                y = coordinate.x;
+                x = coordinate[1];
+                y = coordinate[0];
             } else {
-                x = coordinate.x;
-                y = coordinate.y;
+                x = coordinate[0];
+                y = coordinate[1];
             }
             return Stream
                     .of(new SweCoordinate<>(northingName,
@@ -941,8 +937,48 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
 
     private void checkMultiPointCoverageForGeometry(MultiPointCoverage value, int targetCRS)
             throws OwsExceptionReport {
-        for (PointValuePair pvp : value.getValue()) {
-            pvp.setPoint((Point) getGeomtryHandler().transform(pvp.getPoint(), targetCRS));
+        List<PointValuePair> pointValuePairs = value.getValue();
+        if (pointValuePairs.isEmpty()) {
+            return;
+        }
+        int sourceCRS = pointValuePairs.get(0).getPoint() != null ? pointValuePairs.get(0).getPoint().getSRID() : 0;
+        int dimension = 2;
+        for (PointValuePair pvp : pointValuePairs) {
+            Point point = pvp.getPoint();
+            if (point == null || point.isEmpty() || point.getSRID() != sourceCRS) {
+                // mixed points, transform one by one
+                for (PointValuePair p : pointValuePairs) {
+                    p.setPoint((Point) getGeomtryHandler().transform(p.getPoint(), targetCRS));
+                }
+                return;
+            }
+            if (!Double.isNaN(point.getCoordinate().getZ())) {
+                dimension = 3;
+            }
+        }
+        if (sourceCRS == targetCRS) {
+            return;
+        }
+        // transform the coordinates of all points with one call
+        double[] coordinates = new double[pointValuePairs.size() * dimension];
+        for (int i = 0; i < pointValuePairs.size(); i++) {
+            Coordinate coordinate = pointValuePairs.get(i).getPoint().getCoordinate();
+            coordinates[i * dimension] = coordinate.getX();
+            coordinates[i * dimension + 1] = coordinate.getY();
+            if (dimension == 3) {
+                coordinates[i * dimension + 2] = coordinate.getZ();
+            }
+        }
+        coordinates = getGeomtryHandler().transform(coordinates, dimension, sourceCRS, targetCRS);
+        for (int i = 0; i < pointValuePairs.size(); i++) {
+            PointValuePair pvp = pointValuePairs.get(i);
+            Coordinate coordinate = dimension == 3
+                    ? new Coordinate(coordinates[i * dimension], coordinates[i * dimension + 1],
+                            coordinates[i * dimension + 2])
+                    : new Coordinate(coordinates[i * dimension], coordinates[i * dimension + 1]);
+            Point point = pvp.getPoint().getFactory().createPoint(coordinate);
+            point.setSRID(targetCRS);
+            pvp.setPoint(point);
         }
     }
 
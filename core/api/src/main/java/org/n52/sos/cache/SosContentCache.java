@@ -749,6 +749,50 @@ public interface SosContentCache
 
     Set<String> getPublishedObservableProperties();
 
+    /**
+     * Checks whether the specified featureOfInterest is published.
+     *
+     * @param featureOfInterest the featureOfInterest
+     *
+     * @return {@code true} if it is published
+     */
+    default boolean hasPublishedFeatureOfInterest(String featureOfInterest) {
+        return getPublishedFeatureOfInterest().contains(featureOfInterest);
+    }
+
+    /**
+     * Checks whether the specified procedure is published.
+     *
+     * @param procedure the procedure
+     *
+     * @return {@code true} if it is published
+     */
+    default boolean hasPublishedProcedure(String procedure) {
+        return getPublishedProcedures().contains(procedure);
+    }
+
+    /**
+     * Checks whether the specified offering is published.
+     *
+     * @param offering the offering
+     *
+     * @return {@code true} if it is published
+     */
+    default boolean hasPublishedOffering(String offering) {
+        return getPublishedOfferings().contains(offering);
+    }
+
+    /**
+     * Checks whether the specified observable property is published.
+     *
+     * @param observableProperty the observable property
+     *
+     * @return {@code true} if it is published
+     */
+    default boolean hasPublishedObservableProperty(String observableProperty) {
+        return getPublishedObservableProperties().contains(observableProperty);
+    }
+
     enum TypeInstance {
         TYPE,
         INSTANCE;
@@ -37,6 +37,7 @@ import org.n52.iceland.coding.encode.AbstractResponseWriter;
 import org.n52.iceland.coding.encode.ResponseProxy;
 import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.exception.EncodingException;
 
@@ -69,12 +70,32 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
             return;
         }
 
+        if (response instanceof FileAttachmentResponse) {
+            try (FileAttachmentResponse fileResponse = (FileAttachmentResponse) response) {
+                long length = fileResponse.getLength();
+                if (!(out instanceof GZIPOutputStream) && length <= Integer.MAX_VALUE) {
+                    responseProxy.setContentLength((int) length);
+                }
+                addHeaders(response, responseProxy);
+                fileResponse.transferTo(out);
+            }
+            return;
+        }
+
         byte[] bytes = response.getBytes();
 
         if (!(out instanceof GZIPOutputStream)) {
             responseProxy.setContentLength(bytes.length);
         }
 
+        addHeaders(response, responseProxy);
+
+        //write output now that headers and content length are in place
+        out.write(bytes);
+
+    }
+
+    private void addHeaders(BinaryAttachmentResponse response, ResponseProxy responseProxy) {
         //binary
         responseProxy.addHeader(HeaderCode.CONTENT_TRANSFER_ENCODING,
                                 HeaderCode.CONTENT_TRANSFER_ENCODING_BINARY);
@@ -86,10 +107,6 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
             String value = String.format(HeaderCode.CONTENT_ATTACHMENT_FILENAME_FORMAT, fileName);
             responseProxy.addHeader(HeaderCode.CONTENT_DISPOSITION, value);
         }
-
-        //write output now that headers and content length are in place
-        out.write(bytes);
-
     }
 
     @Override
@@ -97,6 +114,12 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
         if (response == null) {
             return;
         }
+        if (response instanceof FileAttachmentResponse) {
+            try (FileAttachmentResponse fileResponse = (FileAttachmentResponse) response) {
+                fileResponse.transferTo(out);
+            }
+            return;
+        }
         byte[] bytes = response.getBytes();
         //write output now that headers and content length are in place
         out.write(bytes);
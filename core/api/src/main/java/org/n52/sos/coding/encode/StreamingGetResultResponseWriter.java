@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.n52.iceland.coding.encode.AbstractResponseWriter;
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.iceland.coding.encode.ResponseWriterKey;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.http.MediaType;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.w3c.W3CConstants;
+import org.n52.sos.response.StreamingGetResultResponse;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+/**
+ * Writer for {@link StreamingGetResultResponse} that writes the XML
+ * GetResultResponse directly to the output stream while the result values are
+ * created. Other content types and responses with extensions are delegated to
+ * the {@link AbstractServiceResponseWriter}.
+ *
+ * @since 6.0.0
+ *
+ */
+public class StreamingGetResultResponseWriter extends AbstractResponseWriter<StreamingGetResultResponse> {
+
+    public static final ResponseWriterKey KEY = new ResponseWriterKey(StreamingGetResultResponse.class);
+
+    private static final String EN_GET_RESULT_RESPONSE = "GetResultResponse";
+
+    private static final String EN_RESULT_VALUES = "resultValues";
+
+    private final ResponseWriterRepository responseWriterRepository;
+
+    public StreamingGetResultResponseWriter(EncoderRepository encoderRepository,
+            ResponseWriterRepository responseWriterRepository) {
+        super(encoderRepository);
+        this.responseWriterRepository = responseWriterRepository;
+    }
+
+    @Override
+    public Set<ResponseWriterKey> getKeys() {
+        return Collections.singleton(KEY);
+    }
+
+    @Override
+    public void write(StreamingGetResultResponse response, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
+        if (isStreamable(response)) {
+            write(response, out);
+        } else {
+            getDelegate().write(response, out, responseProxy);
+        }
+    }
+
+    @Override
+    public void write(StreamingGetResultResponse response, OutputStream out) throws IOException, EncodingException {
+        if (!isStreamable(response)) {
+            getDelegate().write(response, out);
+            return;
+        }
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            writer.writeStartElement(SosConstants.NS_SOS_PREFIX, EN_GET_RESULT_RESPONSE, Sos2Constants.NS_SOS_20);
+            writer.writeNamespace(SosConstants.NS_SOS_PREFIX, Sos2Constants.NS_SOS_20);
+            writer.writeNamespace(W3CConstants.NS_XSI_PREFIX, W3CConstants.NS_XSI);
+            writer.writeAttribute(W3CConstants.NS_XSI_PREFIX, W3CConstants.NS_XSI, W3CConstants.SCHEMA_LOCATION,
+                    Sos2Constants.NS_SOS_20 + " " + Sos2Constants.SCHEMA_LOCATION_URL_SOS_GET_RESULT);
+            writer.writeStartElement(SosConstants.NS_SOS_PREFIX, EN_RESULT_VALUES, Sos2Constants.NS_SOS_20);
+            response.writeResultValues(new CharactersWriter(writer));
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException | OwsExceptionReport e) {
+            throw new EncodingException("Error while writing the GetResult response!", e);
+        }
+    }
+
+    @Override
+    public boolean supportsGZip(StreamingGetResultResponse response) {
+        return false;
+    }
+
+    private boolean isStreamable(StreamingGetResultResponse response) {
+        MediaType contentType = getContentType();
+        return !response.hasExtensions() && contentType != null
+                && (MediaTypes.APPLICATION_XML.isCompatible(contentType)
+                        || MediaTypes.TEXT_XML.isCompatible(contentType));
+    }
+
+    private AbstractServiceResponseWriter getDelegate() {
+        AbstractServiceResponseWriter delegate =
+                new AbstractServiceResponseWriter(getEncoderRepository(), responseWriterRepository);
+        delegate.setContentType(getContentType());
+        return delegate;
+    }
+
+    /**
+     * {@link Writer} that writes the characters as escaped XML text content.
+     */
+    private static class CharactersWriter extends Writer {
+
+        private final XMLStreamWriter writer;
+
+        CharactersWriter(XMLStreamWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            try {
+                writer.writeCharacters(cbuf, off, len);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            try {
+                writer.writeCharacters(str);
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the enclosing document is closed by the response writer
+        }
+    }
+}
@@ -61,7 +61,7 @@ public abstract class AbstractGetFeatureOfInterestHandler extends AbstractSosOpe
             throws OwsExceptionReport;
 
     protected boolean isRelatedFeature(String featureIdentifier) {
-        return getCache().getRelatedFeatures().contains(featureIdentifier);
+        return getCache().hasRelatedFeature(featureIdentifier);
     }
 
     protected Set<String> getFeatureIdentifiers(List<String> featureIdentifiers) {
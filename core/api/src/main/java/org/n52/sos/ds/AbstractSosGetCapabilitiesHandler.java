@@ -43,6 +43,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -51,6 +53,8 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.xml.namespace.QName;
 
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.binding.Binding;
 import org.n52.iceland.binding.MediaTypeBindingKey;
 import org.n52.iceland.cache.ctrl.StaticCapabilitiesProvider;
@@ -76,7 +80,12 @@ import org.n52.shetland.ogc.filter.FilterConstants.ComparisonOperator;
 import org.n52.shetland.ogc.filter.FilterConstants.ConformanceClassConstraintNames;
 import org.n52.shetland.ogc.filter.FilterConstants.SpatialOperator;
 import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
 import org.n52.shetland.ogc.gml.GmlConstants;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.OWSConstants;
 import org.n52.shetland.ogc.ows.OWSConstants.GetCapabilitiesParams;
@@ -93,6 +102,7 @@ import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.exception.VersionNegotiationFailedException;
+import org.n52.shetland.ogc.ows.extension.Extensions;
 import org.n52.shetland.ogc.ows.extension.MergableExtension;
 import org.n52.shetland.ogc.ows.extension.StringBasedCapabilitiesExtension;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
@@ -102,15 +112,18 @@ import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosCapabilities;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.SosObservationOffering;
+import org.n52.shetland.ogc.sos.SosOffering;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.coding.encode.ResponseFormatRepository;
 import org.n52.sos.config.CapabilitiesExtensionService;
 import org.n52.sos.ogc.sos.SosObservationOfferingExtensionRepository;
 import org.n52.sos.request.operator.AbstractTransactionalRequestOperator;
 import org.n52.sos.request.operator.TransactionalRequestChecker;
+import org.n52.sos.service.SosSettings;
 import org.n52.sos.service.TransactionalSecurityConfiguration;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.svalbard.ConformanceClass;
@@ -120,6 +133,7 @@ import org.n52.svalbard.encode.EncoderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -190,6 +204,10 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
     @Inject
     private Optional<StaticCapabilitiesProvider> staticCapabilitiesProvider;
 
+    private boolean cacheContents;
+
+    private volatile CachedContents cachedContents;
+
     public AbstractSosGetCapabilitiesHandler() {
         this(SosConstants.SOS);
     }
@@ -198,6 +216,12 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
         super(service);
     }
 
+    @Setting(SosSettings.CACHE_CAPABILITIES_CONTENTS)
+    public void setCacheContents(boolean cacheContents) {
+        this.cacheContents = cacheContents;
+        this.cachedContents = null;
+    }
+
     @Override
     public GetCapabilitiesResponse getCapabilities(GetCapabilitiesRequest request) throws OwsExceptionReport {
         String capabilitiesId = request.getCapabilitiesId();
@@ -276,13 +300,7 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
             sectionSpecificContentObject.getSosCapabilities().setFilterCapabilities(getFilterCapabilities(version));
         }
         if (isContentsSectionRequested(sectionSpecificContentObject.getRequestedSections())) {
-            if (isV2(sectionSpecificContentObject.getGetCapabilitiesResponse())) {
-                sectionSpecificContentObject.getSosCapabilities()
-                        .setContents(getContentsForSosV2(sectionSpecificContentObject));
-            } else {
-                sectionSpecificContentObject.getSosCapabilities()
-                        .setContents(getContentsForSosV1(sectionSpecificContentObject));
-            }
+            sectionSpecificContentObject.getSosCapabilities().setContents(getContents(sectionSpecificContentObject));
         }
 
         if (isV2(sectionSpecificContentObject.getGetCapabilitiesResponse())) {
@@ -296,6 +314,125 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
         }
     }
 
+    /**
+     * Get the contents for the requested version. If caching is enabled, the
+     * contents are created once per cache version, service version and
+     * requested language and deep copied for each response, because response
+     * modifiers may change the offerings.
+     */
+    @VisibleForTesting
+    List<SosObservationOffering> getContents(SectionSpecificContentObject sectionSpecificContentObject)
+            throws OwsExceptionReport {
+        SosContentCache cache = getCache();
+        DateTime cacheVersion = cache.getLastUpdateTime();
+        if (!cacheContents || cacheVersion == null) {
+            return createContents(sectionSpecificContentObject);
+        }
+        CachedContents current = this.cachedContents;
+        if (current == null || !current.isVersion(cache, cacheVersion)) {
+            current = new CachedContents(cache, cacheVersion);
+            this.cachedContents = current;
+        }
+        GetCapabilitiesResponse response = sectionSpecificContentObject.getGetCapabilitiesResponse();
+        String key = String.join("|", response.getService(), response.getVersion(),
+                String.valueOf(getRequestedLocale(sectionSpecificContentObject.getGetCapabilitiesRequest())));
+        List<SosObservationOffering> contents = current.get(key);
+        if (contents == null) {
+            contents = createContents(sectionSpecificContentObject);
+            current.put(key, contents);
+        }
+        return contents.stream().map(AbstractSosGetCapabilitiesHandler::copyOf).collect(Collectors.toList());
+    }
+
+    private List<SosObservationOffering> createContents(SectionSpecificContentObject sectionSpecificContentObject)
+            throws OwsExceptionReport {
+        if (isV2(sectionSpecificContentObject.getGetCapabilitiesResponse())) {
+            return getContentsForSosV2(sectionSpecificContentObject);
+        } else {
+            return getContentsForSosV1(sectionSpecificContentObject);
+        }
+    }
+
+    /**
+     * Deep copy the offering. The setters of {@link SosObservationOffering}
+     * copy the collections, the GML properties, the times and the observed
+     * area are copied here. Extensions are not copyable in general, the copy
+     * gets a new {@link Extensions} holding the same extension objects, which
+     * are provided by the extension providers and have to be treated as read
+     * only, like for uncached contents.
+     */
+    private static SosObservationOffering copyOf(SosObservationOffering offering) {
+        SosObservationOffering copy = new SosObservationOffering();
+        copyGml(offering, copy);
+        if (offering.getOffering() != null) {
+            SosOffering sosOffering = new SosOffering(offering.getOffering().getIdentifier(),
+                    offering.getOffering().isParentOffering());
+            copyGml(offering.getOffering(), sosOffering);
+            copy.setOffering(sosOffering);
+        }
+        copy.setObservableProperties(offering.getObservableProperties());
+        copy.setCompositePhenomena(offering.getCompositePhenomena());
+        copy.setPhens4CompPhens(offering.getPhens4CompPhens());
+        copy.setPhenomenonTime(copyOf(offering.getPhenomenonTime()));
+        copy.setResultTime(copyOf(offering.getResultTime()));
+        copy.setFeatureOfInterest(offering.getFeatureOfInterest());
+        Map<String, Set<String>> relatedFeatures = new HashMap<>();
+        offering.getRelatedFeatures().forEach(relatedFeatures::put);
+        copy.setRelatedFeatures(relatedFeatures);
+        copy.setProcedures(offering.getProcedures());
+        copy.setResultModels(offering.getResultModels());
+        copy.setObservationTypes(offering.getObservationTypes());
+        Map<String, Collection<String>> observationResultTypes = new HashMap<>();
+        offering.getObservationResultTypes().forEach(observationResultTypes::put);
+        copy.setObservationResultTypes(observationResultTypes);
+        copy.setResponseFormats(offering.getResponseFormats());
+        copy.setResponseModes(offering.getResponseModes());
+        if (offering.getObservedArea() != null) {
+            copy.setObservedArea(offering.getObservedArea().copy());
+        }
+        copy.setFeatureOfInterestTypes(offering.getFeatureOfInterestTypes());
+        copy.setProcedureDescriptionFormat(offering.getProcedureDescriptionFormats());
+        Extensions extensions = new Extensions();
+        extensions.addExtension(offering.getExtensions());
+        copy.setExtensions(extensions);
+        return copy;
+    }
+
+    private static void copyGml(AbstractFeature source, AbstractFeature target) {
+        source.copyTo(target);
+        CodeWithAuthority identifier = source.getIdentifierCodeWithAuthority();
+        if (identifier != null) {
+            target.setIdentifier(new CodeWithAuthority(identifier.getValue(), identifier.getCodeSpace()));
+        }
+        target.setName(source.getName().stream().map(CodeType::copy).collect(Collectors.toList()));
+    }
+
+    private static Time copyOf(Time time) {
+        Time copy;
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            TimeInstant instantCopy = new TimeInstant();
+            instantCopy.setValue(instant.getValue());
+            instantCopy.setIndeterminateValue(instant.getIndeterminateValue());
+            instantCopy.setRequestedTimeLength(instant.getRequestedTimeLength());
+            copy = instantCopy;
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            TimePeriod periodCopy = new TimePeriod(period.getStart(), period.getStartIndet(), period.getEnd(),
+                    period.getEndIndet());
+            periodCopy.setDuration(period.getDuration());
+            periodCopy.setInterval(period.getInterval());
+            copy = periodCopy;
+        } else {
+            return time;
+        }
+        copy.setGmlId(time.getGmlId());
+        copy.setTimeFormat(time.getTimeFormat());
+        copy.setReference(time.getReference());
+        copy.setNilReason(time.getNilReason());
+        return copy;
+    }
+
     protected abstract List<SosObservationOffering> getContentsForSosV1(
             SectionSpecificContentObject sectionSpecificContentObject) throws OwsExceptionReport;
 
@@ -1051,6 +1188,34 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
                 Set<T>> asFunction(HashSet<T>::new).andThen(Collections::synchronizedSet);
     }
 
+    /**
+     * Contents created for a version of the content cache.
+     */
+    private static class CachedContents {
+        private final SosContentCache cache;
+
+        private final DateTime cacheVersion;
+
+        private final ConcurrentMap<String, List<SosObservationOffering>> contents = new ConcurrentHashMap<>();
+
+        CachedContents(SosContentCache cache, DateTime cacheVersion) {
+            this.cache = cache;
+            this.cacheVersion = cacheVersion;
+        }
+
+        boolean isVersion(SosContentCache cache, DateTime cacheVersion) {
+            return this.cache == cache && this.cacheVersion.equals(cacheVersion);
+        }
+
+        List<SosObservationOffering> get(String key) {
+            return contents.get(key);
+        }
+
+        void put(String key, List<SosObservationOffering> contents) {
+            this.contents.put(key, contents);
+        }
+    }
+
     protected static class SectionSpecificContentObject {
         private GetCapabilitiesRequest request;
 
@@ -27,11 +27,21 @@
  */
 package org.n52.sos.ds;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.exception.ows.concrete.InvalidAcceptVersionsParameterException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceOrVersionException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceParameterException;
@@ -39,20 +49,40 @@ import org.n52.iceland.exception.ows.concrete.VersionNotSupportedException;
 import org.n52.iceland.service.operator.ServiceOperator;
 import org.n52.iceland.service.operator.ServiceOperatorRepository;
 import org.n52.janmayen.Comparables;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingServiceParameterException;
 import org.n52.shetland.ogc.ows.exception.MissingVersionParameterException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
 import org.n52.shetland.ogc.ows.service.OwsServiceKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.BatchConstants;
 import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
 import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.GetFeatureOfInterestRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationByIdRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetResultRequest;
+import org.n52.shetland.ogc.sos.request.GetResultTemplateRequest;
 import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.BatchResponse.ExceptionOrResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
 
 /**
- * TODO JavaDoc
+ * Executes the requests contained in a {@link BatchRequest}. If a concurrency
+ * greater than one is configured, consecutive read-only requests are executed
+ * concurrently while transactional requests are executed sequentially after
+ * all preceding requests have completed. The responses are always returned in
+ * the order of the requests.
  *
  * Renamed, in version 4.x called BatchOperationDAO
  *
@@ -60,10 +90,24 @@ import org.n52.shetland.ogc.sos.response.BatchResponse;
  *
  * @since 5.0.0
  */
-public class BatchOperationHandler extends AbstractSosOperationHandler {
+@Configurable
+public class BatchOperationHandler extends AbstractSosOperationHandler implements Destroyable {
+
+    public static final String CONCURRENCY = "operation.batch.concurrency";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchOperationHandler.class);
+
+    private static final Set<Class<? extends OwsServiceRequest>> READ_ONLY_REQUESTS =
+            ImmutableSet.of(GetCapabilitiesRequest.class, DescribeSensorRequest.class, GetObservationRequest.class,
+                    GetObservationByIdRequest.class, GetFeatureOfInterestRequest.class, GetResultRequest.class,
+                    GetResultTemplateRequest.class, GetDataAvailabilityRequest.class);
 
     private ServiceOperatorRepository serviceOperatorRepository;
 
+    private int concurrency = 1;
+
+    private ExecutorService executor;
+
     public BatchOperationHandler() {
         super(SosConstants.SOS, BatchConstants.OPERATION_NAME);
     }
@@ -73,21 +117,140 @@ public class BatchOperationHandler extends AbstractSosOperationHandler {
         this.serviceOperatorRepository = serviceOperatorRepository;
     }
 
+    /**
+     * Set the number of read-only requests of a batch request that are
+     * executed concurrently
+     *
+     * @param concurrency
+     *            Number of concurrent requests, sequential execution if
+     *            <code>1</code> or less
+     */
+    @Setting(CONCURRENCY)
+    public synchronized void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(concurrency, 1);
+        shutdownExecutor();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        shutdownExecutor();
+    }
+
     public BatchResponse executeRequests(BatchRequest request) throws OwsExceptionReport {
         BatchResponse response = new BatchResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
-        for (OwsServiceRequest r : request) {
+        ExecutorService executor = getExecutor();
+        List<Execution> running = new LinkedList<>();
+        try {
+            for (OwsServiceRequest r : request) {
+                if (executor != null && isReadOnly(r)) {
+                    running.add(new Execution(r, executor, () -> getServiceOperator(r).receiveRequest(r)));
+                } else {
+                    if (!addResponses(request, response, running)) {
+                        return response;
+                    }
+                    try {
+                        response.add(getServiceOperator(r).receiveRequest(r));
+                    } catch (OwsExceptionReport e) {
+                        if (!addException(request, response, r, e)) {
+                            return response;
+                        }
+                    }
+                }
+            }
+            addResponses(request, response, running);
+            return response;
+        } catch (OwsExceptionReport | RuntimeException | Error e) {
+            close(response);
+            throw e;
+        } finally {
+            // responses of requests after a failure are not returned
+            running.forEach(Execution::discard);
+        }
+    }
+
+    /**
+     * Close the responses of a batch response that is not returned, e.g.
+     * streaming responses holding a connection.
+     */
+    private void close(BatchResponse response) {
+        for (ExceptionOrResponse r : response) {
+            if (!r.isException()) {
+                close(r.getResponse());
+            }
+        }
+    }
+
+    private static void close(OwsServiceResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error while closing discarded batch response", e);
+        }
+    }
+
+    /**
+     * Wait for the running requests and add their responses in request order.
+     *
+     * @return <code>false</code> if a request failed and the batch request
+     *         should stop at failures
+     */
+    private boolean addResponses(BatchRequest request, BatchResponse response, List<Execution> running)
+            throws OwsExceptionReport {
+        while (!running.isEmpty()) {
+            Execution execution = running.remove(0);
             try {
-                response.add(getServiceOperator(r).receiveRequest(r));
-            } catch (OwsExceptionReport e) {
-                response.add(e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
-                if (request.isStopAtFailure()) {
-                    break;
+                response.add(execution.future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof OwsExceptionReport) {
+                    if (!addException(request, response, execution.request, (OwsExceptionReport) cause)) {
+                        return false;
+                    }
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new NoApplicableCodeException().causedBy(cause)
+                            .withMessage("Error while executing batch request!");
                 }
+            } catch (InterruptedException e) {
+                execution.discard();
+                Thread.currentThread().interrupt();
+                throw new NoApplicableCodeException().causedBy(e)
+                        .withMessage("Interrupted while executing batch request!");
             }
         }
-        return response;
+        return true;
+    }
+
+    private boolean addException(BatchRequest request, BatchResponse response, OwsServiceRequest r,
+            OwsExceptionReport e) {
+        response.add(e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
+        return !request.isStopAtFailure();
+    }
+
+    private boolean isReadOnly(OwsServiceRequest request) {
+        return READ_ONLY_REQUESTS.stream().anyMatch(type -> type.isInstance(request));
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null && concurrency > 1) {
+            executor = Executors.newFixedThreadPool(concurrency, new GroupedAndNamedThreadFactory("52n-sos-batch"));
+        }
+        return executor;
+    }
+
+    private synchronized void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
     }
 
     protected ServiceOperator getServiceOperator(OwsServiceRequest request) throws OwsExceptionReport {
@@ -169,4 +332,62 @@ public class BatchOperationHandler extends AbstractSosOperationHandler {
     public boolean isSupported() {
         return true;
     }
+
+    /**
+     * A concurrently executed request. The response of an execution that is
+     * discarded is closed, either by {@link #discard()} if the request has
+     * already completed or by the executing thread when it completes.
+     */
+    private static final class Execution implements Callable<OwsServiceResponse> {
+
+        private final OwsServiceRequest request;
+
+        private final Callable<OwsServiceResponse> task;
+
+        private final Future<OwsServiceResponse> future;
+
+        private boolean completed;
+
+        private boolean discarded;
+
+        Execution(OwsServiceRequest request, ExecutorService executor, Callable<OwsServiceResponse> task) {
+            this.request = request;
+            this.task = task;
+            this.future = executor.submit(this);
+        }
+
+        @Override
+        public OwsServiceResponse call() throws Exception {
+            OwsServiceResponse response = task.call();
+            if (!complete()) {
+                close(response);
+            }
+            return response;
+        }
+
+        private synchronized boolean complete() {
+            completed = !discarded;
+            return completed;
+        }
+
+        void discard() {
+            boolean close;
+            synchronized (this) {
+                discarded = true;
+                close = completed;
+            }
+            if (!close) {
+                future.cancel(true);
+                return;
+            }
+            try {
+                close(future.get());
+            } catch (ExecutionException | CancellationException e) {
+                // completed without a response
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
 }
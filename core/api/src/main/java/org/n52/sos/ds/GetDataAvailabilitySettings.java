@@ -31,4 +31,8 @@ public interface GetDataAvailabilitySettings {
     String FORCE_GDA_VALUE_COUNT = "operation.gda.forceValueCount";
 
     String FORCE_GDA_20_RESPONSE = "operation.gda.forceVersion20";
+
+    String RESULT_TIMES_CACHE_SIZE = "operation.gda.resultTimes.cache.size";
+
+    String RESULT_TIMES_CACHE_EXPIRY = "operation.gda.resultTimes.cache.expiry";
 }
@@ -602,7 +602,7 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
     protected void checkProcedure(String procedure, String parameterName) throws OwsExceptionReport {
         if (Strings.isNullOrEmpty(procedure)) {
             throw new MissingProcedureParameterException();
-        } else if (!getCache().getPublishedProcedures().contains(procedure)) {
+        } else if (!getCache().hasPublishedProcedure(procedure)) {
             throw new InvalidParameterValueException(parameterName, procedure);
         }
     }
@@ -732,7 +732,7 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
         if (featureOfInterest == null || featureOfInterest.isEmpty()) {
             throw new MissingParameterValueException(parameterName);
         }
-        if (getCache().getPublishedFeatureOfInterest().contains(featureOfInterest)) {
+        if (getCache().hasPublishedFeatureOfInterest(featureOfInterest)) {
             return;
         }
         if (getCache().hasRelatedFeature(featureOfInterest) && getCache().isRelatedFeatureSampled(featureOfInterest)) {
@@ -791,7 +791,7 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
                             || getCache().hasObservableProperty(observedProperty))) {
                 throw new InvalidParameterValueException(parameterName, observedProperty);
             }
-        } else if (!getCache().getPublishedObservableProperties().contains(observedProperty)) {
+        } else if (!getCache().hasPublishedObservableProperty(observedProperty)) {
             throw new InvalidParameterValueException(parameterName, observedProperty);
         }
 
@@ -843,11 +843,11 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
             throw new MissingParameterValueException(parameterName);
         }
         if (all) {
-            if (!getCache().getOfferings().contains(offering)) {
+            if (!getCache().hasOffering(offering)) {
                 throw new InvalidParameterValueException(parameterName, offering);
             }
         } else {
-            if (!getCache().getPublishedOfferings().contains(offering)) {
+            if (!getCache().hasPublishedOffering(offering)) {
                 throw new InvalidParameterValueException(parameterName, offering);
             }
         }
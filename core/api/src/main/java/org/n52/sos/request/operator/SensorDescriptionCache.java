@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.event.events.RequestEvent;
+import org.n52.iceland.event.events.ResponseEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+/**
+ * Bounded cache of DescribeSensor responses. The responses are cached after
+ * the post processing and the response modifiers were applied, so a cached
+ * response is returned as is and the procedure descriptions are not modified
+ * again. The key of a response is the request as received, i.e. service,
+ * version, procedure, procedure description format, valid time and requested
+ * language. Requests with other extensions are not cached.
+ *
+ * The size of the cache is limited by the total number of cached procedure
+ * descriptions. The responses of a procedure are invalidated by sensor
+ * insertion, modification and deletion and by observation and result
+ * insertion events for this procedure, all responses by cache updates,
+ * observation deletions and by each change of the content cache version, i.e.
+ * instance and last update time of the content cache, because the scheduled
+ * content cache updates do not fire events.
+ *
+ * @since 6.0.0
+ */
+@Configurable
+public class SensorDescriptionCache implements EventListener {
+
+    public static final String SIZE = "service.describeSensor.cache.size";
+
+    public static final String EXPIRY = "service.describeSensor.cache.expiry";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SensorDescriptionCache.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            SensorInsertion.class,
+            SensorModification.class,
+            SensorDeletion.class,
+            ObservationInsertion.class,
+            ResultInsertion.class,
+            DeleteObservationEvent.class,
+            UpdateCache.class);
+
+    private final AtomicLong version = new AtomicLong();
+
+    private long size = 1000L;
+
+    private long expiry = 60L;
+
+    private Cache<Key, Entry> cache;
+
+    private SosContentCache contentCache;
+
+    private DateTime contentCacheVersion;
+
+    /**
+     * Set the maximum number of procedure descriptions to keep in the cache
+     *
+     * @param size
+     *            Maximum number of procedure descriptions, the cache is
+     *            disabled if <code>0</code>
+     */
+    @Setting(SIZE)
+    public synchronized void setSize(int size) {
+        this.size = Math.max(size, 0);
+        this.cache = null;
+    }
+
+    /**
+     * Set the time in minutes after which cached responses expire
+     *
+     * @param expiry
+     *            Expiry in minutes, no expiry if <code>0</code>
+     */
+    @Setting(EXPIRY)
+    public synchronized void setExpiry(int expiry) {
+        this.expiry = Math.max(expiry, 0);
+        this.cache = null;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Get the response for the request from the cache or pass the request to
+     * the receiver and cache its response. For cached responses the request
+     * and response events are submitted to the event bus, because the request
+     * operator is bypassed.
+     *
+     * @param request
+     *            the DescribeSensor request
+     * @param contentCache
+     *            the current content cache
+     * @param receiver
+     *            the receiver of not cached requests
+     * @param eventBus
+     *            the service event bus
+     * @return the response
+     * @throws OwsExceptionReport
+     *             If the receiver fails
+     */
+    public OwsServiceResponse receive(DescribeSensorRequest request, SosContentCache contentCache,
+            RequestReceiver receiver, EventBus eventBus) throws OwsExceptionReport {
+        Cache<Key, Entry> responses = getCache();
+        Key key = responses != null ? Key.of(request) : null;
+        if (key == null) {
+            return receiver.receive(request);
+        }
+        checkContentCacheVersion(contentCache);
+        Entry cached = responses.getIfPresent(key);
+        if (cached != null) {
+            LOGGER.debug("DescribeSensor response for {} loaded from cache", key);
+            DescribeSensorResponse response = cached.createResponse();
+            eventBus.submit(new RequestEvent(request));
+            eventBus.submit(new ResponseEvent(response));
+            return response;
+        }
+        long queryVersion = version.get();
+        OwsServiceResponse response = receiver.receive(request);
+        if (response instanceof DescribeSensorResponse) {
+            // the request modifiers have replaced the requested procedure
+            // with the identifier used in the events
+            put(responses, key, new Entry(request.getProcedure(), (DescribeSensorResponse) response),
+                    queryVersion);
+        }
+        return response;
+    }
+
+    private void checkContentCacheVersion(SosContentCache current) {
+        DateTime currentVersion = current != null ? current.getLastUpdateTime() : null;
+        synchronized (version) {
+            if (current != contentCache || !Objects.equals(currentVersion, contentCacheVersion)) {
+                contentCache = current;
+                contentCacheVersion = currentVersion;
+                invalidateAll();
+            }
+        }
+    }
+
+    private void put(Cache<Key, Entry> responses, Key key, Entry entry, long queryVersion) {
+        if (entry.weight() > size) {
+            return;
+        }
+        synchronized (version) {
+            if (queryVersion == version.get()) {
+                responses.put(key, entry);
+            }
+        }
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof SensorInsertion) {
+            invalidate(Collections.singleton(((SensorInsertion) event).getResponse().getAssignedProcedure()));
+        } else if (event instanceof SensorModification) {
+            invalidate(Collections.singleton(((SensorModification) event).getRequest().getProcedureIdentifier()));
+        } else if (event instanceof SensorDeletion) {
+            invalidate(Collections.singleton(((SensorDeletion) event).getRequest().getProcedureIdentifier()));
+        } else if (event instanceof ObservationInsertion) {
+            invalidate(getProcedures(((ObservationInsertion) event).getRequest().getObservations()));
+        } else if (event instanceof ResultInsertion) {
+            invalidate(getProcedures(((ResultInsertion) event).getResponse().getObservations()));
+        } else {
+            invalidateAll();
+        }
+    }
+
+    public void invalidate(Collection<String> procedures) {
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, Entry> responses = cache;
+            if (responses != null) {
+                responses.asMap().values().removeIf(entry -> procedures.contains(entry.procedure));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, Entry> responses = cache;
+            if (responses != null) {
+                responses.invalidateAll();
+            }
+        }
+    }
+
+    private Set<String> getProcedures(Collection<OmObservation> observations) {
+        Set<String> procedures = new HashSet<>();
+        if (observations != null) {
+            for (OmObservation observation : observations) {
+                if (observation.getObservationConstellation() != null) {
+                    procedures.add(observation.getObservationConstellation().getProcedureIdentifier());
+                }
+            }
+        }
+        return procedures;
+    }
+
+    private synchronized Cache<Key, Entry> getCache() {
+        if (cache == null && isEnabled()) {
+            CacheBuilder<Key, Entry> builder =
+                    CacheBuilder.newBuilder().maximumWeight(size).weigher((Key key, Entry entry) -> entry.weight());
+            if (expiry > 0) {
+                builder.expireAfterWrite(expiry, TimeUnit.MINUTES);
+            }
+            cache = builder.build();
+        }
+        return cache;
+    }
+
+    /**
+     * Receiver of the DescribeSensor requests which are not cached
+     */
+    @FunctionalInterface
+    public interface RequestReceiver {
+        OwsServiceResponse receive(DescribeSensorRequest request) throws OwsExceptionReport;
+    }
+
+    private static final class Key {
+
+        private final String service;
+
+        private final String version;
+
+        private final String procedure;
+
+        private final String procedureDescriptionFormat;
+
+        private final Time validTime;
+
+        private final String language;
+
+        private Key(DescribeSensorRequest request) {
+            this.service = request.getService();
+            this.version = request.getVersion();
+            this.procedure = request.getProcedure();
+            this.procedureDescriptionFormat = request.getProcedureDescriptionFormat();
+            this.validTime = request.getValidTime();
+            this.language = request.isSetRequestedLanguage() ? request.getRequestedLanguage() : null;
+        }
+
+        static Key of(DescribeSensorRequest request) {
+            if (request.getProcedure() == null || !hasOnlyLanguageExtension(request)) {
+                return null;
+            }
+            return new Key(request);
+        }
+
+        private static boolean hasOnlyLanguageExtension(OwsServiceRequest request) {
+            return request.getExtensions() == null || request.getExtensions().stream()
+                    .allMatch(e -> OWSConstants.AdditionalRequestParams.language.name().equals(e.getIdentifier()));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, procedure, procedureDescriptionFormat, validTime, language);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(service, other.service) && Objects.equals(version, other.version)
+                    && Objects.equals(procedure, other.procedure)
+                    && Objects.equals(procedureDescriptionFormat, other.procedureDescriptionFormat)
+                    && Objects.equals(validTime, other.validTime) && Objects.equals(language, other.language);
+        }
+
+        @Override
+        public String toString() {
+            return procedure + "/" + procedureDescriptionFormat;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String procedure;
+
+        private final String service;
+
+        private final String version;
+
+        private final String outputFormat;
+
+        private final List<SosProcedureDescription<?>> descriptions;
+
+        Entry(String procedure, DescribeSensorResponse response) {
+            this.procedure = procedure;
+            this.service = response.getService();
+            this.version = response.getVersion();
+            this.outputFormat = response.getOutputFormat();
+            this.descriptions = response.isSetProcedureDescriptions()
+                    ? new ArrayList<>(response.getProcedureDescriptions())
+                    : Collections.emptyList();
+        }
+
+        DescribeSensorResponse createResponse() {
+            DescribeSensorResponse response = new DescribeSensorResponse(service, version);
+            response.setOutputFormat(outputFormat);
+            response.setSensorDescriptions(new ArrayList<>(descriptions));
+            return response;
+        }
+
+        int weight() {
+            return Math.max(descriptions.size(), 1);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BinaryAttachmentResponse} whose content is a (temporary) file that is
+ * transferred to the output when the response is written, instead of being
+ * held as byte array. The file and its temporary directory are deleted when
+ * the response is closed.
+ *
+ * @since 6.0.0
+ *
+ */
+public class FileAttachmentResponse extends BinaryAttachmentResponse implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileAttachmentResponse.class);
+
+    private final File file;
+
+    private final File tempDirectory;
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            The file containing the content
+     * @param tempDirectory
+     *            The temporary directory to delete with the file, may be
+     *            <code>null</code>
+     * @param contentType
+     *            The content type
+     * @param filename
+     *            The file name of the attachment
+     */
+    public FileAttachmentResponse(File file, File tempDirectory, MediaType contentType, String filename) {
+        super(null, contentType, filename);
+        this.file = file;
+        this.tempDirectory = tempDirectory;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The length of the file in bytes
+     */
+    public long getLength() {
+        return file.length();
+    }
+
+    /**
+     * Copy the content of the file to the output stream. The file is copied
+     * through a small buffer, so its size is not limited by the heap. It is
+     * not a zero-copy transfer, the output streams of servlet containers are
+     * no channels the file could be transferred to.
+     *
+     * @param out
+     *            The output stream to write to
+     * @throws IOException
+     *             If reading or writing fails
+     */
+    public void transferTo(OutputStream out) throws IOException {
+        Files.copy(file.toPath(), out);
+        out.flush();
+    }
+
+    /**
+     * Reads the complete file for writers that can not transfer the file.
+     */
+    @Override
+    public byte[] getBytes() {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return (int) Math.min(getLength(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        Path path = tempDirectory != null ? tempDirectory.toPath() : file.toPath();
+        if (Files.exists(path)) {
+            try (Stream<Path> paths = Files.walk(path)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            } catch (IOException e) {
+                LOGGER.warn("Error while deleting temporary file {}", path, e);
+            }
+        }
+    }
+
+}
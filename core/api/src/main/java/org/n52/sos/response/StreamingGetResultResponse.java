@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+
+/**
+ * {@link GetResultResponse} whose result values are written on demand by a
+ * {@link ResultValuesWriter}, e.g. from a database cursor, instead of being
+ * held as one String.
+ *
+ * @since 6.0.0
+ *
+ */
+public class StreamingGetResultResponse extends GetResultResponse {
+
+    private final ResultValuesWriter resultValuesWriter;
+
+    private boolean materialized;
+
+    public StreamingGetResultResponse(String service, String version, ResultValuesWriter resultValuesWriter) {
+        super(service, version);
+        this.resultValuesWriter = resultValuesWriter;
+    }
+
+    /**
+     * Write the result values to the writer
+     *
+     * @param writer
+     *            The writer to write the result values to
+     * @throws IOException
+     *             If writing fails
+     * @throws OwsExceptionReport
+     *             If the result values could not be created
+     */
+    public void writeResultValues(Writer writer) throws IOException, OwsExceptionReport {
+        if (materialized) {
+            writer.write(super.getResultValues());
+        } else {
+            resultValuesWriter.write(writer);
+        }
+    }
+
+    /**
+     * Creates the complete result values String for encoders that can not
+     * stream the result values.
+     */
+    @Override
+    public String getResultValues() {
+        if (!materialized) {
+            try (StringWriter writer = new StringWriter()) {
+                resultValuesWriter.write(writer);
+                setResultValues(writer.toString());
+            } catch (IOException | OwsExceptionReport e) {
+                throw new IllegalStateException("Error while creating the result values!", e);
+            }
+        }
+        return super.getResultValues();
+    }
+
+    @Override
+    public void setResultValues(String resultValues) {
+        super.setResultValues(resultValues);
+        this.materialized = true;
+    }
+
+    @Override
+    public boolean hasResultValues() {
+        return !materialized || super.hasResultValues();
+    }
+
+    /**
+     * Writer for the result values of a {@link StreamingGetResultResponse}
+     */
+    @FunctionalInterface
+    public interface ResultValuesWriter {
+
+        void write(Writer writer) throws IOException, OwsExceptionReport;
+
+    }
+
+}
@@ -35,8 +35,11 @@ public interface SosSettings {
     String STRICT_SPATIAL_FILTERING_PROFILE  = "service.strictSpatialFilteringProfile";
     String EXPOSE_CHILD_OBSERVABLE_PROPERTIES = "service.exposeChildObservableProperties";
     String LIST_ONLY_PARENT_OFFERINGS = "service.capabilities.listOnlyParentOfferings";
+    String CACHE_CAPABILITIES_CONTENTS = "service.capabilities.cacheContents";
     String UPDATE_FEATURE_GEOMETRY = "service.updateFeatureGeometry";
     String CACHE_FILE_FOLDER = "service.cacheFileFolder";
+    String CACHE_COPY_ON_WRITE = "service.cacheCopyOnWrite";
+    String CACHE_JOURNAL_COMPACTION_THRESHOLD = "service.cacheJournalCompactionThreshold";
     String CREATE_FOI_GEOM_FROM_SAMPLING_GEOMS = "service.createFeatureGeometryFromSamplingGeometries";
     String ALLOW_TEMPLATE_WITHOUT_PROCEDURE_FEATURE = "service.allowTemplateWithoutProcedureAndFeature";
     String INCLUDE_RESULT_TIME_FOR_MERGING = "service.includeResultTimeForMerging";
@@ -44,4 +47,6 @@ public interface SosSettings {
     String STA_SUPPORTS_URLS = "service.sta.supports.urls";
     String INSERT_ADDITIONALLY_AS_PROFILE = "service.transactional.insertadditionallyasprofile";
     String TRAJECTORY_DETECTION_TIME_GAP = "service.transactional.trajectoryDetectionTimeGap";
+    String CONCURRENT_INSERT_OBSERVATION = "service.transactional.concurrentInsertObservation";
+    String BULK_INSERT_OBSERVATION = "service.transactional.bulkInsertObservation";
 }
@@ -122,6 +122,10 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
 
     private final Map<Integer, CoordinateReferenceSystem> crsCache = Maps.newConcurrentMap();
 
+    private final Map<Long, MathTransform> transformCache = Maps.newConcurrentMap();
+
+    private final Map<Integer, Boolean> northingFirstCache = Maps.newConcurrentMap();
+
     private String srsNamePrefixUrl;
 
     @Setting(CodingSettings.SRS_NAME_PREFIX_URL)
@@ -446,8 +450,14 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
      *             If an error occurs
      */
     public boolean isNorthingFirstEpsgCode(int epsgCode) throws CodedException {
+        Boolean northingFirst = northingFirstCache.get(epsgCode);
+        if (northingFirst != null) {
+            return northingFirst;
+        }
         try {
-            return AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode)));
+            northingFirst = AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode)));
+            northingFirstCache.put(epsgCode, northingFirst);
+            return northingFirst;
         } catch (FactoryException e) {
             throw new NoApplicableCodeException().causedBy(e).withMessage("The EPSG '%d' is invalid", epsgCode);
         }
@@ -701,7 +711,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         }
         Geometry switchedCoordiantes = switchCoordinateAxisIfNeeded(geometry, targetSRID);
         try {
-            MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
+            MathTransform transform = getMathTransform(geometry.getSRID(), targetSRID, sourceCRS, targetCRS);
             Geometry transformed = JTS.transform(switchedCoordiantes, transform);
             transformed.setSRID(targetSRID);
             return transformed;
@@ -711,6 +721,102 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         }
     }
 
+    /**
+     * Transform packed coordinates from source to target EPSG code with a
+     * single transformation call. The coordinate axes are switched like for
+     * geometries if the axis orders of the EPSG codes differ.
+     *
+     * @param coordinates
+     *            Packed coordinates, e.g. <code>x0, y0, x1, y1, ...</code>
+     * @param dimension
+     *            Number of ordinates per coordinate
+     * @param sourceSRID
+     *            Source EPSG code
+     * @param targetSRID
+     *            Target EPSG code
+     *
+     * @return Transformed packed coordinates with the same dimension
+     *
+     * @throws OwsExceptionReport
+     *             If the EPSG codes are not supported or the transformation
+     *             fails
+     */
+    public double[] transform(double[] coordinates, int dimension, int sourceSRID, int targetSRID)
+            throws OwsExceptionReport {
+        if (coordinates == null || coordinates.length == 0 || sourceSRID == targetSRID) {
+            return coordinates;
+        }
+        CoordinateReferenceSystem sourceCRS = getCRS(sourceSRID);
+        CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
+        if (sourceCRS.equals(targetCRS)) {
+            return coordinates;
+        }
+        try {
+            MathTransform transform = getMathTransform(sourceSRID, targetSRID, sourceCRS, targetCRS);
+            boolean switchAxis = isNorthingFirstEpsgCode(sourceSRID) != isNorthingFirstEpsgCode(targetSRID);
+            int count = coordinates.length / dimension;
+            int sourceDimension = transform.getSourceDimensions();
+            int targetDimension = transform.getTargetDimensions();
+            double[] source = new double[count * sourceDimension];
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < sourceDimension; j++) {
+                    source[i * sourceDimension + j] = j < dimension ? coordinates[i * dimension + j] : Double.NaN;
+                }
+                if (switchAxis) {
+                    double x = source[i * sourceDimension];
+                    source[i * sourceDimension] = source[i * sourceDimension + 1];
+                    source[i * sourceDimension + 1] = x;
+                }
+            }
+            double[] target = new double[count * targetDimension];
+            transform.transform(source, 0, target, 0, count);
+            double[] transformed = new double[count * dimension];
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < dimension; j++) {
+                    if (j < targetDimension) {
+                        transformed[i * dimension + j] = target[i * targetDimension + j];
+                    } else {
+                        // keep ordinates the transformation does not handle
+                        transformed[i * dimension + j] =
+                                j < sourceDimension ? Double.NaN : coordinates[i * dimension + j];
+                    }
+                }
+            }
+            return transformed;
+        } catch (FactoryException | TransformException fe) {
+            throw new NoApplicableCodeException().causedBy(fe).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE,
+                    sourceSRID);
+        }
+    }
+
+    /**
+     * Get the cached transformation from source to target CRS.
+     *
+     * @param sourceSRID
+     *            Source EPSG code
+     * @param targetSRID
+     *            Target EPSG code
+     * @param sourceCRS
+     *            Source CRS
+     * @param targetCRS
+     *            Target CRS
+     *
+     * @return The transformation
+     *
+     * @throws FactoryException
+     *             If no transformation could be created
+     */
+    private MathTransform getMathTransform(int sourceSRID, int targetSRID, CoordinateReferenceSystem sourceCRS,
+            CoordinateReferenceSystem targetCRS) throws FactoryException {
+        Long key = ((long) sourceSRID << Integer.SIZE) | (targetSRID & 0xFFFFFFFFL);
+        MathTransform transform = transformCache.get(key);
+        if (transform == null) {
+            transform = CRS.findMathTransform(sourceCRS, targetCRS);
+            transformCache.put(key, transform);
+        }
+        return transform;
+    }
+
     /**
      * Get CRS from EPSG code.
      *
@@ -791,7 +897,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
             CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
             try {
                 if (sourceCRS.getCoordinateSystem().getDimension() == targetCRS.getCoordinateSystem().getDimension()) {
-                    MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
+                    MathTransform transform = getMathTransform(sourceSRID, targetSRID, sourceCRS, targetCRS);
                     Envelope transformed = JTS.transform(envelope, transform);
                     return transformed;
                 }
@@ -813,6 +919,8 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     @VisibleForTesting
     protected void clearSupportedCRSMap() {
         crsCache.clear();
+        transformCache.clear();
+        northingFirstCache.clear();
     }
 
     public Set<String> addAuthorityCrsPrefix(Collection<String> crses) {
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
+import org.n52.shetland.ogc.sos.Sos1Constants;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.SosObservationOffering;
+import org.n52.shetland.ogc.sos.SosOffering;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.SosContentCache;
+
+public class AbstractSosGetCapabilitiesHandlerTest {
+
+    private static final String OFFERING = "offering";
+
+    private static final DateTime TIME = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final List<String> created = new ArrayList<>();
+
+    private SosContentCache cache;
+
+    private DateTime lastUpdateTime;
+
+    private AbstractSosGetCapabilitiesHandler handler;
+
+    @Before
+    public void setUp() {
+        lastUpdateTime = TIME;
+        cache = createCache();
+        handler = new AbstractSosGetCapabilitiesHandler() {
+            @Override
+            protected List<SosObservationOffering> getContentsForSosV1(
+                    SectionSpecificContentObject sectionSpecificContentObject) {
+                return createContents(sectionSpecificContentObject);
+            }
+
+            @Override
+            protected List<SosObservationOffering> getContentsForSosV2(
+                    SectionSpecificContentObject sectionSpecificContentObject) {
+                return createContents(sectionSpecificContentObject);
+            }
+        };
+        handler.setDefaultLanguage("eng");
+        handler.setCacheController((ContentCacheController) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ContentCacheController.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getCache")) {
+                        return cache;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        handler.setCacheContents(true);
+    }
+
+    @Test
+    public void shouldReuseCachedContents() throws Exception {
+        List<SosObservationOffering> first = handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        List<SosObservationOffering> second = handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        assertThat(created, contains(Sos2Constants.SERVICEVERSION));
+        assertThat(second.get(0), is(not(sameInstance(first.get(0)))));
+        assertThat(second.get(0).getOffering().getIdentifier(), is(OFFERING));
+    }
+
+    @Test
+    public void shouldNotShareModifiedOfferings() throws Exception {
+        SosObservationOffering first = handler.getContents(request(Sos2Constants.SERVICEVERSION, null)).get(0);
+        first.getObservedArea().setSrid(3857);
+        first.getOffering().setDescription("modified");
+        first.getOffering().getName().get(0).setValue("modified");
+        ((TimePeriod) first.getPhenomenonTime()).setEnd(TIME.plusDays(1));
+
+        SosObservationOffering second = handler.getContents(request(Sos2Constants.SERVICEVERSION, null)).get(0);
+        assertThat(second.getObservedArea().getSrid(), is(4326));
+        assertThat(second.getOffering().getDescription(), is("description"));
+        assertThat(second.getOffering().getName().get(0).getValue(), is("name"));
+        assertThat(((TimePeriod) second.getPhenomenonTime()).getEnd(), is(TIME));
+    }
+
+    @Test
+    public void shouldRecreateContentsAfterCacheUpdate() throws Exception {
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        lastUpdateTime = TIME.plusMinutes(1);
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        cache = createCache();
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        assertThat(created, contains(Sos2Constants.SERVICEVERSION, Sos2Constants.SERVICEVERSION,
+                Sos2Constants.SERVICEVERSION));
+    }
+
+    @Test
+    public void shouldCacheContentsPerVersionAndLanguage() throws Exception {
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        handler.getContents(request(Sos1Constants.SERVICEVERSION, null));
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, "ger"));
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, "eng"));
+        handler.getContents(request(Sos1Constants.SERVICEVERSION, null));
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, "ger"));
+        assertThat(created, contains(Sos2Constants.SERVICEVERSION, Sos1Constants.SERVICEVERSION,
+                Sos2Constants.SERVICEVERSION + "ger"));
+    }
+
+    @Test
+    public void shouldNotCacheContentsIfDisabled() throws Exception {
+        handler.setCacheContents(false);
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        handler.getContents(request(Sos2Constants.SERVICEVERSION, null));
+        assertThat(created, contains(Sos2Constants.SERVICEVERSION, Sos2Constants.SERVICEVERSION));
+    }
+
+    private AbstractSosGetCapabilitiesHandler.SectionSpecificContentObject request(String version, String language) {
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest(SosConstants.SOS);
+        if (language != null) {
+            request.addSweTextExtension(OWSConstants.AdditionalRequestParams.language.name(), language);
+        }
+        return new AbstractSosGetCapabilitiesHandler.SectionSpecificContentObject().setRequest(request)
+                .setResponse(new GetCapabilitiesResponse(SosConstants.SOS, version));
+    }
+
+    private List<SosObservationOffering> createContents(
+            AbstractSosGetCapabilitiesHandler.SectionSpecificContentObject sectionSpecificContentObject) {
+        GetCapabilitiesRequest request = sectionSpecificContentObject.getGetCapabilitiesRequest();
+        created.add(sectionSpecificContentObject.getGetCapabilitiesResponse().getVersion()
+                + (request.isSetRequestedLanguage() ? request.getRequestedLanguage() : ""));
+        SosObservationOffering offering = new SosObservationOffering();
+        SosOffering sosOffering = new SosOffering(OFFERING, "name");
+        sosOffering.setDescription("description");
+        offering.setOffering(sosOffering);
+        offering.setObservedArea(new ReferencedEnvelope(new Envelope(0, 1, 0, 1), 4326));
+        offering.setPhenomenonTime(new TimePeriod(TIME.minusDays(1), TIME));
+        return Collections.singletonList(offering);
+    }
+
+    private SosContentCache createCache() {
+        return (SosContentCache) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SosContentCache.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getLastUpdateTime":
+                            return lastUpdateTime;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.service.operator.ServiceOperator;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceKey;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+
+import com.google.common.collect.Sets;
+
+public class BatchOperationHandlerTest {
+
+    private static final String FAIL = "fail";
+
+    private static final String ERROR = "error";
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    private final List<String> closed = new CopyOnWriteArrayList<>();
+
+    private CountDownLatch latch;
+
+    private CountDownLatch failureLatch;
+
+    private BatchOperationHandler handler;
+
+    @Before
+    public void setUp() {
+        handler = new BatchOperationHandler() {
+            @Override
+            protected ServiceOperator getServiceOperator(OwsServiceRequest request) {
+                return new TestServiceOperator();
+            }
+        };
+        handler.setConcurrency(3);
+    }
+
+    @After
+    public void tearDown() {
+        handler.destroy();
+    }
+
+    @Test
+    public void shouldExecuteReadOnlyRequestsConcurrentlyInOrder() throws OwsExceptionReport {
+        latch = new CountDownLatch(3);
+        BatchResponse response = handler.executeRequests(batch(read("1"), read("2"), read("3")));
+        assertThat(versions(response), contains("1", "2", "3"));
+    }
+
+    @Test
+    public void shouldExecuteTransactionalRequestsAfterPrecedingRequests() throws OwsExceptionReport {
+        latch = new CountDownLatch(2);
+        BatchResponse response = handler.executeRequests(batch(read("1"), read("2"), write("3"), read("4")));
+        assertThat(versions(response), contains("1", "2", "3", "4"));
+        assertThat(Sets.newHashSet(started.subList(0, 2)), is((Set<String>) Sets.newHashSet("1", "2")));
+        assertThat(started.subList(2, 4), contains("3", "4"));
+    }
+
+    @Test
+    public void shouldStopAtFailure() throws OwsExceptionReport {
+        BatchRequest request = batch(read("1"), read(FAIL), read("3"), write("4"));
+        request.setStopAtFailure(true);
+        BatchResponse response = handler.executeRequests(request);
+        assertThat(response.getResponses().size(), is(2));
+        assertThat(response.getResponses().get(1).isException(), is(true));
+        assertThat(started.contains("4"), is(false));
+    }
+
+    @Test
+    public void shouldCloseDiscardedResponsesAtFailure() throws OwsExceptionReport, InterruptedException {
+        failureLatch = new CountDownLatch(2);
+        BatchRequest request = batch(read("1"), read(FAIL), read("3"));
+        request.setStopAtFailure(true);
+        BatchResponse response = handler.executeRequests(request);
+        assertThat(response.getResponses().size(), is(2));
+        waitForClose("3");
+        assertThat(closed, contains("3"));
+    }
+
+    @Test
+    public void shouldCloseCompletedResponsesOnError() throws OwsExceptionReport, InterruptedException {
+        failureLatch = new CountDownLatch(2);
+        try {
+            handler.executeRequests(batch(read("1"), read(ERROR), read("3")));
+            fail("Expected RuntimeException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is(ERROR));
+        }
+        waitForClose("3");
+        assertThat(Sets.newHashSet(closed), is((Set<String>) Sets.newHashSet("1", "3")));
+    }
+
+    @Test
+    public void shouldContinueAfterFailure() throws OwsExceptionReport {
+        BatchResponse response = handler.executeRequests(batch(read("1"), read(FAIL), write("3")));
+        assertThat(response.getResponses().size(), is(3));
+        assertThat(response.getResponses().get(1).isException(), is(true));
+        assertThat(response.getResponses().get(2).getResponse().getVersion(), is("3"));
+    }
+
+    @Test
+    public void shouldExecuteSequentiallyByDefault() throws OwsExceptionReport {
+        handler.setConcurrency(1);
+        BatchResponse response = handler.executeRequests(batch(read("1"), read("2"), write("3")));
+        assertThat(versions(response), contains("1", "2", "3"));
+        assertThat(started, contains("1", "2", "3"));
+    }
+
+    private void waitForClose(String version) throws InterruptedException {
+        for (int i = 0; i < 50 && !closed.contains(version); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    private BatchRequest batch(OwsServiceRequest... requests) {
+        BatchRequest request = new BatchRequest();
+        for (OwsServiceRequest r : requests) {
+            request.add(r);
+        }
+        return request;
+    }
+
+    private OwsServiceRequest read(String version) {
+        GetObservationRequest request = new GetObservationRequest();
+        request.setVersion(version);
+        return request;
+    }
+
+    private OwsServiceRequest write(String version) {
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setVersion(version);
+        return request;
+    }
+
+    private List<String> versions(BatchResponse response) {
+        return response.getResponses().stream().map(r -> r.getResponse().getVersion()).collect(Collectors.toList());
+    }
+
+    private class TestServiceOperator implements ServiceOperator {
+
+        @Override
+        public Set<OwsServiceKey> getKeys() {
+            return null;
+        }
+
+        @Override
+        public OwsServiceResponse receiveRequest(OwsServiceRequest request) throws OwsExceptionReport {
+            started.add(request.getVersion());
+            if (failureLatch != null && (FAIL.equals(request.getVersion()) || ERROR.equals(request.getVersion()))) {
+                // fail after the other requests have responded
+                try {
+                    assertThat(failureLatch.await(5, TimeUnit.SECONDS), is(true));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (FAIL.equals(request.getVersion())) {
+                throw new NoApplicableCodeException().withMessage("failure");
+            }
+            if (ERROR.equals(request.getVersion())) {
+                throw new IllegalStateException(ERROR);
+            }
+            if (latch != null && request instanceof GetObservationRequest && latch.getCount() > 0) {
+                // only returns early if the expected number of requests runs concurrently
+                latch.countDown();
+                try {
+                    assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            GetObservationResponse response = new GetObservationResponse() {
+                @Override
+                public void close() {
+                    closed.add(getVersion());
+                }
+            };
+            response.setVersion(request.getVersion());
+            if (failureLatch != null) {
+                failureLatch.countDown();
+            }
+            return response;
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.janmayen.event.EventBus;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.UpdateSensorRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.sos.response.UpdateSensorResponse;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swes.SwesExtension;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.event.events.UpdateCache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SensorDescriptionCacheTest {
+
+    private static final String PROCEDURE = "procedure";
+
+    private static final String OTHER_PROCEDURE = "other";
+
+    private static final String FORMAT = "http://www.opengis.net/sensorml/2.0";
+
+    private final AtomicInteger received = new AtomicInteger();
+
+    private final EventBus eventBus = new EventBus();
+
+    private SensorDescriptionCache cache;
+
+    private DateTime lastUpdateTime = new DateTime(0L);
+
+    private final SosContentCache contentCache = (SosContentCache) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] { SosContentCache.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getLastUpdateTime":
+                        return lastUpdateTime;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+    @Before
+    public void setUp() {
+        cache = new SensorDescriptionCache();
+        cache.setSize(10);
+        cache.setExpiry(0);
+    }
+
+    @Test
+    public void shouldReturnCachedDescriptions() throws OwsExceptionReport {
+        DescribeSensorResponse first = receive(PROCEDURE);
+        DescribeSensorResponse second = receive(PROCEDURE);
+        assertThat(received.get(), is(1));
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getOutputFormat(), is(FORMAT));
+        assertThat(second.getProcedureDescriptions().get(0),
+                is(sameInstance(first.getProcedureDescriptions().get(0))));
+    }
+
+    @Test
+    public void shouldInvalidateModifiedProcedure() throws OwsExceptionReport {
+        receive(PROCEDURE);
+        receive(OTHER_PROCEDURE);
+        UpdateSensorRequest request = new UpdateSensorRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        request.setProcedureIdentifier(PROCEDURE);
+        cache.handle(new SensorModification(request, new UpdateSensorResponse()));
+        receive(PROCEDURE);
+        receive(OTHER_PROCEDURE);
+        assertThat(received.get(), is(3));
+    }
+
+    @Test
+    public void shouldInvalidateAllOnCacheUpdate() throws OwsExceptionReport {
+        receive(PROCEDURE);
+        cache.handle(new UpdateCache());
+        receive(PROCEDURE);
+        assertThat(received.get(), is(2));
+    }
+
+    @Test
+    public void shouldInvalidateAllOnContentCacheUpdate() throws OwsExceptionReport {
+        receive(PROCEDURE);
+        receive(PROCEDURE);
+        lastUpdateTime = lastUpdateTime.plusMinutes(1);
+        receive(PROCEDURE);
+        receive(PROCEDURE);
+        assertThat(received.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheRequestsWithExtensions() throws OwsExceptionReport {
+        DescribeSensorRequest request = createRequest(PROCEDURE);
+        SwesExtension<SweBoolean> extension = new SwesExtension<>();
+        extension.setIdentifier("returnHumanReadableIdentifier");
+        extension.setValue(new SweBoolean().setValue(true));
+        request.addExtension(extension);
+        receive(request);
+        receive(request);
+        assertThat(received.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() throws OwsExceptionReport {
+        cache.setSize(0);
+        receive(PROCEDURE);
+        receive(PROCEDURE);
+        assertThat(received.get(), is(2));
+    }
+
+    private DescribeSensorResponse receive(String procedure) throws OwsExceptionReport {
+        return receive(createRequest(procedure));
+    }
+
+    private DescribeSensorResponse receive(DescribeSensorRequest request) throws OwsExceptionReport {
+        OwsServiceResponse response = cache.receive(request, contentCache, this::createResponse, eventBus);
+        return (DescribeSensorResponse) response;
+    }
+
+    private DescribeSensorRequest createRequest(String procedure) {
+        DescribeSensorRequest request = new DescribeSensorRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        request.setProcedure(procedure);
+        request.setProcedureDescriptionFormat(FORMAT);
+        return request;
+    }
+
+    private DescribeSensorResponse createResponse(DescribeSensorRequest request) {
+        received.incrementAndGet();
+        DescribeSensorResponse response = new DescribeSensorResponse(request.getService(), request.getVersion());
+        response.setOutputFormat(request.getProcedureDescriptionFormat());
+        response.addSensorDescription(
+                new SosProcedureDescriptionUnknownType(request.getProcedure(), FORMAT, "<xml/>"));
+        return response;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.janmayen.http.MediaTypes;
+
+public class FileAttachmentResponseTest {
+
+    private static final byte[] CONTENT = "netcdf content".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldTransferFileAndDeleteTempDirectory() throws IOException {
+        File tempDir = folder.newFolder();
+        File file = new File(tempDir, "test.nc");
+        Files.write(file.toPath(), CONTENT);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileAttachmentResponse response =
+                new FileAttachmentResponse(file, tempDir, MediaTypes.APPLICATION_ZIP, "test.nc")) {
+            assertThat(response.getLength(), is((long) CONTENT.length));
+            assertThat(response.getSize(), is(CONTENT.length));
+            assertThat(response.getBytes(), is(CONTENT));
+            response.transferTo(out);
+        }
+        assertThat(out.toByteArray(), is(CONTENT));
+        assertThat(file.exists(), is(false));
+        assertThat(tempDir.exists(), is(false));
+    }
+
+}
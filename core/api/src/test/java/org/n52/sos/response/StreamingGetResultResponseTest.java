@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StreamingGetResultResponseTest {
+
+    private static final String VALUES = "2@2020-01-01T00:00:00.000Z,1.0@2020-01-02T00:00:00.000Z,2.0";
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final StreamingGetResultResponse response =
+            new StreamingGetResultResponse("SOS", "2.0.0", writer -> {
+                calls.incrementAndGet();
+                writer.write(VALUES);
+            });
+
+    @Test
+    public void shouldWriteResultValuesOnDemand() throws Exception {
+        assertThat(calls.get(), is(0));
+        assertThat(response.hasResultValues(), is(true));
+        StringWriter writer = new StringWriter();
+        response.writeResultValues(writer);
+        assertThat(writer.toString(), is(VALUES));
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void shouldMaterializeResultValuesOnce() throws Exception {
+        assertThat(response.getResultValues(), is(VALUES));
+        assertThat(response.getResultValues(), is(VALUES));
+        StringWriter writer = new StringWriter();
+        response.writeResultValues(writer);
+        assertThat(writer.toString(), is(VALUES));
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void shouldWriteSetResultValues() throws Exception {
+        response.setResultValues("0");
+        StringWriter writer = new StringWriter();
+        response.writeResultValues(writer);
+        assertThat(writer.toString(), is("0"));
+        assertThat(response.hasResultValues(), is(true));
+        assertThat(calls.get(), is(0));
+    }
+
+}
@@ -366,6 +366,25 @@ public class GeometryHandlerTest {
                 .distance(get31467Polygon()) < DISTANCE, Is.is(true));
     }
 
+    @Test
+    public void shouldTransformCoordinatesLikeGeometries() throws OwsExceptionReport {
+        geometryHandler.clearSupportedCRSMap();
+        Coordinate[] coordinates = get4326LineString().getCoordinates();
+        double[] packed = new double[coordinates.length * 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            packed[i * 2] = coordinates[i].getX();
+            packed[i * 2 + 1] = coordinates[i].getY();
+        }
+        double[] transformed = geometryHandler.transform(packed, 2, EPSG_4326, EPSG_31467);
+        Coordinate[] expected = geometryHandler.transform(get4326LineString(), EPSG_31467).getCoordinates();
+        Assert.assertEquals(packed.length, transformed.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i].getX(), transformed[i * 2], DISTANCE);
+            Assert.assertEquals(expected[i].getY(), transformed[i * 2 + 1], DISTANCE);
+        }
+        Assert.assertSame(packed, geometryHandler.transform(packed, 2, EPSG_4326, EPSG_4326));
+    }
+
     @Test
     public void changeEpsgCodesWithNorthingFirstAxisOrder() throws OwsExceptionReport {
         MatcherAssert.assertThat(geometryHandler.isNorthingFirstEpsgCode(EPSG_31467), Is.is(true));
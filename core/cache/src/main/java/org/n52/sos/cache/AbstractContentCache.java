@@ -27,19 +27,17 @@
  */
 package org.n52.sos.cache;
 
-import static java.util.stream.Collectors.toSet;
-
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 
 import org.locationtech.jts.geom.Envelope;
-
 import org.n52.iceland.cache.ContentCache;
 import org.n52.janmayen.stream.Streams;
 import org.n52.shetland.util.CollectionHelper;
@@ -47,8 +45,14 @@ import org.n52.shetland.util.ReferencedEnvelope;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 /**
  * TODO JavaDoc
  *
@@ -131,6 +135,8 @@ public abstract class AbstractContentCache implements ContentCache {
     protected static <T> Set<T> copyOf(Set<T> set) {
         if (set == null) {
             return Collections.emptySet();
+        } else if (set instanceof ImmutableSet) {
+            return set;
         } else {
             return Collections.unmodifiableSet(new HashSet<>(set));
         }
@@ -153,6 +159,52 @@ public abstract class AbstractContentCache implements ContentCache {
         }
     }
 
+    /**
+     * Checks whether any of the value sets of the specified map contains the
+     * value without copying the sets.
+     *
+     * @param <K> the key type
+     * @param <V> the element type
+     * @param map the synchronized map
+     * @param value the value
+     *
+     * @return {@code true} if the value is contained
+     */
+    protected static <K, V> boolean containsValue(Map<K, Set<V>> map, V value) {
+        if (map instanceof ImmutableMap) {
+            return containsValue(map.values(), value);
+        }
+        synchronized (map) {
+            return containsValue(map.values(), value);
+        }
+    }
+
+    private static <V> boolean containsValue(Collection<Set<V>> sets, V value) {
+        for (Set<V> set : sets) {
+            if (set != null && set.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the value set of the specified key contains the value
+     * without copying the set.
+     *
+     * @param <K> the key type
+     * @param <V> the element type
+     * @param map the map
+     * @param key the key
+     * @param value the value
+     *
+     * @return {@code true} if the value is contained
+     */
+    protected static <K, V> boolean containsValue(Map<K, Set<V>> map, K key, V value) {
+        Set<V> set = map.get(key);
+        return set != null && set.contains(value);
+    }
+
     /**
      * Creates a copy of the specified envelope.
      *
@@ -202,6 +254,132 @@ public abstract class AbstractContentCache implements ContentCache {
         }
     }
 
+    /**
+     * Creates an immutable copy of the specified set. Immutable sets are
+     * returned as they are.
+     *
+     * @param <T> the element type
+     * @param set the set
+     *
+     * @return the immutable copy
+     */
+    protected static <T> Set<T> immutableCopyOf(Set<T> set) {
+        if (set == null || set instanceof ImmutableSet) {
+            return set;
+        } else if (set.stream().anyMatch(Objects::isNull)) {
+            return Collections.unmodifiableSet(new HashSet<>(set));
+        } else {
+            return ImmutableSet.copyOf(set);
+        }
+    }
+
+    /**
+     * Creates an immutable copy of the specified map. Immutable maps are
+     * returned as they are.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the immutable copy
+     */
+    protected static <K, V> Map<K, V> immutableCopyOf(Map<K, V> map) {
+        if (map instanceof ImmutableMap) {
+            return map;
+        } else if (map.entrySet().stream().anyMatch(AbstractContentCache::isNull)) {
+            return Collections.unmodifiableMap(new HashMap<>(map));
+        } else {
+            return ImmutableMap.copyOf(map);
+        }
+    }
+
+    /**
+     * Creates an immutable copy of the specified map and of its value sets.
+     * Value sets that are already immutable are shared with the specified map.
+     *
+     * @param <K> the key type
+     * @param <V> the element type
+     * @param map the map
+     *
+     * @return the immutable copy
+     */
+    protected static <K, V> Map<K, Set<V>> immutableCopyOfValues(Map<K, Set<V>> map) {
+        Map<K, Set<V>> copy = Maps.newHashMapWithExpectedSize(map.size());
+        map.forEach((key, set) -> copy.put(key, immutableCopyOf(set)));
+        return immutableCopyOf(copy);
+    }
+
+    /**
+     * Creates an immutable copy of the specified {@link BiMap}.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the immutable copy
+     */
+    protected static <K, V> BiMap<K, V> immutableCopyOf(BiMap<K, V> map) {
+        if (map instanceof ImmutableBiMap) {
+            return map;
+        } else if (map.entrySet().stream().anyMatch(AbstractContentCache::isNull)) {
+            return Maps.unmodifiableBiMap(HashBiMap.create(map));
+        } else {
+            return ImmutableBiMap.copyOf(map);
+        }
+    }
+
+    /**
+     * Creates a new synchronized map from the specified map that shares the
+     * immutable value sets of the specified map. Shared value sets are copied
+     * on their first modification by {@link #writableValues(Map, Object)},
+     * all other value sets are copied immediately.
+     *
+     * @param <K> the key type
+     * @param <V> the element type
+     * @param map the map
+     *
+     * @return the synchronized map
+     */
+    protected static <K, V> Map<K, Set<V>> newCopyOnWriteMap(Map<K, Set<V>> map) {
+        Map<K, Set<V>> copy = Maps.newHashMapWithExpectedSize(map.size());
+        map.forEach((key, set) -> copy.put(key, set == null || set instanceof ImmutableSet ? set
+                : newSynchronizedSet(set)));
+        return Collections.synchronizedMap(copy);
+    }
+
+    /**
+     * Get the modifiable value set for the specified key. An absent value set
+     * is created, a value set shared with a cache snapshot is replaced by a
+     * modifiable copy.
+     *
+     * @param <K> the key type
+     * @param <V> the element type
+     * @param map the map
+     * @param key the key
+     *
+     * @return the modifiable value set
+     */
+    protected static <K, V> Set<V> writableValues(Map<K, Set<V>> map, K key) {
+        return map.compute(key, (k, set) -> set == null ? newSynchronizedSet()
+                : set instanceof ImmutableSet ? newSynchronizedSet(set) : set);
+    }
+
+    /**
+     * Remove the value from the value set of the specified key.
+     *
+     * @param <K>   the key type
+     * @param <V>   the element type
+     * @param map   the map
+     * @param key   the key
+     * @param value the value to remove
+     */
+    protected static <K, V> void removeValue(Map<K, Set<V>> map, K key, V value) {
+        Set<V> set = map.get(key);
+        if (set != null && set.contains(value)) {
+            writableValues(map, key).remove(value);
+        }
+    }
+
     /**
      * Remove value from map or complete entry if values for key are empty.
      *
@@ -211,11 +389,15 @@ public abstract class AbstractContentCache implements ContentCache {
      * @param value the value to remove
      */
     protected static <K, V> void removeValue(Map<K, Set<V>> map, V value) {
-        Iterator<K> iterator = map.keySet().iterator();
-        while (iterator.hasNext()) {
-            Set<V> set = map.get(iterator.next());
-            if (set.remove(value) && set.isEmpty()) {
-                iterator.remove();
+        // collect the keys first and modify the map by its own methods instead of by an iterator, so copy-on-write
+        // maps copy themselves only if the value is contained
+        List<K> keys = map.entrySet().stream().filter(entry -> entry.getValue().contains(value)).map(Entry::getKey)
+                .collect(toList());
+        for (K key : keys) {
+            if (map.get(key).size() == 1) {
+                map.remove(key);
+            } else {
+                writableValues(map, key).remove(value);
             }
         }
     }
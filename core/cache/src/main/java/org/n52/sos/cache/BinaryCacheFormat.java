@@ -0,0 +1,515 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.janmayen.i18n.LocalizedString;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.SosContentCache.ComponentAggregation;
+import org.n52.sos.cache.SosContentCache.TypeInstance;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Compact binary snapshot format of the {@link InMemoryCacheImpl}. All strings
+ * of the cache are written once to a dictionary and the relations refer to
+ * them by their index. Reading maps the file into memory instead of streaming
+ * it and shares the dictionary strings between all relations of the loaded
+ * cache.
+ * <p>
+ * The file starts with a magic number and the format version, followed by the
+ * dictionary, the maps and sets of the cache by their field name and the
+ * global values of the cache. Values are prefixed by a type tag. Each
+ * supported value type, including the enums of the cache, has a fixed tag, so
+ * reading a file never loads classes by name. Maps and sets that are unknown
+ * to the reading cache are skipped.
+ *
+ * @since 6.0.0
+ */
+public final class BinaryCacheFormat {
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x35324e43;
+
+    private static final int CHUNK_SIZE = 1 << 30;
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte STRING_SET = 2;
+
+    private static final byte SET = 3;
+
+    private static final byte DATE_TIME = 4;
+
+    private static final byte ENVELOPE = 5;
+
+    private static final byte MULTILINGUAL_STRING = 6;
+
+    private static final byte LOCALE = 7;
+
+    private static final byte INTEGER = 8;
+
+    private static final byte TYPE_INSTANCE = 9;
+
+    private static final byte COMPONENT_AGGREGATION = 10;
+
+    private static final byte ENVELOPE_NULL = 0;
+
+    private static final byte ENVELOPE_EMPTY = 1;
+
+    private static final byte ENVELOPE_SET = 2;
+
+    private BinaryCacheFormat() {
+    }
+
+    /**
+     * Writes a snapshot of the cache to the specified file. The cache should
+     * not be modified concurrently if it is not a snapshot itself.
+     *
+     * @param cache
+     *            the cache
+     * @param file
+     *            the file
+     *
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public static void write(InMemoryCacheImpl cache, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(cache, out);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the cache to the specified stream.
+     *
+     * @param cache
+     *            the cache
+     * @param out
+     *            the stream
+     *
+     * @throws IOException
+     *             if the stream can not be written
+     */
+    public static void write(InMemoryCacheImpl cache, OutputStream out) throws IOException {
+        InMemoryCacheImpl snapshot = cache.snapshot();
+        // the first pass only collects the strings of the dictionary
+        Writer writer = new Writer(new DataOutputStream(ByteStreams.nullOutputStream()));
+        writer.writeCache(snapshot);
+        writer.out = new DataOutputStream(out);
+        writer.out.writeInt(MAGIC);
+        writer.out.writeInt(VERSION);
+        writer.writeDictionary();
+        writer.writeCache(snapshot);
+        writer.out.flush();
+    }
+
+    /**
+     * Reads a cache from the specified file.
+     *
+     * @param file
+     *            the file
+     *
+     * @return the writable cache
+     *
+     * @throws IOException
+     *             if the file can not be read or is not a cache snapshot of
+     *             the current version
+     */
+    public static InMemoryCacheImpl read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ByteBuffer> chunks = new ArrayList<>();
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException(String.format("'%s' is not a cache snapshot", file));
+            }
+            for (long position = 0; position < size; position += CHUNK_SIZE) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position)));
+            }
+            Reader reader = new Reader(chunks);
+            if (reader.readInt() != MAGIC) {
+                throw new IOException(String.format("'%s' is not a cache snapshot", file));
+            }
+            int version = reader.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Unsupported cache snapshot version %d in '%s'", version, file));
+            }
+            reader.readDictionary();
+            return reader.readCache();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(String.format("Corrupt cache snapshot '%s'", file), e);
+        }
+    }
+
+    private static final class Writer {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private DataOutputStream out;
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeDictionary() throws IOException {
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void writeCache(InMemoryCacheImpl cache) throws IOException {
+            Map<String, Map<?, ?>> maps = cache.getMaps();
+            out.writeInt(maps.size());
+            for (Entry<String, Map<?, ?>> map : maps.entrySet()) {
+                writeString(map.getKey());
+                out.writeInt(map.getValue().size());
+                for (Entry<?, ?> entry : map.getValue().entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+            Map<String, Set<?>> sets = cache.getSets();
+            out.writeInt(sets.size());
+            for (Entry<String, Set<?>> set : sets.entrySet()) {
+                writeString(set.getKey());
+                writeValue(set.getValue());
+            }
+            writeValue(cache.getMinPhenomenonTime());
+            writeValue(cache.getMaxPhenomenonTime());
+            writeValue(cache.getMinResultTime());
+            writeValue(cache.getMaxResultTime());
+            writeValue(cache.getLastUpdateTime());
+            writeValue(cache.getGlobalSpatialEnvelope());
+            out.writeInt(cache.getDefaultEPSGCode());
+        }
+
+        void writeString(String string) throws IOException {
+            out.writeInt(dictionary.computeIfAbsent(string, s -> {
+                strings.add(s);
+                return strings.size() - 1;
+            }));
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Set) {
+                writeSet((Set<?>) value);
+            } else if (value instanceof DateTime) {
+                out.writeByte(DATE_TIME);
+                out.writeLong(((DateTime) value).getMillis());
+                writeString(((DateTime) value).getZone().getID());
+            } else if (value instanceof ReferencedEnvelope) {
+                out.writeByte(ENVELOPE);
+                writeEnvelope((ReferencedEnvelope) value);
+            } else if (value instanceof MultilingualString) {
+                out.writeByte(MULTILINGUAL_STRING);
+                MultilingualString multilingualString = (MultilingualString) value;
+                out.writeInt(multilingualString.size());
+                for (LocalizedString localizedString : multilingualString) {
+                    writeValue(localizedString.getLang());
+                    writeString(localizedString.getText());
+                }
+            } else if (value instanceof Locale) {
+                out.writeByte(LOCALE);
+                writeString(((Locale) value).toLanguageTag());
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof TypeInstance) {
+                out.writeByte(TYPE_INSTANCE);
+                writeString(((TypeInstance) value).name());
+            } else if (value instanceof ComponentAggregation) {
+                out.writeByte(COMPONENT_AGGREGATION);
+                writeString(((ComponentAggregation) value).name());
+            } else {
+                throw new IOException(String.format("Unsupported cache value type %s", value.getClass().getName()));
+            }
+        }
+
+        void writeSet(Set<?> set) throws IOException {
+            if (set.stream().allMatch(String.class::isInstance)) {
+                out.writeByte(STRING_SET);
+                out.writeInt(set.size());
+                for (Object element : set) {
+                    writeString((String) element);
+                }
+            } else {
+                out.writeByte(SET);
+                out.writeInt(set.size());
+                for (Object element : set) {
+                    writeValue(element);
+                }
+            }
+        }
+
+        void writeEnvelope(ReferencedEnvelope envelope) throws IOException {
+            out.writeInt(envelope.getSrid());
+            Envelope e = envelope.getEnvelope();
+            if (e == null) {
+                out.writeByte(ENVELOPE_NULL);
+            } else if (e.isNull()) {
+                out.writeByte(ENVELOPE_EMPTY);
+            } else {
+                out.writeByte(ENVELOPE_SET);
+                out.writeDouble(e.getMinX());
+                out.writeDouble(e.getMaxX());
+                out.writeDouble(e.getMinY());
+                out.writeDouble(e.getMaxY());
+            }
+            writeValue(envelope.getMinZ());
+            writeValue(envelope.getMaxZ());
+        }
+
+        void writeValue(Double value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final List<ByteBuffer> chunks;
+        private ByteBuffer current;
+        private int chunk;
+        private String[] dictionary;
+
+        Reader(List<ByteBuffer> chunks) {
+            this.chunks = chunks;
+            this.current = chunks.get(0);
+        }
+
+        void readDictionary() {
+            dictionary = new String[readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] bytes = new byte[readInt()];
+                readFully(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        InMemoryCacheImpl readCache() throws IOException {
+            InMemoryCacheImpl cache = new InMemoryCacheImpl();
+            Map<String, Map<?, ?>> maps = cache.getMaps();
+            for (int i = readInt(); i > 0; i--) {
+                Map<Object, Object> map = (Map<Object, Object>) maps.get(readString());
+                for (int j = readInt(); j > 0; j--) {
+                    Object key = readValue();
+                    Object value = readValue();
+                    if (map != null) {
+                        map.put(key, value);
+                    }
+                }
+            }
+            Map<String, Set<?>> sets = cache.getSets();
+            for (int i = readInt(); i > 0; i--) {
+                Set<Object> set = (Set<Object>) sets.get(readString());
+                Set<?> elements = (Set<?>) readValue();
+                if (set != null) {
+                    set.addAll(elements);
+                }
+            }
+            cache.setMinPhenomenonTime((DateTime) readValue());
+            cache.setMaxPhenomenonTime((DateTime) readValue());
+            cache.setMinResultTime((DateTime) readValue());
+            cache.setMaxResultTime((DateTime) readValue());
+            cache.setLastUpdateTime((DateTime) readValue());
+            cache.setGlobalEnvelope((ReferencedEnvelope) readValue());
+            cache.setDefaultEPSGCode(readInt());
+            return cache;
+        }
+
+        String readString() {
+            return dictionary[readInt()];
+        }
+
+        Object readValue() throws IOException {
+            byte tag = readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case STRING_SET: {
+                    int size = readInt();
+                    ImmutableSet.Builder<String> builder = ImmutableSet.builderWithExpectedSize(size);
+                    for (int i = 0; i < size; i++) {
+                        builder.add(readString());
+                    }
+                    return builder.build();
+                }
+                case SET: {
+                    int size = readInt();
+                    Set<Object> set = Sets.newHashSetWithExpectedSize(size);
+                    for (int i = 0; i < size; i++) {
+                        set.add(readValue());
+                    }
+                    return AbstractContentCache.immutableCopyOf(set);
+                }
+                case DATE_TIME:
+                    return new DateTime(readLong(), DateTimeZone.forID(readString()));
+                case ENVELOPE:
+                    return readEnvelope();
+                case MULTILINGUAL_STRING: {
+                    MultilingualString multilingualString = new MultilingualString();
+                    for (int i = readInt(); i > 0; i--) {
+                        Locale lang = (Locale) readValue();
+                        multilingualString.addLocalization(new LocalizedString(lang, readString()));
+                    }
+                    return multilingualString;
+                }
+                case LOCALE:
+                    return Locale.forLanguageTag(readString());
+                case INTEGER:
+                    return readInt();
+                case TYPE_INSTANCE:
+                    return TypeInstance.valueOf(readString());
+                case COMPONENT_AGGREGATION:
+                    return ComponentAggregation.valueOf(readString());
+                default:
+                    throw new IOException(String.format("Unknown cache value type %d", tag));
+            }
+        }
+
+        private ReferencedEnvelope readEnvelope() {
+            int srid = readInt();
+            Envelope envelope;
+            switch (readByte()) {
+                case ENVELOPE_SET:
+                    double minX = readDouble();
+                    double maxX = readDouble();
+                    double minY = readDouble();
+                    double maxY = readDouble();
+                    envelope = new Envelope(minX, maxX, minY, maxY);
+                    break;
+                case ENVELOPE_EMPTY:
+                    envelope = new Envelope();
+                    break;
+                default:
+                    envelope = null;
+            }
+            ReferencedEnvelope referencedEnvelope = new ReferencedEnvelope(envelope, srid);
+            if (readByte() != 0) {
+                referencedEnvelope.setMinZ(readDouble());
+            }
+            if (readByte() != 0) {
+                referencedEnvelope.setMaxZ(readDouble());
+            }
+            return referencedEnvelope;
+        }
+
+        /**
+         * @return the current chunk or {@code null} if the value spans two chunks
+         */
+        private ByteBuffer buffer(int length) {
+            if (!current.hasRemaining() && chunk + 1 < chunks.size()) {
+                current = chunks.get(++chunk);
+            }
+            if (!current.hasRemaining()) {
+                throw new BufferUnderflowException();
+            }
+            return current.remaining() >= length ? current : null;
+        }
+
+        byte readByte() {
+            return buffer(1).get();
+        }
+
+        int readInt() {
+            ByteBuffer buffer = buffer(Integer.BYTES);
+            return buffer != null ? buffer.getInt() : (int) readSplit(Integer.BYTES);
+        }
+
+        long readLong() {
+            ByteBuffer buffer = buffer(Long.BYTES);
+            return buffer != null ? buffer.getLong() : readSplit(Long.BYTES);
+        }
+
+        double readDouble() {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        /**
+         * Reads a big endian value that spans two chunks.
+         */
+        private long readSplit(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (readByte() & 0xff);
+            }
+            return value;
+        }
+
+        void readFully(byte[] bytes) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ByteBuffer buffer = buffer(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link BiMap} that shares the map of a cache snapshot and copies it on the first modification.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ *
+ * @since 6.0.0
+ */
+class CopyOnWriteBiMap<K, V> extends CopyOnWriteMap<K, V> implements BiMap<K, V> {
+
+    /**
+     * @param original
+     *            the shared map
+     * @param copier
+     *            creates the modifiable copy of the shared map
+     */
+    CopyOnWriteBiMap(BiMap<K, V> original, UnaryOperator<Map<K, V>> copier) {
+        super(original, copier);
+    }
+
+    @Override
+    public V forcePut(K key, V value) {
+        // a forced put removes the entry that had the value before
+        K previousKey = inverse().get(value);
+        return ((BiMap<K, V>) writable(previousKey == null ? Collections.singleton(key)
+                : Arrays.asList(key, previousKey))).forcePut(key, value);
+    }
+
+    @Override
+    public BiMap<V, K> inverse() {
+        return Maps.unmodifiableBiMap((BiMap<K, V>) delegate()).inverse();
+    }
+
+    @Override
+    public Set<V> values() {
+        return Collections.unmodifiableSet(((BiMap<K, V>) delegate()).values());
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.google.common.collect.ForwardingMap;
+
+/**
+ * A map that shares the map of a cache snapshot and copies it on the first modification. Views of the map are
+ * unmodifiable, modifications have to use the methods of the map itself. The keys of all modifications are recorded,
+ * so the changes to the shared map can be computed without comparing all entries.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ *
+ * @since 6.0.0
+ */
+class CopyOnWriteMap<K, V> extends ForwardingMap<K, V> {
+    private final Map<K, V> original;
+
+    private final UnaryOperator<Map<K, V>> copier;
+
+    private final Set<Object> modifiedKeys = new HashSet<>();
+
+    private volatile Map<K, V> delegate;
+
+    /**
+     * @param original
+     *            the shared map
+     * @param copier
+     *            creates the modifiable copy of the shared map
+     */
+    CopyOnWriteMap(Map<K, V> original, UnaryOperator<Map<K, V>> copier) {
+        this.original = original;
+        this.copier = copier;
+        this.delegate = original;
+    }
+
+    @Override
+    protected Map<K, V> delegate() {
+        return delegate;
+    }
+
+    /**
+     * @return if the shared map was copied
+     */
+    boolean isCopied() {
+        return delegate != original;
+    }
+
+    /**
+     * @return the shared map
+     */
+    Map<K, V> getOriginal() {
+        return original;
+    }
+
+    /**
+     * @return the keys of all modifications of the shared map
+     */
+    synchronized Set<Object> getModifiedKeys() {
+        return new HashSet<>(modifiedKeys);
+    }
+
+    /**
+     * Get the modifiable copy of the shared map, the map is copied if this is the first modification.
+     *
+     * @param keys
+     *            the keys that will be modified
+     *
+     * @return the modifiable map
+     */
+    protected synchronized Map<K, V> writable(Collection<?> keys) {
+        modifiedKeys.addAll(keys);
+        if (delegate == original) {
+            delegate = copier.apply(original);
+        }
+        return delegate;
+    }
+
+    private Map<K, V> writableEntry(Object key) {
+        return writable(Collections.singleton(key));
+    }
+
+    private Map<K, V> writableEntries() {
+        return writable(delegate().keySet());
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return writableEntry(key).put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (!map.isEmpty()) {
+            writable(map.keySet()).putAll(map);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return containsKey(key) ? writableEntry(key).remove(key) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return containsKey(key) && writableEntry(key).remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        if (!isEmpty()) {
+            writableEntries().clear();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return writableEntry(key).putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return containsKey(key) && writableEntry(key).replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return containsKey(key) ? writableEntry(key).replace(key, value) : null;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (!isEmpty()) {
+            writableEntries().replaceAll(function);
+        }
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return writableEntry(key).compute(key, remappingFunction);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return writableEntry(key).computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return containsKey(key) ? writableEntry(key).computeIfPresent(key, remappingFunction) : null;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return writableEntry(key).merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(delegate().keySet());
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(delegate().values());
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Collections.unmodifiableSet(delegate().entrySet());
+    }
+
+    /**
+     * Get the shared map of the specified map if it was not modified.
+     *
+     * @param <K>
+     *            the key type
+     * @param <V>
+     *            the value type
+     * @param map
+     *            the map
+     *
+     * @return the shared map or {@code null} if the map is no unmodified copy-on-write map
+     */
+    static <K, V> Map<K, V> unmodifiedOriginal(Map<K, V> map) {
+        if (map instanceof CopyOnWriteMap && !((CopyOnWriteMap<K, V>) map).isCopied()) {
+            return ((CopyOnWriteMap<K, V>) map).getOriginal();
+        }
+        return null;
+    }
+
+    /**
+     * Get the keys of all modifications of the specified map.
+     *
+     * @param map
+     *            the map
+     *
+     * @return the modified keys or {@code null} if the map is no copy-on-write map
+     */
+    static Set<Object> modifiedKeys(Map<?, ?> map) {
+        return map instanceof CopyOnWriteMap ? ((CopyOnWriteMap<?, ?>) map).getModifiedKeys() : null;
+    }
+
+}
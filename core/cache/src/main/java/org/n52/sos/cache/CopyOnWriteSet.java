@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import com.google.common.collect.ForwardingSet;
+import com.google.common.collect.Iterators;
+
+/**
+ * A set that shares the set of a cache snapshot and copies it on the first modification. The iterator of the set
+ * does not support removal. The elements of all modifications are recorded, so the changes to the shared set can be
+ * computed without comparing all elements.
+ *
+ * @param <T>
+ *            the element type
+ *
+ * @since 6.0.0
+ */
+class CopyOnWriteSet<T> extends ForwardingSet<T> {
+    private final Set<T> original;
+
+    private final UnaryOperator<Set<T>> copier;
+
+    private final Set<Object> modifiedElements = new HashSet<>();
+
+    private volatile Set<T> delegate;
+
+    /**
+     * @param original
+     *            the shared set
+     * @param copier
+     *            creates the modifiable copy of the shared set
+     */
+    CopyOnWriteSet(Set<T> original, UnaryOperator<Set<T>> copier) {
+        this.original = original;
+        this.copier = copier;
+        this.delegate = original;
+    }
+
+    @Override
+    protected Set<T> delegate() {
+        return delegate;
+    }
+
+    /**
+     * @return if the shared set was copied
+     */
+    boolean isCopied() {
+        return delegate != original;
+    }
+
+    /**
+     * @return the elements of all modifications of the shared set
+     */
+    synchronized Set<Object> getModifiedElements() {
+        return new HashSet<>(modifiedElements);
+    }
+
+    private synchronized Set<T> writable(Collection<?> elements) {
+        modifiedElements.addAll(elements);
+        if (delegate == original) {
+            delegate = copier.apply(original);
+        }
+        return delegate;
+    }
+
+    @Override
+    public boolean add(T element) {
+        return !contains(element) && writable(Collections.singleton(element)).add(element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        return !containsAll(collection) && writable(collection).addAll(collection);
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        return contains(element) && writable(Collections.singleton(element)).remove(element);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        return !collection.isEmpty() && !isEmpty() && writable(collection).removeAll(collection);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        return !isEmpty() && writable(delegate()).retainAll(collection);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        return !isEmpty() && writable(delegate()).removeIf(filter);
+    }
+
+    @Override
+    public void clear() {
+        if (!isEmpty()) {
+            writable(delegate()).clear();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Iterators.unmodifiableIterator(delegate().iterator());
+    }
+
+    /**
+     * Get the shared set of the specified set if it was not modified.
+     *
+     * @param <T>
+     *            the element type
+     * @param set
+     *            the set
+     *
+     * @return the shared set or {@code null} if the set is no unmodified copy-on-write set
+     */
+    static <T> Set<T> unmodifiedOriginal(Set<T> set) {
+        if (set instanceof CopyOnWriteSet && !((CopyOnWriteSet<T>) set).isCopied()) {
+            return ((CopyOnWriteSet<T>) set).original;
+        }
+        return null;
+    }
+
+    /**
+     * Get the elements of all modifications of the specified set.
+     *
+     * @param set
+     *            the set
+     *
+     * @return the modified elements or {@code null} if the set is no copy-on-write set
+     */
+    static Set<Object> modifiedElements(Set<?> set) {
+        return set instanceof CopyOnWriteSet ? ((CopyOnWriteSet<?>) set).getModifiedElements() : null;
+    }
+
+}
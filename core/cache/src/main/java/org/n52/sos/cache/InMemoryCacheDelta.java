@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.n52.shetland.util.ReferencedEnvelope;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.Sets;
+
+/**
+ * The changes between two {@link InMemoryCacheImpl} snapshots. Map entries are
+ * recorded with their complete new value and the global values are always
+ * recorded, so applying a delta is idempotent and the deltas up to a snapshot
+ * can be applied again to that snapshot without changing it.
+ *
+ * @since 6.0.0
+ */
+public class InMemoryCacheDelta implements Serializable {
+    private static final long serialVersionUID = -3317958046298519402L;
+
+    private final Map<String, Map<Object, Object>> putEntries = new HashMap<>();
+
+    private final Map<String, Set<Object>> removedKeys = new HashMap<>();
+
+    private final Map<String, Set<Object>> addedElements = new HashMap<>();
+
+    private final Map<String, Set<Object>> removedElements = new HashMap<>();
+
+    private DateTime minPhenomenonTime;
+
+    private DateTime maxPhenomenonTime;
+
+    private DateTime minResultTime;
+
+    private DateTime maxResultTime;
+
+    private DateTime updateTime;
+
+    private ReferencedEnvelope globalEnvelope;
+
+    private int defaultEpsgCode;
+
+    private InMemoryCacheDelta() {
+    }
+
+    /**
+     * Computes the changes between the specified snapshots. Value sets that are shared between the snapshots are
+     * skipped without comparing them. If the current snapshot was published from a copy of the previous snapshot,
+     * only the keys and elements that were modified in the copy are compared.
+     *
+     * @param previous
+     *            the previous snapshot
+     * @param current
+     *            the current snapshot
+     *
+     * @return the changes
+     */
+    public static InMemoryCacheDelta between(InMemoryCacheImpl previous, InMemoryCacheImpl current) {
+        Preconditions.checkArgument(previous.isImmutable() && current.isImmutable(), "Deltas require snapshots");
+        InMemoryCacheDelta delta = new InMemoryCacheDelta();
+        Map<String, Set<?>> modifications = current.getModificationsSince(previous);
+        Map<String, Map<?, ?>> previousMaps = previous.getMaps();
+        current.getMaps().forEach((name, map) -> {
+            if (modifications == null) {
+                delta.diff(name, previousMaps.get(name), map);
+            } else if (modifications.containsKey(name)) {
+                delta.diff(name, previousMaps.get(name), map, modifications.get(name));
+            }
+        });
+        Map<String, Set<?>> previousSets = previous.getSets();
+        current.getSets().forEach((name, set) -> {
+            if (modifications == null) {
+                delta.diff(name, previousSets.get(name), set);
+            } else if (modifications.containsKey(name)) {
+                delta.diff(name, previousSets.get(name), set, modifications.get(name));
+            }
+        });
+        delta.minPhenomenonTime = current.getMinPhenomenonTime();
+        delta.maxPhenomenonTime = current.getMaxPhenomenonTime();
+        delta.minResultTime = current.getMinResultTime();
+        delta.maxResultTime = current.getMaxResultTime();
+        delta.updateTime = current.getLastUpdateTime();
+        delta.globalEnvelope = current.getGlobalEnvelope();
+        delta.defaultEpsgCode = current.getDefaultEPSGCode();
+        return delta;
+    }
+
+    private void diff(String name, Map<?, ?> previous, Map<?, ?> current) {
+        if (previous != current) {
+            diff(name, previous, current, current.keySet());
+            for (Object key : previous.keySet()) {
+                if (!current.containsKey(key)) {
+                    removedKeys.computeIfAbsent(name, k -> new HashSet<>()).add(key);
+                }
+            }
+        }
+    }
+
+    private void diff(String name, Map<?, ?> previous, Map<?, ?> current, Collection<?> keys) {
+        for (Object key : keys) {
+            Object value = current.get(key);
+            if (current.containsKey(key)) {
+                Object previousValue = previous.get(key);
+                if (previousValue != value
+                        && (!Objects.equals(previousValue, value) || !previous.containsKey(key))) {
+                    putEntries.computeIfAbsent(name, k -> new HashMap<>()).put(key, value);
+                }
+            } else if (previous.containsKey(key)) {
+                removedKeys.computeIfAbsent(name, k -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    private void diff(String name, Set<?> previous, Set<?> current) {
+        if (previous == current) {
+            return;
+        }
+        Set<Object> added = new HashSet<>(Sets.difference(current, previous));
+        if (!added.isEmpty()) {
+            addedElements.put(name, added);
+        }
+        Set<Object> removed = new HashSet<>(Sets.difference(previous, current));
+        if (!removed.isEmpty()) {
+            removedElements.put(name, removed);
+        }
+    }
+
+    private void diff(String name, Set<?> previous, Set<?> current, Collection<?> elements) {
+        for (Object element : elements) {
+            boolean contained = current.contains(element);
+            if (contained != previous.contains(element)) {
+                (contained ? addedElements : removedElements).computeIfAbsent(name, k -> new HashSet<>())
+                        .add(element);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes to the specified cache.
+     *
+     * @param cache
+     *            the writable cache
+     */
+    @SuppressWarnings("unchecked")
+    public void applyTo(InMemoryCacheImpl cache) {
+        Preconditions.checkArgument(!cache.isImmutable(), "Deltas can not be applied to snapshots");
+        Map<String, Map<?, ?>> maps = cache.getMaps();
+        removedKeys.forEach((name, keys) -> keys.forEach(maps.get(name)::remove));
+        putEntries.forEach((name, entries) -> {
+            Map<Object, Object> map = (Map<Object, Object>) maps.get(name);
+            if (map instanceof BiMap) {
+                entries.forEach(((BiMap<Object, Object>) map)::forcePut);
+            } else {
+                map.putAll(entries);
+            }
+        });
+        Map<String, Set<?>> sets = cache.getSets();
+        removedElements.forEach((name, elements) -> sets.get(name).removeAll(elements));
+        addedElements.forEach((name, elements) -> ((Set<Object>) sets.get(name)).addAll(elements));
+        cache.setMinPhenomenonTime(minPhenomenonTime);
+        cache.setMaxPhenomenonTime(maxPhenomenonTime);
+        cache.setMinResultTime(minResultTime);
+        cache.setMaxResultTime(maxResultTime);
+        cache.setLastUpdateTime(updateTime);
+        cache.setGlobalEnvelope(globalEnvelope);
+        cache.setDefaultEPSGCode(defaultEpsgCode);
+    }
+
+}
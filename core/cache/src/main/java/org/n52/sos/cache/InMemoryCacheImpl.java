@@ -27,22 +27,23 @@
  */
 package org.n52.sos.cache;
 
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.joda.time.DateTime;
 import org.locationtech.jts.geom.Envelope;
 import org.n52.janmayen.function.Functions;
-import org.n52.janmayen.function.Suppliers;
 import org.n52.janmayen.i18n.LocalizedString;
 import org.n52.janmayen.i18n.MultilingualString;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
@@ -54,8 +55,10 @@ import org.n52.sos.util.SosHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Sets;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -67,119 +70,121 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     private static final long serialVersionUID = 3630601584420744019L;
 
-    private final Map<String, DateTime> maxPhenomenonTimeForOfferings = newSynchronizedMap();
+    private static final AtomicLong IDS = new AtomicLong();
 
-    private final Map<String, DateTime> minPhenomenonTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> maxPhenomenonTimeForOfferings;
 
-    private final Map<String, DateTime> maxResultTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> minPhenomenonTimeForOfferings;
 
-    private final Map<String, DateTime> minResultTimeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> maxResultTimeForOfferings;
 
-    private final Map<String, DateTime> maxPhenomenonTimeForProcedures = newSynchronizedMap();
+    private final Map<String, DateTime> minResultTimeForOfferings;
 
-    private final Map<String, DateTime> minPhenomenonTimeForProcedures = newSynchronizedMap();
+    private final Map<String, DateTime> maxPhenomenonTimeForProcedures;
 
-    private final Map<String, Set<String>> allowedObservationTypeForOfferings = newSynchronizedMap();
+    private final Map<String, DateTime> minPhenomenonTimeForProcedures;
 
-    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> allowedObservationTypeForOfferings;
 
-    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings;
 
-    private final Map<String, Set<String>> childProceduresForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest;
 
-    private final Map<String, Set<String>> childOfferingsForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> childProceduresForProcedures;
 
-    private final Map<String, Set<String>> compositePhenomenonsForProcedure = newSynchronizedMap();
+    private final Map<String, Set<String>> childOfferingsForOfferings;
 
-    private final Map<String, Set<String>> compositePhenomenonsForOffering = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForProcedure;
 
-    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForOffering;
 
-    private final Map<String, Set<String>> featuresOfInterestForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty;
 
-    private final Map<String, Set<String>> offeringsForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> featuresOfInterestForOfferings;
 
-    private final Map<String, Set<String>> featuresOfInterestForResultTemplates = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newSynchronizedMap();
+    private final Map<String, Set<String>> featuresOfInterestForResultTemplates;
 
-    private final Map<String, Set<String>> observablePropertiesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons;
 
-    private final Map<String, Set<String>> observablePropertiesForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForOfferings;
 
-    private final Map<String, Set<String>> observationTypesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observablePropertiesForProcedures;
 
-    private final Map<String, Set<String>> featureOfInterestTypesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> observationTypesForOfferings;
 
-    private final Map<String, Set<String>> observedPropertiesForResultTemplates = newSynchronizedMap();
+    private final Map<String, Set<String>> featureOfInterestTypesForOfferings;
 
-    private final Map<String, Set<String>> offeringsForObservableProperties = newSynchronizedMap();
+    private final Map<String, Set<String>> observedPropertiesForResultTemplates;
 
-    private final Map<String, Set<String>> offeringsForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForObservableProperties;
 
-    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> offeringsForProcedures;
 
-    private final Map<String, Set<String>> parentProceduresForProcedures = newSynchronizedMap();
+    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> parentOfferingsForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> parentProceduresForProcedures;
 
-    private final Map<String, Set<String>> proceduresForFeaturesOfInterest = newSynchronizedMap();
+    private final Map<String, Set<String>> parentOfferingsForOfferings;
 
-    private final Map<String, Set<String>> proceduresForObservableProperties = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForFeaturesOfInterest;
 
-    private final Map<String, Set<String>> proceduresForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForObservableProperties;
 
-    private final Map<String, Set<String>> hiddenChildProceduresForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> proceduresForOfferings;
 
-    private final Map<String, Set<String>> relatedFeaturesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> hiddenChildProceduresForOfferings;
 
-    private final Map<String, Set<String>> resultTemplatesForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> relatedFeaturesForOfferings;
 
-    private final Map<String, Set<String>> rolesForRelatedFeatures = newSynchronizedMap();
+    private final Map<String, Set<String>> resultTemplatesForOfferings;
 
-    private final Map<String, ReferencedEnvelope> envelopeForOfferings = newSynchronizedMap();
+    private final Map<String, Set<String>> rolesForRelatedFeatures;
 
-    private final Map<String, String> nameForOfferings = newSynchronizedMap();
+    private final Map<String, ReferencedEnvelope> envelopeForOfferings;
 
-    private final Map<String, MultilingualString> i18nNameForOfferings = newSynchronizedMap();
+    private final Map<String, String> nameForOfferings;
 
-    private final Map<String, MultilingualString> i18nDescriptionForOfferings = newSynchronizedMap();
+    private final Map<String, MultilingualString> i18nNameForOfferings;
 
-    private final Set<Integer> epsgCodes = newSynchronizedSet();
+    private final Map<String, MultilingualString> i18nDescriptionForOfferings;
 
-    private final Set<String> featuresOfInterest = newSynchronizedSet();
+    private final Set<Integer> epsgCodes;
 
-    private final Set<String> procedures = newSynchronizedSet();
+    private final Set<String> featuresOfInterest;
 
-    private final Set<String> resultTemplates = newSynchronizedSet();
+    private final Set<String> procedures;
 
-    private final Set<String> offerings = newSynchronizedSet();
+    private final Set<String> resultTemplates;
 
-    private final Set<String> compositePhenomenons = newSynchronizedSet();
+    private final Set<String> offerings;
 
-    private final TimePeriod globalPhenomenonTimeEnvelope = new TimePeriod();
+    private final Set<String> compositePhenomenons;
 
-    private final TimePeriod globalResultTimeEnvelope = new TimePeriod();
+    private final TimePeriod globalPhenomenonTimeEnvelope;
 
-    private final Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings = newSynchronizedMap();
+    private final TimePeriod globalResultTimeEnvelope;
 
-    private final Set<Locale> supportedLanguages = newSynchronizedSet();
+    private final Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings;
 
-    private final Set<String> requestableProcedureDescriptionFormats = newSynchronizedSet();
+    private final Set<Locale> supportedLanguages;
 
-    private final BiMap<String, String> featureOfInterestIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final Set<String> requestableProcedureDescriptionFormats;
 
-    private final BiMap<String, String> observablePropertyIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> featureOfInterestIdentifierHumanReadableName;
 
-    private final BiMap<String, String> procedureIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> observablePropertyIdentifierHumanReadableName;
 
-    private final BiMap<String, String> offeringIdentifierHumanReadableName = newSynchronizedBiMap();
+    private final BiMap<String, String> procedureIdentifierHumanReadableName;
 
-    private final Map<TypeInstance, Set<String>> typeInstanceProcedures = newSynchronizedMap();
+    private final BiMap<String, String> offeringIdentifierHumanReadableName;
 
-    private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures = newSynchronizedMap();
+    private final Map<TypeInstance, Set<String>> typeInstanceProcedures;
 
-    private final Map<String, Set<String>> typeOfProceduresMap = newSynchronizedMap();
+    private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures;
+
+    private final Map<String, Set<String>> typeOfProceduresMap;
 
     private int defaultEpsgCode = 4326;
 
@@ -187,15 +192,417 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     private DateTime updateTime;
 
-    private final Map<String, Set<String>> procedureProcedureDescriptionFormats = newSynchronizedMap();
+    private final Map<String, Set<String>> procedureProcedureDescriptionFormats;
+
+    private final Set<String> publishedFeatureOfInterest;
+
+    private final Set<String> publishedProcedure;
+
+    private final Set<String> publishedOffering;
+
+    private final Set<String> publishedObservableProperty;
+
+    private final boolean immutable;
+
+    private final transient boolean copyOnFirstWrite;
+
+    private final transient long id = IDS.incrementAndGet();
+
+    /**
+     * The id of the snapshot this cache was copied from.
+     */
+    private final transient long baseId;
+
+    /**
+     * The modified keys and elements by map and set name if this snapshot was created from a copy-on-write copy.
+     */
+    private final transient Map<String, Set<?>> modifications;
+
+    public InMemoryCacheImpl() {
+        this.immutable = false;
+        this.copyOnFirstWrite = false;
+        this.baseId = 0;
+        this.modifications = null;
+        this.maxPhenomenonTimeForOfferings = newSynchronizedMap();
+        this.minPhenomenonTimeForOfferings = newSynchronizedMap();
+        this.maxResultTimeForOfferings = newSynchronizedMap();
+        this.minResultTimeForOfferings = newSynchronizedMap();
+        this.maxPhenomenonTimeForProcedures = newSynchronizedMap();
+        this.minPhenomenonTimeForProcedures = newSynchronizedMap();
+        this.allowedObservationTypeForOfferings = newSynchronizedMap();
+        this.allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
+        this.childFeaturesForFeatureOfInterest = newSynchronizedMap();
+        this.childProceduresForProcedures = newSynchronizedMap();
+        this.childOfferingsForOfferings = newSynchronizedMap();
+        this.compositePhenomenonsForProcedure = newSynchronizedMap();
+        this.compositePhenomenonsForOffering = newSynchronizedMap();
+        this.compositePhenomenonsForObservableProperty = newSynchronizedMap();
+        this.featuresOfInterestForOfferings = newSynchronizedMap();
+        this.offeringsForFeaturesOfInterest = newSynchronizedMap();
+        this.featuresOfInterestForResultTemplates = newSynchronizedMap();
+        this.observablePropertiesForCompositePhenomenons = newSynchronizedMap();
+        this.observablePropertiesForOfferings = newSynchronizedMap();
+        this.observablePropertiesForProcedures = newSynchronizedMap();
+        this.observationTypesForOfferings = newSynchronizedMap();
+        this.featureOfInterestTypesForOfferings = newSynchronizedMap();
+        this.observedPropertiesForResultTemplates = newSynchronizedMap();
+        this.offeringsForObservableProperties = newSynchronizedMap();
+        this.offeringsForProcedures = newSynchronizedMap();
+        this.parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
+        this.parentProceduresForProcedures = newSynchronizedMap();
+        this.parentOfferingsForOfferings = newSynchronizedMap();
+        this.proceduresForFeaturesOfInterest = newSynchronizedMap();
+        this.proceduresForObservableProperties = newSynchronizedMap();
+        this.proceduresForOfferings = newSynchronizedMap();
+        this.hiddenChildProceduresForOfferings = newSynchronizedMap();
+        this.relatedFeaturesForOfferings = newSynchronizedMap();
+        this.resultTemplatesForOfferings = newSynchronizedMap();
+        this.rolesForRelatedFeatures = newSynchronizedMap();
+        this.envelopeForOfferings = newSynchronizedMap();
+        this.nameForOfferings = newSynchronizedMap();
+        this.i18nNameForOfferings = newSynchronizedMap();
+        this.i18nDescriptionForOfferings = newSynchronizedMap();
+        this.epsgCodes = newSynchronizedSet();
+        this.featuresOfInterest = newSynchronizedSet();
+        this.procedures = newSynchronizedSet();
+        this.resultTemplates = newSynchronizedSet();
+        this.offerings = newSynchronizedSet();
+        this.compositePhenomenons = newSynchronizedSet();
+        this.spatialFilteringProfileEnvelopeForOfferings = newSynchronizedMap();
+        this.supportedLanguages = newSynchronizedSet();
+        this.requestableProcedureDescriptionFormats = newSynchronizedSet();
+        this.featureOfInterestIdentifierHumanReadableName = newSynchronizedBiMap();
+        this.observablePropertyIdentifierHumanReadableName = newSynchronizedBiMap();
+        this.procedureIdentifierHumanReadableName = newSynchronizedBiMap();
+        this.offeringIdentifierHumanReadableName = newSynchronizedBiMap();
+        this.typeInstanceProcedures = newSynchronizedMap();
+        this.componentAggregationProcedures = newSynchronizedMap();
+        this.typeOfProceduresMap = newSynchronizedMap();
+        this.procedureProcedureDescriptionFormats = newSynchronizedMap();
+        this.publishedFeatureOfInterest = newSynchronizedSet();
+        this.publishedProcedure = newSynchronizedSet();
+        this.publishedOffering = newSynchronizedSet();
+        this.publishedObservableProperty = newSynchronizedSet();
+        this.globalPhenomenonTimeEnvelope = new TimePeriod();
+        this.globalResultTimeEnvelope = new TimePeriod();
+    }
+
+    /**
+     * Creates a copy of the specified cache. Immutable copies are snapshots that can be shared between readers
+     * without locking or copying. Writable copies share the value sets of the source snapshot and copy them on
+     * their first modification.
+     *
+     * @param source
+     *            the cache to copy, has to be a snapshot if a writable copy is created
+     * @param immutable
+     *            if the copy should be an immutable snapshot
+     */
+    protected InMemoryCacheImpl(InMemoryCacheImpl source, boolean immutable) {
+        this(source, immutable, false);
+    }
+
+    /**
+     * Creates a copy of the specified cache. Snapshots reuse the collections of a copy-on-write source that were not
+     * modified. Copy-on-write copies share the collections of the source snapshot and copy each collection on its
+     * first modification.
+     *
+     * @param source
+     *            the cache to copy, has to be a snapshot if a writable copy is created
+     * @param immutable
+     *            if the copy should be an immutable snapshot
+     * @param copyOnFirstWrite
+     *            if a writable copy should copy the collections on their first modification
+     */
+    private InMemoryCacheImpl(InMemoryCacheImpl source, boolean immutable, boolean copyOnFirstWrite) {
+        Preconditions.checkArgument(immutable || source.isImmutable(), "writable copies require a snapshot");
+        this.immutable = immutable;
+        this.copyOnFirstWrite = copyOnFirstWrite && !immutable;
+        if (this.copyOnFirstWrite) {
+            this.baseId = source.id;
+            this.modifications = null;
+        } else if (immutable && source.copyOnFirstWrite) {
+            this.baseId = source.baseId;
+            this.modifications = source.getModifications();
+        } else {
+            this.baseId = 0;
+            this.modifications = null;
+        }
+        this.maxPhenomenonTimeForOfferings = copyMap(source.maxPhenomenonTimeForOfferings);
+        this.minPhenomenonTimeForOfferings = copyMap(source.minPhenomenonTimeForOfferings);
+        this.maxResultTimeForOfferings = copyMap(source.maxResultTimeForOfferings);
+        this.minResultTimeForOfferings = copyMap(source.minResultTimeForOfferings);
+        this.maxPhenomenonTimeForProcedures = copyMap(source.maxPhenomenonTimeForProcedures);
+        this.minPhenomenonTimeForProcedures = copyMap(source.minPhenomenonTimeForProcedures);
+        this.allowedObservationTypeForOfferings = copyValueMap(source.allowedObservationTypeForOfferings);
+        this.allowedFeatureOfInterestTypeForOfferings = copyValueMap(source.allowedFeatureOfInterestTypeForOfferings);
+        this.childFeaturesForFeatureOfInterest = copyValueMap(source.childFeaturesForFeatureOfInterest);
+        this.childProceduresForProcedures = copyValueMap(source.childProceduresForProcedures);
+        this.childOfferingsForOfferings = copyValueMap(source.childOfferingsForOfferings);
+        this.compositePhenomenonsForProcedure = copyValueMap(source.compositePhenomenonsForProcedure);
+        this.compositePhenomenonsForOffering = copyValueMap(source.compositePhenomenonsForOffering);
+        this.compositePhenomenonsForObservableProperty = copyValueMap(source.compositePhenomenonsForObservableProperty);
+        this.featuresOfInterestForOfferings = copyValueMap(source.featuresOfInterestForOfferings);
+        this.offeringsForFeaturesOfInterest = copyValueMap(source.offeringsForFeaturesOfInterest);
+        this.featuresOfInterestForResultTemplates = copyValueMap(source.featuresOfInterestForResultTemplates);
+        this.observablePropertiesForCompositePhenomenons = copyValueMap(
+                source.observablePropertiesForCompositePhenomenons);
+        this.observablePropertiesForOfferings = copyValueMap(source.observablePropertiesForOfferings);
+        this.observablePropertiesForProcedures = copyValueMap(source.observablePropertiesForProcedures);
+        this.observationTypesForOfferings = copyValueMap(source.observationTypesForOfferings);
+        this.featureOfInterestTypesForOfferings = copyValueMap(source.featureOfInterestTypesForOfferings);
+        this.observedPropertiesForResultTemplates = copyValueMap(source.observedPropertiesForResultTemplates);
+        this.offeringsForObservableProperties = copyValueMap(source.offeringsForObservableProperties);
+        this.offeringsForProcedures = copyValueMap(source.offeringsForProcedures);
+        this.parentFeaturesForFeaturesOfInterest = copyValueMap(source.parentFeaturesForFeaturesOfInterest);
+        this.parentProceduresForProcedures = copyValueMap(source.parentProceduresForProcedures);
+        this.parentOfferingsForOfferings = copyValueMap(source.parentOfferingsForOfferings);
+        this.proceduresForFeaturesOfInterest = copyValueMap(source.proceduresForFeaturesOfInterest);
+        this.proceduresForObservableProperties = copyValueMap(source.proceduresForObservableProperties);
+        this.proceduresForOfferings = copyValueMap(source.proceduresForOfferings);
+        this.hiddenChildProceduresForOfferings = copyValueMap(source.hiddenChildProceduresForOfferings);
+        this.relatedFeaturesForOfferings = copyValueMap(source.relatedFeaturesForOfferings);
+        this.resultTemplatesForOfferings = copyValueMap(source.resultTemplatesForOfferings);
+        this.rolesForRelatedFeatures = copyValueMap(source.rolesForRelatedFeatures);
+        this.envelopeForOfferings = copyMap(source.envelopeForOfferings);
+        this.nameForOfferings = copyMap(source.nameForOfferings);
+        this.i18nNameForOfferings = copyMap(source.i18nNameForOfferings);
+        this.i18nDescriptionForOfferings = copyMap(source.i18nDescriptionForOfferings);
+        this.epsgCodes = copySet(source.epsgCodes);
+        this.featuresOfInterest = copySet(source.featuresOfInterest);
+        this.procedures = copySet(source.procedures);
+        this.resultTemplates = copySet(source.resultTemplates);
+        this.offerings = copySet(source.offerings);
+        this.compositePhenomenons = copySet(source.compositePhenomenons);
+        this.spatialFilteringProfileEnvelopeForOfferings = copyMap(
+                source.spatialFilteringProfileEnvelopeForOfferings);
+        this.supportedLanguages = copySet(source.supportedLanguages);
+        this.requestableProcedureDescriptionFormats = copySet(source.requestableProcedureDescriptionFormats);
+        this.featureOfInterestIdentifierHumanReadableName = copyBiMap(
+                source.featureOfInterestIdentifierHumanReadableName);
+        this.observablePropertyIdentifierHumanReadableName = copyBiMap(
+                source.observablePropertyIdentifierHumanReadableName);
+        this.procedureIdentifierHumanReadableName = copyBiMap(source.procedureIdentifierHumanReadableName);
+        this.offeringIdentifierHumanReadableName = copyBiMap(source.offeringIdentifierHumanReadableName);
+        this.typeInstanceProcedures = copyValueMap(source.typeInstanceProcedures);
+        this.componentAggregationProcedures = copyValueMap(source.componentAggregationProcedures);
+        this.typeOfProceduresMap = copyValueMap(source.typeOfProceduresMap);
+        this.procedureProcedureDescriptionFormats = copyValueMap(source.procedureProcedureDescriptionFormats);
+        this.publishedFeatureOfInterest = copySet(source.publishedFeatureOfInterest);
+        this.publishedProcedure = copySet(source.publishedProcedure);
+        this.publishedOffering = copySet(source.publishedOffering);
+        this.publishedObservableProperty = copySet(source.publishedObservableProperty);
+        this.globalPhenomenonTimeEnvelope = new TimePeriod(source.globalPhenomenonTimeEnvelope.getStart(),
+                source.globalPhenomenonTimeEnvelope.getEnd());
+        this.globalResultTimeEnvelope = new TimePeriod(source.globalResultTimeEnvelope.getStart(),
+                source.globalResultTimeEnvelope.getEnd());
+        this.globalEnvelope = copyOf(source.globalEnvelope);
+        this.defaultEpsgCode = source.defaultEpsgCode;
+        this.updateTime = source.updateTime;
+        setSupportedTypeRepository(source.getSupportedTypeRepository());
+    }
+
+    /**
+     * @return if this cache is an immutable snapshot
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * Creates an immutable snapshot of this cache. Getters of a snapshot return the shared collections instead of
+     * copies.
+     *
+     * @return this cache if it is already a snapshot, otherwise an immutable copy
+     */
+    public InMemoryCacheImpl snapshot() {
+        return isImmutable() ? this : new InMemoryCacheImpl(this, true);
+    }
+
+    /**
+     * Creates a writable copy of this cache that can be modified and published as the next snapshot. The copy
+     * shares the collections of the snapshot and copies only the collections that are modified, so it must not be
+     * read concurrently before it is published by {@link #snapshot()}.
+     *
+     * @return the writable copy
+     */
+    public InMemoryCacheImpl copy() {
+        return new InMemoryCacheImpl(snapshot(), false, true);
+    }
+
+    /**
+     * Creates a writable copy of this cache with synchronized collections that can be modified in place while it is
+     * read concurrently.
+     *
+     * @return the writable copy
+     */
+    public InMemoryCacheImpl synchronizedCopy() {
+        return new InMemoryCacheImpl(snapshot(), false);
+    }
+
+    /**
+     * Get the keys and elements of the maps and sets that were modified since the specified snapshot. Maps and sets
+     * without modifications are shared with the specified snapshot.
+     *
+     * @param previous
+     *            the previous snapshot
+     *
+     * @return the modified keys and elements by map and set name or {@code null} if this snapshot was not created
+     *         from a copy of the specified snapshot
+     */
+    Map<String, Set<?>> getModificationsSince(InMemoryCacheImpl previous) {
+        return this.modifications != null && previous.id == this.baseId ? this.modifications : null;
+    }
+
+    private Map<String, Set<?>> getModifications() {
+        Map<String, Set<?>> modified = new HashMap<>();
+        getMaps().forEach((name, map) -> {
+            Set<Object> keys = CopyOnWriteMap.modifiedKeys(map);
+            if (keys != null && !keys.isEmpty()) {
+                modified.put(name, keys);
+            }
+        });
+        getSets().forEach((name, set) -> {
+            Set<Object> elements = CopyOnWriteSet.modifiedElements(set);
+            if (elements != null && !elements.isEmpty()) {
+                modified.put(name, elements);
+            }
+        });
+        return Collections.unmodifiableMap(modified);
+    }
+
+    /**
+     * Serializes copy-on-write copies as writable copies with synchronized collections.
+     *
+     * @return the object to serialize
+     *
+     * @throws ObjectStreamException
+     *             if the replacement can not be created
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return copyOnFirstWrite ? synchronizedCopy() : this;
+    }
+
+    private void checkWritable() {
+        if (isImmutable()) {
+            throw new UnsupportedOperationException("Cache snapshots are immutable");
+        }
+    }
+
+    private <K, V> Map<K, V> copyMap(Map<K, V> map) {
+        if (isImmutable()) {
+            Map<K, V> original = CopyOnWriteMap.unmodifiedOriginal(map);
+            return original != null ? original : immutableCopyOf(map);
+        }
+        return copyOnFirstWrite ? new CopyOnWriteMap<>(map, AbstractContentCache::newSynchronizedMap)
+                : newSynchronizedMap(map);
+    }
+
+    private <K, V> Map<K, Set<V>> copyValueMap(Map<K, Set<V>> map) {
+        if (isImmutable()) {
+            Map<K, Set<V>> original = CopyOnWriteMap.unmodifiedOriginal(map);
+            return original != null ? original : immutableCopyOfValues(map);
+        }
+        return copyOnFirstWrite ? new CopyOnWriteMap<>(map, AbstractContentCache::newCopyOnWriteMap)
+                : newCopyOnWriteMap(map);
+    }
 
-    private final Set<String> publishedFeatureOfInterest = newSynchronizedSet();
+    private <T> Set<T> copySet(Set<T> set) {
+        if (isImmutable()) {
+            Set<T> original = CopyOnWriteSet.unmodifiedOriginal(set);
+            return original != null ? original : immutableCopyOf(set);
+        }
+        return copyOnFirstWrite ? new CopyOnWriteSet<>(set, AbstractContentCache::newSynchronizedSet)
+                : newSynchronizedSet(set);
+    }
 
-    private final Set<String> publishedProcedure = newSynchronizedSet();
+    private <K, V> BiMap<K, V> copyBiMap(BiMap<K, V> map) {
+        if (isImmutable()) {
+            Map<K, V> original = CopyOnWriteMap.unmodifiedOriginal(map);
+            return original != null ? (BiMap<K, V>) original : immutableCopyOf(map);
+        }
+        return copyOnFirstWrite ? new CopyOnWriteBiMap<>(map, m -> newSynchronizedBiMap(HashBiMap.create(m)))
+                : newSynchronizedBiMap(HashBiMap.create(map));
+    }
 
-    private final Set<String> publishedOffering = newSynchronizedSet();
+    /**
+     * Get the maps of this cache by their field name. Used to compute and apply {@link InMemoryCacheDelta}s.
+     *
+     * @return the maps of this cache
+     */
+    Map<String, Map<?, ?>> getMaps() {
+        Map<String, Map<?, ?>> maps = new LinkedHashMap<>();
+        maps.put("maxPhenomenonTimeForOfferings", maxPhenomenonTimeForOfferings);
+        maps.put("minPhenomenonTimeForOfferings", minPhenomenonTimeForOfferings);
+        maps.put("maxResultTimeForOfferings", maxResultTimeForOfferings);
+        maps.put("minResultTimeForOfferings", minResultTimeForOfferings);
+        maps.put("maxPhenomenonTimeForProcedures", maxPhenomenonTimeForProcedures);
+        maps.put("minPhenomenonTimeForProcedures", minPhenomenonTimeForProcedures);
+        maps.put("allowedObservationTypeForOfferings", allowedObservationTypeForOfferings);
+        maps.put("allowedFeatureOfInterestTypeForOfferings", allowedFeatureOfInterestTypeForOfferings);
+        maps.put("childFeaturesForFeatureOfInterest", childFeaturesForFeatureOfInterest);
+        maps.put("childProceduresForProcedures", childProceduresForProcedures);
+        maps.put("childOfferingsForOfferings", childOfferingsForOfferings);
+        maps.put("compositePhenomenonsForProcedure", compositePhenomenonsForProcedure);
+        maps.put("compositePhenomenonsForOffering", compositePhenomenonsForOffering);
+        maps.put("compositePhenomenonsForObservableProperty", compositePhenomenonsForObservableProperty);
+        maps.put("featuresOfInterestForOfferings", featuresOfInterestForOfferings);
+        maps.put("offeringsForFeaturesOfInterest", offeringsForFeaturesOfInterest);
+        maps.put("featuresOfInterestForResultTemplates", featuresOfInterestForResultTemplates);
+        maps.put("observablePropertiesForCompositePhenomenons", observablePropertiesForCompositePhenomenons);
+        maps.put("observablePropertiesForOfferings", observablePropertiesForOfferings);
+        maps.put("observablePropertiesForProcedures", observablePropertiesForProcedures);
+        maps.put("observationTypesForOfferings", observationTypesForOfferings);
+        maps.put("featureOfInterestTypesForOfferings", featureOfInterestTypesForOfferings);
+        maps.put("observedPropertiesForResultTemplates", observedPropertiesForResultTemplates);
+        maps.put("offeringsForObservableProperties", offeringsForObservableProperties);
+        maps.put("offeringsForProcedures", offeringsForProcedures);
+        maps.put("parentFeaturesForFeaturesOfInterest", parentFeaturesForFeaturesOfInterest);
+        maps.put("parentProceduresForProcedures", parentProceduresForProcedures);
+        maps.put("parentOfferingsForOfferings", parentOfferingsForOfferings);
+        maps.put("proceduresForFeaturesOfInterest", proceduresForFeaturesOfInterest);
+        maps.put("proceduresForObservableProperties", proceduresForObservableProperties);
+        maps.put("proceduresForOfferings", proceduresForOfferings);
+        maps.put("hiddenChildProceduresForOfferings", hiddenChildProceduresForOfferings);
+        maps.put("relatedFeaturesForOfferings", relatedFeaturesForOfferings);
+        maps.put("resultTemplatesForOfferings", resultTemplatesForOfferings);
+        maps.put("rolesForRelatedFeatures", rolesForRelatedFeatures);
+        maps.put("envelopeForOfferings", envelopeForOfferings);
+        maps.put("nameForOfferings", nameForOfferings);
+        maps.put("i18nNameForOfferings", i18nNameForOfferings);
+        maps.put("i18nDescriptionForOfferings", i18nDescriptionForOfferings);
+        maps.put("spatialFilteringProfileEnvelopeForOfferings", spatialFilteringProfileEnvelopeForOfferings);
+        maps.put("featureOfInterestIdentifierHumanReadableName", featureOfInterestIdentifierHumanReadableName);
+        maps.put("observablePropertyIdentifierHumanReadableName", observablePropertyIdentifierHumanReadableName);
+        maps.put("procedureIdentifierHumanReadableName", procedureIdentifierHumanReadableName);
+        maps.put("offeringIdentifierHumanReadableName", offeringIdentifierHumanReadableName);
+        maps.put("typeInstanceProcedures", typeInstanceProcedures);
+        maps.put("componentAggregationProcedures", componentAggregationProcedures);
+        maps.put("typeOfProceduresMap", typeOfProceduresMap);
+        maps.put("procedureProcedureDescriptionFormats", procedureProcedureDescriptionFormats);
+        return maps;
+    }
 
-    private final Set<String> publishedObservableProperty = newSynchronizedSet();
+    /**
+     * Get the sets of this cache by their field name. Used to compute and apply {@link InMemoryCacheDelta}s.
+     *
+     * @return the sets of this cache
+     */
+    Map<String, Set<?>> getSets() {
+        Map<String, Set<?>> sets = new LinkedHashMap<>();
+        sets.put("epsgCodes", epsgCodes);
+        sets.put("featuresOfInterest", featuresOfInterest);
+        sets.put("procedures", procedures);
+        sets.put("resultTemplates", resultTemplates);
+        sets.put("offerings", offerings);
+        sets.put("compositePhenomenons", compositePhenomenons);
+        sets.put("supportedLanguages", supportedLanguages);
+        sets.put("requestableProcedureDescriptionFormats", requestableProcedureDescriptionFormats);
+        sets.put("publishedFeatureOfInterest", publishedFeatureOfInterest);
+        sets.put("publishedProcedure", publishedProcedure);
+        sets.put("publishedOffering", publishedOffering);
+        sets.put("publishedObservableProperty", publishedObservableProperty);
+        return sets;
+    }
 
     @Override
     public DateTime getLastUpdateTime() {
@@ -204,6 +611,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setLastUpdateTime(DateTime time) {
+        checkWritable();
         this.updateTime = time;
     }
 
@@ -214,6 +622,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setMaxPhenomenonTime(DateTime maxEventTime) {
+        checkWritable();
         LOG.trace("Setting Maximal EventTime to {}", maxEventTime);
         this.globalPhenomenonTimeEnvelope.setEnd(DateTimeHelper.toUTC(maxEventTime));
     }
@@ -225,6 +634,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setMinPhenomenonTime(DateTime minEventTime) {
+        checkWritable();
         LOG.trace("Setting Minimal EventTime to {}", minEventTime);
         this.globalPhenomenonTimeEnvelope.setStart(DateTimeHelper.toUTC(minEventTime));
     }
@@ -255,6 +665,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
      *            the new global spatial envelope
      */
     protected void setGlobalSpatialEnvelope(ReferencedEnvelope envelope) {
+        checkWritable();
         this.globalEnvelope = Objects.requireNonNull(envelope, "envelope");
     }
 
@@ -270,6 +681,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
      *            the updateTime to set
      */
     public void setUpdateTime(DateTime updateTime) {
+        checkWritable();
         this.updateTime = updateTime;
     }
 
@@ -278,6 +690,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
      *            the new default EPSG code
      */
     public void setDefaultEPSGCode(int defaultEpsgCode) {
+        checkWritable();
         this.defaultEpsgCode = defaultEpsgCode;
     }
 
@@ -604,6 +1017,16 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         return CollectionHelper.unionOfListOfLists(this.relatedFeaturesForOfferings.values());
     }
 
+    @Override
+    public boolean hasObservableProperty(String observableProperty) {
+        return containsValue(this.observablePropertiesForOfferings, observableProperty);
+    }
+
+    @Override
+    public boolean hasRelatedFeature(String relatedFeature) {
+        return containsValue(this.relatedFeaturesForOfferings, relatedFeature);
+    }
+
     @Override
     public boolean hasFeatureOfInterest(String featureOfInterest) {
         return this.featuresOfInterest.contains(featureOfInterest);
@@ -643,6 +1066,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setMaxResultTime(DateTime maxResultTime) {
+        checkWritable();
         LOG.trace("Setting Maximal ResultTime to {}", maxResultTime);
         this.globalResultTimeEnvelope.setEnd(DateTimeHelper.toUTC(maxResultTime));
     }
@@ -659,6 +1083,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setMinResultTime(DateTime minResultTime) {
+        checkWritable();
         LOG.trace("Setting Minimal ResultTime to {}", minResultTime);
         this.globalResultTimeEnvelope.setStart(DateTimeHelper.toUTC(minResultTime));
     }
@@ -961,8 +1386,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(ALLOWED_OBSERVATION_TYPE, allowedObservationType);
         LOG.trace("Adding AllowedObservationType {} to Offering {}", allowedObservationType, offering);
-        this.allowedObservationTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(allowedObservationType);
+        writableValues(this.allowedObservationTypeForOfferings, offering).add(allowedObservationType);
     }
 
     @Override
@@ -970,8 +1394,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(ALLOWED_OBSERVATION_TYPES, allowedObservationTypes);
         LOG.trace("Adding AllowedObservationTypes {} to Offering {}", allowedObservationTypes, offering);
-        this.allowedObservationTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(allowedObservationTypes);
+        writableValues(this.allowedObservationTypeForOfferings, offering).addAll(allowedObservationTypes);
     }
 
     @Override
@@ -979,8 +1402,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Adding featureOfInterest {} to Offering {}", featureOfInterest, offering);
-        this.featuresOfInterestForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(featureOfInterest);
-        this.offeringsForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet()).add(offering);
+        writableValues(this.featuresOfInterestForOfferings, offering).add(featureOfInterest);
+        writableValues(this.offeringsForFeaturesOfInterest, featureOfInterest).add(offering);
     }
 
     @Override
@@ -988,8 +1411,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Adding FeatureOfInterest {} to SosResultTemplate {}", featureOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .add(featureOfInterest);
+        writableValues(this.featuresOfInterestForResultTemplates, resultTemplate).add(featureOfInterest);
     }
 
     @Override
@@ -997,8 +1419,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.noNullValues(FEATURES_OF_INTEREST, featuresOfInterest);
         LOG.trace("Adding FeatureOfInterests {} to SosResultTemplate {}", featuresOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .addAll(featuresOfInterest);
+        writableValues(this.featuresOfInterestForResultTemplates, resultTemplate).addAll(featuresOfInterest);
     }
 
     @Override
@@ -1006,8 +1427,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to offering {}", observableProperty, offering);
-        this.observablePropertiesForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(observableProperty);
+        writableValues(this.observablePropertiesForOfferings, offering).add(observableProperty);
     }
 
     @Override
@@ -1015,8 +1435,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to procedure {}", observableProperty, procedure);
-        this.observablePropertiesForProcedures.computeIfAbsent(procedure, createSynchronizedSet())
-                .add(observableProperty);
+        writableValues(this.observablePropertiesForProcedures, procedure).add(observableProperty);
     }
 
     @Override
@@ -1024,8 +1443,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to resultTemplate {}", observableProperty, resultTemplate);
-        this.observedPropertiesForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .add(observableProperty);
+        writableValues(this.observedPropertiesForResultTemplates, resultTemplate).add(observableProperty);
     }
 
     @Override
@@ -1033,7 +1451,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVATION_TYPE, observationType);
         LOG.trace("Adding observationType {} to offering {}", observationType, offering);
-        this.observationTypesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(observationType);
+        writableValues(this.observationTypesForOfferings, offering).add(observationType);
     }
 
     @Override
@@ -1041,8 +1459,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Adding offering {} to observableProperty {}", offering, observableProperty);
-        this.offeringsForObservableProperties.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(offering);
+        writableValues(this.offeringsForObservableProperties, observableProperty).add(offering);
     }
 
     @Override
@@ -1050,7 +1467,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Adding offering {} to procedure {}", offering, procedure);
-        this.offeringsForProcedures.computeIfAbsent(procedure, createSynchronizedSet()).add(offering);
+        writableValues(this.offeringsForProcedures, procedure).add(offering);
     }
 
     @Override
@@ -1058,8 +1475,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to featureOfInterest {}", procedure, featureOfInterest);
-        this.proceduresForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .add(procedure);
+        writableValues(this.proceduresForFeaturesOfInterest, featureOfInterest).add(procedure);
     }
 
     @Override
@@ -1067,8 +1483,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, observableProperty);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to observableProperty {}", procedure, observableProperty);
-        this.proceduresForObservableProperties.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(procedure);
+        writableValues(this.proceduresForObservableProperties, observableProperty).add(procedure);
     }
 
     @Override
@@ -1076,7 +1491,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to offering {}", procedure, offering);
-        this.proceduresForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(procedure);
+        writableValues(this.proceduresForOfferings, offering).add(procedure);
     }
 
     @Override
@@ -1084,7 +1499,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         LOG.trace("Adding relatedFeature {} to offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(relatedFeature);
+        writableValues(this.relatedFeaturesForOfferings, offering).add(relatedFeature);
     }
 
     @Override
@@ -1092,7 +1507,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(RELATED_FEATURE, relatedFeature);
         LOG.trace("Adding relatedFeatures {} to offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).addAll(relatedFeature);
+        writableValues(this.relatedFeaturesForOfferings, offering).addAll(relatedFeature);
     }
 
     @Override
@@ -1100,7 +1515,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         LOG.trace("Adding resultTemplate {} to offering {}", resultTemplate, offering);
-        this.resultTemplatesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(resultTemplate);
+        writableValues(this.resultTemplatesForOfferings, offering).add(resultTemplate);
     }
 
     @Override
@@ -1108,7 +1523,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         CacheValidation.notNullOrEmpty("role", role);
         LOG.trace("Adding role {} to relatedFeature {}", role, relatedFeature);
-        this.rolesForRelatedFeatures.computeIfAbsent(relatedFeature, createSynchronizedSet()).add(role);
+        writableValues(this.rolesForRelatedFeatures, relatedFeature).add(role);
     }
 
     @Override
@@ -1116,8 +1531,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty("allowedObservationType", allowedObservationType);
         LOG.trace("Removing allowedObservationType {} from offering {}", allowedObservationType, offering);
-        this.allowedObservationTypeForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(allowedObservationType);
+        removeValue(this.allowedObservationTypeForOfferings, offering, allowedObservationType);
     }
 
     @Override
@@ -1139,8 +1553,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Removing featureOfInterest {} from offering {}", featureOfInterest, offering);
-        this.featuresOfInterestForOfferings.getOrDefault(offering, Collections.emptySet()).remove(featureOfInterest);
-        this.offeringsForFeaturesOfInterest.getOrDefault(featureOfInterest, Collections.emptySet()).remove(offering);
+        removeValue(this.featuresOfInterestForOfferings, offering, featureOfInterest);
+        removeValue(this.offeringsForFeaturesOfInterest, featureOfInterest, offering);
     }
 
     @Override
@@ -1148,8 +1562,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Removing featureOfInterest {} from resultTemplate {}", featureOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.getOrDefault(resultTemplate, Collections.emptySet())
-                .remove(featureOfInterest);
+        removeValue(this.featuresOfInterestForResultTemplates, resultTemplate, featureOfInterest);
     }
 
     @Override
@@ -1232,8 +1645,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from offering {}", observableProperty, offering);
-        this.observablePropertiesForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observablePropertiesForOfferings, offering, observableProperty);
     }
 
     @Override
@@ -1241,8 +1653,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from procedure {}", observableProperty, procedure);
-        this.observablePropertiesForProcedures.getOrDefault(procedure, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observablePropertiesForProcedures, procedure, observableProperty);
     }
 
     @Override
@@ -1250,8 +1661,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from resultTemplate {}", observableProperty, resultTemplate);
-        this.observedPropertiesForResultTemplates.getOrDefault(resultTemplate, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observedPropertiesForResultTemplates, resultTemplate, observableProperty);
     }
 
     @Override
@@ -1259,7 +1669,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVATION_TYPE, observationType);
         LOG.trace("Removing observationType {} from offering {}", observationType, offering);
-        this.observationTypesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(observationType);
+        removeValue(this.observationTypesForOfferings, offering, observationType);
     }
 
     @Override
@@ -1274,8 +1684,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Removing offering {} from observableProperty {}", offering, observableProperty);
-        this.offeringsForObservableProperties.getOrDefault(observableProperty, Collections.emptySet())
-                .remove(offering);
+        removeValue(this.offeringsForObservableProperties, observableProperty, offering);
     }
 
     @Override
@@ -1283,7 +1692,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Removing offering {} from procedure {}", offering, procedure);
-        this.offeringsForProcedures.getOrDefault(procedure, Collections.emptySet()).remove(offering);
+        removeValue(this.offeringsForProcedures, procedure, offering);
     }
 
     @Override
@@ -1305,7 +1714,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from featureOfInterest {}", procedure, featureOfInterest);
-        this.proceduresForFeaturesOfInterest.getOrDefault(featureOfInterest, Collections.emptySet()).remove(procedure);
+        removeValue(this.proceduresForFeaturesOfInterest, featureOfInterest, procedure);
     }
 
     @Override
@@ -1313,8 +1722,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from observableProperty {}", procedure, observableProperty);
-        this.proceduresForObservableProperties.getOrDefault(observableProperty, Collections.emptySet())
-                .remove(procedure);
+        removeValue(this.proceduresForObservableProperties, observableProperty, procedure);
     }
 
     @Override
@@ -1322,7 +1730,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from offering {}", procedure, offering);
-        this.proceduresForOfferings.getOrDefault(offering, Collections.emptySet()).remove(procedure);
+        removeValue(this.proceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1351,7 +1759,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         LOG.trace("Removing relatedFeature {} from offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(relatedFeature);
+        removeValue(this.relatedFeaturesForOfferings, offering, relatedFeature);
     }
 
     @Override
@@ -1366,7 +1774,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         LOG.trace("Removing resultTemplate {} from offering {}", resultTemplate, offering);
-        this.resultTemplatesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(resultTemplate);
+        removeValue(this.resultTemplatesForOfferings, offering, resultTemplate);
     }
 
     @Override
@@ -1381,7 +1789,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         CacheValidation.notNullOrEmpty(ROLE, role);
         LOG.trace("Removing role {} from relatedFeature {}", role, relatedFeature);
-        this.rolesForRelatedFeatures.getOrDefault(relatedFeature, Collections.emptySet()).remove(role);
+        removeValue(this.rolesForRelatedFeatures, relatedFeature, role);
     }
 
     @Override
@@ -1394,12 +1802,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void removeRolesForRelatedFeatureNotIn(Collection<String> relatedFeatures) {
         Objects.requireNonNull(relatedFeatures, RELATED_FEATURES);
-        final Iterator<String> iter = this.rolesForRelatedFeatures.keySet().iterator();
-        while (iter.hasNext()) {
-            if (!relatedFeatures.contains(iter.next())) {
-                iter.remove();
-            }
-        }
+        new ArrayList<>(this.rolesForRelatedFeatures.keySet()).stream()
+                .filter(relatedFeature -> !relatedFeatures.contains(relatedFeature))
+                .forEach(this.rolesForRelatedFeatures::remove);
     }
 
     @Override
@@ -1432,8 +1837,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
         LOG.trace("Adding offering {} to featureOfInterest {}", offering, featuresOfInterest);
         for (final String featureOfInterest : featuresOfInterest) {
-            this.offeringsForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                    .add(offering);
+            writableValues(this.offeringsForFeaturesOfInterest, featureOfInterest).add(offering);
         }
     }
 
@@ -1451,10 +1855,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PARENT_FEATURE, parentFeature);
         LOG.trace("Adding parentFeature {} to featureOfInterest {}", parentFeature, featureOfInterest);
-        this.parentFeaturesForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .add(parentFeature);
-        this.childFeaturesForFeatureOfInterest.computeIfAbsent(parentFeature, createSynchronizedSet())
-                .add(featureOfInterest);
+        writableValues(this.parentFeaturesForFeaturesOfInterest, featureOfInterest).add(parentFeature);
+        writableValues(this.childFeaturesForFeatureOfInterest, parentFeature).add(featureOfInterest);
     }
 
     @Override
@@ -1462,10 +1864,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.noNullOrEmptyValues(PARENT_FEATURES, parentFeatures);
         LOG.trace("Adding parentFeatures {} to featureOfInterest {}", parentFeatures, featureOfInterest);
-        this.parentFeaturesForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .addAll(parentFeatures);
-        parentFeatures.forEach(parentFeature -> this.childFeaturesForFeatureOfInterest
-                .computeIfAbsent(parentFeature, createSynchronizedSet()).add(featureOfInterest));
+        writableValues(this.parentFeaturesForFeaturesOfInterest, featureOfInterest).addAll(parentFeatures);
+        parentFeatures.forEach(parentFeature -> 
+                writableValues(this.childFeaturesForFeatureOfInterest, parentFeature).add(featureOfInterest));
     }
 
     @Override
@@ -1473,8 +1874,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(PARENT_PROCEDURE, parentProcedure);
         LOG.trace("Adding parentProcedure {} to procedure {}", parentProcedure, procedure);
-        this.parentProceduresForProcedures.computeIfAbsent(procedure, createSynchronizedSet()).add(parentProcedure);
-        this.childProceduresForProcedures.computeIfAbsent(parentProcedure, createSynchronizedSet()).add(procedure);
+        writableValues(this.parentProceduresForProcedures, procedure).add(parentProcedure);
+        writableValues(this.childProceduresForProcedures, parentProcedure).add(procedure);
     }
 
     @Override
@@ -1482,10 +1883,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.noNullOrEmptyValues(PARENT_PROCEDURES, parentProcedures);
         LOG.trace("Adding parentProcedures {} to procedure {}", parentProcedures, procedure);
-        this.parentProceduresForProcedures.computeIfAbsent(procedure, createSynchronizedSet())
-                .addAll(parentProcedures);
-        parentProcedures.forEach(parentProcedure -> this.childProceduresForProcedures
-                .computeIfAbsent(parentProcedure, createSynchronizedSet()).add(procedure));
+        writableValues(this.parentProceduresForProcedures, procedure).addAll(parentProcedures);
+        parentProcedures.forEach(parentProcedure -> 
+                writableValues(this.childProceduresForProcedures, parentProcedure).add(procedure));
     }
 
     @Override
@@ -1493,8 +1893,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PARENT_OFFERING, parentOffering);
         LOG.trace("Adding parentOffering {} to offering {}", parentOffering, offering);
-        this.parentOfferingsForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(parentOffering);
-        this.childOfferingsForOfferings.computeIfAbsent(parentOffering, createSynchronizedSet()).add(offering);
+        writableValues(this.parentOfferingsForOfferings, offering).add(parentOffering);
+        writableValues(this.childOfferingsForOfferings, parentOffering).add(offering);
     }
 
     @Override
@@ -1502,19 +1902,22 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullOrEmptyValues(PARENT_OFFERINGS, parentOfferings);
         LOG.trace("Adding parentOfferings {} to offering {}", parentOfferings, offering);
-        this.parentOfferingsForOfferings.computeIfAbsent(offering, createSynchronizedSet()).addAll(parentOfferings);
-        parentOfferings.forEach(parentOffering -> this.childOfferingsForOfferings
-                .computeIfAbsent(parentOffering, createSynchronizedSet()).add(offering));
+        writableValues(this.parentOfferingsForOfferings, offering).addAll(parentOfferings);
+        parentOfferings.forEach(parentOffering -> 
+                writableValues(this.childOfferingsForOfferings, parentOffering).add(offering));
     }
 
     @Override
     public void updateEnvelopeForOffering(final String offering, final Envelope envelope) {
+        checkWritable();
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasEnvelopeForOffering(offering)) {
-            final ReferencedEnvelope offeringEnvelope = this.envelopeForOfferings.get(offering);
+            // expand a copy, the envelope may be shared with a snapshot
+            final ReferencedEnvelope offeringEnvelope = copyOf(this.envelopeForOfferings.get(offering));
             LOG.trace("Expanding envelope {} for offering {} to include {}", offeringEnvelope, offering, envelope);
             offeringEnvelope.expandToInclude(envelope);
+            this.envelopeForOfferings.put(offering, offeringEnvelope);
         } else {
             setEnvelopeForOffering(offering, new ReferencedEnvelope(envelope, getDefaultEPSGCode()));
         }
@@ -1522,6 +1925,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void updateGlobalEnvelope(Envelope envelope) {
+        checkWritable();
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasGlobalEnvelope()) {
             LOG.trace("Expanding envelope {} to include {}", this.globalEnvelope, envelope);
@@ -1768,7 +2172,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding hidden child procedure {} to offering {}", procedure, offering);
-        this.hiddenChildProceduresForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(procedure);
+        writableValues(this.hiddenChildProceduresForOfferings, offering).add(procedure);
     }
 
     @Override
@@ -1776,7 +2180,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing hidden chil procedure {} from offering {}", procedure, offering);
-        this.hiddenChildProceduresForOfferings.getOrDefault(offering, Collections.emptySet()).remove(procedure);
+        removeValue(this.hiddenChildProceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1807,13 +2211,17 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void updateSpatialFilteringProfileEnvelopeForOffering(String offering, Envelope envelope) {
+        checkWritable();
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasSpatialFilteringProfileEnvelopeForOffering(offering)) {
-            final ReferencedEnvelope offeringEnvelope = this.spatialFilteringProfileEnvelopeForOfferings.get(offering);
+            // expand a copy, the envelope may be shared with a snapshot
+            final ReferencedEnvelope offeringEnvelope =
+                    copyOf(this.spatialFilteringProfileEnvelopeForOfferings.get(offering));
             LOG.trace("Expanding Spatial Filtering Profile envelope {} for offering {} to include {}",
                     offeringEnvelope, offering, envelope);
             offeringEnvelope.expandToInclude(envelope);
+            this.spatialFilteringProfileEnvelopeForOfferings.put(offering, offeringEnvelope);
         } else {
             setSpatialFilteringProfileEnvelopeForOffering(offering,
                     new ReferencedEnvelope(envelope, getDefaultEPSGCode()));
@@ -1831,8 +2239,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
         LOG.trace("Adding featureOfInterestType {} to offering {}", featureOfInterestType, offering);
-        this.featureOfInterestTypesForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(featureOfInterestType);
+        writableValues(this.featureOfInterestTypesForOfferings, offering).add(featureOfInterestType);
     }
 
     @Override
@@ -1840,8 +2247,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
         LOG.trace("Removing featureOfInterestType {} from offering {}", featureOfInterestType, offering);
-        this.featureOfInterestTypesForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(featureOfInterestType);
+        removeValue(this.featureOfInterestTypesForOfferings, offering, featureOfInterestType);
     }
 
     @Override
@@ -1863,8 +2269,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(ALLOWED_FEATURE_OF_INTEREST_TYPE, allowedFeatureOfInterestType);
         LOG.trace("Adding AllowedFeatureOfInterestType {} to Offering {}", allowedFeatureOfInterestType, offering);
-        this.allowedFeatureOfInterestTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(allowedFeatureOfInterestType);
+        writableValues(this.allowedFeatureOfInterestTypeForOfferings, offering).add(allowedFeatureOfInterestType);
     }
 
     @Override
@@ -1873,8 +2278,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(ALLOWED_FEATURE_OF_INTEREST_TYPES, allowedFeatureOfInterestTypes);
         LOG.trace("Adding AllowedFeatureOfInterestTypes {} to Offering {}", allowedFeatureOfInterestTypes, offering);
-        this.allowedFeatureOfInterestTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(allowedFeatureOfInterestTypes);
+        writableValues(this.allowedFeatureOfInterestTypeForOfferings, offering).addAll(allowedFeatureOfInterestTypes);
     }
 
     @Override
@@ -1948,7 +2352,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeFeatureOfInterestIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_NAME, humanReadableName);
         LOG.trace("Removing featuresOfInterest identifier for humanReadableName {}", humanReadableName);
-        featureOfInterestIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        Optional.ofNullable(featureOfInterestIdentifierHumanReadableName.inverse().get(humanReadableName))
+                .ifPresent(featureOfInterestIdentifierHumanReadableName::remove);
     }
 
     @Override
@@ -1962,7 +2367,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeObservablePropertyIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY_NAME, humanReadableName);
         LOG.trace("Removing observableProperty identifier for humanReadableName {}", humanReadableName);
-        observablePropertyIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        Optional.ofNullable(observablePropertyIdentifierHumanReadableName.inverse().get(humanReadableName))
+                .ifPresent(observablePropertyIdentifierHumanReadableName::remove);
     }
 
     @Override
@@ -1976,7 +2382,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeProcedureIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(PROCEDURE_NAME, humanReadableName);
         LOG.trace("Removing procedure identifier for humanReadableName {}", humanReadableName);
-        procedureIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        Optional.ofNullable(procedureIdentifierHumanReadableName.inverse().get(humanReadableName))
+                .ifPresent(procedureIdentifierHumanReadableName::remove);
     }
 
     @Override
@@ -1990,7 +2397,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeOfferingIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(OFFERING_NAME, humanReadableName);
         LOG.trace("Removing offering identifier for humanReadableName {}", humanReadableName);
-        offeringIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        Optional.ofNullable(offeringIdentifierHumanReadableName.inverse().get(humanReadableName))
+                .ifPresent(offeringIdentifierHumanReadableName::remove);
     }
 
     @Override
@@ -2100,8 +2508,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenon {} to procedure {}", compositePhenomenon, procedure);
-        this.compositePhenomenonsForProcedure.computeIfAbsent(procedure, createSynchronizedSet())
-                .add(compositePhenomenon);
+        writableValues(this.compositePhenomenonsForProcedure, procedure).add(compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2110,8 +2517,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenons {} to procedure {}", compositePhenomenon, procedure);
-        this.compositePhenomenonsForProcedure.computeIfAbsent(procedure, createSynchronizedSet())
-                .addAll(compositePhenomenon);
+        writableValues(this.compositePhenomenonsForProcedure, procedure).addAll(compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2132,8 +2538,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenon {} to offering {}", compositePhenomenon, offering);
-        this.compositePhenomenonsForOffering.computeIfAbsent(offering, createSynchronizedSet())
-                .add(compositePhenomenon);
+        writableValues(this.compositePhenomenonsForOffering, offering).add(compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2142,8 +2547,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenons {} to offering {}", compositePhenomenon, offering);
-        this.compositePhenomenonsForOffering.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(compositePhenomenon);
+        writableValues(this.compositePhenomenonsForOffering, offering).addAll(compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2165,8 +2569,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding composite phenomenon {} to to observable property {}", compositePhenomenon,
                 observableProperty);
-        this.compositePhenomenonsForObservableProperty.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(compositePhenomenon);
+        writableValues(this.compositePhenomenonsForObservableProperty, observableProperty).add(compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2175,8 +2578,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observable property {} to composite phenomenon {}", observableProperty, compositePhenomenon);
-        this.observablePropertiesForCompositePhenomenons.computeIfAbsent(compositePhenomenon, createSynchronizedSet())
-                .add(observableProperty);
+        writableValues(this.observablePropertiesForCompositePhenomenons, compositePhenomenon).add(observableProperty);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2187,7 +2589,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.noNullOrEmptyValues(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observable properties {} to composite phenomenon {}", observableProperty,
                 compositePhenomenon);
-        this.observablePropertiesForCompositePhenomenons.computeIfAbsent(compositePhenomenon, createSynchronizedSet())
+        writableValues(this.observablePropertiesForCompositePhenomenons, compositePhenomenon)
                 .addAll(observableProperty);
         addCompositePhenomenon(compositePhenomenon);
     }
@@ -2233,6 +2635,25 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
                 CollectionHelper.union(copyOf(proceduresForOfferings.values())));
     }
 
+    @Override
+    public boolean hasTransactionalObservationProcedure(String procedureID) {
+        return containsValue(hiddenChildProceduresForOfferings, procedureID)
+                || containsValue(proceduresForOfferings, procedureID);
+    }
+
+    @Override
+    public boolean hasQueryableProcedure(String procedureID, boolean instances, boolean aggregates) {
+        // same precedence as getQueryableProcedures(boolean, boolean)
+        if (aggregates) {
+            return procedures.contains(procedureID)
+                    && containsValue(componentAggregationProcedures, ComponentAggregation.AGGREGATION, procedureID);
+        } else if (instances) {
+            return procedures.contains(procedureID)
+                    && containsValue(typeInstanceProcedures, TypeInstance.INSTANCE, procedureID);
+        }
+        return publishedProcedure.contains(procedureID);
+    }
+
     @Override
     public Set<String> getQueryableProcedures(boolean instances, boolean aggregates) {
         Set<String> procs = getPublishedProcedures();
@@ -2275,7 +2696,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(TYPE_PROCEDURE, identifier);
         logAdding(TYPE_PROCEDURE, identifier);
         if (typeInstanceProcedures.containsKey(typeInstance)) {
-            typeInstanceProcedures.get(typeInstance).add(identifier);
+            writableValues(typeInstanceProcedures, typeInstance).add(identifier);
         } else {
             typeInstanceProcedures.put(typeInstance, Sets.newHashSet(identifier));
         }
@@ -2299,7 +2720,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(AGGREGATED_PROCEDURE, identifier);
         logAdding(AGGREGATED_PROCEDURE, identifier);
         if (componentAggregationProcedures.containsKey(componentAggregation)) {
-            componentAggregationProcedures.get(componentAggregation).add(identifier);
+            writableValues(componentAggregationProcedures, componentAggregation).add(identifier);
         } else {
             componentAggregationProcedures.put(componentAggregation, Sets.newHashSet(identifier));
         }
@@ -2324,7 +2745,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE_INSTANCE, instance);
         LOG.trace("Adding instance '{}' to type '{}'", instance, type);
         if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).add(instance);
+            writableValues(typeOfProceduresMap, type).add(instance);
         } else {
             typeOfProceduresMap.put(type, Sets.newHashSet(instance));
         }
@@ -2336,7 +2757,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.noNullValues(PROCEDURE_INSTANCES, instances);
         LOG.trace("Adding instances {} to type '{}'", instances, type);
         if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).addAll(instances);
+            writableValues(typeOfProceduresMap, type).addAll(instances);
         } else {
             typeOfProceduresMap.put(type, instances);
         }
@@ -2359,7 +2780,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE_INSTANCE, instance);
         logRemoving(type, instance);
         if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).remove(instance);
+            writableValues(typeOfProceduresMap, type).remove(instance);
         }
     }
 
@@ -2405,7 +2826,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void addProcedureDescriptionFormatsForProcedure(String procedure, Set<String> formats) {
-        this.procedureProcedureDescriptionFormats.computeIfAbsent(procedure, createSynchronizedSet()).addAll(formats);
+        writableValues(this.procedureProcedureDescriptionFormats, procedure).addAll(formats);
     }
 
     @Override
@@ -2423,6 +2844,26 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         return copyOf(publishedFeatureOfInterest);
     }
 
+    @Override
+    public boolean hasPublishedFeatureOfInterest(String featureOfInterest) {
+        return publishedFeatureOfInterest.contains(featureOfInterest);
+    }
+
+    @Override
+    public boolean hasPublishedProcedure(String procedure) {
+        return publishedProcedure.contains(procedure);
+    }
+
+    @Override
+    public boolean hasPublishedOffering(String offering) {
+        return publishedOffering.contains(offering);
+    }
+
+    @Override
+    public boolean hasPublishedObservableProperty(String observableProperty) {
+        return publishedObservableProperty.contains(observableProperty);
+    }
+
     @Override
     public Set<String> getPublishedProcedures() {
         return copyOf(publishedProcedure);
@@ -2774,8 +3215,4 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         return true;
     }
 
-    private static <X, T> Function<X, Set<T>> createSynchronizedSet() {
-        return Suppliers.<X, Set<T>> asFunction(HashSet<T>::new).andThen(Collections::synchronizedSet);
-    }
-
 }
@@ -53,6 +53,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.cache.ContentCachePersistenceStrategy;
 import org.n52.iceland.cache.ContentCacheUpdate;
@@ -65,6 +66,8 @@ import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.AbstractStaticSosContentCache;
 import org.n52.sos.cache.ContentCacheFactoryImpl;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.service.SosSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +86,8 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
 
     private volatile WritableContentCache cache;
     private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean copyOnWrite;
 
     private CompleteUpdate currentUpdate;
     private CompleteUpdate nextUpdate;
@@ -106,6 +111,18 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         this.completeCacheUpdateFactory = factory;
     }
 
+    /**
+     * Publish the cache as immutable snapshots. Updates are executed on a writable copy of the current snapshot that
+     * replaces it afterwards.
+     *
+     * @param copyOnWrite
+     *            if the cache should be copied on write
+     */
+    @Setting(SosSettings.CACHE_COPY_ON_WRITE)
+    public void setCopyOnWrite(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+    }
+
     @Override
     public void init() {
         loadOrCreateCache();
@@ -120,6 +137,9 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
                 ((AbstractStaticSosContentCache) getCache()).setSupportedTypeRepository(
                         ((ContentCacheFactoryImpl) this.cacheFactory).getSupportedTypeRepository());
             }
+            if (isCopyOnWrite()) {
+                setCache(((InMemoryCacheImpl) getCache()).snapshot());
+            }
         } else {
             // cache file doesn't exist, try to load cache from datasource
             setCache(this.cacheFactory.get());
@@ -160,7 +180,9 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
                 } else {
                     executePartial(new PartialUpdate(update));
                 }
-                cache.setLastUpdateTime(DateTime.now());
+                if (!isSnapshot(getCache())) {
+                    getCache().setLastUpdateTime(DateTime.now());
+                }
             } finally {
                 currentUpdate = null;
             }
@@ -190,7 +212,25 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
     }
 
     private void executePartial(PartialUpdate update) throws OwsExceptionReport {
-        update.execute(getCache());
+        if (isCopyOnWrite()) {
+            writeLock.lock();
+            try {
+                // publish the copy and enqueue the update for a running complete update while holding the write lock,
+                // so the complete update either replays this update or starts from the published copy
+                InMemoryCacheImpl next = ((InMemoryCacheImpl) getCache()).copy();
+                update.execute(next);
+                publish(next);
+                persistOrEnqueue(update);
+            } finally {
+                writeLock.unlock();
+            }
+        } else {
+            update.execute(getWritableCache());
+            persistOrEnqueue(update);
+        }
+    }
+
+    private void persistOrEnqueue(PartialUpdate update) {
         lock();
         try {
             if (this.currentUpdate != null) {
@@ -250,6 +290,41 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         LOGGER.trace("{} stopped waiting for {}", update, waitFor);
     }
 
+    private boolean isCopyOnWrite() {
+        return copyOnWrite && getCache() instanceof InMemoryCacheImpl;
+    }
+
+    private static boolean isSnapshot(WritableContentCache cache) {
+        return cache instanceof InMemoryCacheImpl && ((InMemoryCacheImpl) cache).isImmutable();
+    }
+
+    /**
+     * Publishes the writable copy as the next snapshot. The snapshot reuses the collections the update did not modify
+     * instead of copying the whole cache again.
+     */
+    private void publish(InMemoryCacheImpl next) {
+        next.setLastUpdateTime(DateTime.now());
+        setCache(next.snapshot());
+    }
+
+    /**
+     * Get the cache for in place updates. A snapshot that is still published after copy-on-write was disabled is
+     * replaced by a writable copy.
+     */
+    private WritableContentCache getWritableCache() {
+        if (isSnapshot(getCache())) {
+            writeLock.lock();
+            try {
+                if (isSnapshot(getCache())) {
+                    setCache(((InMemoryCacheImpl) getCache()).synchronizedCopy());
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return getCache();
+    }
+
     private void lock() {
         lock.lock();
     }
@@ -372,7 +447,18 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         }
 
         void execute() throws OwsExceptionReport {
-            setCache(execute(getCache()));
+            WritableContentCache current = getCache();
+            WritableContentCache next = execute(isSnapshot(current) ? ((InMemoryCacheImpl) current).copy() : current);
+            if (copyOnWrite && next instanceof InMemoryCacheImpl) {
+                writeLock.lock();
+                try {
+                    publish((InMemoryCacheImpl) applyUpdates(next));
+                } finally {
+                    writeLock.unlock();
+                }
+            } else {
+                setCache(applyUpdates(next));
+            }
         }
 
         WritableContentCache execute(WritableContentCache cache) throws OwsExceptionReport {
@@ -390,16 +476,23 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
                     setState(State.FAILED);
                     LOGGER.warn(UPDATE_FAILED, getUpdate().getFailureCause());
                     throw getUpdate().getFailureCause();
-                } else {
-                    setState(State.APPLYING_UPDATES);
-                    PartialUpdate pu;
-                    WritableContentCache cc = getUpdate().getCache();
-                    while ((pu = updates.poll()) != null) {
-                        pu.execute(cc);
-                    }
-                    setState(State.FINISHED);
-                    return cc;
                 }
+                return getUpdate().getCache();
+            } finally {
+                unlock();
+            }
+        }
+
+        WritableContentCache applyUpdates(WritableContentCache cache) throws OwsExceptionReport {
+            lock();
+            try {
+                setState(State.APPLYING_UPDATES);
+                PartialUpdate pu;
+                while ((pu = updates.poll()) != null) {
+                    pu.execute(cache);
+                }
+                setState(State.FINISHED);
+                return cache;
             } finally {
                 unlock();
             }
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCache;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.iceland.cache.ctrl.persistence.AbstractPersistingCachePersistenceStrategy;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.sos.cache.BinaryCacheFormat;
+import org.n52.sos.cache.InMemoryCacheDelta;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistence strategy that appends the changes of partial cache updates as
+ * {@link InMemoryCacheDelta} records to a journal instead of serializing the
+ * complete cache. After a configurable number of records and after complete
+ * cache updates the journal is compacted in the background by writing the
+ * complete cache. {@link #load()} replays the journals on top of the last
+ * complete cache. Snapshots of the {@link InMemoryCacheImpl} are written in
+ * the {@link BinaryCacheFormat}, a Java serialized cache file is still read
+ * if no binary snapshot exists.
+ * <p>
+ * The changes are computed between the published snapshots of the
+ * copy-on-write content cache (see {@link SosSettings#CACHE_COPY_ON_WRITE}).
+ * Other caches are always persisted completely.
+ *
+ * @since 6.0.0
+ */
+@Configurable
+public class JournalingCachePersistenceStrategy extends AbstractPersistingCachePersistenceStrategy
+        implements Destroyable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalingCachePersistenceStrategy.class);
+
+    private static final String JOURNAL_INFIX = ".journal.";
+
+    private static final String SNAPSHOT_FILE = "cache.bin";
+
+    private static final String COMPACTION_SUFFIX = ".compaction";
+
+    private static final long SHUTDOWN_TIMEOUT = 60;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-sos-cache-compaction"));
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int compactionThreshold = 1000;
+
+    private InMemoryCacheImpl persisted;
+
+    private DataOutputStream journal;
+
+    private long generation;
+
+    private int records;
+
+    private int epoch;
+
+    private boolean warned;
+
+    @Setting(SosSettings.CACHE_JOURNAL_COMPACTION_THRESHOLD)
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public Optional<WritableContentCache> load() {
+        Optional<WritableContentCache> loaded = loadSnapshot();
+        lock.lock();
+        try {
+            NavigableMap<Long, Path> journals = getJournals();
+            if (!journals.isEmpty()) {
+                this.generation = journals.lastKey() + 1;
+            }
+            if (!loaded.isPresent() || !(loaded.get() instanceof InMemoryCacheImpl)) {
+                deleteJournals(Long.MAX_VALUE);
+                return loaded;
+            }
+            InMemoryCacheImpl cache = (InMemoryCacheImpl) loaded.get();
+            InMemoryCacheImpl writable = cache.isImmutable() ? cache.copy() : cache;
+            int replayed = 0;
+            for (Path path : journals.values()) {
+                replayed += replay(path, writable);
+            }
+            LOGGER.debug("Replayed {} cache journal records", replayed);
+            this.persisted = writable.snapshot();
+            return Optional.of(this.persisted.copy());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void persistOnPartialUpdate(ContentCache cache) {
+        lock.lock();
+        try {
+            if (!isSnapshot(cache) || this.persisted == null) {
+                persistCompletely(cache);
+                return;
+            }
+            InMemoryCacheImpl current = (InMemoryCacheImpl) cache;
+            try {
+                append(InMemoryCacheDelta.between(this.persisted, current));
+            } catch (IOException e) {
+                LOGGER.error("Error appending to cache journal, persisting the complete cache", e);
+                persistCompletely(cache);
+                return;
+            }
+            this.persisted = current;
+            if (++this.records >= this.compactionThreshold) {
+                persistCompletely(cache);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void persistOnCompleteUpdate(ContentCache cache) {
+        lock.lock();
+        try {
+            persistCompletely(cache);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void persistOnShutdown(ContentCache cache) {
+        persistOnCompleteUpdate(cache);
+        destroy();
+    }
+
+    @Override
+    public void remove() {
+        lock.lock();
+        try {
+            this.epoch++;
+            closeJournal();
+            deleteJournals(Long.MAX_VALUE);
+            this.persisted = null;
+            this.records = 0;
+            super.remove();
+            Files.deleteIfExists(getSnapshotFile());
+        } catch (IOException e) {
+            LOGGER.error(String.format("Error deleting cache snapshot '%s'", getSnapshotFile()), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.warn("Cache compaction did not finish within {} seconds", SHUTDOWN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            closeJournal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new journal and writes the cache in the background. The
+     * previous journals are deleted after the cache was written.
+     *
+     * @param cache
+     *            the cache
+     */
+    private void persistCompletely(ContentCache cache) {
+        if (cache == null) {
+            remove();
+            return;
+        }
+        if (isSnapshot(cache)) {
+            this.persisted = (InMemoryCacheImpl) cache;
+        } else {
+            this.persisted = null;
+            if (!this.warned) {
+                LOGGER.warn("Cache journals require the copy-on-write content cache, persisting the complete cache");
+                this.warned = true;
+            }
+        }
+        closeJournal();
+        this.records = 0;
+        long compacted = this.generation++;
+        int currentEpoch = this.epoch;
+        try {
+            this.executor.execute(() -> compact(cache, compacted, currentEpoch));
+        } catch (RejectedExecutionException e) {
+            // already shut down
+            compact(cache, compacted, currentEpoch);
+        }
+    }
+
+    private void compact(ContentCache cache, long compacted, int expectedEpoch) {
+        boolean binary = isSnapshot(cache);
+        Path file = binary ? getSnapshotFile() : getCacheFile();
+        Path tmp = file.resolveSibling(file.getFileName() + COMPACTION_SUFFIX);
+        LOGGER.debug("Compacting cache journal to {}", file);
+        try {
+            if (binary) {
+                BinaryCacheFormat.write((InMemoryCacheImpl) cache, tmp);
+            } else {
+                try (ObjectOutputStream out =
+                        new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeObject(cache);
+                }
+            }
+            lock.lock();
+            try {
+                if (this.epoch != expectedEpoch) {
+                    Files.deleteIfExists(tmp);
+                    return;
+                }
+                move(tmp, file);
+                Files.deleteIfExists(binary ? getCacheFile() : getSnapshotFile());
+                deleteJournals(compacted);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            LOGGER.error(String.format("Error compacting cache journal to '%s'", file), e);
+        }
+    }
+
+    private Optional<WritableContentCache> loadSnapshot() {
+        Path file = getSnapshotFile();
+        if (Files.isReadable(file)) {
+            LOGGER.debug("Reading cache from snapshot file '{}'", file);
+            try {
+                return Optional.of(BinaryCacheFormat.read(file));
+            } catch (IOException e) {
+                LOGGER.error(String.format("Error reading cache snapshot '%s'", file), e);
+            }
+        }
+        return super.load();
+    }
+
+    private Path getSnapshotFile() {
+        return getCacheFile().resolveSibling(SNAPSHOT_FILE);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void append(InMemoryCacheDelta delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(delta);
+        }
+        if (this.journal == null) {
+            this.journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    getJournal(this.generation), StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        this.journal.writeInt(bytes.size());
+        bytes.writeTo(this.journal);
+        this.journal.flush();
+    }
+
+    private int replay(Path path, InMemoryCacheImpl cache) {
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return replayed;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                try (ObjectInputStream recordIn = new ObjectInputStream(new ByteArrayInputStream(record))) {
+                    ((InMemoryCacheDelta) recordIn.readObject()).applyTo(cache);
+                }
+                replayed++;
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.warn(String.format("Error reading cache journal '%s', ignoring the remaining records", path), e);
+            return replayed;
+        }
+    }
+
+    private void closeJournal() {
+        if (this.journal != null) {
+            try {
+                this.journal.close();
+            } catch (IOException e) {
+                LOGGER.error("Error closing cache journal", e);
+            }
+            this.journal = null;
+        }
+    }
+
+    private Path getJournal(long journalGeneration) {
+        Path file = getCacheFile();
+        return file.resolveSibling(file.getFileName() + JOURNAL_INFIX + journalGeneration);
+    }
+
+    private NavigableMap<Long, Path> getJournals() {
+        NavigableMap<Long, Path> journals = new TreeMap<>();
+        Path file = getCacheFile();
+        if (file == null || !Files.isDirectory(file.getParent())) {
+            return journals;
+        }
+        String prefix = file.getFileName() + JOURNAL_INFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.getParent(), prefix + "*")) {
+            for (Path path : stream) {
+                try {
+                    journals.put(Long.parseLong(path.getFileName().toString().substring(prefix.length())), path);
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Ignoring file {}", path);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error listing cache journals", e);
+        }
+        return journals;
+    }
+
+    private void deleteJournals(long upTo) {
+        getJournals().forEach((journalGeneration, path) -> {
+            if (journalGeneration <= upTo) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    LOGGER.error(String.format("Error deleting cache journal '%s'", path), e);
+                }
+            }
+        });
+    }
+
+    private static boolean isSnapshot(ContentCache cache) {
+        return cache instanceof InMemoryCacheImpl && ((InMemoryCacheImpl) cache).isImmutable();
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.sos.cache.SosContentCache.ComponentAggregation;
+import org.n52.sos.cache.SosContentCache.TypeInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the {@link BinaryCacheFormat} and compares its load time with the Java
+ * serialized cache. The size of the cache can be increased with
+ * <code>-DcacheBenchmarkFeatures=x</code>, e.g. to 1000000 to reproduce the
+ * startup of services with many features.
+ */
+public class BinaryCacheFormatTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryCacheFormatTest.class);
+
+    private static final int DEFAULT_FEATURES = 20000;
+
+    private static final int FEATURES_PER_PROCEDURE = 100;
+
+    private static final int PROCEDURES_PER_OFFERING = 10;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void should_read_written_cache() throws IOException {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addOffering("offering");
+        cache.addProcedureForOffering("offering", "procedure");
+        cache.addOfferingForProcedure("procedure", "offering");
+        cache.addFeatureOfInterestIdentifierHumanReadableName("feature", "Feature ä");
+        cache.setMaxPhenomenonTimeForOffering("offering",
+                new DateTime(2020, 1, 1, 0, 0, DateTimeZone.forOffsetHours(1)));
+        cache.setMaxPhenomenonTime(new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC));
+        cache.updateEnvelopeForOffering("offering", new Envelope(1, 2, 3, 4));
+        cache.setI18nNameForOffering("offering",
+                new MultilingualString().addLocalization(Locale.GERMAN, "Angebot").addLocalization(Locale.ENGLISH,
+                        "Offering"));
+        cache.addSupportedLanguage(Locale.GERMAN);
+        cache.addTypeInstanceProcedure(TypeInstance.INSTANCE, "procedure");
+        cache.addComponentAggregationProcedure(ComponentAggregation.AGGREGATION, "procedure");
+        cache.setLastUpdateTime(new DateTime(DateTimeZone.UTC));
+        Path file = tempFolder.newFile().toPath();
+
+        BinaryCacheFormat.write(cache, file);
+        InMemoryCacheImpl read = BinaryCacheFormat.read(file);
+
+        MatcherAssert.assertThat(read, Matchers.is(Matchers.equalTo(cache)));
+        MatcherAssert.assertThat(read.isImmutable(), Matchers.is(false));
+        read.addProcedureForOffering("offering", "procedure2");
+        MatcherAssert.assertThat(read.getProceduresForOffering("offering"),
+                Matchers.containsInAnyOrder("procedure", "procedure2"));
+    }
+
+    @Test
+    public void should_read_empty_cache() throws IOException {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        Path file = tempFolder.newFile().toPath();
+        BinaryCacheFormat.write(cache, file);
+        MatcherAssert.assertThat(BinaryCacheFormat.read(file), Matchers.is(Matchers.equalTo(cache)));
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_other_files() throws IOException {
+        Path file = tempFolder.newFile().toPath();
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        BinaryCacheFormat.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_unknown_enum_constants() throws IOException {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addTypeInstanceProcedure(TypeInstance.INSTANCE, "procedure");
+        Path file = tempFolder.newFile().toPath();
+        BinaryCacheFormat.write(cache, file);
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        Files.write(file, content.replace("INSTANCE", "INSTANXE").getBytes(StandardCharsets.ISO_8859_1));
+        BinaryCacheFormat.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void should_reject_truncated_files() throws IOException {
+        InMemoryCacheImpl cache = createCache(100);
+        Path file = tempFolder.newFile().toPath();
+        BinaryCacheFormat.write(cache, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        BinaryCacheFormat.read(file);
+    }
+
+    @Test
+    public void compareStartupWithJavaSerialization() throws IOException, ClassNotFoundException {
+        int features = Integer.getInteger("cacheBenchmarkFeatures", DEFAULT_FEATURES);
+        InMemoryCacheImpl cache = createCache(features);
+        Path serialized = tempFolder.newFile().toPath();
+        Path binary = tempFolder.newFile().toPath();
+        try (ObjectOutputStream out =
+                new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serialized)))) {
+            out.writeObject(cache);
+        }
+        BinaryCacheFormat.write(cache, binary);
+
+        long start = System.nanoTime();
+        Object deserialized;
+        try (ObjectInputStream in =
+                new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serialized)))) {
+            deserialized = in.readObject();
+        }
+        long serializedDuration = System.nanoTime() - start;
+        start = System.nanoTime();
+        InMemoryCacheImpl read = BinaryCacheFormat.read(binary);
+        long binaryDuration = System.nanoTime() - start;
+
+        LOGGER.info("Loading a cache with {} features: Java serialization {} ms ({} bytes), binary {} ms ({} bytes)",
+                features, serializedDuration / 1000000, Files.size(serialized), binaryDuration / 1000000,
+                Files.size(binary));
+        MatcherAssert.assertThat(read, Matchers.is(Matchers.equalTo(deserialized)));
+    }
+
+    private static InMemoryCacheImpl createCache(int features) {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        for (int i = 0; i < features; i++) {
+            String feature = "http://www.52north.org/test/featureOfInterest/" + i;
+            String procedure = "http://www.52north.org/test/procedure/" + i / FEATURES_PER_PROCEDURE;
+            String offering = "http://www.52north.org/test/offering/"
+                    + i / (FEATURES_PER_PROCEDURE * PROCEDURES_PER_OFFERING);
+            String observableProperty = "http://www.52north.org/test/observableProperty/" + i % 10;
+            cache.addFeatureOfInterest(feature);
+            cache.addPublishedFeatureOfInterest(feature);
+            cache.addFeatureOfInterestIdentifierHumanReadableName(feature, "feature " + i);
+            cache.addProcedureForFeatureOfInterest(feature, procedure);
+            cache.addFeatureOfInterestForOffering(offering, feature);
+            cache.addRelatedFeatureForOffering(offering, feature);
+            cache.addProcedure(procedure);
+            cache.addProcedureForOffering(offering, procedure);
+            cache.addOfferingForProcedure(procedure, offering);
+            cache.addObservablePropertyForProcedure(procedure, observableProperty);
+            cache.addProcedureForObservableProperty(observableProperty, procedure);
+            cache.addOffering(offering);
+            cache.updateEnvelopeForOffering(offering, new Envelope(i % 180, i % 180 + 1, i % 90, i % 90 + 1));
+        }
+        return cache;
+    }
+
+}
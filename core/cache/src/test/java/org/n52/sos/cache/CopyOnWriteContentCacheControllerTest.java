@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.iceland.cache.ctrl.persistence.ImmediatePersistenceStrategy;
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.CompleteCacheUpdateFactoryImpl;
+import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+
+/**
+ * Tests a {@link SosContentCacheControllerImpl} that publishes immutable cache snapshots.
+ */
+public class CopyOnWriteContentCacheControllerTest {
+
+    private static final String FEATURE = "test-feature";
+
+    private static final int THREADS = 8;
+
+    private static final int UPDATES_PER_THREAD = 50;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private SosContentCacheControllerImpl controller;
+
+    @Before
+    public void initController() {
+        this.controller = createController();
+    }
+
+    @After
+    public void tearDown() {
+        this.controller.destroy();
+    }
+
+    private SosContentCacheControllerImpl createController() {
+        ImmediatePersistenceStrategy persistenceStrategy = new ImmediatePersistenceStrategy();
+        persistenceStrategy.setConfigLocationProvider(tempFolder.getRoot()::getAbsolutePath);
+        persistenceStrategy.init();
+        CompleteCacheUpdateFactoryImpl cacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        cacheUpdateFactory.setCacheFeederHandler(new NoOpCacheFeederHandler());
+
+        SosContentCacheControllerImpl ccc = new SosContentCacheControllerImpl();
+        ccc.setCacheFactory(InMemoryCacheImpl::new);
+        ccc.setPersistenceStrategy(persistenceStrategy);
+        ccc.setCompleteCacheUpdateFactory(cacheUpdateFactory);
+        ccc.setCopyOnWrite(true);
+        ccc.setUpdateInterval(0);
+        ccc.init();
+        return ccc;
+    }
+
+    @Test
+    public void should_restore_persisted_snapshot() throws OwsExceptionReport {
+        MatcherAssert.assertThat(getCache().getFeaturesOfInterest(), Matchers.is(Matchers.empty()));
+        update(cache -> cache.addFeatureOfInterest(FEATURE));
+        MatcherAssert.assertThat(getCache().getFeaturesOfInterest(), Matchers.contains(FEATURE));
+        controller.destroy();
+
+        controller = createController();
+        MatcherAssert.assertThat(getCache().getFeaturesOfInterest(), Matchers.contains(FEATURE));
+        MatcherAssert.assertThat(((InMemoryCacheImpl) getCache()).isImmutable(), Matchers.is(true));
+    }
+
+    @Test
+    public void should_publish_immutable_snapshots() throws OwsExceptionReport {
+        SosContentCache before = getCache();
+        update(cache -> cache.addFeatureOfInterest(FEATURE));
+
+        MatcherAssert.assertThat(before.getFeaturesOfInterest(), Matchers.is(Matchers.empty()));
+        MatcherAssert.assertThat(getCache().getFeaturesOfInterest(), Matchers.contains(FEATURE));
+        MatcherAssert.assertThat(getCache(), Matchers.is(Matchers.not(Matchers.sameInstance(before))));
+        MatcherAssert.assertThat(((InMemoryCacheImpl) getCache()).isImmutable(), Matchers.is(true));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_reject_modifications_of_the_published_snapshot() {
+        getCache().addFeatureOfInterest(FEATURE);
+    }
+
+    @Test
+    public void should_not_publish_failed_updates() {
+        SosContentCache before = getCache();
+        try {
+            controller.update(new SosContentCacheUpdate() {
+                @Override
+                public void execute() {
+                    getCache().addFeatureOfInterest(FEATURE);
+                    fail(new NoApplicableCodeException().withMessage("failed"));
+                }
+            });
+        } catch (OwsExceptionReport e) {
+            // expected
+        }
+        MatcherAssert.assertThat(getCache(), Matchers.is(Matchers.sameInstance(before)));
+        MatcherAssert.assertThat(getCache().hasFeatureOfInterest(FEATURE), Matchers.is(false));
+    }
+
+    @Test
+    public void should_not_lose_concurrent_partial_updates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, new GroupedAndNamedThreadFactory("test"));
+        for (int i = 0; i < THREADS; i++) {
+            String prefix = "offering-" + i + "-";
+            executor.execute(() -> {
+                for (int j = 0; j < UPDATES_PER_THREAD; j++) {
+                    String offering = prefix + j;
+                    try {
+                        update(cache -> cache.addOffering(offering));
+                    } catch (OwsExceptionReport e) {
+                        throw new RuntimeException(new GenericThrowableWrapperException(e));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        MatcherAssert.assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), Matchers.is(true));
+        MatcherAssert.assertThat(getCache().getOfferings(), Matchers.hasSize(THREADS * UPDATES_PER_THREAD));
+    }
+
+    private SosWritableContentCache getCache() {
+        return (SosWritableContentCache) controller.getCache();
+    }
+
+    private void update(CacheModification modification) throws OwsExceptionReport {
+        controller.update(new SosContentCacheUpdate() {
+            @Override
+            public void execute() {
+                modification.apply(getCache());
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface CacheModification {
+        void apply(SosWritableContentCache cache);
+    }
+}
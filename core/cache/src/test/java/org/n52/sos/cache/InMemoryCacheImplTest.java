@@ -32,20 +32,25 @@ import java.util.Set;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
 import org.hamcrest.core.IsNot;
 import org.hamcrest.core.IsNull;
+import org.hamcrest.core.IsSame;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.SosContentCache.TypeInstance;
 import org.n52.svalbard.decode.DecoderRepository;
 import org.n52.svalbard.encode.EncoderRepository;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Sets;
 
 
 /**
@@ -180,4 +185,152 @@ public class InMemoryCacheImplTest {
        MatcherAssert.assertThat(readCache.isRelatedFeatureSampled(relatedFeature), Is.is(Boolean.TRUE));
     }
 
+    @Test
+    public void should_answer_membership_checks_like_the_collection_getters() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addObservablePropertyForOffering(OFFERING_IDENTIFIER, "op_1");
+        cache.addRelatedFeatureForOffering(OFFERING_IDENTIFIER, FEATURE_IDENTIFIER);
+        cache.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        cache.addHiddenChildProcedureForOffering(OFFERING_IDENTIFIER, "p_2");
+        cache.addPublishedFeatureOfInterest(FEATURE_IDENTIFIER);
+        cache.addPublishedProcedure("p_1");
+        cache.addPublishedOffering(OFFERING_IDENTIFIER);
+        cache.addPublishedObservableProperty("op_1");
+
+        for (String id : new String[] { "op_1", "p_1", "p_2", "unknown", FEATURE_IDENTIFIER, OFFERING_IDENTIFIER }) {
+            MatcherAssert.assertThat(cache.hasObservableProperty(id),
+                    Is.is(cache.getObservableProperties().contains(id)));
+            MatcherAssert.assertThat(cache.hasRelatedFeature(id), Is.is(cache.getRelatedFeatures().contains(id)));
+            MatcherAssert.assertThat(cache.hasTransactionalObservationProcedure(id),
+                    Is.is(cache.getTransactionalObservationProcedures().contains(id)));
+            MatcherAssert.assertThat(cache.hasPublishedFeatureOfInterest(id),
+                    Is.is(cache.getPublishedFeatureOfInterest().contains(id)));
+            MatcherAssert.assertThat(cache.hasPublishedProcedure(id),
+                    Is.is(cache.getPublishedProcedures().contains(id)));
+            MatcherAssert.assertThat(cache.hasPublishedOffering(id),
+                    Is.is(cache.getPublishedOfferings().contains(id)));
+            MatcherAssert.assertThat(cache.hasPublishedObservableProperty(id),
+                    Is.is(cache.getPublishedObservableProperties().contains(id)));
+        }
+    }
+
+    @Test
+    public void should_answer_queryable_procedure_checks_like_the_collection_getter() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addProcedure("p_1");
+        cache.addProcedure("p_2");
+        cache.addPublishedProcedure("p_1");
+        cache.addTypeInstanceProcedure(SosContentCache.TypeInstance.INSTANCE, "p_2");
+        cache.addComponentAggregationProcedure(SosContentCache.ComponentAggregation.AGGREGATION, "p_1");
+
+        for (String id : new String[] { "p_1", "p_2", "unknown" }) {
+            for (boolean instances : new boolean[] { true, false }) {
+                for (boolean aggregates : new boolean[] { true, false }) {
+                    MatcherAssert.assertThat(cache.hasQueryableProcedure(id, instances, aggregates),
+                            Is.is(cache.getQueryableProcedures(instances, aggregates).contains(id)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void should_create_equal_snapshots_without_copying_on_read() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        cache.addFeatureOfInterestForOffering(OFFERING_IDENTIFIER, FEATURE_IDENTIFIER);
+        cache.addProcedure("p_1");
+        cache.setMinPhenomenonTime(new DateTime(0L));
+
+        final InMemoryCacheImpl snapshot = cache.snapshot();
+        MatcherAssert.assertThat(snapshot.isImmutable(), Is.is(Boolean.TRUE));
+        MatcherAssert.assertThat(snapshot, Is.is(cache));
+        MatcherAssert.assertThat(snapshot.snapshot(), IsSame.sameInstance(snapshot));
+        MatcherAssert.assertThat(snapshot.getProcedures(), IsSame.sameInstance(snapshot.getProcedures()));
+        MatcherAssert.assertThat(snapshot.getProceduresForOffering(OFFERING_IDENTIFIER),
+                IsSame.sameInstance(snapshot.getProceduresForOffering(OFFERING_IDENTIFIER)));
+    }
+
+    @Test
+    public void should_not_change_snapshot_when_modifying_copy() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        final InMemoryCacheImpl snapshot = cache.snapshot();
+
+        final InMemoryCacheImpl copy = snapshot.copy();
+        MatcherAssert.assertThat(copy.isImmutable(), Is.is(Boolean.FALSE));
+        copy.addProcedureForOffering(OFFERING_IDENTIFIER, "p_2");
+        copy.removeProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        copy.addProcedure("p_2");
+
+        MatcherAssert.assertThat(snapshot.getProceduresForOffering(OFFERING_IDENTIFIER), IsEqual.equalTo(
+                Collections.singleton("p_1")));
+        MatcherAssert.assertThat(snapshot.getProcedures(), IsEqual.equalTo(Collections.emptySet()));
+        MatcherAssert.assertThat(copy.getProceduresForOffering(OFFERING_IDENTIFIER), IsEqual.equalTo(
+                Collections.singleton("p_2")));
+        MatcherAssert.assertThat(copy.snapshot(), Is.is(copy));
+    }
+
+    @Test
+    public void should_share_unmodified_collections_with_published_snapshot() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        cache.addProcedure("p_1");
+        cache.setEnvelopeForOffering(OFFERING_IDENTIFIER, new ReferencedEnvelope(new Envelope(0, 1, 0, 1), 4326));
+        final InMemoryCacheImpl snapshot = cache.snapshot();
+
+        final InMemoryCacheImpl copy = snapshot.copy();
+        copy.addProcedure("p_2");
+        copy.updateEnvelopeForOffering(OFFERING_IDENTIFIER, new Envelope(2, 3, 2, 3));
+        copy.removeRolesForRelatedFeatureNotIn(Collections.emptySet());
+        final InMemoryCacheImpl next = copy.snapshot();
+
+        MatcherAssert.assertThat(next.getMaps().get("proceduresForOfferings"),
+                IsSame.sameInstance(snapshot.getMaps().get("proceduresForOfferings")));
+        MatcherAssert.assertThat(next.getMaps().get("rolesForRelatedFeatures"),
+                IsSame.sameInstance(snapshot.getMaps().get("rolesForRelatedFeatures")));
+        MatcherAssert.assertThat(next.getSets().get("procedures"),
+                IsNot.not(IsSame.sameInstance(snapshot.getSets().get("procedures"))));
+        MatcherAssert.assertThat(next.getProcedures(), IsEqual.equalTo(Sets.newHashSet("p_1", "p_2")));
+        MatcherAssert.assertThat(snapshot.getProcedures(), IsEqual.equalTo(Collections.singleton("p_1")));
+        MatcherAssert.assertThat(next.getEnvelopeForOffering(OFFERING_IDENTIFIER).getEnvelope(),
+                IsEqual.equalTo(new Envelope(0, 3, 0, 3)));
+        MatcherAssert.assertThat(snapshot.getEnvelopeForOffering(OFFERING_IDENTIFIER).getEnvelope(),
+                IsEqual.equalTo(new Envelope(0, 1, 0, 1)));
+    }
+
+    @Test
+    public void should_remove_values_and_human_readable_names_from_copy() {
+        final InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        cache.addProcedureForOffering("other-offering", "p_1");
+        cache.addProcedureForOffering("other-offering", "p_2");
+        cache.addProcedureIdentifierHumanReadableName("p_1", "Procedure 1");
+        cache.addTypeInstanceProcedure(TypeInstance.INSTANCE, "p_1");
+        cache.addTypeInstanceProcedure(TypeInstance.INSTANCE, "p_2");
+        final InMemoryCacheImpl snapshot = cache.snapshot();
+
+        final InMemoryCacheImpl copy = snapshot.copy();
+        copy.removeProcedureIdentifierForHumanReadableName("Procedure 1");
+        copy.removeTypeInstanceProcedure("p_1");
+        copy.removeProcedureForOffering("other-offering", "p_1");
+
+        MatcherAssert.assertThat(copy.getProcedureIdentifierForHumanReadableName("Procedure 1"),
+                IsEqual.equalTo("Procedure 1"));
+        MatcherAssert.assertThat(copy.getProceduresForOffering("other-offering"),
+                IsEqual.equalTo(Collections.singleton("p_2")));
+        MatcherAssert.assertThat(copy.getTypeInstanceProcedure(TypeInstance.INSTANCE),
+                IsEqual.equalTo(Collections.singleton("p_2")));
+        MatcherAssert.assertThat(snapshot.getTypeInstanceProcedure(TypeInstance.INSTANCE),
+                IsEqual.equalTo(Sets.newHashSet("p_1", "p_2")));
+        MatcherAssert.assertThat(snapshot.getProcedureIdentifierForHumanReadableName("Procedure 1"),
+                IsEqual.equalTo("p_1"));
+        MatcherAssert.assertThat(snapshot.getProceduresForOffering("other-offering"),
+                IsEqual.equalTo(Sets.newHashSet("p_1", "p_2")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_reject_modification_of_snapshot() {
+        new InMemoryCacheImpl().snapshot().addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+    }
+
 }
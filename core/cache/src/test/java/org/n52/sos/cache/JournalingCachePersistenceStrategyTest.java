@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.sos.cache.ctrl.persistence.JournalingCachePersistenceStrategy;
+
+public class JournalingCachePersistenceStrategyTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private InMemoryCacheImpl initial;
+
+    private InMemoryCacheImpl inserted;
+
+    private InMemoryCacheImpl deleted;
+
+    @Before
+    public void createSnapshots() {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addOffering("offering");
+        cache.addProcedure("procedure");
+        cache.addProcedureForOffering("offering", "procedure");
+        cache.addOfferingForProcedure("procedure", "offering");
+        cache.setMaxPhenomenonTime(new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC));
+        initial = cache.snapshot();
+
+        cache = initial.copy();
+        cache.addOffering("offering2");
+        cache.addProcedureForOffering("offering2", "procedure");
+        cache.addOfferingForProcedure("procedure", "offering2");
+        cache.addFeatureOfInterest("feature");
+        cache.addFeatureOfInterestIdentifierHumanReadableName("feature", "Feature");
+        cache.updateEnvelopeForOffering("offering2", new Envelope(1, 2, 3, 4));
+        cache.setMaxPhenomenonTime(new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC));
+        inserted = cache.snapshot();
+
+        cache = inserted.copy();
+        cache.removeOffering("offering");
+        cache.removeProcedureForOffering("offering", "procedure");
+        cache.removeOfferingForProcedure("procedure", "offering");
+        cache.addCompositePhenomenon("composite");
+        deleted = cache.snapshot();
+    }
+
+    @Test
+    public void should_replay_journal_on_load() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.persistOnPartialUpdate(deleted);
+        strategy.destroy();
+
+        MatcherAssert.assertThat(getJournals(), Matchers.hasSize(1));
+        MatcherAssert.assertThat(load(), Matchers.is(Matchers.equalTo(deleted)));
+    }
+
+    @Test
+    public void should_continue_journal_after_load() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.destroy();
+
+        strategy = createStrategy();
+        InMemoryCacheImpl loaded = (InMemoryCacheImpl) strategy.load().get();
+        MatcherAssert.assertThat(loaded, Matchers.is(Matchers.equalTo(inserted)));
+        strategy.persistOnPartialUpdate(deleted);
+        strategy.destroy();
+
+        MatcherAssert.assertThat(getJournals(), Matchers.hasSize(2));
+        MatcherAssert.assertThat(load(), Matchers.is(Matchers.equalTo(deleted)));
+    }
+
+    @Test
+    public void should_compute_deltas_from_modifications() {
+        MatcherAssert.assertThat(deleted.getModificationsSince(inserted), Matchers.hasKey("offerings"));
+        MatcherAssert.assertThat(deleted.getModificationsSince(inserted),
+                Matchers.not(Matchers.hasKey("featuresOfInterest")));
+        MatcherAssert.assertThat(deleted.getModificationsSince(initial), Matchers.is(Matchers.nullValue()));
+
+        InMemoryCacheImpl cache = inserted.copy();
+        InMemoryCacheDelta.between(inserted, deleted).applyTo(cache);
+        MatcherAssert.assertThat(cache, Matchers.is(Matchers.equalTo(deleted)));
+
+        cache = initial.copy();
+        InMemoryCacheDelta.between(initial, deleted).applyTo(cache);
+        MatcherAssert.assertThat(cache, Matchers.is(Matchers.equalTo(deleted)));
+    }
+
+    @Test
+    public void should_compact_journal() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.setCompactionThreshold(2);
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.persistOnPartialUpdate(deleted);
+        strategy.destroy();
+
+        MatcherAssert.assertThat(getJournals(), Matchers.is(Matchers.empty()));
+        MatcherAssert.assertThat(load(), Matchers.is(Matchers.equalTo(deleted)));
+    }
+
+    @Test
+    public void should_ignore_truncated_journal_records() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.persistOnPartialUpdate(deleted);
+        strategy.destroy();
+
+        Path journal = getJournals().get(0);
+        byte[] records = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(records, records.length - 10));
+        MatcherAssert.assertThat(load(), Matchers.is(Matchers.equalTo(inserted)));
+    }
+
+    @Test
+    public void should_persist_writable_caches_completely() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.persistOnPartialUpdate(deleted.copy());
+        strategy.destroy();
+
+        MatcherAssert.assertThat(getJournals(), Matchers.is(Matchers.empty()));
+        MatcherAssert.assertThat(load(), Matchers.is(Matchers.equalTo(deleted)));
+    }
+
+    @Test
+    public void should_remove_journals() throws IOException {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        strategy.persistOnCompleteUpdate(initial);
+        strategy.persistOnPartialUpdate(inserted);
+        strategy.remove();
+        strategy.destroy();
+
+        MatcherAssert.assertThat(getJournals(), Matchers.is(Matchers.empty()));
+        MatcherAssert.assertThat(createStrategy().load().isPresent(), Matchers.is(false));
+    }
+
+    private JournalingCachePersistenceStrategy createStrategy() {
+        JournalingCachePersistenceStrategy strategy = new JournalingCachePersistenceStrategy();
+        strategy.setConfigLocationProvider(tempFolder.getRoot()::getAbsolutePath);
+        strategy.init();
+        return strategy;
+    }
+
+    private WritableContentCache load() {
+        JournalingCachePersistenceStrategy strategy = createStrategy();
+        try {
+            Optional<WritableContentCache> cache = strategy.load();
+            MatcherAssert.assertThat(cache.isPresent(), Matchers.is(true));
+            return cache.get();
+        } finally {
+            strategy.destroy();
+        }
+    }
+
+    private List<Path> getJournals() throws IOException {
+        List<Path> journals = new ArrayList<>();
+        Path folder = tempFolder.getRoot().toPath().resolve("WEB-INF").resolve("tmp");
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "cache.tmp.journal.*")) {
+            stream.forEach(journals::add);
+        }
+        return journals;
+    }
+
+}
@@ -111,7 +111,7 @@ public class InspireOfferingExtensionProvider extends AbstractInspireProvider
 
     @Override
     public boolean hasExtendedOfferingFor(String identifier) {
-        return this.enabled && getCache().getOfferings().contains(identifier);
+        return this.enabled && getCache().hasOffering(identifier);
     }
 
     private InspireUniqueResourceIdentifier getSpatialDataSetIdentifier(String identifier) {
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -270,24 +271,16 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
     }
 
     private List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
-        List<DataAvailability> checked = Lists.newLinkedList();
+        // DataAvailability equality and hash code are based on procedure,
+        // observed property, feature and offering, not on the phenomenon time
+        Map<DataAvailability, DataAvailability> checked = new LinkedHashMap<>();
         for (DataAvailability dataAvailability : dataAvailabilityValues) {
-            if (checked.isEmpty()) {
-                checked.add(dataAvailability);
-            } else {
-                boolean notDuplicated = true;
-                for (DataAvailability checkedDA : checked) {
-                    if (dataAvailability.equals(checkedDA)) {
-                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
-                        notDuplicated = false;
-                    }
-                }
-                if (notDuplicated) {
-                    checked.add(dataAvailability);
-                }
+            DataAvailability checkedDA = checked.putIfAbsent(dataAvailability, dataAvailability);
+            if (checkedDA != null) {
+                checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
             }
         }
-        return checked;
+        return Lists.newArrayList(checked.values());
     }
 
     private ReferenceType getProcedureReference(DatasetEntity entity, GDARequestContext context) {
@@ -84,6 +84,11 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
      * update executor service.
      */
     private int cacheThreadCount = 5;
+    /**
+     * Load the datasets of all offerings and procedures at once instead of per
+     * offering and procedure.
+     */
+    private boolean bulkCacheUpdate;
     private Locale defaultLocale;
     private I18NDAORepository i18NDAORepository;
     private OwsServiceMetadataRepository serviceMetadataRepository;
@@ -133,6 +138,11 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
         this.cacheThreadCount = threads;
     }
 
+    @Setting(CacheFeederSettingDefinitionProvider.CACHE_BULK_UPDATE)
+    public void setBulkCacheUpdate(boolean bulkCacheUpdate) {
+        this.bulkCacheUpdate = bulkCacheUpdate;
+    }
+
     @Override
     public void updateCache(SosWritableContentCache cache) throws OwsExceptionReport {
         checkCacheNotNull(cache);
@@ -146,7 +156,8 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                     this.sessionStore,
                     this.serviceMetadataRepository,
                     geometryHandler,
-                    dbQueryFactory);
+                    dbQueryFactory,
+                    this.bulkCacheUpdate);
             session = this.sessionStore.getSession();
             update.setCache(cache);
             update.setErrors(errors);
@@ -156,6 +167,7 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
             long cacheUpdateStartTime = System.currentTimeMillis();
 
             update.execute();
+            LOGGER.debug("Cache update timings in ms: {}", update.getTimings());
             if (staticCapabilitiesProvider.isPresent()) {
                 staticCapabilitiesProvider.get().create();
             }
@@ -191,7 +203,9 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                 this.defaultLocale,
                 this.geometryHandler,
                 this.sessionStore,
-                dbQueryFactory);
+                offeringsNeedingUpdate,
+                dbQueryFactory,
+                this.bulkCacheUpdate);
         update.setCache(cache);
         update.setErrors(errors);
         update.setSession(session);
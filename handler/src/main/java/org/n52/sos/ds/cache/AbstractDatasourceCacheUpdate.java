@@ -27,6 +27,10 @@
  */
 package org.n52.sos.ds.cache;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 import org.hibernate.Session;
 import org.n52.io.request.IoParameters;
 import org.n52.sensorweb.server.db.old.dao.DbQuery;
@@ -67,4 +71,24 @@ public abstract class AbstractDatasourceCacheUpdate extends DatasourceCacheUpdat
         return getDbQueryFactory().createFrom(parameters);
     }
 
+    /**
+     * Get the cache sections this update reads.
+     *
+     * @return the read sections, none by default
+     */
+    public Set<CacheSection> getReadSections() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Get the cache sections this update writes. Updates that do not declare
+     * their sections write all of them and are never executed concurrently
+     * with other updates.
+     *
+     * @return the written sections, all by default
+     */
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.allOf(CacheSection.class);
+    }
+
 }
@@ -27,6 +27,11 @@
  */
 package org.n52.sos.ds.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
 import org.n52.iceland.util.action.CompositeParallelAction;
 import org.n52.series.db.old.HibernateSessionStore;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -49,6 +54,8 @@ public abstract class AbstractQueueingDatasourceCacheUpdate<T extends AbstractTh
 
     private final ThreadLocalSessionFactory sessionFactory;
 
+    private ThreadLocalSessionFactory sharedSessionFactory;
+
     public AbstractQueueingDatasourceCacheUpdate(int threads, String threadGroupName,
             HibernateSessionStore sessionStore) {
         this.threads = threads;
@@ -58,6 +65,19 @@ public abstract class AbstractQueueingDatasourceCacheUpdate<T extends AbstractTh
 
     protected abstract T[] getUpdatesToExecute() throws OwsExceptionReport;
 
+    /**
+     * Set the session factory of a calling fork/join pool. If set and this
+     * update is executed in a fork/join pool, the updates are executed as
+     * tasks of that pool with the sessions of the specified factory instead
+     * of in an own thread pool with own sessions.
+     *
+     * @param sharedSessionFactory
+     *            the session factory of the calling pool
+     */
+    public void setSharedSessionFactory(ThreadLocalSessionFactory sharedSessionFactory) {
+        this.sharedSessionFactory = sharedSessionFactory;
+    }
+
     @Override
     public void execute() {
         LOGGER.debug("AbstractQueueingDatasourceCacheUpdate init");
@@ -68,6 +88,10 @@ public abstract class AbstractQueueingDatasourceCacheUpdate<T extends AbstractTh
             getErrors().add(ex);
             return;
         }
+        if (sharedSessionFactory != null && ForkJoinTask.inForkJoinPool()) {
+            executeInPool(updatesToExecute);
+            return;
+        }
         CompositeParallelAction<AbstractThreadableDatasourceCacheUpdate> compositeParallelAction =
                 new CompositeParallelAction<AbstractThreadableDatasourceCacheUpdate>(threads, threadGroupName,
                         updatesToExecute) {
@@ -100,4 +124,52 @@ public abstract class AbstractQueueingDatasourceCacheUpdate<T extends AbstractTh
             LOGGER.error("Error while closing SessionFactory", e);
         }
     }
+
+    private void executeInPool(T[] updatesToExecute) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(updatesToExecute.length);
+        for (T update : updatesToExecute) {
+            tasks.add(ForkJoinTask.adapt(() -> execute(update)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private void execute(T update) {
+        update.setCache(getCache());
+        update.setErrors(getErrors());
+        update.setSessionFactory(sharedSessionFactory);
+        update.setDbQueryFactory(getDbQueryFactory());
+        try {
+            update.execute();
+        } catch (RuntimeException e) {
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Error while executing cache update '%s'!", update.getClass().getSimpleName()));
+        } finally {
+            // the session of the pool thread is reused by the next task
+            if (update.getSession() != null) {
+                try {
+                    update.getSession().clear();
+                } catch (Exception e) {
+                    LOGGER.error("Error while returning connection after cache update!", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the updates one after another in the calling thread with the
+     * session of this update. Use this instead of {@link #execute()} if the
+     * updates share Hibernate objects loaded by this session.
+     *
+     * @param updatesToExecute
+     *            the updates to execute
+     */
+    protected void executeSequentially(T[] updatesToExecute) {
+        for (T update : updatesToExecute) {
+            update.setCache(getCache());
+            update.setErrors(getErrors());
+            update.setSession(getSession());
+            update.setDbQueryFactory(getDbQueryFactory());
+            update.execute();
+        }
+    }
 }
@@ -200,4 +200,28 @@ public interface DatasourceCacheUpdateHelper {
         }
         return map;
     }
+
+    default Map<Long, Collection<DatasetEntity>> mapByOfferingId(Collection<DatasetEntity> datasets) {
+        Map<Long, Collection<DatasetEntity>> map = Maps.newHashMap();
+        if (datasets != null && !datasets.isEmpty()) {
+            for (DatasetEntity dataset : datasets) {
+                if (dataset.getOffering() != null && dataset.getOffering().getId() != null) {
+                    CollectionHelper.addToCollectionMap(dataset.getOffering().getId(), dataset, map);
+                }
+            }
+        }
+        return map;
+    }
+
+    default Map<Long, Collection<DatasetEntity>> mapByProcedureId(Collection<DatasetEntity> datasets) {
+        Map<Long, Collection<DatasetEntity>> map = Maps.newHashMap();
+        if (datasets != null && !datasets.isEmpty()) {
+            for (DatasetEntity dataset : datasets) {
+                if (dataset.getProcedure() != null && dataset.getProcedure().getId() != null) {
+                    CollectionHelper.addToCollectionMap(dataset.getProcedure().getId(), dataset, map);
+                }
+            }
+        }
+        return map;
+    }
 }
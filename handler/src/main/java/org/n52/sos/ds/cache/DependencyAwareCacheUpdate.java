@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.Session;
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
+import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
+import org.n52.series.db.old.HibernateSessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Executes cache updates concurrently as far as the {@link CacheSection}s
+ * they read and write allow it. An update depends on every update declared
+ * before it that writes a section it reads or writes, or that reads a section
+ * it writes. Updates without dependencies between them are executed on a
+ * shared work-stealing pool with the configured number of threads, each
+ * thread uses its own session. The tasks of
+ * {@link AbstractQueueingDatasourceCacheUpdate}s are executed on the same
+ * pool, and the pool does not add threads for blocked joins, so no more
+ * sessions than threads are used at the same time. The execution time of
+ * every update is logged and available from {@link #getTimings()}.
+ *
+ * @since 6.0.0
+ */
+public class DependencyAwareCacheUpdate extends AbstractDatasourceCacheUpdate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DependencyAwareCacheUpdate.class);
+
+    private static final String THREAD_NAME_PREFIX = "52n-sos-dependency-aware-cache-update-";
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final int threads;
+
+    private final HibernateSessionStore sessionStore;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Map<AbstractDatasourceCacheUpdate, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public DependencyAwareCacheUpdate(int threads, HibernateSessionStore sessionStore,
+            DbQueryFactory dbQueryFactory, AbstractDatasourceCacheUpdate... updates) {
+        this.threads = Math.max(1, threads);
+        this.sessionStore = sessionStore;
+        setDbQueryFactory(dbQueryFactory);
+        for (AbstractDatasourceCacheUpdate update : updates) {
+            Node node = new Node(update);
+            for (Node previous : nodes) {
+                if (previous.conflictsWith(node)) {
+                    previous.successors.add(node);
+                    node.predecessors.incrementAndGet();
+                }
+            }
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Get the execution times of the updates of the last execution in
+     * milliseconds.
+     *
+     * @return the execution times in the order the updates finished
+     */
+    public Map<AbstractDatasourceCacheUpdate, Long> getTimings() {
+        synchronized (timings) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+        }
+    }
+
+    @Override
+    public Set<CacheSection> getReadSections() {
+        Set<CacheSection> sections = EnumSet.noneOf(CacheSection.class);
+        nodes.forEach(n -> sections.addAll(n.update.getReadSections()));
+        return sections;
+    }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        Set<CacheSection> sections = EnumSet.noneOf(CacheSection.class);
+        nodes.forEach(n -> sections.addAll(n.update.getWrittenSections()));
+        return sections;
+    }
+
+    @Override
+    public void execute() {
+        LOGGER.debug("Executing {}", this);
+        startStopwatch();
+        timings.clear();
+        nodes.forEach(Node::reset);
+        ThreadLocalSessionFactory sessionFactory = new ThreadLocalSessionFactory(sessionStore);
+        // no spare threads for joining workers, every thread holds a session
+        ExecutorService executor = new ForkJoinPool(threads, new NamedWorkerThreadFactory(), null, true, 0, threads,
+                1, pool -> true, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        CountDownLatch countDownLatch = new CountDownLatch(nodes.size());
+        try {
+            for (Node node : nodes) {
+                if (node.remaining.get() == 0) {
+                    submit(executor, node, sessionFactory, countDownLatch);
+                }
+            }
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Interrupted while waiting for the cache updates!"));
+        } finally {
+            executor.shutdown();
+            try {
+                sessionFactory.close();
+            } catch (Exception e) {
+                LOGGER.error("Error while closing SessionFactory", e);
+            }
+        }
+        LOGGER.debug("Finished executing {} ({})", getClass().getSimpleName(), getStopwatchResult());
+    }
+
+    private void submit(ExecutorService executor, Node node, ThreadLocalSessionFactory sessionFactory,
+            CountDownLatch countDownLatch) {
+        executor.execute(() -> {
+            try {
+                execute(node.update, sessionFactory);
+            } finally {
+                countDownLatch.countDown();
+                for (Node successor : node.successors) {
+                    if (successor.remaining.decrementAndGet() == 0) {
+                        submit(executor, successor, sessionFactory, countDownLatch);
+                    }
+                }
+            }
+        });
+    }
+
+    private void execute(AbstractDatasourceCacheUpdate update, ThreadLocalSessionFactory sessionFactory) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Session session = null;
+        try {
+            session = sessionFactory.getSession();
+            update.setCache(getCache());
+            update.setErrors(getErrors());
+            update.setSession(session);
+            update.setDbQueryFactory(getDbQueryFactory());
+            if (update instanceof AbstractQueueingDatasourceCacheUpdate) {
+                ((AbstractQueueingDatasourceCacheUpdate<?>) update).setSharedSessionFactory(sessionFactory);
+            }
+            update.execute();
+        } catch (Exception e) {
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Error while executing cache update '%s'!", update.getClass().getSimpleName()));
+        } finally {
+            if (session != null) {
+                try {
+                    session.clear();
+                } catch (Exception e) {
+                    LOGGER.error("Error while returning connection after cache update!", e);
+                }
+            }
+            long time = stopwatch.elapsed().toMillis();
+            timings.put(update, time);
+            LOGGER.debug("Finished executing {} ({} ms)", update.getClass().getSimpleName(), time);
+        }
+    }
+
+    @Override
+    public String toString() {
+        List<AbstractDatasourceCacheUpdate> updates = new ArrayList<>(nodes.size());
+        nodes.forEach(n -> updates.add(n.update));
+        return String.format("%s [updates=[%s]]", getClass().getSimpleName(), Joiner.on(", ").join(updates));
+    }
+
+    private static final class Node {
+        private final AbstractDatasourceCacheUpdate update;
+        private final List<Node> successors = new ArrayList<>();
+        private final AtomicInteger predecessors = new AtomicInteger();
+        private final AtomicInteger remaining = new AtomicInteger();
+
+        Node(AbstractDatasourceCacheUpdate update) {
+            this.update = update;
+        }
+
+        void reset() {
+            remaining.set(predecessors.get());
+        }
+
+        boolean conflictsWith(Node other) {
+            Set<CacheSection> writes = update.getWrittenSections();
+            Set<CacheSection> otherWrites = other.update.getWrittenSections();
+            return !Collections.disjoint(writes, otherWrites)
+                    || !Collections.disjoint(writes, other.update.getReadSections())
+                    || !Collections.disjoint(update.getReadSections(), otherWrites);
+        }
+    }
+
+    private static final class NamedWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(THREAD_NAME_PREFIX + count.incrementAndGet());
+            return thread;
+        }
+    }
+}
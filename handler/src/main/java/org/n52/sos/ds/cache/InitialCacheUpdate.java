@@ -60,7 +60,7 @@ import org.n52.sos.util.GeometryHandler;
  *
  * @since 4.0.0
  */
-public class InitialCacheUpdate extends CompositeCacheUpdate {
+public class InitialCacheUpdate extends DependencyAwareCacheUpdate {
 
     public InitialCacheUpdate(int threadCount,
                               Locale defaultLocale,
@@ -68,22 +68,32 @@ public class InitialCacheUpdate extends CompositeCacheUpdate {
                               HibernateSessionStore sessionStore,
                               OwsServiceMetadataRepository serviceMetadataRepository,
                               GeometryHandler geometryHandler, DbQueryFactory dbQueryFactory) {
-        //execute all updates except offerings and procedures in parallel, then execute offering and procedure updates
-        //(which spawn their own threads)
-        super(dbQueryFactory, new ParallelCacheUpdate(threadCount,
-                                      sessionStore,
-                                      new ObservablePropertiesCacheUpdate(),
-                                      new FeatureOfInterestCacheUpdate(),
-                                      new RelatedFeaturesCacheUpdate(),
-                                      new ObservationTimeCacheUpdate(),
-                                      new ResultTemplateCacheUpdate()),
+        this(threadCount, defaultLocale, i18NDAORepository, sessionStore, serviceMetadataRepository, geometryHandler,
+             dbQueryFactory, false);
+    }
+
+    public InitialCacheUpdate(int threadCount,
+                              Locale defaultLocale,
+                              I18NDAORepository i18NDAORepository,
+                              HibernateSessionStore sessionStore,
+                              OwsServiceMetadataRepository serviceMetadataRepository,
+                              GeometryHandler geometryHandler, DbQueryFactory dbQueryFactory,
+                              boolean bulkUpdate) {
+        //execute all updates in parallel as far as the cache sections they write allow it, the offering and
+        //procedure updates execute their tasks on the same threads
+        super(threadCount, sessionStore, dbQueryFactory,
+              new ObservablePropertiesCacheUpdate(),
+              new FeatureOfInterestCacheUpdate(),
+              new RelatedFeaturesCacheUpdate(),
+              new ObservationTimeCacheUpdate(),
+              new ResultTemplateCacheUpdate(),
               new I18NCacheUpdate(serviceMetadataRepository,
                                   i18NDAORepository),
               new OfferingCacheUpdate(threadCount,
                                       defaultLocale,
                                       geometryHandler,
-                                      sessionStore, dbQueryFactory),
-              new ProcedureCacheUpdate(threadCount, sessionStore, dbQueryFactory));
+                                      sessionStore, null, dbQueryFactory, bulkUpdate),
+              new ProcedureCacheUpdate(threadCount, sessionStore, dbQueryFactory, bulkUpdate));
     }
 
 }
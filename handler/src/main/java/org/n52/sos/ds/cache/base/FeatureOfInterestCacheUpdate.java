@@ -28,6 +28,7 @@
 package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -41,6 +42,7 @@ import org.n52.series.db.old.dao.DatasetDao;
 import org.n52.series.db.old.dao.FeatureDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -123,4 +125,8 @@ public class FeatureOfInterestCacheUpdate extends AbstractThreadableDatasourceCa
         return createDbQuery(parameters);
     }
 
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.FEATURES_OF_INTEREST);
+    }
 }
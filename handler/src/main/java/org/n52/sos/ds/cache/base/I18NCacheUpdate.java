@@ -29,7 +29,9 @@ package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Locale;
+import java.util.Set;
 
 import org.n52.iceland.i18n.I18NDAO;
 import org.n52.iceland.i18n.I18NDAORepository;
@@ -41,6 +43,7 @@ import org.n52.iceland.i18n.metadata.I18NProcedureMetadata;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,4 +94,9 @@ public class I18NCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
             return Collections.emptySet();
         }
     }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.LANGUAGES);
+    }
 }
@@ -28,6 +28,8 @@
 package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
 
 import org.hibernate.HibernateException;
 import org.n52.io.request.IoParameters;
@@ -39,6 +41,7 @@ import org.n52.series.db.old.dao.DatasetDao;
 import org.n52.series.db.old.dao.PhenomenonDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,4 +101,9 @@ public class ObservablePropertiesCacheUpdate extends AbstractThreadableDatasourc
         IoParameters parameters = IoParameters.createDefaults();
         return createDbQuery(parameters.extendWith(IoParameters.PHENOMENA, Long.toString(observableProperty.getId())));
     }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.OBSERVABLE_PROPERTIES);
+    }
 }
@@ -27,7 +27,9 @@
  */
 package org.n52.sos.ds.cache.base;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.HibernateException;
 import org.n52.io.request.IoParameters;
@@ -36,6 +38,7 @@ import org.n52.series.db.old.dao.OfferingDao;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,4 +77,8 @@ public class ObservationTimeCacheUpdate extends AbstractThreadableDatasourceCach
         LOGGER.debug("Finished executing ObservationTimeCacheUpdate ({})", getStopwatchResult());
     }
 
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.OBSERVATION_TIME);
+    }
 }
@@ -28,23 +28,34 @@
 package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
 import org.n52.io.request.IoParameters;
+import org.n52.sensorweb.server.db.old.dao.DbQuery;
 import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
+import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.OfferingEntity;
 import org.n52.series.db.old.HibernateSessionStore;
+import org.n52.series.db.old.dao.DatasetDao;
 import org.n52.series.db.old.dao.OfferingDao;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.ApiQueryHelper;
 import org.n52.sos.ds.cache.AbstractQueueingDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.n52.sos.util.GeometryHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -71,6 +82,8 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
 
     private GeometryHandler geometryHandler;
 
+    private final boolean bulkUpdate;
+
     public OfferingCacheUpdate(int threads, Locale defaultLanguage, GeometryHandler geometryHandler,
             HibernateSessionStore sessionStore, DbQueryFactory dbQueryFactory) {
         this(threads, defaultLanguage, geometryHandler, sessionStore, null, dbQueryFactory);
@@ -80,6 +93,32 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
     public OfferingCacheUpdate(int threads, Locale defaultLanguage, GeometryHandler geometryHandler,
             HibernateSessionStore sessionStore, Collection<String> offeringIdsToUpdate,
             DbQueryFactory dbQueryFactory) {
+        this(threads, defaultLanguage, geometryHandler, sessionStore, offeringIdsToUpdate, dbQueryFactory, false);
+    }
+
+    /**
+     * constructor
+     *
+     * @param threads
+     *            Thread count
+     * @param defaultLanguage
+     *            the default language
+     * @param geometryHandler
+     *            the geometry handler
+     * @param sessionStore
+     *            the session store
+     * @param offeringIdsToUpdate
+     *            the offerings to update, all if <code>null</code> or empty
+     * @param dbQueryFactory
+     *            The db query factory
+     * @param bulkUpdate
+     *            Load the datasets of all offerings with a single query and
+     *            update the offerings sequentially instead of querying the
+     *            datasets per offering in multiple threads
+     */
+    public OfferingCacheUpdate(int threads, Locale defaultLanguage, GeometryHandler geometryHandler,
+            HibernateSessionStore sessionStore, Collection<String> offeringIdsToUpdate,
+            DbQueryFactory dbQueryFactory, boolean bulkUpdate) {
         super(threads, THREAD_GROUP_NAME, sessionStore);
         setDbQueryFactory(dbQueryFactory);
         if (offeringIdsToUpdate != null) {
@@ -87,6 +126,7 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
         }
         this.defaultLanguage = defaultLanguage;
         this.geometryHandler = geometryHandler;
+        this.bulkUpdate = bulkUpdate;
     }
 
     private Collection<OfferingEntity> getOfferingsToUpdate() {
@@ -98,6 +138,7 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
                 if (offeringsIdToUpdate == null || offeringsIdToUpdate.isEmpty()) {
                     return offeringDAO.get(createDbQuery(IoParameters.createDefaults()));
                 }
+                return offeringDAO.get(createOfferingDbQuery());
             }
         } catch (Exception e) {
             getErrors().add(new GenericThrowableWrapperException(e)
@@ -113,6 +154,14 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
         this.offeringsToUpdate = getOfferingsToUpdate();
         LOGGER.debug("Finished executing OfferingCacheUpdate (Single Threaded Tasks) ({})", getStopwatchResult());
 
+        if (bulkUpdate) {
+            LOGGER.debug("Executing OfferingCacheUpdate (Bulk Tasks)");
+            startStopwatch();
+            executeSequentially(getBulkUpdatesToExecute());
+            LOGGER.debug("Finished executing OfferingCacheUpdate (Bulk Tasks) ({})", getStopwatchResult());
+            return;
+        }
+
         // execute multi-threaded updates
         LOGGER.debug("Executing OfferingCacheUpdate (Multi-Threaded Tasks)");
         startStopwatch();
@@ -130,4 +179,63 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
         return offeringUpdateTasks.toArray(new OfferingCacheUpdateTask[offeringUpdateTasks.size()]);
     }
 
+    private OfferingCacheUpdateTask[] getBulkUpdatesToExecute() {
+        Collection<OfferingCacheUpdateTask> offeringUpdateTasks = Lists.newArrayList();
+        Collection<OfferingEntity> offerings = getOfferingsToUpdate();
+        if (offerings != null && !offerings.isEmpty()) {
+            Collection<DatasetEntity> offeringDatasets = getDatasets(offerings);
+            if (offeringDatasets == null) {
+                return new OfferingCacheUpdateTask[0];
+            }
+            Map<Long, Collection<DatasetEntity>> datasets = mapByOfferingId(offeringDatasets);
+            for (OfferingEntity offering : offerings) {
+                offeringUpdateTasks.add(new OfferingCacheUpdateTask(offering,
+                        datasets.getOrDefault(offering.getId(), Collections.emptySet()), this.defaultLanguage,
+                        geometryHandler));
+            }
+        }
+        return offeringUpdateTasks.toArray(new OfferingCacheUpdateTask[offeringUpdateTasks.size()]);
+    }
+
+    private Collection<DatasetEntity> getDatasets(Collection<OfferingEntity> offerings) {
+        try {
+            return new DatasetDao(getSession()).get(createDatasetDbQuery(offerings));
+        } catch (Exception e) {
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Error while querying datasets for offering cache update!"));
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    DbQuery createOfferingDbQuery() {
+        Map<String, String> map = Maps.newHashMap();
+        map.put(IoParameters.OFFERINGS, listToString(offeringsIdToUpdate));
+        map.put(IoParameters.MATCH_DOMAIN_IDS, Boolean.toString(true));
+        return createDbQuery(IoParameters.createFromSingleValueMap(map));
+    }
+
+    /**
+     * Create the query for the datasets of the offerings to update. The query
+     * is only restricted if not all offerings are updated.
+     *
+     * @param offerings
+     *            the offerings to update
+     * @return the dataset query
+     */
+    @VisibleForTesting
+    DbQuery createDatasetDbQuery(Collection<OfferingEntity> offerings) {
+        Map<String, String> map = Maps.newHashMap();
+        map.put(IoParameters.EXPANDED, "true");
+        if (offeringsIdToUpdate != null && !offeringsIdToUpdate.isEmpty()) {
+            map.put(IoParameters.OFFERINGS, listToString(
+                    offerings.stream().map(o -> Long.toString(o.getId())).collect(Collectors.toList())));
+        }
+        return createDbQuery(IoParameters.createFromSingleValueMap(map));
+    }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.OFFERINGS, CacheSection.RELATED_FEATURES, CacheSection.GLOBAL_ENVELOPE);
+    }
 }
@@ -87,6 +87,8 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
 
     private GeometryHandler geometryHandler;
 
+    private boolean datasetsLoaded;
+
     /**
      * Constructor. Note: never pass in Hibernate objects that have been loaded
      * by a session in a different thread
@@ -103,10 +105,33 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
         this.datasets.clear();
     }
 
+    /**
+     * Constructor for bulk updates. The offering and datasets have to be
+     * loaded by the session this task is executed with.
+     *
+     * @param offering
+     *            Offering entity
+     * @param datasets
+     *            the datasets of the offering
+     * @param defaultLanguage
+     *            the default language
+     */
+    OfferingCacheUpdateTask(OfferingEntity offering, Collection<DatasetEntity> datasets, Locale defaultLanguage,
+            GeometryHandler geometryHandler) {
+        this(offering.getId(), defaultLanguage, geometryHandler);
+        this.offering = offering;
+        if (datasets != null) {
+            this.datasets.addAll(datasets);
+        }
+        this.datasetsLoaded = true;
+    }
+
     private void init(Session session) {
-        this.offering = session.load(OfferingEntity.class, offeringId);
+        if (offering == null) {
+            this.offering = session.load(OfferingEntity.class, offeringId);
+        }
         this.identifier = offering.getIdentifier();
-        if (datasets != null) {
+        if (datasets != null && !datasetsLoaded) {
             this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(offeringId)));
         }
     }
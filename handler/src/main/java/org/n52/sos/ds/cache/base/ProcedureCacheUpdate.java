@@ -29,14 +29,22 @@ package org.n52.sos.ds.cache.base;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
 import org.n52.io.request.IoParameters;
 import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
+import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.old.HibernateSessionStore;
+import org.n52.series.db.old.dao.DatasetDao;
 import org.n52.series.db.old.dao.ProcedureDao;
 import org.n52.sos.ds.ApiQueryHelper;
 import org.n52.sos.ds.cache.AbstractQueueingDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +65,8 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
 
     private Collection<ProcedureEntity> procedures = new ArrayList<>();
 
+    private final boolean bulkUpdate;
+
     /**
      * constructor
      *
@@ -65,8 +75,25 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
      * @param dbQueryFactory The db query factory
      */
     public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore, DbQueryFactory dbQueryFactory) {
+        this(threads, sessionStore, dbQueryFactory, false);
+    }
+
+    /**
+     * constructor
+     *
+     * @param threads
+     *            Thread count
+     * @param dbQueryFactory The db query factory
+     * @param bulkUpdate
+     *            Load the datasets of all procedures with a single query and
+     *            update the procedures sequentially instead of querying the
+     *            datasets per procedure in multiple threads
+     */
+    public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore, DbQueryFactory dbQueryFactory,
+            boolean bulkUpdate) {
         super(threads, THREAD_GROUP_NAME, sessionStore);
         setDbQueryFactory(dbQueryFactory);
+        this.bulkUpdate = bulkUpdate;
     }
 
     @Override
@@ -77,6 +104,14 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
         procedures = new ProcedureDao(getSession()).get(createDbQuery(IoParameters.createDefaults()));
         LOGGER.debug("Finished executing ProcedureCacheUpdate (Single Threaded Tasks) ({})", getStopwatchResult());
 
+        if (bulkUpdate) {
+            LOGGER.debug("Executing ProcedureCacheUpdate (Bulk Tasks)");
+            startStopwatch();
+            executeSequentially(getBulkUpdatesToExecute());
+            LOGGER.debug("Finished executing ProcedureCacheUpdate (Bulk Tasks) ({})", getStopwatchResult());
+            return;
+        }
+
         // multi-threaded execution
         LOGGER.debug("Executing ProcedureCacheUpdate (Multi-Threaded Tasks)");
         startStopwatch();
@@ -94,4 +129,35 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
         return procedureUpdateTasks.toArray(new ProcedureCacheUpdateTask[procedureUpdateTasks.size()]);
     }
 
+    private ProcedureCacheUpdateTask[] getBulkUpdatesToExecute() {
+        Collection<ProcedureCacheUpdateTask> procedureUpdateTasks = Lists.newArrayList();
+        if (!procedures.isEmpty()) {
+            Collection<DatasetEntity> allDatasets = getAllDatasets();
+            if (allDatasets == null) {
+                return new ProcedureCacheUpdateTask[0];
+            }
+            Map<Long, Collection<DatasetEntity>> datasets = mapByProcedureId(allDatasets);
+            for (ProcedureEntity procedure : procedures) {
+                procedureUpdateTasks.add(new ProcedureCacheUpdateTask(procedure,
+                        datasets.getOrDefault(procedure.getId(), Collections.emptySet())));
+            }
+        }
+        return procedureUpdateTasks.toArray(new ProcedureCacheUpdateTask[procedureUpdateTasks.size()]);
+    }
+
+    private Collection<DatasetEntity> getAllDatasets() {
+        try {
+            return new DatasetDao(getSession()).get(createDbQuery(IoParameters
+                    .createFromSingleValueMap(Collections.singletonMap(IoParameters.EXPANDED, "true"))));
+        } catch (Exception e) {
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Error while querying datasets for procedure cache update!"));
+        }
+        return null;
+    }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.PROCEDURES);
+    }
 }
@@ -65,6 +65,8 @@ class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate i
 
     private Collection<DatasetEntity> datasets = new HashSet<>();
 
+    private boolean datasetsLoaded;
+
     /**
      * Constructor. Note: never pass in Hibernate objects that have been loaded
      * by a session in a different thread *
@@ -77,9 +79,29 @@ class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate i
         this.datasets.clear();
     }
 
-    private void init(Session session) {
-        this.procedure = session.load(ProcedureEntity.class, procedureId);
+    /**
+     * Constructor for bulk updates. The procedure and datasets have to be
+     * loaded by the session this task is executed with.
+     *
+     * @param procedure
+     *            Procedure entity
+     * @param datasets
+     *            the datasets of the procedure
+     */
+    ProcedureCacheUpdateTask(ProcedureEntity procedure, Collection<DatasetEntity> datasets) {
+        this(procedure.getId());
+        this.procedure = procedure;
         if (datasets != null) {
+            this.datasets.addAll(datasets);
+        }
+        this.datasetsLoaded = true;
+    }
+
+    private void init(Session session) {
+        if (procedure == null) {
+            this.procedure = session.load(ProcedureEntity.class, procedureId);
+        }
+        if (datasets != null && !datasetsLoaded) {
             this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(procedureId)));
         }
     }
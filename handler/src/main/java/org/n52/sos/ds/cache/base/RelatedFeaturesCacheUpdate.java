@@ -27,6 +27,9 @@
  */
 package org.n52.sos.ds.cache.base;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import org.hibernate.HibernateException;
 import org.n52.io.request.IoParameters;
 import org.n52.series.db.beans.OfferingEntity;
@@ -34,6 +37,7 @@ import org.n52.series.db.beans.RelatedFeatureEntity;
 import org.n52.series.db.old.dao.RelatedFeatureDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,4 +68,9 @@ public class RelatedFeaturesCacheUpdate extends AbstractThreadableDatasourceCach
         }
         LOGGER.debug("Finished executing RelatedFeaturesCacheUpdate ({})", getStopwatchResult());
     }
+
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.RELATED_FEATURES);
+    }
 }
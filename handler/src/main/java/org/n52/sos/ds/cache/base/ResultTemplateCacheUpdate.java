@@ -27,13 +27,16 @@
  */
 package org.n52.sos.ds.cache.base;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.n52.iceland.util.action.Action;
 import org.n52.series.db.beans.ResultTemplateEntity;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.CacheSection;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,4 +85,8 @@ public class ResultTemplateCacheUpdate extends AbstractThreadableDatasourceCache
                 .setFetchMode(ResultTemplateEntity.PROPERTY_FEATURE, FetchMode.JOIN).list();
     }
 
+    @Override
+    public Set<CacheSection> getWrittenSections() {
+        return EnumSet.of(CacheSection.RESULT_TEMPLATES);
+    }
 }
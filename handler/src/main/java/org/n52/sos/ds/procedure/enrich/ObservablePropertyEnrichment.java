@@ -80,7 +80,7 @@ public class ObservablePropertyEnrichment extends ProcedureDescriptionEnrichment
     private Set<String> checkForPublished(Set<String> ids) {
         Set<String> obsProps = new HashSet<>();
         for (String id : ids) {
-            if (getCache().getPublishedObservableProperties().contains(id)) {
+            if (getCache().hasPublishedObservableProperty(id)) {
                 obsProps.add(id);
             }
         }
@@ -27,10 +27,13 @@
  */
 package org.n52.sos.ds.utils;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -39,8 +42,9 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import org.hibernate.Session;
-import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
@@ -92,7 +96,6 @@ import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.shetland.ogc.swe.simpleType.SweTime;
 import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
 import org.n52.shetland.util.CollectionHelper;
-import org.n52.shetland.util.DateTimeHelper;
 import org.n52.sos.ds.observation.ObservationHelper;
 import org.n52.sos.ds.observation.ObservationValueCreator;
 import org.n52.sos.ds.observation.SweAbstractDataComponentCreator;
@@ -100,6 +103,8 @@ import org.n52.sos.util.GeometryHandler;
 import org.n52.sos.util.IncDecInteger;
 import org.n52.svalbard.decode.DecoderRepository;
 import org.n52.svalbard.util.SweHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 
@@ -118,6 +123,11 @@ public class ResultHandlingHelper implements HibernateUnproxy {
 
     public static final String PHENOMENON_TIME = "phenomenonTime";
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultHandlingHelper.class);
+
+    private static final DateTimeFormatter ISO_DATE_TIME = ISODateTimeFormat.dateTime()
+            .withZone(DateTimeZone.UTC);
+
     private ObservationHelper observationHelper;
 
     public ResultHandlingHelper(ObservationHelper observationHelper) {
@@ -144,15 +154,77 @@ public class ResultHandlingHelper implements HibernateUnproxy {
     public String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
             final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
             String noDataPlaceholder, Session session) throws OwsExceptionReport {
-        final Map<Integer, String> valueOrder = getValueOrderMap(sosResultStructure.get()
+        final String[] valueOrder = getValueOrder(sosResultStructure.get()
                 .get());
         return createResultValuesFromObservations(observations, sosResultEncoding, sosResultStructure,
                 noDataPlaceholder, valueOrder, true, null, session);
     }
 
+    /**
+     * Write result values from observations according to ResultEncoding and
+     * ResultStructure to the writer. In contrast to
+     * {@link #createResultValuesFromObservations(Collection, SosResultEncoding, SosResultStructure, String, Session)}
+     * the complete result values String is never created, each block is written
+     * as soon as it is encoded, so the observations could be provided by a
+     * database cursor.
+     *
+     * @param observations
+     *            Observations to write result values for
+     * @param count
+     *            Number of observations to write, written as element count.
+     *            It has to be counted in the same transaction as the
+     *            observations are read, otherwise the element count may not
+     *            match the written blocks
+     * @param sosResultEncoding
+     *            The ResultEncoding
+     * @param sosResultStructure
+     *            The ResultStructure
+     * @param noDataPlaceholder
+     *            The no data placeholder
+     * @param session
+     *            The Hibernate session
+     * @param writer
+     *            The writer to write the result values to
+     * @throws OwsExceptionReport
+     *             If creation fails
+     * @throws IOException
+     *             If writing fails
+     */
+    public void writeResultValuesFromObservations(Iterable<DataEntity<?>> observations, long count,
+            SosResultEncoding sosResultEncoding, SosResultStructure sosResultStructure, String noDataPlaceholder,
+            Session session, Writer writer) throws OwsExceptionReport, IOException {
+        final String[] valueOrder = getValueOrder(sosResultStructure.get()
+                .get());
+        final String tokenSeparator = getTokenSeparator(sosResultEncoding.get()
+                .get());
+        final String blockSeparator = getBlockSeparator(sosResultEncoding.get()
+                .get());
+        final StringBuilder block = new StringBuilder();
+        char[] buffer = new char[0];
+        writer.write(String.valueOf(count));
+        long written = 0;
+        Iterator<DataEntity<?>> iterator = observations.iterator();
+        while (written < count && iterator.hasNext()) {
+            DataEntity<?> observation = unproxy(iterator.next(), session);
+            block.setLength(0);
+            addObservation(block, observation, sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder,
+                    tokenSeparator, blockSeparator, null, session);
+            if (buffer.length < block.length()) {
+                buffer = new char[block.length()];
+            }
+            block.getChars(0, block.length(), buffer, 0);
+            writer.write(blockSeparator);
+            writer.write(buffer, 0, block.length());
+            written++;
+        }
+        if (written < count) {
+            LOGGER.warn("Only {} of {} counted observations were written!", written, count);
+        }
+    }
+
     private String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
             final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
-            String noDataPlaceholder, Map<Integer, String> valueOrder, boolean addCount,
+            String noDataPlaceholder, String[] valueOrder, boolean addCount,
             VerticalMetadataEntity vertical, Session session) throws OwsExceptionReport {
         final StringBuilder builder = new StringBuilder();
         if (CollectionHelper.isNotEmpty(observations)) {
@@ -173,79 +245,9 @@ public class ResultHandlingHelper implements HibernateUnproxy {
                 addElementCount(builder, size, blockSeparator);
             }
             for (final DataEntity<?> obs : observations) {
-                DataEntity<?> observation = unproxy(obs, session);
-                if (observation instanceof ProfileDataEntity) {
-                    builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(),
-                            sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false,
-                            ((ProfileDataEntity) observation).getDataset()
-                                    .getVerticalMetadata(),
-                            session));
-                    builder.append(blockSeparator);
-                } else if (observation instanceof TrajectoryDataEntity) {
-                    builder.append(createResultValuesFromObservations(((TrajectoryDataEntity) observation).getValue(),
-                            sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false, null,
-                            session));
-                    builder.append(blockSeparator);
-                } else {
-                    for (final Entry<Integer, String> entry : valueOrder.entrySet()) {
-                        final String definition = entry.getValue();
-                        switch (definition) {
-                            case OmConstants.PHENOMENON_TIME:
-                                builder.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
-                                        observation.getSamplingTimeEnd(), noDataPlaceholder));
-                                break;
-                            case OmConstants.RESULT_TIME:
-                                if (observation.hasResultTime()) {
-                                    builder.append(getTimeStringForResultTime(observation.getResultTime(),
-                                            noDataPlaceholder));
-                                } else {
-                                    builder.append(getTimeStringForResultTime(observation.getSamplingTimeEnd(),
-                                            noDataPlaceholder));
-                                }
-                                break;
-                            case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
-                                builder.append(
-                                        getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
-                                                .get(), noDataPlaceholder));
-                                break;
-                            case OmConstants.OM_PARAMETER:
-                            case OmConstants.PARAMETER:
-                                builder.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
-                                        .get(), vertical));
-                                break;
-                            case OM_PROCEDURE:
-                                if (observation.getDataset()
-                                        .getProcedure() != null && observation.getDataset()
-                                                .getProcedure()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
-                                            .getProcedure()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            case OM_FEATURE_OF_INTEREST:
-                                if (observation.getDataset()
-                                        .getFeature() != null && observation.getDataset()
-                                                .getFeature()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
-                                            .getFeature()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            default:
-                                builder.append(getValueAsStringForObservedProperty(observation, definition));
-                                break;
-                        }
-                        builder.append(tokenSeparator);
-                    }
-                    builder.delete(builder.lastIndexOf(tokenSeparator), builder.length());
-                    builder.append(blockSeparator);
-                }
+                addObservation(builder, unproxy(obs, session), sosResultEncoding, sosResultStructure,
+                        noDataPlaceholder, valueOrder, tokenSeparator, blockSeparator, vertical, session);
+                builder.append(blockSeparator);
             }
             if (builder.length() > 0) {
                 builder.delete(builder.lastIndexOf(blockSeparator), builder.length());
@@ -254,6 +256,76 @@ public class ResultHandlingHelper implements HibernateUnproxy {
         return builder.toString();
     }
 
+    private void addObservation(StringBuilder builder, DataEntity<?> observation,
+            SosResultEncoding sosResultEncoding, SosResultStructure sosResultStructure, String noDataPlaceholder,
+            String[] valueOrder, String tokenSeparator, String blockSeparator, VerticalMetadataEntity vertical,
+            Session session) throws OwsExceptionReport {
+        if (observation instanceof ProfileDataEntity) {
+            builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(),
+                    sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false,
+                    ((ProfileDataEntity) observation).getDataset()
+                            .getVerticalMetadata(),
+                    session));
+        } else if (observation instanceof TrajectoryDataEntity) {
+            builder.append(createResultValuesFromObservations(((TrajectoryDataEntity) observation).getValue(),
+                    sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false, null, session));
+        } else {
+            for (final String definition : valueOrder) {
+                switch (definition) {
+                    case OmConstants.PHENOMENON_TIME:
+                        addTimeStringForPhenomenonTime(builder, observation.getSamplingTimeStart(),
+                                observation.getSamplingTimeEnd(), noDataPlaceholder);
+                        break;
+                    case OmConstants.RESULT_TIME:
+                        if (observation.hasResultTime()) {
+                            addTimeStringForResultTime(builder, observation.getResultTime(), noDataPlaceholder);
+                        } else {
+                            addTimeStringForResultTime(builder, observation.getSamplingTimeEnd(),
+                                    noDataPlaceholder);
+                        }
+                        break;
+                    case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
+                        builder.append(getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
+                                .get(), noDataPlaceholder));
+                        break;
+                    case OmConstants.OM_PARAMETER:
+                    case OmConstants.PARAMETER:
+                        builder.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
+                                .get(), vertical));
+                        break;
+                    case OM_PROCEDURE:
+                        if (observation.getDataset()
+                                .getProcedure() != null && observation.getDataset()
+                                        .getProcedure()
+                                        .isSetIdentifier()) {
+                            builder.append(observation.getDataset()
+                                    .getProcedure()
+                                    .getIdentifier());
+                        }
+                        break;
+                    case OM_FEATURE_OF_INTEREST:
+                        if (observation.getDataset()
+                                .getFeature() != null && observation.getDataset()
+                                        .getFeature()
+                                        .isSetIdentifier()) {
+                            builder.append(observation.getDataset()
+                                    .getFeature()
+                                    .getIdentifier());
+                        }
+                        break;
+                    default:
+                        builder.append(getValueAsStringForObservedProperty(observation, definition));
+                        break;
+                }
+                builder.append(tokenSeparator);
+            }
+            int index = builder.lastIndexOf(tokenSeparator);
+            if (index >= 0) {
+                builder.delete(index, builder.length());
+            }
+        }
+    }
+
     /**
      * Get token separator from encoding
      *
@@ -350,30 +422,31 @@ public class ResultHandlingHelper implements HibernateUnproxy {
         builder.append(blockSeparator);
     }
 
-    private Object getTimeStringForResultTime(final Date resultTime, String noDataPlaceholder) {
+    private void addTimeStringForResultTime(StringBuilder builder, final Date resultTime,
+            String noDataPlaceholder) {
         if (resultTime != null) {
-            return DateTimeHelper.formatDateTime2IsoString(new DateTime(resultTime, DateTimeZone.UTC));
+            ISO_DATE_TIME.printTo(builder, resultTime.getTime());
+        } else {
+            builder.append(noDataPlaceholder);
         }
-        return noDataPlaceholder;
     }
 
-    private Object getTimeStringForPhenomenonTime(final Date phenomenonTimeStart, final Date phenomenonTimeEnd,
-            String noDataPlaceholder) {
+    private void addTimeStringForPhenomenonTime(StringBuilder builder, final Date phenomenonTimeStart,
+            final Date phenomenonTimeEnd, String noDataPlaceholder) {
         if (phenomenonTimeStart == null) {
-            return noDataPlaceholder;
-        }
-
-        final StringBuilder builder = new StringBuilder();
-        if (phenomenonTimeEnd == null || phenomenonTimeStart.equals(phenomenonTimeEnd)) {
-            builder.append(
-                    DateTimeHelper.formatDateTime2IsoString(new DateTime(phenomenonTimeStart, DateTimeZone.UTC)));
+            builder.append(noDataPlaceholder);
+        } else if (phenomenonTimeEnd == null || phenomenonTimeStart.equals(phenomenonTimeEnd)) {
+            ISO_DATE_TIME.printTo(builder, phenomenonTimeStart.getTime());
         } else {
-            builder.append(
-                    DateTimeHelper.formatDateTime2IsoString(new DateTime(phenomenonTimeStart, DateTimeZone.UTC)));
+            ISO_DATE_TIME.printTo(builder, phenomenonTimeStart.getTime());
             builder.append('/');
-            builder.append(DateTimeHelper.formatDateTime2IsoString(new DateTime(phenomenonTimeEnd, DateTimeZone.UTC)));
+            ISO_DATE_TIME.printTo(builder, phenomenonTimeEnd.getTime());
         }
-        return builder.toString();
+    }
+
+    private String[] getValueOrder(final SweAbstractDataComponent sweDataElement) {
+        return getValueOrderMap(sweDataElement).values()
+                .toArray(new String[0]);
     }
 
     private Map<Integer, String> getValueOrderMap(final SweAbstractDataComponent sweDataElement) {
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.n52.series.db.old.HibernateSessionStore;
+
+public class DependencyAwareCacheUpdateTest {
+
+    private static final int THREADS = 2;
+
+    private static final int TASKS = 10;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    private final CountingSessionStore sessionStore = new CountingSessionStore();
+
+    @Test
+    public void should_execute_conflicting_updates_in_declaration_order() {
+        RecordingUpdate writer = new RecordingUpdate("writer", EnumSet.noneOf(CacheSection.class),
+                EnumSet.of(CacheSection.OFFERINGS));
+        RecordingUpdate reader = new RecordingUpdate("reader", EnumSet.of(CacheSection.OFFERINGS),
+                EnumSet.of(CacheSection.PROCEDURES));
+        RecordingUpdate independent = new RecordingUpdate("independent", EnumSet.noneOf(CacheSection.class),
+                EnumSet.of(CacheSection.LANGUAGES));
+        RecordingUpdate undeclared = new RecordingUpdate("undeclared", EnumSet.noneOf(CacheSection.class),
+                EnumSet.allOf(CacheSection.class));
+
+        execute(writer, reader, independent, undeclared);
+
+        MatcherAssert.assertThat(events, Matchers.hasSize(8));
+        MatcherAssert.assertThat(events.indexOf("end:writer"), Matchers.lessThan(events.indexOf("start:reader")));
+        MatcherAssert.assertThat(events.indexOf("start:undeclared"), Matchers.is(6));
+    }
+
+    @Test
+    public void should_not_use_more_sessions_than_threads() {
+        AtomicInteger executed = new AtomicInteger();
+
+        execute(new QueueingUpdate(CacheSection.OFFERINGS, executed),
+                new QueueingUpdate(CacheSection.PROCEDURES, executed),
+                new RecordingUpdate("features", EnumSet.noneOf(CacheSection.class),
+                        EnumSet.of(CacheSection.FEATURES_OF_INTEREST)),
+                new RecordingUpdate("languages", EnumSet.noneOf(CacheSection.class),
+                        EnumSet.of(CacheSection.LANGUAGES)));
+
+        MatcherAssert.assertThat(executed.get(), Matchers.is(2 * TASKS));
+        MatcherAssert.assertThat(sessionStore.maxOpen.get(), Matchers.lessThanOrEqualTo(THREADS));
+        MatcherAssert.assertThat(sessionStore.open.get(), Matchers.is(0));
+    }
+
+    private void execute(AbstractDatasourceCacheUpdate... updates) {
+        DependencyAwareCacheUpdate update = new DependencyAwareCacheUpdate(THREADS, sessionStore, null, updates);
+        update.setErrors(Collections.emptyList());
+        update.execute();
+        MatcherAssert.assertThat(update.getErrors(), Matchers.is(Matchers.empty()));
+        MatcherAssert.assertThat(update.getTimings().keySet(), Matchers.containsInAnyOrder(updates));
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class RecordingUpdate extends AbstractDatasourceCacheUpdate {
+        private final String name;
+        private final Set<CacheSection> read;
+        private final Set<CacheSection> written;
+
+        RecordingUpdate(String name, Set<CacheSection> read, Set<CacheSection> written) {
+            this.name = name;
+            this.read = read;
+            this.written = written;
+        }
+
+        @Override
+        public void execute() {
+            events.add("start:" + name);
+            sleep();
+            events.add("end:" + name);
+        }
+
+        @Override
+        public Set<CacheSection> getReadSections() {
+            return read;
+        }
+
+        @Override
+        public Set<CacheSection> getWrittenSections() {
+            return written;
+        }
+    }
+
+    private class QueueingUpdate extends AbstractQueueingDatasourceCacheUpdate<Task> {
+        private final CacheSection section;
+        private final AtomicInteger executed;
+
+        QueueingUpdate(CacheSection section, AtomicInteger executed) {
+            super(THREADS, "test-cache-update", sessionStore);
+            this.section = section;
+            this.executed = executed;
+        }
+
+        @Override
+        protected Task[] getUpdatesToExecute() {
+            Task[] tasks = new Task[TASKS];
+            for (int i = 0; i < TASKS; i++) {
+                tasks[i] = new Task(executed);
+            }
+            return tasks;
+        }
+
+        @Override
+        public Set<CacheSection> getWrittenSections() {
+            return EnumSet.of(section);
+        }
+    }
+
+    private static class Task extends AbstractThreadableDatasourceCacheUpdate {
+        private final AtomicInteger executed;
+
+        Task(AtomicInteger executed) {
+            this.executed = executed;
+        }
+
+        @Override
+        public void execute() {
+            MatcherAssert.assertThat(getSession(), Matchers.is(Matchers.notNullValue()));
+            sleep();
+            executed.incrementAndGet();
+        }
+    }
+
+    private static class CountingSessionStore implements HibernateSessionStore {
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicInteger maxOpen = new AtomicInteger();
+
+        @Override
+        public Session getSession() {
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        @Override
+        public void returnSession(Session session) {
+            open.decrementAndGet();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache.base;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.sensorweb.server.db.old.dao.DbQuery;
+import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.old.HibernateSessionStore;
+
+public class OfferingCacheUpdateTest {
+
+    private static final String OFFERING = "http://www.52north.org/test/offering/1";
+
+    private final List<IoParameters> queries = new ArrayList<>();
+
+    @Test
+    public void should_restrict_queries_to_the_offerings_to_update() {
+        OfferingCacheUpdate update = createUpdate(Collections.singletonList(OFFERING));
+        update.createOfferingDbQuery();
+        update.createDatasetDbQuery(Arrays.asList(offering(1L), offering(2L)));
+
+        MatcherAssert.assertThat(queries, Matchers.hasSize(2));
+        MatcherAssert.assertThat(queries.get(0).getOfferings(), Matchers.contains(OFFERING));
+        MatcherAssert.assertThat(queries.get(0).isMatchDomainIds(), Matchers.is(true));
+        MatcherAssert.assertThat(queries.get(1).getOfferings(), Matchers.containsInAnyOrder("1", "2"));
+        MatcherAssert.assertThat(queries.get(1).isExpanded(), Matchers.is(true));
+    }
+
+    @Test
+    public void should_not_restrict_dataset_query_when_all_offerings_are_updated() {
+        OfferingCacheUpdate update = createUpdate(null);
+        update.createDatasetDbQuery(Arrays.asList(offering(1L), offering(2L)));
+
+        MatcherAssert.assertThat(queries, Matchers.hasSize(1));
+        MatcherAssert.assertThat(queries.get(0).getOfferings(), Matchers.empty());
+        MatcherAssert.assertThat(queries.get(0).isExpanded(), Matchers.is(true));
+    }
+
+    private OfferingCacheUpdate createUpdate(Collection<String> offerings) {
+        HibernateSessionStore sessionStore = (HibernateSessionStore) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] { HibernateSessionStore.class },
+                (proxy, method, args) -> null);
+        return new OfferingCacheUpdate(1, Locale.ENGLISH, null, sessionStore, offerings, new RecordingDbQueryFactory(),
+                true);
+    }
+
+    private OfferingEntity offering(long id) {
+        OfferingEntity offering = new OfferingEntity();
+        offering.setId(id);
+        return offering;
+    }
+
+    private class RecordingDbQueryFactory implements DbQueryFactory {
+
+        @Override
+        public DbQuery createFrom(IoParameters parameters) {
+            queries.add(parameters);
+            return null;
+        }
+
+        @Override
+        public String getDatabaseSrid() {
+            return null;
+        }
+
+        @Override
+        public void setDatabaseSrid(String databaseSrid) {
+        }
+    }
+
+}
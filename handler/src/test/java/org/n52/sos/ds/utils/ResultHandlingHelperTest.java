@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.utils;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ResultHandlingHelperTest {
+
+    private static final String OBSERVABLE_PROPERTY = "http://www.52north.org/test/observableProperty/1";
+
+    private static final String RESULT_VALUES = "2@2020-01-01T00:00:00.000Z,1.5@2020-01-02T00:00:00.000Z,2.5";
+
+    private final ResultHandlingHelper helper = new ResultHandlingHelper(null);
+
+    @Test
+    public void shouldWriteSameResultValuesAsCreated() throws Exception {
+        List<DataEntity<?>> observations = createObservations();
+        StringWriter writer = new StringWriter();
+        helper.writeResultValuesFromObservations(observations, observations.size(), createEncoding(),
+                createStructure(), "noData", null, writer);
+        assertThat(writer.toString(), is(RESULT_VALUES));
+        assertThat(writer.toString(), is(helper.createResultValuesFromObservations(observations, createEncoding(),
+                createStructure(), "noData", null)));
+    }
+
+    @Test
+    public void shouldWriteNotMoreThanCountedResultValues() throws Exception {
+        StringWriter writer = new StringWriter();
+        helper.writeResultValuesFromObservations(createObservations(), 1, createEncoding(), createStructure(),
+                "noData", null, writer);
+        assertThat(writer.toString(), is("1@2020-01-01T00:00:00.000Z,1.5"));
+    }
+
+    private List<DataEntity<?>> createObservations() {
+        PhenomenonEntity phenomenon = new PhenomenonEntity();
+        phenomenon.setIdentifier(OBSERVABLE_PROPERTY);
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setObservableProperty(phenomenon);
+        return Arrays.asList(createObservation(dataset, "2020-01-01T00:00:00.000Z", "1.5"),
+                createObservation(dataset, "2020-01-02T00:00:00.000Z", "2.5"));
+    }
+
+    private QuantityDataEntity createObservation(DatasetEntity dataset, String time, String value) {
+        Date date = Date.from(Instant.parse(time));
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setDataset(dataset);
+        observation.setSamplingTimeStart(date);
+        observation.setSamplingTimeEnd(date);
+        observation.setResultTime(date);
+        observation.setValue(new BigDecimal(value));
+        return observation;
+    }
+
+    private SosResultEncoding createEncoding() {
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(",");
+        encoding.setBlockSeparator("@");
+        return new SosResultEncoding(encoding);
+    }
+
+    private SosResultStructure createStructure() {
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField(OmConstants.PHENOMENON_TIME,
+                new SweTime().setDefinition(OmConstants.PHENOMENON_TIME)));
+        record.addField(new SweField("value", new SweQuantity().setDefinition(OBSERVABLE_PROPERTY)));
+        return new SosResultStructure(record);
+    }
+
+}
@@ -454,8 +454,8 @@ public interface DeleteObservationHelper extends HibernateUnproxy {
                         update = true;
                     }
                     if (!dataset.isSetResultTimeStart() || dataset.isSetResultTimeStart() && !DateTimeHelper
-                            .makeDateTime(dataset.getResultTimeEnd()).equals(extrema.getMinResultTime())) {
-                        dataset.setFirstValueAt(extrema.getMinResultTime()
+                            .makeDateTime(dataset.getResultTimeStart()).equals(extrema.getMinResultTime())) {
+                        dataset.setResultTimeStart(extrema.getMinResultTime()
                                 .toDate());
                         update = true;
                     }
@@ -33,6 +33,7 @@ import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -216,6 +217,9 @@ public abstract class AbstractValueDAO extends TimeCreator {
     protected void addChunkValuesToCriteria(Criteria c, int chunkSize, int currentRow,
             AbstractObservationRequest request, StringBuilder logArgs) {
         if (chunkSize > 0) {
+            // the id breaks ties of the order column, otherwise values with
+            // the same time may be returned twice or skipped across chunks
+            c.addOrder(Order.asc(DataEntity.PROPERTY_ID));
             c.setMaxResults(chunkSize).setFirstResult(currentRow);
             logArgs.append(", chunk(" + currentRow + "," + chunkSize + ")");
         }
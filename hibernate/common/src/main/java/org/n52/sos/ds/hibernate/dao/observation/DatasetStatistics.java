@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.util.Date;
+
+import org.n52.series.db.beans.AbstractDatasetEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.GeometryEntity;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Accumulated statistics (first and last observation, result time extrema and
+ * geometry envelope) of the observations inserted for a single dataset. Used
+ * to update the dataset once instead of once per inserted observation.
+ *
+ * @see DeferredDatasetUpdates
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public class DatasetStatistics {
+
+    private final AbstractDatasetEntity dataset;
+
+    private DataEntity<?> firstObservation;
+
+    private DataEntity<?> lastObservation;
+
+    private Date resultTimeStart;
+
+    private Date resultTimeEnd;
+
+    private GeometryEntity geometry;
+
+    public DatasetStatistics(AbstractDatasetEntity dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Add the observation to the statistics
+     *
+     * @param observation
+     *            the inserted observation
+     * @param observationGeometry
+     *            the geometry which expands the dataset geometry, may be
+     *            <code>null</code>
+     */
+    public void add(DataEntity<?> observation, GeometryEntity observationGeometry) {
+        if (firstObservation == null
+                || firstObservation.getSamplingTimeStart().after(observation.getSamplingTimeStart())) {
+            firstObservation = observation;
+        }
+        if (lastObservation == null
+                || lastObservation.getSamplingTimeEnd().before(observation.getSamplingTimeEnd())) {
+            lastObservation = observation;
+        }
+        Date resultTime = observation.getResultTime();
+        if (resultTime != null) {
+            if (resultTimeStart == null || resultTimeStart.after(resultTime)) {
+                resultTimeStart = resultTime;
+            }
+            if (resultTimeEnd == null || resultTimeEnd.before(resultTime)) {
+                resultTimeEnd = resultTime;
+            }
+        }
+        if (observationGeometry != null) {
+            if (geometry == null) {
+                geometry = new GeometryEntity();
+            }
+            geometry.expand(observationGeometry);
+        }
+    }
+
+    public AbstractDatasetEntity getDataset() {
+        return dataset;
+    }
+
+    public DataEntity<?> getFirstObservation() {
+        return firstObservation;
+    }
+
+    public DataEntity<?> getLastObservation() {
+        return lastObservation;
+    }
+
+    public Date getResultTimeStart() {
+        return resultTimeStart;
+    }
+
+    public Date getResultTimeEnd() {
+        return resultTimeEnd;
+    }
+
+    public GeometryEntity getGeometry() {
+        return geometry;
+    }
+
+    public boolean isEmpty() {
+        return firstObservation == null;
+    }
+
+    /**
+     * Check if the observation is referenced by the statistics and has to be
+     * kept in the session until the dataset is updated.
+     *
+     * @param observation
+     *            the observation to check
+     * @return <code>true</code>, if the observation is the first or last
+     *         observation
+     */
+    public boolean isReferenced(DataEntity<?> observation) {
+        return observation == firstObservation || observation == lastObservation;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.AbstractDatasetEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+
+/**
+ * Collects the dataset statistics of observations inserted in bulk mode. The
+ * observations are saved without flushing the session after each value, so
+ * Hibernate writes them in JDBC batches, and each affected dataset is updated
+ * once when {@link #apply(AbstractSeriesDAO, Session)} is called instead of
+ * once per observation.
+ *
+ * Instances are not thread safe and are bound to a single session.
+ */
+public class DeferredDatasetUpdates {
+
+    private static final int DEFAULT_FLUSH_THRESHOLD = 500;
+
+    private final Map<Long, DatasetStatistics> statistics = new LinkedHashMap<>();
+
+    private final List<DataEntity<?>> pending = new ArrayList<>();
+
+    private final int flushThreshold;
+
+    public DeferredDatasetUpdates() {
+        this(DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    public DeferredDatasetUpdates(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    /**
+     * Record the saved observation for the deferred update of the dataset
+     *
+     * @param dataset
+     *            the dataset of the observation
+     * @param observation
+     *            the saved observation
+     * @param seriesDAO
+     *            the series DAO to determine the observation geometry
+     */
+    public void add(AbstractDatasetEntity dataset, DataEntity<?> observation, AbstractSeriesDAO seriesDAO) {
+        statistics.computeIfAbsent(dataset.getId(), id -> new DatasetStatistics(dataset)).add(observation,
+                seriesDAO.getGeometry(observation));
+        pending.add(observation);
+    }
+
+    /**
+     * @return <code>true</code>, if the number of unflushed observations
+     *         reached the flush threshold
+     */
+    public boolean isFlushRequired() {
+        return pending.size() >= flushThreshold;
+    }
+
+    /**
+     * Flush the pending observations and evict them from the session if they
+     * are not referenced as first or last observation of a dataset.
+     *
+     * @param session
+     *            Hibernate session
+     */
+    public void flushObservations(Session session) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        session.flush();
+        for (DataEntity<?> observation : pending) {
+            if (!isReferenced(observation)) {
+                session.evict(observation);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Update each affected dataset once with the collected statistics and
+     * flush the session.
+     *
+     * @param seriesDAO
+     *            the series DAO
+     * @param session
+     *            Hibernate session
+     */
+    public void apply(AbstractSeriesDAO seriesDAO, Session session) {
+        for (DatasetStatistics datasetStatistics : statistics.values()) {
+            if (!datasetStatistics.isEmpty()) {
+                seriesDAO.updateDatasetWithStatistics(datasetStatistics.getDataset(), datasetStatistics, session);
+            }
+        }
+        session.flush();
+        statistics.clear();
+        pending.clear();
+    }
+
+    public boolean isEmpty() {
+        return statistics.isEmpty();
+    }
+
+    private boolean isReferenced(DataEntity<?> observation) {
+        for (DatasetStatistics datasetStatistics : statistics.values()) {
+            if (datasetStatistics.isReferenced(observation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
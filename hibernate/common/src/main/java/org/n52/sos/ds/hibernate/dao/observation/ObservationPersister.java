@@ -164,6 +164,8 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
 
     private Long parent;
 
+    private DeferredDatasetUpdates deferredDatasetUpdates;
+
     public ObservationPersister(DaoFactory daoFactory, AbstractObservationDAO observationDao,
             OmObservation sosObservation, DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature,
             Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
@@ -174,6 +176,21 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
                 null, hOfferings, session, null);
     }
 
+    /**
+     * Create a persister which defers the dataset updates of simple
+     * observations to the provided {@link DeferredDatasetUpdates} and does
+     * not flush the session after each observation.
+     */
+    public ObservationPersister(DaoFactory daoFactory, AbstractObservationDAO observationDao,
+            OmObservation sosObservation, DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, Set<OfferingEntity> hOfferings, Session session,
+            DeferredDatasetUpdates deferredDatasetUpdates) throws OwsExceptionReport {
+        this(daoFactory, observationDao, sosObservation, hDataset, hFeature, codespaceCache, unitCache, formatCache,
+                hOfferings, session);
+        this.deferredDatasetUpdates = deferredDatasetUpdates;
+    }
+
     private ObservationPersister(DaoFactory daoFactory, DAOs daos, Caches caches, OmObservation observation,
             DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature, Geometry samplingGeometry,
             Set<OfferingEntity> hOfferings, Session session, Long parentId) throws OwsExceptionReport {
@@ -852,6 +869,11 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
         DatasetEntity persitedDataset =
                 daos.observation().addObservationContextToObservation(observationContext, observation, session);
         persistParameter(observation, omObservation.getParameterHolder(), observationContext, session);
+        if (isDeferDatasetUpdate(observation, providedCategory)) {
+            session.save(observation);
+            deferredDatasetUpdates.add(persitedDataset, observation, daos.dataset());
+            return observation;
+        }
         session.save(observation);
         session.flush();
         // persistParameter(observation, omObservation.getParameterHolder(), observationContext, session);
@@ -866,6 +888,13 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
         return observation;
     }
 
+    private boolean isDeferDatasetUpdate(DataEntity<?> observation, boolean providedCategory) {
+        return deferredDatasetUpdates != null && parent == null && !(observation instanceof ComplexDataEntity)
+                && !(observation instanceof DataArrayDataEntity) && !(observation instanceof ProfileDataEntity)
+                && !(observation instanceof TrajectoryDataEntity)
+                && !(daoFactory.isInsertAdditionallyAsProfile() && providedCategory);
+    }
+
     private <
             V,
             T extends DataEntity<V>> void insertAdditionallyAsProfile(DatasetEntity persitedDataset, T observation,
@@ -86,6 +86,7 @@ import org.n52.sos.ds.hibernate.DeleteDataHelper;
 import org.n52.sos.ds.hibernate.dao.AbstractIdentifierNameDescriptionDAO;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
+import org.n52.sos.ds.hibernate.dao.observation.DatasetStatistics;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationContext;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
@@ -877,6 +878,68 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
      */
     public void updateDatasetWithObservation(AbstractDatasetEntity dataset, DataEntity<?> observation,
             Session session) {
+        updateFirstLastValues(dataset, observation);
+        updateResultTimes(dataset, observation.getResultTime(), observation.getResultTime());
+        updateGeometry(dataset, getGeometry(observation));
+        session.saveOrUpdate(dataset);
+        session.flush();
+        session.refresh(dataset);
+        if (HibernateHelper.isEntitySupported(DatasetAggregationEntity.class)) {
+            if (dataset.isSetAggregation()) {
+                updateDatasetWithObservation(dataset.getAggregation(), observation, session);
+            }
+        }
+    }
+
+    /**
+     * Update series values with the accumulated statistics of all
+     * observations inserted for the series during a bulk insertion. In
+     * contrast to
+     * {@link #updateDatasetWithObservation(AbstractDatasetEntity, DataEntity, Session)}
+     * the series is neither flushed nor refreshed, the update is written with
+     * the next flush of the session.
+     *
+     * @param dataset
+     *            Series object
+     * @param statistics
+     *            Accumulated statistics of the inserted observations
+     * @param session
+     *            Hibernate session
+     */
+    public void updateDatasetWithStatistics(AbstractDatasetEntity dataset, DatasetStatistics statistics,
+            Session session) {
+        updateFirstLastValues(dataset, statistics.getFirstObservation());
+        updateFirstLastValues(dataset, statistics.getLastObservation());
+        if (statistics.getResultTimeStart() != null) {
+            updateResultTimes(dataset, statistics.getResultTimeStart(), statistics.getResultTimeEnd());
+        }
+        updateGeometry(dataset, statistics.getGeometry());
+        session.saveOrUpdate(dataset);
+        if (HibernateHelper.isEntitySupported(DatasetAggregationEntity.class)) {
+            if (dataset.isSetAggregation()) {
+                updateDatasetWithStatistics(dataset.getAggregation(), statistics, session);
+            }
+        }
+    }
+
+    /**
+     * Get the geometry which expands the series geometry for the observation,
+     * either the sampling geometry or the geometry of the feature.
+     *
+     * @param observation
+     *            Observation object
+     * @return the geometry or <code>null</code>
+     */
+    public GeometryEntity getGeometry(DataEntity<?> observation) {
+        if (observation.isSetGeometryEntity()) {
+            return observation.getGeometryEntity();
+        } else if (observation.getDataset().isSetFeature() && observation.getDataset().getFeature().isSetGeometry()) {
+            return observation.getDataset().getFeature().getGeometryEntity();
+        }
+        return null;
+    }
+
+    private void updateFirstLastValues(AbstractDatasetEntity dataset, DataEntity<?> observation) {
         boolean minChanged = false;
         boolean maxChanged = false;
         if (!dataset.isSetFirstValueAt() || dataset.isSetFirstValueAt()
@@ -899,39 +962,29 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
                 dataset.setLastQuantityValue(((QuantityDataEntity) observation).getValue());
             }
         }
-        if (!dataset.isSetResultTimeStart() || dataset.isSetResultTimeStart()
-                && dataset.getResultTimeStart().after(observation.getResultTime())) {
-            dataset.setResultTimeStart(observation.getResultTime());
+    }
+
+    private void updateResultTimes(AbstractDatasetEntity dataset, Date resultTimeStart, Date resultTimeEnd) {
+        if (!dataset.isSetResultTimeStart()
+                || dataset.isSetResultTimeStart() && dataset.getResultTimeStart().after(resultTimeStart)) {
+            dataset.setResultTimeStart(resultTimeStart);
         }
         if (!dataset.isSetResultTimeEnd()
-                || dataset.isSetResultTimeEnd() && dataset.getResultTimeEnd().before(observation.getResultTime())) {
-            dataset.setResultTimeEnd(observation.getResultTime());
+                || dataset.isSetResultTimeEnd() && dataset.getResultTimeEnd().before(resultTimeEnd)) {
+            dataset.setResultTimeEnd(resultTimeEnd);
         }
-        if (observation.isSetGeometryEntity()) {
-            if (dataset.isSetGeometry()) {
-                dataset.getGeometryEntity().expand(observation.getGeometryEntity());
-            } else {
-                GeometryEntity geometryEntity = new GeometryEntity();
-                geometryEntity.expand(observation.getGeometryEntity());
-                dataset.setGeometryEntity(geometryEntity);
-            }
-        } else if (observation.getDataset().isSetFeature() && observation.getDataset().getFeature().isSetGeometry()) {
+    }
+
+    private void updateGeometry(AbstractDatasetEntity dataset, GeometryEntity geometry) {
+        if (geometry != null) {
             if (dataset.isSetGeometry()) {
-                dataset.getGeometryEntity().expand(observation.getDataset().getFeature().getGeometryEntity());
+                dataset.getGeometryEntity().expand(geometry);
             } else {
                 GeometryEntity geometryEntity = new GeometryEntity();
-                geometryEntity.expand(observation.getDataset().getFeature().getGeometryEntity());
+                geometryEntity.expand(geometry);
                 dataset.setGeometryEntity(geometryEntity);
             }
         }
-        session.saveOrUpdate(dataset);
-        session.flush();
-        session.refresh(dataset);
-        if (HibernateHelper.isEntitySupported(DatasetAggregationEntity.class)) {
-            if (dataset.isSetAggregation()) {
-                updateDatasetWithObservation(dataset.getAggregation(), observation, session);
-            }
-        }
     }
 
     /**
@@ -27,15 +27,34 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.n52.series.db.beans.BooleanDataEntity;
+import org.n52.series.db.beans.CategoryDataEntity;
+import org.n52.series.db.beans.CountDataEntity;
 import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DetectionLimitEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.TextDataEntity;
+import org.n52.series.db.beans.dataset.ValueType;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractValueDAO;
@@ -58,6 +77,10 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
 
     private static final String QUERY_STREAMING_SERIES_VALUE = "QUERY getStreamingSeriesValuesFor({}): {}";
 
+    private static final String PROPERTY_DETECTION_LIMIT_FLAG = "detectionLimit.flag";
+
+    private static final String PROPERTY_DETECTION_LIMIT_VALUE = "detectionLimit.detectionLimit";
+
     public AbstractSeriesValueDAO(DaoFactory daoFactory) {
         super(daoFactory);
     }
@@ -90,6 +113,14 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
                 list.addAll(c.list());
             }
             return list;
+        } else if (ctx.isValueProjection() && isValueProjectionSupported(ctx.getDataset())) {
+            return getProjectedSeriesValuesFor(ctx);
+        } else if (ctx.isKeysetPagination()) {
+            StringBuilder logArgs = new StringBuilder();
+            Criteria c = getSeriesValueCriteriaFor(ctx, logArgs);
+            addKeysetChunkValuesToCriteria(c, ctx, logArgs);
+            LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+            return (List<DataEntity<?>>) c.list();
         } else {
             StringBuilder logArgs = new StringBuilder();
             Criteria c = getSeriesValueCriteriaFor(ctx, logArgs);
@@ -99,6 +130,160 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         }
     }
 
+    /**
+     * Check if the values of the dataset can be queried as projection of the
+     * time, value and detection limit columns.
+     *
+     * @param dataset
+     *            the dataset
+     * @return <code>true</code>, if the dataset has a simple value type
+     */
+    public boolean isValueProjectionSupported(DatasetEntity dataset) {
+        return getProjectedValueClass(dataset.getValueType()) != null
+                && !getDaoFactory().isIncludeChildObservableProperties();
+    }
+
+    /**
+     * Query the next chunk of values as projection of the id, time, value
+     * and detection limit columns. The returned {@link DataEntity}s are not
+     * attached to the session, so parameters, value qualities and related
+     * observations are not loaded.
+     *
+     * @param ctx
+     *            {@link ValueQueryContext}
+     * @return the projected values
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> getProjectedSeriesValuesFor(ValueQueryContext ctx) throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        ValueType valueType = ctx.getDataset().getValueType();
+        Criteria c = getSeriesValueCriteriaFor(
+                getDefaultCriteria(getProjectedValueClass(valueType), ctx.getSession()), ctx, logArgs);
+        if (ctx.isKeysetPagination()) {
+            addKeysetChunkValuesToCriteria(c, ctx, logArgs);
+        } else {
+            addChunkValuesToCriteria(c, ctx.getChunkSize(), ctx.getCurrentRow(), ctx.getRequest(), logArgs);
+        }
+        c.setProjection(Projections.projectionList().add(Projections.property(DataEntity.PROPERTY_ID))
+                .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_END))
+                .add(Projections.property(DataEntity.PROPERTY_RESULT_TIME))
+                .add(Projections.property(DataEntity.PROPERTY_VALUE))
+                .add(Projections.property(PROPERTY_DETECTION_LIMIT_FLAG))
+                .add(Projections.property(PROPERTY_DETECTION_LIMIT_VALUE)));
+        c.setFetchMode(DataEntity.PROPERTY_PARAMETERS, FetchMode.SELECT);
+        c.setResultTransformer(Criteria.PROJECTION);
+        logArgs.append(", projection(" + valueType + ")");
+        LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+        List<Object[]> rows = c.list();
+        List<DataEntity<?>> values = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            values.add(createProjectedValue(valueType, ctx.getDataset(), row));
+        }
+        return values;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private DataEntity<?> createProjectedValue(ValueType valueType, DatasetEntity dataset, Object[] row) {
+        DataEntity value = createProjectedValueEntity(valueType);
+        value.setId((Long) row[0]);
+        value.setSamplingTimeStart((Date) row[1]);
+        value.setSamplingTimeEnd((Date) row[2]);
+        value.setResultTime((Date) row[3]);
+        value.setValue(row[4]);
+        if (row[5] != null || row[6] != null) {
+            DetectionLimitEntity detectionLimit = new DetectionLimitEntity();
+            detectionLimit.setFlag((Short) row[5]);
+            detectionLimit.setDetectionLimit((BigDecimal) row[6]);
+            value.setDetectionLimit(detectionLimit);
+        }
+        value.setDataset(dataset);
+        value.setDatasetId(dataset.getId());
+        return value;
+    }
+
+    private Class<?> getProjectedValueClass(ValueType valueType) {
+        if (valueType == null) {
+            return null;
+        }
+        switch (valueType) {
+            case quantity:
+                return QuantityDataEntity.class;
+            case count:
+                return CountDataEntity.class;
+            case bool:
+                return BooleanDataEntity.class;
+            case category:
+                return CategoryDataEntity.class;
+            case text:
+                return TextDataEntity.class;
+            default:
+                return null;
+        }
+    }
+
+    private DataEntity<?> createProjectedValueEntity(ValueType valueType) {
+        switch (valueType) {
+            case quantity:
+                return new QuantityDataEntity();
+            case count:
+                return new CountDataEntity();
+            case bool:
+                return new BooleanDataEntity();
+            case category:
+                return new CategoryDataEntity();
+            default:
+                return new TextDataEntity();
+        }
+    }
+
+    /**
+     * Get the value of the order column for the {@link DataEntity}, used as
+     * key for keyset pagination.
+     *
+     * @param entity
+     *            the last queried {@link DataEntity}
+     * @param request
+     *            the request
+     * @return the value of the order column
+     */
+    public Date getOrderValue(DataEntity<?> entity, AbstractObservationRequest request) {
+        if (DataEntity.PROPERTY_RESULT_TIME.equals(getOrderColumn(request))) {
+            return entity.getResultTime();
+        }
+        return entity.getSamplingTimeStart();
+    }
+
+    /**
+     * Add keyset chunk information to {@link Criteria}. The values are
+     * additionally ordered by id and restricted to values after the last
+     * (order value, id) of the previous chunk, so the database can seek
+     * instead of skipping the already returned rows.
+     *
+     * @param c
+     *            {@link Criteria} to add information
+     * @param ctx
+     *            {@link ValueQueryContext}
+     * @param logArgs
+     *            log arguments
+     */
+    private void addKeysetChunkValuesToCriteria(Criteria c, ValueQueryContext ctx, StringBuilder logArgs) {
+        if (ctx.getChunkSize() > 0) {
+            String orderColumn = getOrderColumn(ctx.getRequest());
+            c.addOrder(Order.asc(DataEntity.PROPERTY_ID));
+            if (ctx.isSetLastKey()) {
+                c.add(Restrictions.or(Restrictions.gt(orderColumn, ctx.getLastOrderValue()),
+                        Restrictions.and(Restrictions.eq(orderColumn, ctx.getLastOrderValue()),
+                                Restrictions.gt(DataEntity.PROPERTY_ID, ctx.getLastId()))));
+            }
+            c.setMaxResults(ctx.getChunkSize());
+            logArgs.append(", keysetChunk(" + ctx.getLastOrderValue() + "," + ctx.getLastId() + ","
+                    + ctx.getChunkSize() + ")");
+        }
+    }
+
     /**
      * Get {@link Criteria} for parameter
      *
@@ -112,27 +297,77 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
      */
     private Criteria getSeriesValueCriteriaFor(ValueQueryContext ctx, StringBuilder logArgs)
             throws OwsExceptionReport {
-        final Criteria c = getDefaultSeriesValueCriteriaFor(ctx, logArgs);
+        return getSeriesValueCriteriaFor(getDefaultObservationCriteria(ctx.getSession()), ctx, logArgs);
+    }
+
+    private Criteria getSeriesValueCriteriaFor(Criteria c, ValueQueryContext ctx, StringBuilder logArgs)
+            throws OwsExceptionReport {
+        addDefaultSeriesValueCriteria(c, ctx, logArgs);
         c.add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, ctx.getDatasetId()));
         return c.setReadOnly(true);
     }
 
-    private Criteria getDefaultSeriesValueCriteriaFor(ValueQueryContext ctx, StringBuilder logArgs)
+    private Criteria addDefaultSeriesValueCriteria(Criteria c, ValueQueryContext ctx, StringBuilder logArgs)
             throws OwsExceptionReport {
-        final Criteria c = getDefaultObservationCriteria(ctx.getSession());
         c.addOrder(Order.asc(getOrderColumn(ctx.getRequest())));
         logArgs.append("request, series");
-        if (ctx.getRequest() instanceof GetObservationRequest) {
-            GetObservationRequest getObsReq = (GetObservationRequest) ctx.getRequest();
-            checkAndAddSpatialFilteringProfileCriterion(c, getObsReq, ctx.getSession(), logArgs);
+        addRequestRestrictions(c, ctx.getRequest(), ctx.getTemporalFilterCriterion(), ctx.getSession(), logArgs);
+        return c.setReadOnly(true);
+    }
 
-            if (ctx.getTemporalFilterCriterion() != null) {
+    private void addRequestRestrictions(Criteria c, AbstractObservationRequest request,
+            Criterion temporalFilterCriterion, Session session, StringBuilder logArgs) throws OwsExceptionReport {
+        if (request instanceof GetObservationRequest) {
+            GetObservationRequest getObsReq = (GetObservationRequest) request;
+            checkAndAddSpatialFilteringProfileCriterion(c, getObsReq, session, logArgs);
+
+            if (temporalFilterCriterion != null) {
                 logArgs.append(", filterCriterion");
-                c.add(ctx.getTemporalFilterCriterion());
+                c.add(temporalFilterCriterion);
             }
             addSpecificRestrictions(c, getObsReq, logArgs);
         }
-        return c.setReadOnly(true);
+    }
+
+    /**
+     * Query the values of all datasets with a single forward-only cursor. The
+     * values are ordered by dataset, order column and id. Result filters are
+     * not supported.
+     *
+     * @param request
+     *            the request
+     * @param datasets
+     *            the ids of the datasets to query
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be <code>null</code>
+     * @param fetchSize
+     *            JDBC fetch size of the cursor
+     * @param session
+     *            Hibernate session
+     * @return the {@link ScrollableResults} of the values
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    public ScrollableResults getScrollableSeriesValuesFor(AbstractObservationRequest request,
+            Collection<Long> datasets, Criterion temporalFilterCriterion, int fetchSize, Session session)
+            throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder("request, series");
+        final Criteria c = getDefaultObservationCriteria(session);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, datasets));
+        c.addOrder(Order.asc(DataEntity.PROPERTY_DATASET_ID)).addOrder(Order.asc(getOrderColumn(request)))
+                .addOrder(Order.asc(DataEntity.PROPERTY_ID));
+        addRequestRestrictions(c, request, temporalFilterCriterion, session, logArgs);
+        // joined collections would duplicate the scrolled rows
+        c.setFetchMode(DataEntity.PROPERTY_PARAMETERS, FetchMode.SELECT);
+        c.setResultTransformer(Criteria.ROOT_ENTITY);
+        if (fetchSize > 0) {
+            c.setFetchSize(fetchSize);
+            logArgs.append(", fetchSize(" + fetchSize + ")");
+        }
+        c.setReadOnly(true).setCacheMode(CacheMode.IGNORE);
+        LOGGER.trace("QUERY getScrollableSeriesValuesFor({}): {}", logArgs.toString(),
+                HibernateHelper.getSqlString(c));
+        return c.scroll(ScrollMode.FORWARD_ONLY);
     }
 
     /**
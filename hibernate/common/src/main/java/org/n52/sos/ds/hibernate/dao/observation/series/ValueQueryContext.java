@@ -27,6 +27,8 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.util.Date;
+
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.n52.series.db.beans.DatasetEntity;
@@ -42,6 +44,10 @@ public class ValueQueryContext {
     private Criterion temporalFilterCriterion;
     private int chunkSize;
     private int currentRow;
+    private boolean keysetPagination;
+    private boolean valueProjection;
+    private Date lastOrderValue;
+    private Long lastId;
     private Session session;
 
     public ValueQueryContext(AbstractObservationRequest request, DatasetEntity dataset, Session session) {
@@ -93,4 +99,66 @@ public class ValueQueryContext {
         return this;
     }
 
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Enable keyset (seek) pagination. Instead of skipping
+     * <code>currentRow</code> rows, the next chunk starts after the last
+     * order value and id of the previous chunk.
+     *
+     * @param keysetPagination
+     *            <code>true</code> to enable keyset pagination
+     * @return this
+     */
+    public ValueQueryContext setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        return this;
+    }
+
+    public boolean isValueProjection() {
+        return valueProjection;
+    }
+
+    /**
+     * Query only the time, value and detection limit columns of datasets
+     * with simple value types instead of the whole value entities.
+     *
+     * @param valueProjection
+     *            <code>true</code> to enable the value projection
+     * @return this
+     */
+    public ValueQueryContext setValueProjection(boolean valueProjection) {
+        this.valueProjection = valueProjection;
+        return this;
+    }
+
+    public Date getLastOrderValue() {
+        return lastOrderValue;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Set the order value and id of the last value of the previous chunk
+     *
+     * @param lastOrderValue
+     *            the value of the order column of the last value
+     * @param lastId
+     *            the id of the last value
+     * @return this
+     */
+    public ValueQueryContext setLastKey(Date lastOrderValue, Long lastId) {
+        this.lastOrderValue = lastOrderValue;
+        this.lastId = lastId;
+        return this;
+    }
+
+    public boolean isSetLastKey() {
+        return lastOrderValue != null && lastId != null;
+    }
+
 }
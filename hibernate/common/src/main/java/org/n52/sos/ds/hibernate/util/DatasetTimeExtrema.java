@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.joda.time.DateTime;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.util.DateTimeHelper;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * Utility methods working on the first and last value times stored with a
+ * {@link DatasetEntity}. They allow to drop datasets that can not contain any
+ * value matching the phenomenon time filters of a request and to derive the
+ * phenomenon time extrema without querying the values.
+ *
+ * @since 6.0.0
+ *
+ */
+public final class DatasetTimeExtrema {
+
+    private DatasetTimeExtrema() {
+    }
+
+    /**
+     * Check if the dataset may contain values matching the phenomenon time
+     * filters. Filters with the same value reference are combined with OR,
+     * filters with different value references with AND, like in
+     * {@link SosTemporalRestrictions}. The check is conservative: filters on
+     * other times than the phenomenon time, indeterminate filter times and
+     * datasets without stored first/last value times are never excluded.
+     *
+     * @param dataset
+     *            the dataset
+     * @param filters
+     *            the temporal filters of the request
+     * @return <code>false</code> if the dataset can not contain any matching
+     *         value
+     */
+    public static boolean mayContainMatchingValues(DatasetEntity dataset, Collection<TemporalFilter> filters) {
+        if (filters == null || filters.isEmpty() || !dataset.isSetFirstValueAt() || !dataset.isSetLastValueAt()) {
+            return true;
+        }
+        DateTime first = DateTimeHelper.makeDateTime(dataset.getFirstValueAt());
+        DateTime last = DateTimeHelper.makeDateTime(dataset.getLastValueAt());
+        for (Entry<String, Collection<TemporalFilter>> group : groupPhenomenonTimeFilters(filters).entrySet()) {
+            if (group.getValue().stream().noneMatch(filter -> mayMatch(first, last, filter))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the phenomenon time extrema from the first and last value times
+     * of the datasets.
+     *
+     * @param datasets
+     *            the datasets
+     * @return the extrema or <code>null</code> if any dataset misses its first
+     *         or last value time
+     */
+    public static ObservationTimeExtrema getPhenomenonTimeExtrema(Collection<DatasetEntity> datasets) {
+        ObservationTimeExtrema extrema = new ObservationTimeExtrema();
+        for (DatasetEntity dataset : datasets) {
+            if (!dataset.isSetFirstValueAt() || !dataset.isSetLastValueAt()) {
+                return null;
+            }
+            DateTime first = DateTimeHelper.makeDateTime(dataset.getFirstValueAt());
+            DateTime last = DateTimeHelper.makeDateTime(dataset.getLastValueAt());
+            if (extrema.getMinPhenomenonTime() == null || first.isBefore(extrema.getMinPhenomenonTime())) {
+                extrema.setMinPhenomenonTime(first);
+            }
+            if (extrema.getMaxPhenomenonTime() == null || last.isAfter(extrema.getMaxPhenomenonTime())) {
+                extrema.setMaxPhenomenonTime(last);
+            }
+        }
+        return extrema;
+    }
+
+    private static Map<String, Collection<TemporalFilter>> groupPhenomenonTimeFilters(
+            Collection<TemporalFilter> filters) {
+        ListMultimap<String, TemporalFilter> groups = ArrayListMultimap.create();
+        for (TemporalFilter filter : filters) {
+            if (filter.getValueReference() != null
+                    && filter.getValueReference().contains(TemporalRestrictions.PHENOMENON_TIME_VALUE_REFERENCE)) {
+                groups.put(filter.getValueReference(), filter);
+            }
+        }
+        return groups.asMap();
+    }
+
+    private static boolean mayMatch(DateTime first, DateTime last, TemporalFilter filter) {
+        Time time = filter.getTime();
+        DateTime start;
+        DateTime end;
+        if (time instanceof TimeInstant) {
+            start = ((TimeInstant) time).getValue();
+            end = start;
+        } else if (time instanceof TimePeriod) {
+            start = ((TimePeriod) time).getStart();
+            end = ((TimePeriod) time).getEnd();
+        } else {
+            return true;
+        }
+        if (start == null || end == null || filter.getOperator() == null) {
+            return true;
+        }
+        switch (filter.getOperator()) {
+            case TM_Before:
+                return !first.isAfter(end);
+            case TM_After:
+                return !last.isBefore(start);
+            default:
+                // every other operator requires the value time to touch the
+                // filter time
+                return !first.isAfter(end) && !last.isBefore(start);
+        }
+    }
+
+}
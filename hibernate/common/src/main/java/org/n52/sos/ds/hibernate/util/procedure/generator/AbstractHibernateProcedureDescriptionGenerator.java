@@ -266,7 +266,7 @@ public abstract class AbstractHibernateProcedureDescriptionGenerator
         SortedSet<String> props = new TreeSet<>();
         Set<String> obsProps = getCache().getObservablePropertiesForProcedure(identifier);
         for (String obsProp : obsProps) {
-            if (getCache().getPublishedObservableProperties().contains(obsProp)) {
+            if (getCache().hasPublishedObservableProperty(obsProp)) {
                 props.add(obsProp);
             }
         }
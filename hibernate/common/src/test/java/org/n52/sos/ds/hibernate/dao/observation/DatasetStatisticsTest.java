@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class DatasetStatisticsTest {
+
+    @Test
+    public void shouldKeepFirstAndLastObservation() {
+        DatasetStatistics statistics = new DatasetStatistics(new DatasetEntity());
+        QuantityDataEntity second = observation(2000L, 3000L);
+        QuantityDataEntity first = observation(1000L, 5000L);
+        QuantityDataEntity last = observation(4000L, 2000L);
+        statistics.add(second, null);
+        statistics.add(first, null);
+        statistics.add(last, null);
+        Assert.assertSame(first, statistics.getFirstObservation());
+        Assert.assertSame(last, statistics.getLastObservation());
+        Assert.assertEquals(new Date(2000L), statistics.getResultTimeStart());
+        Assert.assertEquals(new Date(5000L), statistics.getResultTimeEnd());
+        Assert.assertTrue(statistics.isReferenced(first));
+        Assert.assertFalse(statistics.isReferenced(second));
+        Assert.assertNull(statistics.getGeometry());
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutObservations() {
+        Assert.assertTrue(new DatasetStatistics(new DatasetEntity()).isEmpty());
+    }
+
+    private QuantityDataEntity observation(long phenomenonTime, long resultTime) {
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setSamplingTimeStart(new Date(phenomenonTime));
+        observation.setSamplingTimeEnd(new Date(phenomenonTime));
+        observation.setResultTime(new Date(resultTime));
+        return observation;
+    }
+}
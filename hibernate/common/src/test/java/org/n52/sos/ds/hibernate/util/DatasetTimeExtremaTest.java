@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+
+public class DatasetTimeExtremaTest {
+
+    private static final String PHENOMENON_TIME = "om:phenomenonTime";
+
+    private static final String RESULT_TIME = "om:resultTime";
+
+    @Test
+    public void shouldKeepOverlappingDataset() {
+        DatasetEntity dataset = dataset(10, 20);
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_During, period(15, 30), PHENOMENON_TIME)), is(true));
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_Equals, instant(20), PHENOMENON_TIME)), is(true));
+    }
+
+    @Test
+    public void shouldPruneDisjointDataset() {
+        DatasetEntity dataset = dataset(10, 20);
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_During, period(21, 30), PHENOMENON_TIME)), is(false));
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_Equals, instant(9), PHENOMENON_TIME)), is(false));
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_Before, instant(9), PHENOMENON_TIME)), is(false));
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_After, instant(21), PHENOMENON_TIME)), is(false));
+    }
+
+    @Test
+    public void shouldHandleBeforeAndAfter() {
+        DatasetEntity dataset = dataset(10, 20);
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_Before, instant(30), PHENOMENON_TIME)), is(true));
+        assertThat(mayContain(dataset, filter(TimeOperator.TM_After, instant(1), PHENOMENON_TIME)), is(true));
+    }
+
+    @Test
+    public void shouldCombineFiltersOfSameValueReferenceWithOr() {
+        DatasetEntity dataset = dataset(10, 20);
+        assertThat(DatasetTimeExtrema.mayContainMatchingValues(dataset,
+                Arrays.asList(filter(TimeOperator.TM_During, period(1, 5), PHENOMENON_TIME),
+                        filter(TimeOperator.TM_During, period(18, 25), PHENOMENON_TIME))),
+                is(true));
+    }
+
+    @Test
+    public void shouldIgnoreOtherTimesAndMissingExtrema() {
+        assertThat(mayContain(dataset(10, 20), filter(TimeOperator.TM_During, period(21, 30), RESULT_TIME)),
+                is(true));
+        assertThat(mayContain(new DatasetEntity(), filter(TimeOperator.TM_During, period(21, 30), PHENOMENON_TIME)),
+                is(true));
+    }
+
+    @Test
+    public void shouldCreatePhenomenonTimeExtrema() {
+        ObservationTimeExtrema extrema =
+                DatasetTimeExtrema.getPhenomenonTimeExtrema(Arrays.asList(dataset(10, 20), dataset(5, 15)));
+        assertThat(extrema.getMinPhenomenonTime(), is(time(5)));
+        assertThat(extrema.getMaxPhenomenonTime(), is(time(20)));
+        assertThat(DatasetTimeExtrema.getPhenomenonTimeExtrema(Arrays.asList(dataset(10, 20), new DatasetEntity())),
+                is(nullValue()));
+    }
+
+    private static boolean mayContain(DatasetEntity dataset, TemporalFilter filter) {
+        return DatasetTimeExtrema.mayContainMatchingValues(dataset, Collections.singletonList(filter));
+    }
+
+    private static TemporalFilter filter(TimeOperator operator, Time time, String valueReference) {
+        return new TemporalFilter(operator, time, valueReference);
+    }
+
+    private static DatasetEntity dataset(int first, int last) {
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setFirstValueAt(time(first).toDate());
+        dataset.setLastValueAt(time(last).toDate());
+        return dataset;
+    }
+
+    private static TimeInstant instant(int day) {
+        return new TimeInstant(time(day));
+    }
+
+    private static TimePeriod period(int start, int end) {
+        return new TimePeriod(time(start), time(end));
+    }
+
+    private static DateTime time(int day) {
+        return new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC).plusDays(day);
+    }
+
+}
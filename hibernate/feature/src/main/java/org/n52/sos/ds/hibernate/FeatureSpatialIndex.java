@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory spatial index of the feature geometries for non spatial
+ * datasources. The index is built on first use, so spatial filters are
+ * resolved to feature identifiers without loading all features.
+ *
+ * Insertion and deletion events only mark the features they affect, their
+ * geometries are reloaded on the next query, because the geometry of a
+ * feature may be extended by inserted sampling geometries. Features which no
+ * longer exist are removed from the index. Cache updates and sensor deletions
+ * rebuild the whole index, as do events whose features can not be identified.
+ *
+ * @since 6.0.0
+ */
+public class FeatureSpatialIndex implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeatureSpatialIndex.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            FeatureInsertion.class,
+            ObservationInsertion.class,
+            ResultInsertion.class,
+            SensorDeletion.class,
+            DeleteObservationEvent.class,
+            UpdateCache.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private Quadtree index;
+
+    private Set<String> modified = new HashSet<>();
+
+    private long version;
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        Set<String> features = null;
+        if (event instanceof FeatureInsertion) {
+            features = getFeatureIdentifiers(((FeatureInsertion) event).getRequest().getFeatureMembers());
+        } else if (event instanceof ObservationInsertion) {
+            features = getObservationFeatureIdentifiers(((ObservationInsertion) event).getRequest()
+                    .getObservations());
+        } else if (event instanceof ResultInsertion) {
+            features = getObservationFeatureIdentifiers(((ResultInsertion) event).getResponse().getObservations());
+        } else if (event instanceof DeleteObservationEvent) {
+            DeleteObservationEvent deletion = (DeleteObservationEvent) event;
+            features = deletion.isSetDeletedObservation()
+                    ? getObservationFeatureIdentifiers(Collections.singleton(deletion.getDeletedObservation()))
+                    : null;
+        }
+        if (features != null) {
+            modified(features);
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Mark the features to be reloaded by the next query
+     *
+     * @param features
+     *            Identifiers of the inserted, modified or deleted features
+     */
+    public void modified(Collection<String> features) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                modified.addAll(features);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            version++;
+            index = null;
+            entries.clear();
+            modified = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the identifiers of the features whose geometry is contained in one
+     * of the filter geometries.
+     *
+     * @param filters
+     *            Filter geometries in datasource axis order
+     * @param loader
+     *            Loads the feature geometries if the index has to be built or
+     *            updated
+     * @return the identifiers of the matching features
+     * @throws OwsExceptionReport
+     *             If the feature geometries could not be loaded
+     */
+    public Set<String> query(Collection<Geometry> filters, FeatureGeometryLoader loader) throws OwsExceptionReport {
+        Quadtree tree = getIndex(loader);
+        lock.readLock().lock();
+        try {
+            Set<String> identifiers = new LinkedHashSet<>();
+            for (Geometry filter : filters) {
+                @SuppressWarnings("unchecked")
+                List<Entry> candidates = tree.query(filter.getEnvelopeInternal());
+                for (Entry entry : candidates) {
+                    if (filter.contains(entry.geometry)) {
+                        identifiers.add(entry.identifier);
+                    }
+                }
+            }
+            return identifiers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Quadtree getIndex(FeatureGeometryLoader loader) throws OwsExceptionReport {
+        long loadVersion;
+        Set<String> features;
+        lock.writeLock().lock();
+        try {
+            if (index != null && modified.isEmpty()) {
+                return index;
+            }
+            loadVersion = version;
+            features = null;
+            if (index != null) {
+                features = modified;
+                modified = new HashSet<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (features == null) {
+            return build(loader, loadVersion);
+        }
+        Quadtree tree = update(loader, features, loadVersion);
+        return tree != null ? tree : getIndex(loader);
+    }
+
+    private Quadtree build(FeatureGeometryLoader loader, long loadVersion) throws OwsExceptionReport {
+        long start = System.currentTimeMillis();
+        Map<String, Geometry> geometries = loader.load(null);
+        Map<String, Entry> loaded = new HashMap<>(geometries.size());
+        Quadtree tree = new Quadtree();
+        for (Map.Entry<String, Geometry> feature : geometries.entrySet()) {
+            Geometry geometry = feature.getValue();
+            if (geometry != null && !geometry.isEmpty()) {
+                Entry entry = new Entry(feature.getKey(), geometry);
+                tree.insert(geometry.getEnvelopeInternal(), entry);
+                loaded.put(entry.identifier, entry);
+            }
+        }
+        LOGGER.debug("Building the feature spatial index with {} features took {} ms", tree.size(),
+                System.currentTimeMillis() - start);
+        lock.writeLock().lock();
+        try {
+            // do not keep an index that was loaded before an invalidation
+            if (loadVersion == version && index == null) {
+                index = tree;
+                entries.putAll(loaded);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return tree;
+    }
+
+    private Quadtree update(FeatureGeometryLoader loader, Set<String> features, long loadVersion)
+            throws OwsExceptionReport {
+        Map<String, Geometry> geometries = loader.load(features);
+        lock.writeLock().lock();
+        try {
+            if (loadVersion != version) {
+                // invalidated while loading, the index is built again
+                return null;
+            }
+            for (String feature : features) {
+                Entry entry = entries.remove(feature);
+                if (entry != null) {
+                    index.remove(entry.geometry.getEnvelopeInternal(), entry);
+                }
+                Geometry geometry = geometries.get(feature);
+                if (geometry != null && !geometry.isEmpty()) {
+                    entry = new Entry(feature, geometry);
+                    index.insert(geometry.getEnvelopeInternal(), entry);
+                    entries.put(feature, entry);
+                }
+            }
+            LOGGER.debug("Updated {} features of the feature spatial index", features.size());
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<String> getFeatureIdentifiers(Collection<AbstractFeature> features) {
+        Set<String> identifiers = new HashSet<>();
+        if (features != null) {
+            for (AbstractFeature feature : features) {
+                if (feature == null || !feature.isSetIdentifier()) {
+                    return null;
+                }
+                identifiers.add(feature.getIdentifier());
+            }
+        }
+        return identifiers;
+    }
+
+    private Set<String> getObservationFeatureIdentifiers(Collection<OmObservation> observations) {
+        Set<String> identifiers = new HashSet<>();
+        if (observations != null) {
+            for (OmObservation observation : observations) {
+                if (observation == null || observation.getObservationConstellation() == null
+                        || observation.getObservationConstellation().getFeatureOfInterestIdentifier() == null) {
+                    return null;
+                }
+                identifiers.add(observation.getObservationConstellation().getFeatureOfInterestIdentifier());
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * Loads feature geometries in datasource axis order
+     */
+    @FunctionalInterface
+    public interface FeatureGeometryLoader {
+
+        /**
+         * @param identifiers
+         *            Identifiers of the features to load, all features if
+         *            <code>null</code>
+         * @return the geometries of the existing features by identifier
+         * @throws OwsExceptionReport
+         *             If the features could not be loaded
+         */
+        Map<String, Geometry> load(Collection<String> identifiers) throws OwsExceptionReport;
+
+    }
+
+    private static final class Entry {
+
+        private final String identifier;
+
+        private final Geometry geometry;
+
+        Entry(String identifier, Geometry geometry) {
+            this.identifier = identifier;
+            this.geometry = geometry;
+        }
+    }
+
+}
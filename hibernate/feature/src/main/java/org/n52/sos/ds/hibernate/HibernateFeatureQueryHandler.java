@@ -35,6 +35,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -115,6 +116,8 @@ public class HibernateFeatureQueryHandler
 
     private ProfileHandler profileHandler;
 
+    private FeatureSpatialIndex featureSpatialIndex;
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -135,6 +138,11 @@ public class HibernateFeatureQueryHandler
         this.contentCacheController = ctrl;
     }
 
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
     @Inject
     public void setProfileHandler(ProfileHandler profileHandler) {
         this.profileHandler = profileHandler;
@@ -193,17 +201,9 @@ public class HibernateFeatureQueryHandler
                 List<String> identifiers = new LinkedList<>();
                 if (queryObject.isSetSpatialFilters()) {
                     SpatialFilter filter = queryObject.getSpatialFitler();
-                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     final Geometry envelope = getGeometryHandler().getFilterForNonSpatialDatasource(filter);
-                    FeatureVisitorContext context = getDefaultContext()
-                            .setSession(session)
-                            .setRequestedLanguage(queryObject.getI18N());
-                    for (final AbstractFeatureEntity feature : features) {
-                        final Geometry geom = new GeometryVisitorImpl(context).visit(feature);
-                        if (geom != null && !geom.isEmpty() && envelope.contains(geom)) {
-                            identifiers.add(feature.getIdentifier());
-                        }
-                    }
+                    identifiers.addAll(getFeatureIdentifiersInFilter(Collections.singletonList(envelope),
+                            queryObject, session));
                 }
                 return identifiers;
             }
@@ -439,8 +439,21 @@ public class HibernateFeatureQueryHandler
                 envelopes.add(getGeometryHandler().getFilterForNonSpatialDatasource(filter));
             }
         }
+        Collection<String> identifiers = queryObject.getFeatures();
+        if (hasSpatialFilter) {
+            // resolve the spatial filters with the index and only create the
+            // matching features
+            Set<String> identifiersInFilter = getFeatureIdentifiersInFilter(envelopes, queryObject, session);
+            if (queryObject.isSetFeatures()) {
+                identifiersInFilter.retainAll(queryObject.getFeatures());
+            }
+            if (identifiersInFilter.isEmpty()) {
+                return featureMap;
+            }
+            identifiers = identifiersInFilter;
+        }
         final List<AbstractFeatureEntity> featuresOfInterest =
-                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(identifiers, session);
         for (final AbstractFeatureEntity feature : featuresOfInterest) {
             final AbstractSamplingFeature sosAbstractFeature =
                     (AbstractSamplingFeature) createSosAbstractFeature(feature, queryObject, session);
@@ -453,6 +466,23 @@ public class HibernateFeatureQueryHandler
         return featureMap;
     }
 
+    private Set<String> getFeatureIdentifiersInFilter(List<Geometry> envelopes,
+            FeatureQueryHandlerQueryObject queryObject, Session session) throws OwsExceptionReport {
+        return featureSpatialIndex.query(envelopes, identifiers -> {
+            FeatureVisitorContext context = getDefaultContext()
+                    .setSession(session)
+                    .setRequestedLanguage(queryObject.getI18N());
+            Map<String, Geometry> geometries = new HashMap<>();
+            List<AbstractFeatureEntity> features = identifiers == null
+                    ? daoFactory.getFeatureDAO().getFeatures(session)
+                    : daoFactory.getFeatureDAO().getFeatureOfInterestObjects(identifiers, session);
+            for (final AbstractFeatureEntity feature : features) {
+                geometries.put(feature.getIdentifier(), new GeometryVisitorImpl(context).visit(feature));
+            }
+            return geometries;
+        });
+    }
+
     protected Map<String, AbstractFeature> getFeaturesForSpatialDatasource(FeatureQueryHandlerQueryObject queryObject)
             throws OwsExceptionReport {
         final Session session = HibernateSessionHolder.getSession(queryObject.getConnection());
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.UpdateCache;
+
+import com.google.common.collect.Sets;
+
+public class FeatureSpatialIndexTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final List<Collection<String>> partialLoads = new ArrayList<>();
+
+    private final Map<String, Geometry> geometries = new HashMap<>();
+
+    @Test
+    public void shouldReturnFeaturesContainedInFilters() throws OwsExceptionReport {
+        FeatureSpatialIndex index = new FeatureSpatialIndex();
+        Assert.assertEquals(Sets.newHashSet("a", "b"),
+                index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load));
+        Assert.assertEquals(Sets.newHashSet("a", "c"),
+                index.query(Arrays.asList(box(0, 0, 1.5, 1.5), box(9, 9, 11, 11)), this::load));
+        Assert.assertTrue(index.query(Collections.singletonList(box(20, 20, 30, 30)), this::load).isEmpty());
+        // line is only partially contained
+        Assert.assertEquals(Sets.newHashSet("a", "b", "c"),
+                index.query(Collections.singletonList(box(0, 0, 15, 15)), this::load));
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidation() throws OwsExceptionReport {
+        FeatureSpatialIndex index = new FeatureSpatialIndex();
+        index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load);
+        index.handle(new UpdateCache());
+        index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldOnlyReloadFeaturesOfInsertedObservations() throws OwsExceptionReport {
+        FeatureSpatialIndex index = new FeatureSpatialIndex();
+        index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load);
+        geometries.put("a", factory.createPoint(new Coordinate(12, 12)));
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setObservation(Collections.singletonList(observation("a")));
+        index.handle(new ObservationInsertion(request, new InsertObservationResponse()));
+        Assert.assertEquals(Sets.newHashSet("b"), index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load));
+        Assert.assertEquals(Sets.newHashSet("a", "c"),
+                index.query(Collections.singletonList(box(9, 9, 13, 13)), this::load));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(Collections.singletonList(Collections.singleton("a")), partialLoads);
+    }
+
+    @Test
+    public void shouldAddInsertedAndRemoveDeletedFeatures() throws OwsExceptionReport {
+        FeatureSpatialIndex index = new FeatureSpatialIndex();
+        index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load);
+        geometries.put("f", factory.createPoint(new Coordinate(2, 2)));
+        geometries.remove("b");
+        index.modified(Arrays.asList("b", "f"));
+        Assert.assertEquals(Sets.newHashSet("a", "f"),
+                index.query(Collections.singletonList(box(0, 0, 5, 5)), this::load));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, partialLoads.size());
+    }
+
+    private Map<String, Geometry> load(Collection<String> identifiers) {
+        if (geometries.isEmpty()) {
+            geometries.put("a", factory.createPoint(new Coordinate(1, 1)));
+            geometries.put("b", factory.createPoint(new Coordinate(4, 4)));
+            geometries.put("c", factory.createPoint(new Coordinate(10, 10)));
+            geometries.put("d", factory.createLineString(new Coordinate[] { new Coordinate(14, 14),
+                    new Coordinate(20, 20) }));
+            geometries.put("e", null);
+        }
+        if (identifiers == null) {
+            loads.incrementAndGet();
+            return new HashMap<>(geometries);
+        }
+        partialLoads.add(new HashSet<>(identifiers));
+        Map<String, Geometry> loaded = new HashMap<>();
+        for (String identifier : identifiers) {
+            if (geometries.containsKey(identifier)) {
+                loaded.put(identifier, geometries.get(identifier));
+            }
+        }
+        return loaded;
+    }
+
+    private OmObservation observation(String feature) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(feature)));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(new DateTime(0L)), new QuantityValue(1.0)));
+        return observation;
+    }
+
+    private Geometry box(double minX, double minY, double maxX, double maxY) {
+        return factory.toGeometry(new Envelope(minX, maxX, minY, maxY));
+    }
+
+}
@@ -30,8 +30,10 @@ package org.n52.sos.ds.hibernate;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.persistence.PersistenceException;
@@ -69,9 +71,12 @@ import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.sos.ds.AbstractInsertObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.DeferredDatasetUpdates;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.TransactionHelper;
 import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
@@ -86,8 +91,12 @@ import com.google.common.collect.Table.Cell;
 @Configurable
 public class InsertObservationHandler extends AbstractInsertObservationHandler
         implements Constructable, TransactionHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertObservationHandler.class);
+
     private static final int FLUSH_THRESHOLD = 50;
 
+    private static final int MAX_CONCURRENT_INSERT_ATTEMPTS = 3;
+
     private static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
 
     private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
@@ -113,6 +122,12 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
 
     private boolean strictSpatialFilteringProfile;
 
+    private boolean concurrentInsertObservation;
+
+    private boolean bulkInsertObservation;
+
+    private final ObservationConstellationLocks constellationLocks = new ObservationConstellationLocks();
+
     /**
      * constructor
      */
@@ -134,73 +149,115 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         return strictSpatialFilteringProfile;
     }
 
+    @Setting(SosSettings.CONCURRENT_INSERT_OBSERVATION)
+    public synchronized void setConcurrentInsertObservation(final boolean concurrentInsertObservation) {
+        this.concurrentInsertObservation = concurrentInsertObservation;
+    }
+
+    public synchronized boolean isConcurrentInsertObservation() {
+        return concurrentInsertObservation;
+    }
+
+    @Setting(SosSettings.BULK_INSERT_OBSERVATION)
+    public synchronized void setBulkInsertObservation(final boolean bulkInsertObservation) {
+        this.bulkInsertObservation = bulkInsertObservation;
+    }
+
+    public synchronized boolean isBulkInsertObservation() {
+        return bulkInsertObservation;
+    }
+
     @Override
     public boolean isSupported() {
         return HibernateHelper.isEntitySupported(ProcedureHistoryEntity.class);
     }
 
     @Override
-    public synchronized InsertObservationResponse insertObservation(final InsertObservationRequest request)
+    public InsertObservationResponse insertObservation(final InsertObservationRequest request)
+            throws OwsExceptionReport {
+        if (isConcurrentInsertObservation()) {
+            List<Lock> locks = getConstellationLocks().lock(request.getObservations());
+            try {
+                return insertObservation(request, MAX_CONCURRENT_INSERT_ATTEMPTS);
+            } finally {
+                getConstellationLocks().unlock(locks);
+            }
+        }
+        synchronized (this) {
+            return insertObservation(request, 1);
+        }
+    }
+
+    private InsertObservationResponse insertObservation(InsertObservationRequest request, int maxAttempts)
             throws OwsExceptionReport {
         final InsertObservationResponse response = new InsertObservationResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
-        Session session = null;
-        Transaction transaction = null;
-
-        // TODO: checkConstellation unit and set if available and not defined in
-        // DB
-        try {
-            session = getHibernateSessionHolder().getSession();
-            transaction = getTransaction(session);
-
-            CompositeOwsException exceptions = new CompositeOwsException();
-            InsertObservationCache cache = new InsertObservationCache();
-
-            cache.addOfferings(request.getOfferings());
-
-            // counter for batch flushing
-            int obsCount = 0;
-
-            for (final OmObservation sosObservation : request.getObservations()) {
-                // check strict spatial filtering profile
-                if (isStrictSpatialFilteringProfile() && !sosObservation.isSetSpatialFilteringProfileParameter()) {
-                    throw new MissingParameterValueException(Sos2Constants.InsertObservationParams.parameter)
-                            .withMessage(LOG_SAMPLING_GEOMETRY);
+        /*
+         * TODO: ... all the DS insertion stuff Requirement 68 proc/obsProp/Offering same obsType;
+         */
+        for (int attempt = 1;; attempt++) {
+            Session session = null;
+            Transaction transaction = null;
+            // TODO: checkConstellation unit and set if available and not defined in
+            // DB
+            try {
+                session = getHibernateSessionHolder().getSession();
+                transaction = getTransaction(session);
+                insertObservations(request, session);
+                session.flush();
+                transaction.commit();
+                return response;
+            } catch (PersistenceException pe) {
+                if (transaction != null) {
+                    transaction.rollback();
                 }
-
-                insertObservation(sosObservation, cache, exceptions, session);
-
-                // flush every FLUSH_INTERVAL
-                if (++obsCount % FLUSH_THRESHOLD == 0) {
-                    session.flush();
-                    session.clear();
-                    cache.clearConstellation();
+                if (attempt >= maxAttempts || !isConcurrentCreationConflict(pe)) {
+                    handleHibernateException(pe);
                 }
+                LOGGER.debug("Concurrent creation conflict while inserting observations, retry {} of {}", attempt,
+                        maxAttempts - 1, pe);
+            } finally {
+                getHibernateSessionHolder().returnSession(session);
             }
+        }
+    }
+
+    private void insertObservations(InsertObservationRequest request, Session session) throws OwsExceptionReport {
+        CompositeOwsException exceptions = new CompositeOwsException();
+        InsertObservationCache cache =
+                new InsertObservationCache(isBulkInsertObservation() ? new DeferredDatasetUpdates() : null);
 
-            request.setOfferings(Lists.newArrayList(cache.getAllOfferings()));
+        cache.addOfferings(request.getOfferings());
 
-            // if no observationConstellation is valid, throw exception
-            if (exceptions.size() == request.getObservations().size()) {
-                throw exceptions;
+        // counter for batch flushing
+        int obsCount = 0;
+
+        for (final OmObservation sosObservation : request.getObservations()) {
+            // check strict spatial filtering profile
+            if (isStrictSpatialFilteringProfile() && !sosObservation.isSetSpatialFilteringProfileParameter()) {
+                throw new MissingParameterValueException(Sos2Constants.InsertObservationParams.parameter)
+                        .withMessage(LOG_SAMPLING_GEOMETRY);
             }
 
-            session.flush();
-            transaction.commit();
-        } catch (PersistenceException pe) {
-            if (transaction != null) {
-                transaction.rollback();
+            insertObservation(sosObservation, cache, exceptions, session);
+
+            // flush every FLUSH_INTERVAL
+            if (++obsCount % FLUSH_THRESHOLD == 0) {
+                applyDeferredDatasetUpdates(cache, session);
+                session.flush();
+                session.clear();
+                cache.clearConstellation();
             }
-            handleHibernateException(pe);
-        } finally {
-            getHibernateSessionHolder().returnSession(session);
         }
-        /*
-         * TODO: ... all the DS insertion stuff Requirement 68 proc/obsProp/Offering same obsType;
-         */
+        applyDeferredDatasetUpdates(cache, session);
+
+        request.setOfferings(Lists.newArrayList(cache.getAllOfferings()));
 
-        return response;
+        // if no observationConstellation is valid, throw exception
+        if (exceptions.size() == request.getObservations().size()) {
+            throw exceptions;
+        }
     }
 
     private void insertObservation(OmObservation sosObservation, InsertObservationCache cache,
@@ -248,10 +305,12 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
             DatasetEntity dataset = null;
             if (sosObservation.getValue() instanceof SingleObservationValue) {
                 dataset = observationDAO.insertObservationSingleValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDeferredDatasetUpdates(), session);
             } else if (sosObservation.getValue() instanceof MultiObservationValues) {
                 dataset = observationDAO.insertObservationMultiValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDeferredDatasetUpdates(), session);
             }
             if (dataset != null && cache.containsConstellation(sosObsConst, offeringID)
                     && !cache.get(sosObsConst, offeringID).equals(dataset)) {
@@ -260,6 +319,12 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         }
     }
 
+    private void applyDeferredDatasetUpdates(InsertObservationCache cache, Session session) {
+        if (cache.getDeferredDatasetUpdates() != null && !cache.getDeferredDatasetUpdates().isEmpty()) {
+            cache.getDeferredDatasetUpdates().apply(getDaoFactory().getSeriesDAO(), session);
+        }
+    }
+
     protected void checkSpatialFilteringProfile(OmObservation sosObservation) throws CodedException {
         // checkConstellation
         if (isStrictSpatialFilteringProfile() && !sosObservation.isSetSpatialFilteringProfileParameter()) {
@@ -281,6 +346,36 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         }
     }
 
+    /**
+     * Check if the exception is caused by a unique constraint violation of a
+     * concurrently created dataset, feature or other related entity, which can
+     * be resolved by retrying the insertion. Violations of the observation
+     * constraints are never retried.
+     *
+     * @param pe
+     *            the exception thrown during insertion
+     * @return <code>true</code>, if the insertion should be retried
+     */
+    private boolean isConcurrentCreationConflict(PersistenceException pe) {
+        ConstraintViolationException cve = null;
+        if (pe instanceof ConstraintViolationException) {
+            cve = (ConstraintViolationException) pe;
+        } else if (pe.getCause() instanceof ConstraintViolationException) {
+            cve = (ConstraintViolationException) pe.getCause();
+        }
+        return cve != null && !isObservationConstraint(cve.getConstraintName()) && !isObservationConstraint(
+                cve.getSQLException() != null ? cve.getSQLException().getMessage() : cve.getMessage());
+    }
+
+    private boolean isObservationConstraint(String message) {
+        if (Strings.isNullOrEmpty(message)) {
+            return false;
+        }
+        String lowerCase = message.toLowerCase();
+        return lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTITY.toLowerCase())
+                || lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY.toLowerCase());
+    }
+
     private void handleConstraintViolationException(ConstraintViolationException cve, PersistenceException pe,
             HTTPStatus status) throws OwsExceptionReport {
         CompositeOwsException ce = new CompositeOwsException();
@@ -361,6 +456,10 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         return sessionHolder;
     }
 
+    private ObservationConstellationLocks getConstellationLocks() {
+        return constellationLocks;
+    }
+
     @VisibleForTesting
     protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
         this.daoFactory = daoFactory;
@@ -386,6 +485,16 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
 
         private final HashMultimap<AbstractFeature, String> relatedFeatureCheckedMap = HashMultimap.create();
 
+        private final DeferredDatasetUpdates deferredDatasetUpdates;
+
+        InsertObservationCache(DeferredDatasetUpdates deferredDatasetUpdates) {
+            this.deferredDatasetUpdates = deferredDatasetUpdates;
+        }
+
+        public DeferredDatasetUpdates getDeferredDatasetUpdates() {
+            return deferredDatasetUpdates;
+        }
+
         public DatasetEntity get(OmObservationConstellation oc, String offering) {
             return this.obsConstOfferingDatasetTable.get(oc, offering);
         }
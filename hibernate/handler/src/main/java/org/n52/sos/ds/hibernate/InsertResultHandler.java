@@ -27,11 +27,12 @@
  */
 package org.n52.sos.ds.hibernate;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -88,6 +89,7 @@ import org.n52.shetland.ogc.swe.simpleType.SweAbstractUomType;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.sos.ds.AbstractInsertResultHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.DataAvailabilityResultTimeCache;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationContext;
@@ -102,6 +104,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -137,10 +140,17 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private boolean insertAdditionallyAsProfile;
 
+    private DataAvailabilityResultTimeCache resultTimeCache;
+
     public InsertResultHandler() {
         super(SosConstants.SOS);
     }
 
+    @Inject
+    public void setDataAvailabilityResultTimeCache(Optional<DataAvailabilityResultTimeCache> resultTimeCache) {
+        this.resultTimeCache = resultTimeCache.orElse(null);
+    }
+
     @Override
     public void init() {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -156,9 +166,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         Session session = null;
         Transaction transaction = null;
 
-        Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
-        Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
-        Map<String, FormatEntity> formatCache = Maps.newHashMap();
+        InsertionCaches caches = new InsertionCaches();
+        boolean inserted = false;
 
         try {
             session = getHibernateSessionHolder().getSession();
@@ -175,72 +184,31 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 response.setObservations(observations);
             }
 
-            final AbstractSeriesDAO obsConstDao = getDaoFactory().getSeriesDAO();
-            final FormatDAO obsTypeDao = getDaoFactory().getObservationTypeDAO();
-            Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
-
             int insertion = 0;
             final int size = observations.size();
-            final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
             LOGGER.debug("Start saving {} observations.", size);
-            Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
-            for (final OmObservation observation : observations) {
-                OmObservationConstellation omObsConst = observation.getObservationConstellation();
-                if (!obsConsts.containsKey(omObsConst)) {
-                    DatasetEntity oc = obsConstDao.getSeries(omObsConst, session);
-                    if (oc != null) {
-                        obsConsts.put(omObsConst, oc);
-                    } else if (isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
-                            && observation.getValue().isSetValue()
-                            && observation.getValue().getValue() instanceof ProfileValue) {
-                        obsConsts.put(omObsConst, insertObservationConstellationForProfiles(obsConstDao, obsTypeDao,
-                                observation, session));
-                    }
-                }
-                DatasetEntity obsConst = obsConsts.get(observation.getObservationConstellation());
-                AbstractFeatureEntity feature = null;
-                if (resultTemplate.isSetFeature()) {
-                    feature = resultTemplate.getFeature();
-                } else {
-                    feature = getFeature(omObsConst.getFeatureOfInterest(), featureEntityMap, session);
-                }
-                try {
-                    if (observation.getValue() instanceof SingleObservationValue) {
-                        observationDAO.insertObservationSingleValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
-                    } else if (observation.getValue() instanceof MultiObservationValues) {
-                        observationDAO.insertObservationMultiValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
-                    }
-                    if (!abortInsertResultForExistingObservations()) {
-                        transaction.commit();
-                        if (!session.isOpen()) {
-                            session = getHibernateSessionHolder().getSession();
-                        }
-                        transaction = getTransaction(session);
-                    }
-                } catch (PersistenceException pe) {
-                    if (abortInsertResultForExistingObservations()) {
-                        throw pe;
-                    } else {
-                        transaction.rollback();
-                        if (session.isConnected() || session.isOpen()) {
-                            session.clear();
-                        } else {
-                            session = getHibernateSessionHolder().getSession();
-                        }
-                        transaction = getTransaction(session);
-                        LOGGER.debug("Already existing observation would be ignored!", pe);
+            if (abortInsertResultForExistingObservations()) {
+                for (final OmObservation observation : observations) {
+                    insertObservation(observation, resultTemplate, caches, session);
+                    if ((++insertion % FLUSH_THRESHOLD) == 0) {
+                        session.flush();
+                        session.clear();
+                        LOGGER.debug("Saved {}/{} observations.", insertion, size);
                     }
                 }
-                if ((++insertion % FLUSH_THRESHOLD) == 0) {
-                    session.flush();
-                    session.clear();
+                transaction.commit();
+            } else {
+                for (final List<OmObservation> group : Lists.partition(observations, FLUSH_THRESHOLD)) {
+                    session = insertGroup(group, resultTemplate, caches, session);
+                    insertion += group.size();
                     LOGGER.debug("Saved {}/{} observations.", insertion, size);
                 }
             }
             LOGGER.debug("Saved {} observations.", size);
-            transaction.commit();
+            if (resultTimeCache != null) {
+                resultTimeCache.add(observations);
+            }
+            inserted = true;
         } catch (final HibernateException he) {
             if (transaction != null) {
                 transaction.rollback();
@@ -248,11 +216,118 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             // XXX exception text
             throw new NoApplicableCodeException().causedBy(he);
         } finally {
+            if (!inserted && resultTimeCache != null) {
+                // groups may have been committed before the failure
+                resultTimeCache.invalidateAll();
+            }
             getHibernateSessionHolder().returnSession(session);
         }
         return response;
     }
 
+    /**
+     * Insert a group of observations and commit them at once. If the commit
+     * fails, e.g. because one of the observations already exists, the group is
+     * rolled back and the observations are inserted and committed one by one,
+     * so that only the existing observations are ignored.
+     *
+     * @param group
+     *            Observations to insert
+     * @param resultTemplate
+     *            Associated result template
+     * @param caches
+     *            Entity caches of this request
+     * @param session
+     *            Hibernate session
+     * @return The Hibernate session to continue with
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private Session insertGroup(List<OmObservation> group, ResultTemplateEntity resultTemplate,
+            InsertionCaches caches, Session session) throws OwsExceptionReport {
+        Session current = session;
+        Transaction transaction = getTransaction(current);
+        try {
+            for (final OmObservation observation : group) {
+                insertObservation(observation, resultTemplate, caches, current);
+            }
+            transaction.commit();
+            current = clearOrReopen(current);
+            return current;
+        } catch (PersistenceException pe) {
+            LOGGER.debug("Saving the group of {} observations failed, saving them one by one!", group.size(), pe);
+            current = rollback(transaction, caches, current);
+        }
+        for (final OmObservation observation : group) {
+            transaction = getTransaction(current);
+            try {
+                insertObservation(observation, resultTemplate, caches, current);
+                transaction.commit();
+                current = clearOrReopen(current);
+            } catch (PersistenceException pe) {
+                current = rollback(transaction, caches, current);
+                LOGGER.debug("Already existing observation would be ignored!", pe);
+            }
+        }
+        return current;
+    }
+
+    private Session clearOrReopen(Session session) throws OwsExceptionReport {
+        if (session.isOpen()) {
+            session.clear();
+            return session;
+        }
+        return getHibernateSessionHolder().getSession();
+    }
+
+    /**
+     * Roll back the transaction and clear the session and the entity caches
+     * because they could contain entities that were inserted in the rolled
+     * back transaction.
+     */
+    private Session rollback(Transaction transaction, InsertionCaches caches, Session session)
+            throws OwsExceptionReport {
+        transaction.rollback();
+        caches.clear();
+        if (session.isConnected() || session.isOpen()) {
+            session.clear();
+            return session;
+        }
+        return getHibernateSessionHolder().getSession();
+    }
+
+    private void insertObservation(OmObservation observation, ResultTemplateEntity resultTemplate,
+            InsertionCaches caches, Session session) throws OwsExceptionReport {
+        OmObservationConstellation omObsConst = observation.getObservationConstellation();
+        if (!caches.obsConsts.containsKey(omObsConst)) {
+            DatasetEntity oc = getDaoFactory().getSeriesDAO().getSeries(omObsConst, session);
+            if (oc != null) {
+                caches.obsConsts.put(omObsConst, oc);
+            } else if (isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
+                    && observation.getValue().isSetValue()
+                    && observation.getValue().getValue() instanceof ProfileValue) {
+                caches.obsConsts.put(omObsConst, insertObservationConstellationForProfiles(
+                        getDaoFactory().getSeriesDAO(), getDaoFactory().getObservationTypeDAO(), observation,
+                        session));
+            }
+        }
+        DatasetEntity obsConst = caches.obsConsts.get(omObsConst);
+        AbstractFeatureEntity feature = null;
+        if (resultTemplate.isSetFeature()) {
+            feature = resultTemplate.getFeature();
+        } else {
+            feature = getFeature(omObsConst.getFeatureOfInterest(), caches.features, session);
+        }
+        final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
+        if (observation.getValue() instanceof SingleObservationValue) {
+            observationDAO.insertObservationSingleValue(obsConst, feature, observation, caches.codespaces,
+                    caches.units, caches.formats, session);
+        } else if (observation.getValue() instanceof MultiObservationValues) {
+            observationDAO.insertObservationMultiValue(obsConst, feature, observation, caches.codespaces,
+                    caches.units, caches.formats, session);
+        }
+    }
+
     @Override
     public boolean isSupported() {
         return HibernateHelper.isEntitySupported(ResultTemplateEntity.class);
@@ -311,8 +386,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             throws OwsExceptionReport {
         final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
         final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation = getObservation(resultTemplate, blockValues,
+        final OmObservation singleObservation = getObservation(resultTemplate, resultValues,
                 resultStructure.get().get(), resultEncoding.get().get(), session);
         // final AbstractFeature feature =
         // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
@@ -406,8 +480,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *
      * @param resultTemplate
      *            Associated ResultTemplate
-     * @param blockValues
-     *            Block values from result values
+     * @param resultValues
+     *            Result values
      * @param resultStructure
      *            Associated ResultStructure
      * @param encoding
@@ -418,7 +492,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
+    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String resultValues,
             final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
             throws OwsExceptionReport {
         final int resultTimeIndex = helper.hasResultTime(resultStructure);
@@ -436,7 +510,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 Sets.newHashSet(resultTimeIndex, phenomenonTimeIndex), encoding);
 
         final MultiObservationValues<SweDataArray> sosValues =
-                createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
+                createObservationValueFrom(resultValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
 
         final OmObservation observation = new OmObservation();
         observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
@@ -501,10 +575,12 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Create internal observation value
+     * Create internal observation value. The result values are separated into
+     * blocks and tokens in a single pass without splitting the whole result
+     * values String into intermediate arrays.
      *
-     * @param blockValues
-     *            Block values from result values
+     * @param resultValues
+     *            Result values
      * @param recordFromResultStructure
      *            Associated ResultStructure
      * @param encoding
@@ -517,8 +593,9 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
-            final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
+    @VisibleForTesting
+    protected MultiObservationValues<SweDataArray> createObservationValueFrom(final String resultValues,
+            final SweDataRecord recordFromResultStructure, final SweAbstractEncoding encoding,
             final int resultTimeIndex, final int phenomenonTimeIndex) throws OwsExceptionReport {
         final SweDataArray dataArray = new SweDataArray();
         dataArray.setElementType(recordFromResultStructure);
@@ -527,12 +604,27 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         final SweDataArrayValue dataArrayValue = new SweDataArrayValue();
         dataArrayValue.setValue(dataArray);
 
-        for (final String block : blockValues) {
-            if (block != null && !block.isEmpty()) {
-                final String[] singleValues = getSingleValues(block, encoding);
-                if (singleValues != null && singleValues.length > 0) {
-                    dataArrayValue.addBlock(Arrays.asList(singleValues));
+        if (encoding instanceof SweTextEncoding && resultValues != null) {
+            final String blockSeparator = ((SweTextEncoding) encoding).getBlockSeparator();
+            final String tokenSeparator = ((SweTextEncoding) encoding).getTokenSeparator();
+            final int tokens = recordFromResultStructure.getFields().size();
+            int blockStart = 0;
+            boolean first = true;
+            while (blockStart <= resultValues.length()) {
+                int blockEnd = resultValues.indexOf(blockSeparator, blockStart);
+                if (blockEnd < 0) {
+                    blockEnd = resultValues.length();
+                }
+                if (blockEnd > blockStart) {
+                    final List<String> singleValues =
+                            separateValues(resultValues, blockStart, blockEnd, tokenSeparator, tokens);
+                    // skip the preceding count value
+                    if (!first || singleValues.size() > 1) {
+                        dataArrayValue.addBlock(singleValues);
+                    }
                 }
+                first = false;
+                blockStart = blockEnd + blockSeparator.length();
             }
         }
         final MultiObservationValues<SweDataArray> sosValues = new MultiObservationValues<SweDataArray>();
@@ -541,73 +633,37 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     }
 
     /**
-     * Get single values from a block value
-     *
-     * @param block
-     *            Block value
-     * @param encoding
-     *            ResultEncoding
-     * @return Single value array
-     */
-    private String[] getSingleValues(final String block, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            return separateValues(block, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Get block values from result values
-     *
-     * @param resultValues
-     *            Result values
-     * @param encoding
-     *            ResultEncoding
-     * @return Block value array
-     */
-    private String[] getBlockValues(final String resultValues, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            final String[] blockValues = separateValues(resultValues, textEncoding.getBlockSeparator());
-            return checkForCountValue(blockValues, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Check if the block values from result values contains a preceding count value
-     *
-     * @param blockValues
-     *            Block values from result values
-     * @param tokenSeparator
-     *            Token separator
-     * @return Block value array without preceding count value
-     */
-    private String[] checkForCountValue(final String[] blockValues, final String tokenSeparator) {
-        if (blockValues != null && blockValues.length > 0) {
-            if (blockValues[0].contains(tokenSeparator)) {
-                return blockValues;
-            } else {
-                final String[] blockValuesWithoutCount = new String[blockValues.length - 1];
-                System.arraycopy(blockValues, 1, blockValuesWithoutCount, 0, blockValuesWithoutCount.length);
-                return blockValuesWithoutCount;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Separate values from String with separator
+     * Separate the values of a block by the literal separator
      *
      * @param values
      *            Value String
+     * @param start
+     *            Start index of the block
+     * @param end
+     *            End index of the block, exclusive
      * @param separator
      *            Separator
-     * @return Separated values as array
+     * @param expected
+     *            Expected number of values
+     * @return Separated values
      */
-    private String[] separateValues(final String values, final String separator) {
-        return values.split(separator, Integer.MAX_VALUE);
+    private List<String> separateValues(final String values, final int start, final int end, final String separator,
+            final int expected) {
+        final List<String> separated = new ArrayList<>(expected);
+        final int last = end - separator.length();
+        int tokenStart = start;
+        int i = start;
+        while (i <= last) {
+            if (values.startsWith(separator, i)) {
+                separated.add(values.substring(tokenStart, i));
+                i += separator.length();
+                tokenStart = i;
+            } else {
+                i++;
+            }
+        }
+        separated.add(values.substring(tokenStart, end));
+        return separated;
     }
 
     private DatasetEntity insertObservationConstellationForProfiles(AbstractSeriesDAO obsConstDao,
@@ -646,6 +702,31 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return this.convertComplexProfileToSingleProfiles;
     }
 
+    /**
+     * Entities that were queried or inserted while inserting the result
+     * values.
+     */
+    private static class InsertionCaches {
+
+        private final Map<String, CodespaceEntity> codespaces = Maps.newHashMap();
+
+        private final Map<UoM, UnitEntity> units = Maps.newHashMap();
+
+        private final Map<String, FormatEntity> formats = Maps.newHashMap();
+
+        private final Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
+
+        private final Map<String, AbstractFeatureEntity> features = new HashMap<>();
+
+        void clear() {
+            codespaces.clear();
+            units.clear();
+            formats.clear();
+            obsConsts.clear();
+            features.clear();
+        }
+    }
+
     private synchronized DaoFactory getDaoFactory() {
         return daoFactory;
     }
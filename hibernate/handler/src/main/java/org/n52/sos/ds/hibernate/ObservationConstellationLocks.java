@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Striped locks for the observation constellations (procedure, observable
+ * property, offering and feature) of an InsertObservation request. The locks
+ * are held until the insertion transaction is committed, so that concurrent
+ * requests for the same constellation do not create duplicate datasets or
+ * features, while requests for disjoint constellations run in parallel.
+ */
+public class ObservationConstellationLocks {
+
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private static final String SEPARATOR = "|";
+
+    private static final String FEATURE_PREFIX = "foi" + SEPARATOR;
+
+    private final Striped<Lock> stripes;
+
+    public ObservationConstellationLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ObservationConstellationLocks(int stripes) {
+        this.stripes = Striped.lazyWeakLock(stripes);
+    }
+
+    /**
+     * Acquire the locks for all constellations and features of the
+     * observations. The locks are always acquired in the same stripe order to
+     * avoid deadlocks between requests with overlapping constellations.
+     *
+     * @param observations
+     *            the observations to insert
+     * @return the acquired locks which have to be passed to
+     *         {@link #unlock(List)}
+     */
+    public List<Lock> lock(Collection<OmObservation> observations) {
+        List<Lock> locks = Lists.newArrayList(stripes.bulkGet(getKeys(observations)));
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    /**
+     * Release the locks acquired by {@link #lock(Collection)}.
+     *
+     * @param locks
+     *            the acquired locks
+     */
+    public void unlock(List<Lock> locks) {
+        if (locks != null) {
+            for (Lock lock : Lists.reverse(locks)) {
+                lock.unlock();
+            }
+        }
+    }
+
+    protected Set<String> getKeys(Collection<OmObservation> observations) {
+        Set<String> keys = new TreeSet<>();
+        for (OmObservation observation : observations) {
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            String featureOfInterest = constellation.getFeatureOfInterestIdentifier();
+            String prefix = constellation.getProcedureIdentifier() + SEPARATOR
+                    + constellation.getObservablePropertyIdentifier() + SEPARATOR;
+            keys.addAll(constellation.getOfferings().stream()
+                    .map(offering -> prefix + offering + SEPARATOR + featureOfInterest)
+                    .collect(Collectors.toSet()));
+            keys.add(FEATURE_PREFIX + featureOfInterest);
+        }
+        return keys;
+    }
+
+}
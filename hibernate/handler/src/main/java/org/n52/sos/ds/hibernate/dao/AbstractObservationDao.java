@@ -69,6 +69,7 @@ import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
 import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingStrategy;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -98,6 +99,14 @@ public abstract class AbstractObservationDao extends AbstractDaoImpl {
 
     private int chunkSize;
 
+    private boolean keysetPagination = true;
+
+    private boolean valueProjection;
+
+    private HibernateStreamingStrategy streamingStrategy = HibernateStreamingStrategy.CHUNK;
+
+    private int fetchSize;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -141,6 +150,87 @@ public abstract class AbstractObservationDao extends AbstractDaoImpl {
         return chunkSize;
     }
 
+    /**
+     * Set whether keyset pagination should be used for chunk streaming
+     *
+     * @param keysetPagination
+     *            Value to set
+     */
+    @Setting(HibernateStreamingSettings.KEYSET_PAGINATION)
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    /**
+     * Is keyset pagination used for chunk streaming
+     *
+     * @return <code>true</code>, if keyset pagination is used
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Set whether only the value columns should be queried for time value
+     * pair responses
+     *
+     * @param valueProjection
+     *            Value to set
+     */
+    @Setting(HibernateStreamingSettings.VALUE_PROJECTION)
+    public void setValueProjection(boolean valueProjection) {
+        this.valueProjection = valueProjection;
+    }
+
+    /**
+     * Are only the value columns queried for time value pair responses
+     *
+     * @return <code>true</code>, if only the value columns are queried
+     */
+    public boolean isValueProjection() {
+        return valueProjection;
+    }
+
+    /**
+     * Set the datasource streaming strategy
+     *
+     * @param streamingStrategy
+     *            Strategy to set
+     */
+    @Setting(HibernateStreamingSettings.STRATEGY)
+    public void setStreamingStrategy(String streamingStrategy) {
+        this.streamingStrategy = HibernateStreamingStrategy.fromString(streamingStrategy);
+    }
+
+    /**
+     * Get the datasource streaming strategy
+     *
+     * @return the strategy
+     */
+    public HibernateStreamingStrategy getStreamingStrategy() {
+        return streamingStrategy;
+    }
+
+    /**
+     * Set the fetch size for cursor streaming
+     *
+     * @param fetchSize
+     *            Size to set
+     */
+    @Setting(HibernateStreamingSettings.FETCH_SIZE)
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Get the fetch size
+     *
+     * @return the fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
     /**
      * Get ObservationConstellations and check if size limit is exceeded
      *
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.GetDataAvailabilitySettings;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.UpdateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+/**
+ * Bounded cache of the distinct result times of the observation
+ * constellations requested by GetDataAvailability without a phenomenon time
+ * filter. The result times of a constellation are loaded on first use and
+ * afterwards maintained incrementally: the result times of inserted
+ * observations are merged into the matching entries. InsertResult merges the
+ * result times of the unfolded observations via {@link #add(Collection)},
+ * because the observation of a {@link ResultInsertion} is the not unfolded
+ * SWE array observation without result time. Observation deletions, sensor
+ * deletions and cache updates invalidate all entries.
+ *
+ * The size of the cache is limited by the total number of cached result times.
+ *
+ * @since 6.0.0
+ */
+@Configurable
+public class DataAvailabilityResultTimeCache implements EventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAvailabilityResultTimeCache.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            ObservationInsertion.class,
+            SensorDeletion.class,
+            DeleteObservationEvent.class,
+            UpdateCache.class);
+
+    private final AtomicLong version = new AtomicLong();
+
+    private long size = 100000L;
+
+    private long expiry = 60L;
+
+    private Cache<Key, List<Date>> cache;
+
+    /**
+     * Set the maximum number of result times to keep in the cache
+     *
+     * @param size
+     *            Maximum number of result times, the cache is disabled if
+     *            <code>0</code>
+     */
+    @Setting(GetDataAvailabilitySettings.RESULT_TIMES_CACHE_SIZE)
+    public synchronized void setSize(int size) {
+        this.size = Math.max(size, 0);
+        this.cache = null;
+    }
+
+    /**
+     * Set the time in minutes after which cached result times expire
+     *
+     * @param expiry
+     *            Expiry in minutes, no expiry if <code>0</code>
+     */
+    @Setting(GetDataAvailabilitySettings.RESULT_TIMES_CACHE_EXPIRY)
+    public synchronized void setExpiry(int expiry) {
+        this.expiry = Math.max(expiry, 0);
+        this.cache = null;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Get the distinct result times of the observation constellation from the
+     * cache or load and cache them.
+     *
+     * @param procedure
+     *            the procedure identifier
+     * @param observableProperty
+     *            the observable property identifier
+     * @param featureOfInterest
+     *            the feature of interest identifier
+     * @param offerings
+     *            the requested offerings, empty for all offerings
+     * @param loader
+     *            loads the result times if they are not cached
+     * @return the ascending distinct result times
+     * @throws OwsExceptionReport
+     *             If the loader fails
+     */
+    public List<Date> getResultTimes(String procedure, String observableProperty, String featureOfInterest,
+            Collection<String> offerings, ResultTimeLoader loader) throws OwsExceptionReport {
+        Cache<Key, List<Date>> entries = getCache();
+        if (entries == null) {
+            return loader.load();
+        }
+        Key key = new Key(procedure, observableProperty, featureOfInterest, offerings);
+        List<Date> cached = entries.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long queryVersion = version.get();
+        List<Date> resultTimes = ImmutableList.copyOf(new TreeSet<>(loader.load()));
+        if (resultTimes.size() <= size) {
+            synchronized (version) {
+                if (queryVersion == version.get()) {
+                    entries.put(key, resultTimes);
+                }
+            }
+        }
+        return resultTimes;
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof ObservationInsertion) {
+            add(((ObservationInsertion) event).getRequest().getObservations());
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Merge the result times of inserted observations into the matching
+     * entries. The result times are grouped by observation constellation
+     * first, so each entry is merged once per insertion. All entries are
+     * invalidated if an observation does not provide the information to find
+     * the matching entries.
+     *
+     * @param observations
+     *            the inserted observations
+     */
+    public void add(Collection<OmObservation> observations) {
+        Map<Key, SortedSet<Date>> inserted = new HashMap<>();
+        if (observations != null) {
+            for (OmObservation observation : observations) {
+                OmObservationConstellation constellation = observation.getObservationConstellation();
+                if (constellation == null || !observation.isSetResultTime() || observation.isTemplateResultTime()
+                        || observation.getResultTime().getValue() == null) {
+                    LOGGER.debug("Invalidate cached result times for observation without result time");
+                    invalidateAll();
+                    return;
+                }
+                inserted.computeIfAbsent(Key.of(constellation), k -> new TreeSet<>())
+                        .add(observation.getResultTime().getValue().toDate());
+            }
+        }
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, List<Date>> entries = cache;
+            if (entries == null || inserted.isEmpty()) {
+                return;
+            }
+            entries.asMap().replaceAll((key, resultTimes) -> merge(resultTimes, key, inserted));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, List<Date>> entries = cache;
+            if (entries != null) {
+                entries.invalidateAll();
+            }
+        }
+    }
+
+    private List<Date> merge(List<Date> resultTimes, Key key, Map<Key, SortedSet<Date>> inserted) {
+        TreeSet<Date> merged = null;
+        for (Map.Entry<Key, SortedSet<Date>> entry : inserted.entrySet()) {
+            if (key.matches(entry.getKey())) {
+                for (Date resultTime : entry.getValue()) {
+                    if (merged == null && Collections.binarySearch(resultTimes, resultTime) < 0) {
+                        merged = new TreeSet<>(resultTimes);
+                    }
+                    if (merged != null) {
+                        merged.add(resultTime);
+                    }
+                }
+            }
+        }
+        return merged != null ? ImmutableList.copyOf(merged) : resultTimes;
+    }
+
+    private synchronized Cache<Key, List<Date>> getCache() {
+        if (cache == null && isEnabled()) {
+            CacheBuilder<Key, List<Date>> builder = CacheBuilder.newBuilder().maximumWeight(size)
+                    .weigher((Key key, List<Date> resultTimes) -> Math.max(resultTimes.size(), 1));
+            if (expiry > 0) {
+                builder.expireAfterWrite(expiry, TimeUnit.MINUTES);
+            }
+            cache = builder.build();
+        }
+        return cache;
+    }
+
+    /**
+     * Loader of the result times which are not cached
+     */
+    @FunctionalInterface
+    public interface ResultTimeLoader {
+        List<Date> load() throws OwsExceptionReport;
+    }
+
+    private static final class Key {
+
+        private final String procedure;
+
+        private final String observableProperty;
+
+        private final String featureOfInterest;
+
+        private final Set<String> offerings;
+
+        Key(String procedure, String observableProperty, String featureOfInterest, Collection<String> offerings) {
+            this.procedure = procedure;
+            this.observableProperty = observableProperty;
+            this.featureOfInterest = featureOfInterest;
+            this.offerings = offerings != null ? new HashSet<>(offerings) : Collections.emptySet();
+        }
+
+        static Key of(OmObservationConstellation constellation) {
+            return new Key(constellation.getProcedureIdentifier(), constellation.getObservablePropertyIdentifier(),
+                    constellation.getFeatureOfInterestIdentifier(), constellation.getOfferings());
+        }
+
+        /**
+         * @param inserted
+         *            the key of inserted observations, whose offerings are the
+         *            offerings of the observations
+         * @return if the inserted observations belong to this entry
+         */
+        boolean matches(Key inserted) {
+            return Objects.equals(procedure, inserted.procedure)
+                    && Objects.equals(observableProperty, inserted.observableProperty)
+                    && Objects.equals(featureOfInterest, inserted.featureOfInterest)
+                    && (offerings.isEmpty() || inserted.offerings.isEmpty()
+                            || !Collections.disjoint(offerings, inserted.offerings));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(procedure, observableProperty, featureOfInterest, offerings);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(procedure, other.procedure)
+                    && Objects.equals(observableProperty, other.observableProperty)
+                    && Objects.equals(featureOfInterest, other.featureOfInterest)
+                    && Objects.equals(offerings, other.offerings);
+        }
+    }
+
+}
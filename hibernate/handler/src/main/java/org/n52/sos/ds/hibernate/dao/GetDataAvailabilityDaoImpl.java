@@ -79,11 +79,18 @@ public class GetDataAvailabilityDaoImpl extends AbstractDaoImpl implements org.n
 
     private HibernateSessionHolder sessionHolder;
 
+    private DataAvailabilityResultTimeCache resultTimeCache;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setDataAvailabilityResultTimeCache(DataAvailabilityResultTimeCache resultTimeCache) {
+        this.resultTimeCache = resultTimeCache;
+    }
+
     @Override
     public Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability) throws OwsExceptionReport {
         Session session = null;
@@ -151,6 +158,25 @@ public class GetDataAvailabilityDaoImpl extends AbstractDaoImpl implements org.n
     }
 
     private List<TimeInstant> queryResultTime(DataAvailability dataAvailability, GetDataAvailabilityRequest request,
+            Session session) throws OwsExceptionReport {
+        List<Date> dates;
+        if (resultTimeCache != null && !hasPhenomenonTimeFilter(request.getExtensions())) {
+            dates = resultTimeCache.getResultTimes(dataAvailability.getProcedure().getHref(),
+                    dataAvailability.getObservedProperty().getHref(),
+                    dataAvailability.getFeatureOfInterest().getHref(), request.getOfferings(),
+                    () -> queryResultTimeDates(dataAvailability, request, session));
+        } else {
+            dates = queryResultTimeDates(dataAvailability, request, session);
+        }
+        List<TimeInstant> resultTimes = Lists.newArrayListWithCapacity(dates.size());
+        for (Date date : dates) {
+            resultTimes.add(new TimeInstant(date));
+        }
+        return resultTimes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Date> queryResultTimeDates(DataAvailability dataAvailability, GetDataAvailabilityRequest request,
             Session session)
             throws UnsupportedTimeException, UnsupportedValueReferenceException, UnsupportedOperatorException {
         Criteria c = getDefaultObservationInfoCriteria(session);
@@ -162,7 +188,7 @@ public class GetDataAvailabilityDaoImpl extends AbstractDaoImpl implements org.n
         datasetCriteria.createCriteria(DatasetEntity.PROPERTY_PHENOMENON)
                 .add(Restrictions.eq(PhenomenonEntity.IDENTIFIER, dataAvailability.getObservedProperty().getHref()));
         if (request.isSetOfferings()) {
-            c.createCriteria(DatasetEntity.PROPERTY_OFFERING)
+            datasetCriteria.createCriteria(DatasetEntity.PROPERTY_OFFERING)
                     .add(Restrictions.in(OfferingEntity.IDENTIFIER, request.getOfferings()));
         }
         if (hasPhenomenonTimeFilter(request.getExtensions())) {
@@ -171,16 +197,13 @@ public class GetDataAvailabilityDaoImpl extends AbstractDaoImpl implements org.n
         c.setProjection(Projections.distinct(Projections.property(DataEntity.PROPERTY_RESULT_TIME)));
         c.addOrder(Order.asc(DataEntity.PROPERTY_RESULT_TIME));
         LOGGER.trace("QUERY getResultTimesFromObservation(): {}", HibernateHelper.getSqlString(c));
-        List<TimeInstant> resultTimes = Lists.newArrayList();
-        for (Date date : (List<Date>) c.list()) {
-            resultTimes.add(new TimeInstant(date));
-        }
-        return resultTimes;
+        return (List<Date>) c.list();
     }
 
     private Criteria getDefaultObservationInfoCriteria(Session session) {
-        return session.createCriteria(DataEntity.class).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
-                .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        // the distinct result time projection makes a root entity transformer
+        // obsolete
+        return session.createCriteria(DataEntity.class).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
     }
 
     /**
@@ -56,7 +56,6 @@ import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
 import org.n52.sos.ds.hibernate.values.dataset.HibernateChunkSeriesStreamingValue;
-import org.n52.sos.ds.hibernate.values.dataset.HibernateSeriesStreamingValue;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -215,9 +214,11 @@ public class GetObservationByIdDaoImpl extends AbstractObservationDao
                             getProcedureDescriptionFormat(request.getResponseFormat()), observationCreatorContext,
                             session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue = new HibernateChunkSeriesStreamingValue(
+            HibernateChunkSeriesStreamingValue streamingValue = new HibernateChunkSeriesStreamingValue(
                     sessionHolder.getConnectionProvider(), daoFactory, request, series, getChunkSize());
             streamingValue.setResponseFormat(request.getResponseFormat());
+            streamingValue.setKeysetPagination(isKeysetPagination());
+            streamingValue.setValueProjection(isValueProjection());
             streamingValue.setObservationTemplate(observationTemplate);
             observationTemplate.setValue(streamingValue);
             result.add(observationTemplate);
@@ -29,11 +29,14 @@ package org.n52.sos.ds.hibernate.dao;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -49,7 +52,11 @@ import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.janmayen.http.HTTPStatus;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.om.AbstractObservationStream;
 import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
@@ -60,11 +67,14 @@ import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.GlobalObservationResponseValues;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.util.DatasetTimeExtrema;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingStrategy;
 import org.n52.sos.ds.hibernate.values.dataset.HibernateChunkSeriesStreamingValue;
-import org.n52.sos.ds.hibernate.values.dataset.HibernateSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.dataset.HibernateCursorSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.dataset.HibernateDatasetValueCursor;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -152,7 +162,7 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
             } else {
                 observations.addAll(querySeriesObservation(request, session));
             }
-            response.setObservationCollection(ObservationStream.of(observations));
+            response.setObservationCollection(new ValueClosingObservationStream(observations));
             return response;
         } catch (ConverterException ce) {
             throw new NoApplicableCodeException().causedBy(ce).withMessage("Error while processing observation data!")
@@ -282,9 +292,23 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         final List<OmObservation> result = new LinkedList<OmObservation>();
         List<String> features = request.getFeatureIdentifiers();
         Criterion temporalFilterCriterion = getTemporalFilterCriterion(request);
-        List<DatasetEntity> serieses = daoFactory.getSeriesDAO().getSeries(request, features, session);
+        List<DatasetEntity> serieses = pruneSeriesByTimeExtrema(request,
+                daoFactory.getSeriesDAO().getSeries(request, features, session));
         checkMaxNumberOfReturnedSeriesSize(serieses.size());
         int maxNumberOfValuesPerSeries = getMaxNumberOfValuesPerSeries(serieses.size());
+        HibernateDatasetValueCursor cursor = null;
+        if (isCursorStreaming(request)) {
+            // the cursor returns the values ordered by dataset
+            serieses = serieses.stream().sorted(Comparator.comparing(DatasetEntity::getId))
+                    .collect(Collectors.toList());
+            List<Long> cursorDatasets = serieses.stream().filter(s -> !isTrajectory(s)).map(DatasetEntity::getId)
+                    .collect(Collectors.toList());
+            if (!cursorDatasets.isEmpty()) {
+                cursor = new HibernateDatasetValueCursor(sessionHolder.getConnectionProvider(), daoFactory, request,
+                        cursorDatasets, getFetchSize());
+                cursor.setTemporalFilterCriterion(temporalFilterCriterion);
+            }
+        }
         for (DatasetEntity series : serieses) {
             ObservationStream createSosObservationFromSeries = series.hasEreportingProfile()
                     ? HibernateObservationUtilities.createSosObservationFromEReportingSeries(series, request,
@@ -294,9 +318,14 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue = new HibernateChunkSeriesStreamingValue(
-                    sessionHolder.getConnectionProvider(), daoFactory, request, series, getChunkSize());
+            HibernateChunkSeriesStreamingValue streamingValue = cursor != null && !isTrajectory(series)
+                    ? new HibernateCursorSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series, getChunkSize(), cursor)
+                    : new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series, getChunkSize());
             streamingValue.setResponseFormat(request.getResponseFormat());
+            streamingValue.setKeysetPagination(isKeysetPagination());
+            streamingValue.setValueProjection(isValueProjection());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
             streamingValue.setMaxNumberOfValues(maxNumberOfValuesPerSeries);
@@ -304,9 +333,8 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
             result.add(observationTemplate);
         }
 
-        ObservationTimeExtrema timeExtrema =
-                daoFactory.getValueTimeDAO().getTimeExtremaForSeries(serieses, temporalFilterCriterion, session);
-        if (timeExtrema.isSetPhenomenonTimes()) {
+        ObservationTimeExtrema timeExtrema = getTimeExtremaForSeries(serieses, temporalFilterCriterion, session);
+        if (timeExtrema != null && timeExtrema.isSetPhenomenonTimes()) {
             response.setGlobalObservationValues(
                     new GlobalObservationResponseValues().setPhenomenonTime(timeExtrema.getPhenomenonTime()));
         }
@@ -314,6 +342,55 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         return result;
     }
 
+    /**
+     * Remove the series whose first and last value times can not match the
+     * phenomenon time filters of the request, so that no value queries are
+     * executed for them. Series are kept if the metadata of empty observations
+     * should be shown.
+     */
+    private List<DatasetEntity> pruneSeriesByTimeExtrema(GetObservationRequest request,
+            List<DatasetEntity> serieses) {
+        List<TemporalFilter> filters = request.getNotFirstLatestTemporalFilter();
+        if (filters.isEmpty() || profileHandler.getActiveProfile().isShowMetadataOfEmptyObservations()) {
+            return serieses;
+        }
+        List<DatasetEntity> pruned = serieses.stream()
+                .filter(s -> DatasetTimeExtrema.mayContainMatchingValues(s, filters)).collect(Collectors.toList());
+        if (pruned.size() < serieses.size()) {
+            LOGGER.debug("Skipped {} of {} series not matching the temporal filters", serieses.size() - pruned.size(),
+                    serieses.size());
+        }
+        return pruned;
+    }
+
+    /**
+     * Get the phenomenon time extrema of the series. Without temporal filter
+     * the extrema are derived from the first and last value times of the series
+     * if all of them provide these times.
+     */
+    private ObservationTimeExtrema getTimeExtremaForSeries(List<DatasetEntity> serieses,
+            Criterion temporalFilterCriterion, Session session) throws OwsExceptionReport {
+        if (serieses.isEmpty()) {
+            return null;
+        }
+        if (temporalFilterCriterion == null) {
+            ObservationTimeExtrema timeExtrema = DatasetTimeExtrema.getPhenomenonTimeExtrema(serieses);
+            if (timeExtrema != null) {
+                return timeExtrema;
+            }
+        }
+        return daoFactory.getValueTimeDAO().getTimeExtremaForSeries(serieses, temporalFilterCriterion, session);
+    }
+
+    private boolean isCursorStreaming(GetObservationRequest request) {
+        return HibernateStreamingStrategy.CURSOR.equals(getStreamingStrategy()) && !request.hasResultFilter();
+    }
+
+    private boolean isTrajectory(DatasetEntity dataset) {
+        return DatasetType.trajectory.equals(dataset.getDatasetType())
+                || ObservationType.trajectory.equals(dataset.getObservationType());
+    }
+
     private String getProcedureDescriptionFormat(String responseFormat) {
         Encoder<XmlObject, OmObservation> encoder = getEncoder(new XmlEncoderKey(responseFormat, OmObservation.class));
         if (encoder != null && encoder instanceof ObservationEncoder) {
@@ -322,4 +399,35 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
         return null;
     }
 
+    /**
+     * {@link ObservationStream} of the queried observations which closes the
+     * streaming values of the observations when it is closed, so a cursor is
+     * released if the response is not completely written.
+     */
+    private static final class ValueClosingObservationStream extends AbstractObservationStream {
+
+        private final List<OmObservation> observations;
+
+        private final Iterator<OmObservation> iterator;
+
+        ValueClosingObservationStream(List<OmObservation> observations) {
+            this.observations = observations;
+            this.iterator = observations.iterator();
+        }
+
+        @Override
+        protected OmObservation computeNext() {
+            return iterator.hasNext() ? iterator.next() : endOfData();
+        }
+
+        @Override
+        public void close() {
+            for (OmObservation observation : observations) {
+                if (observation.getValue() instanceof ObservationStream) {
+                    ((ObservationStream) observation.getValue()).close();
+                }
+            }
+        }
+    }
+
 }
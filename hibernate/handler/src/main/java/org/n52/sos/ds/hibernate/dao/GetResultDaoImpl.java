@@ -27,22 +27,33 @@
  */
 package org.n52.sos.ds.hibernate.dao;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.janmayen.http.HTTPStatus;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.dataset.ObservationType;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -58,22 +69,29 @@ import org.n52.sos.ds.dao.GetResultDao;
 import org.n52.sos.ds.dao.GetResultTemplateDao;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
 import org.n52.sos.ds.utils.ResultHandlingHelper;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
 import org.n52.sos.exception.ows.concrete.UnsupportedTimeException;
 import org.n52.sos.exception.ows.concrete.UnsupportedValueReferenceException;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.util.SweHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+@Configurable
 @SuppressFBWarnings({ "EI_EXPOSE_REP", "EI_EXPOSE_REP2" })
 public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(GetResultDaoImpl.class);
 
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
     private HibernateSessionHolder sessionHolder;
 
     private GetResultTemplateHandler resultTemplateHandler;
@@ -86,6 +104,10 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
 
     private Optional<GetResultTemplateDao> getResultTemplateDao;
 
+    private boolean streaming;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -111,6 +133,28 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
         this.getResultTemplateDao = getResultTemplateDao;
     }
 
+    /**
+     * Set whether the result values should be streamed from a database cursor
+     *
+     * @param streaming
+     *            Value to set
+     */
+    @Setting(HibernateStreamingSettings.GET_RESULT)
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Set the fetch size for cursor streaming
+     *
+     * @param fetchSize
+     *            Size to set
+     */
+    @Setting(HibernateStreamingSettings.FETCH_SIZE)
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
     public SweHelper getSweHelper() {
         return getDaoFactory().getSweHelper();
     }
@@ -168,24 +212,154 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
         if (resultTemplate != null) {
             SosResultEncoding resultEncoding = resultTemplate.getResultEncoding();
             SosResultStructure resultStructure = resultTemplate.getResultStructure();
-            final List<DataEntity<?>> observations =
-                    queryObservations(request, request.getFeatureIdentifiers(), session);
+            String noDataPlaceholder = getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder();
+            List<DatasetEntity> series =
+                    getDaoFactory().getSeriesDAO().getSeries(request, request.getFeatureIdentifiers(), session);
+            if (streaming && CollectionHelper.isNotEmpty(series) && !containsTrajectories(series)) {
+                Set<Long> datasetIds = series.stream().map(DatasetEntity::getId).collect(Collectors.toSet());
+                if (hasObservations(request, datasetIds, session)) {
+                    return new StreamingGetResultResponse(response.getService(), response.getVersion(),
+                            writer -> writeResultValues(request, datasetIds, resultEncoding, resultStructure,
+                                    noDataPlaceholder, writer));
+                }
+            }
+            final List<DataEntity<?>> observations = queryObservations(request, series, session);
             response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
-                    resultEncoding, resultStructure,
-                    getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder(), session));
+                    resultEncoding, resultStructure, noDataPlaceholder, session));
             return response;
         }
         return response;
     }
 
+    /**
+     * Write the result values of the observations to the writer. The
+     * observations are read with a database cursor in a separate session
+     * because the response is written after the request session is returned.
+     * The observations are counted and read in one transaction with snapshot
+     * isolation, so that observations inserted or deleted in the meantime can
+     * not make the written count differ from the written values.
+     *
+     * @param request
+     *            GetResult request
+     * @param datasetIds
+     *            Ids of the datasets to query observations for
+     * @param resultEncoding
+     *            The ResultEncoding
+     * @param resultStructure
+     *            The ResultStructure
+     * @param noDataPlaceholder
+     *            The no data placeholder
+     * @param writer
+     *            The writer to write the result values to
+     * @throws IOException
+     *             If writing fails
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     */
+    private void writeResultValues(GetResultRequest request, Set<Long> datasetIds, SosResultEncoding resultEncoding,
+            SosResultStructure resultStructure, String noDataPlaceholder, Writer writer)
+            throws IOException, OwsExceptionReport {
+        Session session = null;
+        Integer isolation = null;
+        Transaction transaction = null;
+        ScrollableIterable<DataEntity<?>> observations = null;
+        try {
+            session = sessionHolder.getSession();
+            isolation = setSnapshotIsolation(session);
+            transaction = session.beginTransaction();
+            long count = countObservations(request, datasetIds, session);
+            Criteria c = createCriteriaFor(DataEntity.class, session).setReadOnly(true).setFetchSize(fetchSize);
+            addObservationRestrictions(c, request, datasetIds, session);
+            LOGGER.trace("QUERY writeResultValues(request, datasetIds): {}", HibernateHelper.getSqlString(c));
+            observations = ScrollableIterable.fromResults(c.scroll(ScrollMode.FORWARD_ONLY));
+            getResultHandlingHelper().writeResultValuesFromObservations(
+                    evicting(observations, session), count, resultEncoding, resultStructure, noDataPlaceholder,
+                    session, writer);
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying result data!")
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            if (observations != null) {
+                observations.close();
+            }
+            // the transaction only reads
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            if (isolation != null) {
+                resetIsolation(session, isolation);
+            }
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Raise the isolation level of the session's connection to a level that
+     * reads from one snapshot. Repeatable read is a snapshot in PostgreSQL and
+     * MySQL, databases without it like Oracle provide serializable snapshots.
+     *
+     * @return the previous isolation level or {@code null} if it was not
+     *         changed
+     */
+    private Integer setSnapshotIsolation(Session session) {
+        return session.doReturningWork(connection -> {
+            int previous = connection.getTransactionIsolation();
+            DatabaseMetaData metaData = connection.getMetaData();
+            int level = metaData.supportsTransactionIsolationLevel(Connection.TRANSACTION_REPEATABLE_READ)
+                    ? Connection.TRANSACTION_REPEATABLE_READ
+                    : Connection.TRANSACTION_SERIALIZABLE;
+            if (previous >= level || !metaData.supportsTransactionIsolationLevel(level)) {
+                return null;
+            }
+            connection.setTransactionIsolation(level);
+            return previous;
+        });
+    }
+
+    private void resetIsolation(Session session, int isolation) {
+        try {
+            session.doWork(connection -> connection.setTransactionIsolation(isolation));
+        } catch (HibernateException he) {
+            LOGGER.warn("Error while resetting the transaction isolation!", he);
+        }
+    }
+
+    /**
+     * Clear the session after each fetched chunk of observations, so that the
+     * already written observations can be garbage collected.
+     */
+    private Iterable<DataEntity<?>> evicting(Iterable<DataEntity<?>> observations, Session session) {
+        return () -> new Iterator<DataEntity<?>>() {
+            private final Iterator<DataEntity<?>> iterator = observations.iterator();
+
+            private int fetched;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public DataEntity<?> next() {
+                if (++fetched % fetchSize == 0) {
+                    session.clear();
+                }
+                return iterator.next();
+            }
+        };
+    }
+
+    private boolean containsTrajectories(List<DatasetEntity> series) {
+        return series.stream().anyMatch(s -> ObservationType.trajectory.equals(s.getObservationType()));
+    }
+
     /**
      * Query series observations from database depending on requested filters
      *
      * @param request
      *            GetObservation request
-     * @param featureIdentifiers
-     *            Set of feature identifiers. If <tt>null</tt>, query filter will not be added. If
-     *            <tt>empty</tt>, <tt>null</tt> will be returned.
+     * @param series
+     *            Datasets to query observations for
      * @param session
      *            Hibernate session
      * @return List of Observation objects
@@ -193,27 +367,46 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
      *             If an error occurs.
      */
     @SuppressWarnings("unchecked")
-    private List<DataEntity<?>> queryObservations(GetResultRequest request, Collection<String> featureIdentifiers,
+    private List<DataEntity<?>> queryObservations(GetResultRequest request, List<DatasetEntity> series,
             Session session) throws OwsExceptionReport {
-        final Criteria c = createCriteriaFor(DataEntity.class, session);
-        addSpatialFilteringProfileRestrictions(c, request, session);
-        addParentChildRestriction(c);
-
-        List<DatasetEntity> series = getDaoFactory().getSeriesDAO().getSeries(request, featureIdentifiers, session);
         if (CollectionHelper.isEmpty(series)) {
             return null;
-        } else {
-            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID,
-                    series.stream().map(DatasetEntity::getId).collect(Collectors.toSet())));
         }
+        final Criteria c = createCriteriaFor(DataEntity.class, session);
+        addObservationRestrictions(c, request, series.stream().map(DatasetEntity::getId).collect(Collectors.toSet()),
+                session);
+        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
+        return c.list();
+    }
 
+    private long countObservations(GetResultRequest request, Set<Long> datasetIds, Session session)
+            throws OwsExceptionReport {
+        Criteria c = session.createCriteria(DataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+        addObservationRestrictions(c, request, datasetIds, session);
+        c.setProjection(Projections.rowCount());
+        LOGGER.trace("QUERY countObservations(request, datasetIds): {}", HibernateHelper.getSqlString(c));
+        return (Long) c.uniqueResult();
+    }
+
+    private boolean hasObservations(GetResultRequest request, Set<Long> datasetIds, Session session)
+            throws OwsExceptionReport {
+        Criteria c = session.createCriteria(DataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+        addObservationRestrictions(c, request, datasetIds, session);
+        c.setProjection(Projections.id()).setMaxResults(1);
+        LOGGER.trace("QUERY hasObservations(request, datasetIds): {}", HibernateHelper.getSqlString(c));
+        return c.uniqueResult() != null;
+    }
+
+    private void addObservationRestrictions(Criteria c, GetResultRequest request, Set<Long> datasetIds,
+            Session session) throws OwsExceptionReport {
+        addSpatialFilteringProfileRestrictions(c, request, session);
+        addParentChildRestriction(c);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, datasetIds));
         if (request.getTemporalFilter() != null && !request.getTemporalFilter().isEmpty()) {
             addTemporalFilter(c, request.getTemporalFilter());
         }
-
-        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
-        return c.list();
-
     }
 
     /**
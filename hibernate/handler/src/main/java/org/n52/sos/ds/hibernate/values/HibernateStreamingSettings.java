@@ -38,4 +38,14 @@ public interface HibernateStreamingSettings {
 
     String CHUNK_SIZE = "service.streaming.datasource.chunkSize";
 
+    String KEYSET_PAGINATION = "service.streaming.datasource.keysetPagination";
+
+    String VALUE_PROJECTION = "service.streaming.datasource.valueProjection";
+
+    String STRATEGY = "service.streaming.datasource.strategy";
+
+    String FETCH_SIZE = "service.streaming.datasource.fetchSize";
+
+    String GET_RESULT = "service.streaming.datasource.getResult";
+
 }
@@ -28,6 +28,7 @@
 package org.n52.sos.ds.hibernate.values.dataset;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,10 +44,13 @@ import org.n52.series.db.beans.dataset.DatasetType;
 import org.n52.series.db.beans.dataset.ObservationType;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.series.tsml.TimeseriesMLConstants;
+import org.n52.shetland.ogc.om.series.wml.WaterMLConstants;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.series.ValueQueryContext;
@@ -72,6 +76,14 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private int currentResultSize;
 
+    private boolean keysetPagination;
+
+    private boolean valueProjection;
+
+    private Date lastOrderValue;
+
+    private Long lastId;
+
     /**
      * constructor
      *
@@ -94,6 +106,50 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * Set whether the chunks should be queried with keyset pagination, i.e.
+     * continue after the last value of the previous chunk instead of skipping
+     * the already queried values. Not used for requests with result filter.
+     *
+     * @param keysetPagination
+     *            <code>true</code> to use keyset pagination
+     * @return this
+     */
+    public HibernateChunkSeriesStreamingValue setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        return this;
+    }
+
+    /**
+     * Set whether only the time, value and detection limit columns should be
+     * queried for simple value types. Only used for the time value pair
+     * response formats WaterML 2.0 and TimeseriesML 1.0 and not for requests
+     * with result filter.
+     *
+     * @param valueProjection
+     *            <code>true</code> to query the value projection
+     * @return this
+     */
+    public HibernateChunkSeriesStreamingValue setValueProjection(boolean valueProjection) {
+        this.valueProjection = valueProjection;
+        return this;
+    }
+
+    /**
+     * Continue the chunk queries with keyset pagination after the provided
+     * key, e.g. if the first values were already streamed by another query.
+     *
+     * @param lastOrderValue
+     *            the value of the order column of the last streamed value
+     * @param lastId
+     *            the id of the last streamed value
+     */
+    protected void continueAfter(Date lastOrderValue, Long lastId) {
+        this.keysetPagination = true;
+        this.lastOrderValue = lastOrderValue;
+        this.lastId = lastId;
+    }
+
     @Override
     public boolean hasNext() throws OwsExceptionReport {
         boolean next = false;
@@ -168,9 +224,16 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
             session = getSession();
             ValueQueryContext valueQueryContext = new ValueQueryContext(request, dataset, session)
                     .setTemporalFilterCriterion(temporalFilterCriterion).setChunkSize(chunkSize)
-                    .setCurrentRow(currentRow);
-            Collection<DataEntity<?>> resutltValues = seriesValueDAO.getStreamingSeriesValuesFor(valueQueryContext);
+                    .setCurrentRow(currentRow).setKeysetPagination(isKeysetPagination())
+                    .setValueProjection(isValueProjection())
+                    .setLastKey(lastOrderValue, lastId);
+            List<DataEntity<?>> resutltValues = seriesValueDAO.getStreamingSeriesValuesFor(valueQueryContext);
             currentRow += chunkSize;
+            if (!resutltValues.isEmpty()) {
+                DataEntity<?> last = resutltValues.get(resutltValues.size() - 1);
+                lastOrderValue = seriesValueDAO.getOrderValue(last, request);
+                lastId = last.getId();
+            }
             if (DatasetType.trajectory.equals(dataset.getDatasetType())
                     || ObservationType.trajectory.equals(dataset.getObservationType())) {
                 List<DataEntity<?>> list = new LinkedList<>();
@@ -192,6 +255,21 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         }
     }
 
+    private boolean isKeysetPagination() {
+        return keysetPagination && !(request instanceof GetObservationRequest
+                && ((GetObservationRequest) request).hasResultFilter());
+    }
+
+    private boolean isValueProjection() {
+        return valueProjection && isTimeValuePairResponseFormat() && !(request instanceof GetObservationRequest
+                && ((GetObservationRequest) request).hasResultFilter());
+    }
+
+    private boolean isTimeValuePairResponseFormat() {
+        return WaterMLConstants.NS_WML_20.equals(getResponseFormat())
+                || TimeseriesMLConstants.NS_TSML_10.equals(getResponseFormat());
+    }
+
     /**
      * Check the queried {@link DataEntity}s for null and set them as iterator to local variable.
      *
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.dataset;
+
+import org.hibernate.HibernateException;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+
+/**
+ * Hibernate dataset streaming value implementation which reads the values
+ * from a {@link HibernateDatasetValueCursor} shared by all datasets of the
+ * request. If the values of the dataset were skipped by the cursor, the
+ * remaining values are queried in chunks.
+ */
+public class HibernateCursorSeriesStreamingValue extends HibernateChunkSeriesStreamingValue {
+
+    private static final String ERROR_LOG = "Error while querying observation data!";
+
+    private final HibernateDatasetValueCursor cursor;
+
+    private boolean chunkFallback;
+
+    private DataEntity<?> last;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param dataset
+     *            Datasource dataset
+     * @param chunkSize
+     *            size of the chunk if the values are queried in chunks
+     * @param cursor
+     *            the cursor shared by the datasets of the request
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public HibernateCursorSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            AbstractObservationRequest request, DatasetEntity dataset, int chunkSize,
+            HibernateDatasetValueCursor cursor) throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, dataset, chunkSize);
+        this.cursor = cursor;
+    }
+
+    @Override
+    public boolean hasNext() throws OwsExceptionReport {
+        boolean success = false;
+        try {
+            boolean hasNext = hasNextValue();
+            success = true;
+            return hasNext;
+        } finally {
+            closeCursorIfFailed(success);
+        }
+    }
+
+    @Override
+    public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        boolean success = false;
+        try {
+            DataEntity<?> entity;
+            if (chunkFallback) {
+                entity = super.nextEntity();
+            } else {
+                last = cursor.next(series);
+                checkMaxNumberOfReturnedValues(1);
+                entity = last;
+            }
+            success = true;
+            return entity;
+        } finally {
+            closeCursorIfFailed(success);
+        }
+    }
+
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        boolean success = false;
+        try {
+            TimeValuePair value = null;
+            if (hasNext()) {
+                value = chunkFallback ? super.nextValue()
+                        : getDaoFactory().getObservationHelper().createTimeValuePairFrom(nextEntity());
+            }
+            success = true;
+            return value;
+        } catch (final HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            closeCursorIfFailed(success);
+        }
+    }
+
+    @Override
+    public OmObservation next() throws OwsExceptionReport {
+        boolean success = false;
+        try {
+            OmObservation observation = null;
+            if (hasNext()) {
+                if (chunkFallback) {
+                    observation = super.next();
+                } else {
+                    observation = getObservationTemplate().cloneTemplate();
+                    getObservationHelper().addValuesToObservation(nextEntity(), observation, getResponseFormat());
+                    checkForModifications(observation);
+                }
+            }
+            success = true;
+            return observation;
+        } catch (final HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            closeCursorIfFailed(success);
+        }
+    }
+
+    /**
+     * Close the shared cursor, e.g. if the response stream is closed before
+     * all values are read.
+     */
+    @Override
+    public void close() {
+        cursor.close();
+    }
+
+    private boolean hasNextValue() throws OwsExceptionReport {
+        if (!chunkFallback) {
+            if (cursor.hasNext(series)) {
+                return true;
+            }
+            if (!cursor.isSkipped(series)) {
+                return false;
+            }
+            chunkFallback = true;
+            if (last != null) {
+                continueAfter(seriesValueDAO.getOrderValue(last, request), last.getId());
+            }
+        }
+        return super.hasNext();
+    }
+
+    private void closeCursorIfFailed(boolean success) {
+        if (!success) {
+            // the response fails, so the remaining values are not read
+            cursor.close();
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.dataset;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+
+/**
+ * Forward-only cursor over the values of several datasets, ordered by dataset
+ * and time. The {@link HibernateCursorSeriesStreamingValue}s of the datasets
+ * share one cursor and read their values one after another. Values of
+ * datasets which are skipped, because the streaming values are not read in
+ * dataset order, are marked and have to be queried separately.
+ *
+ * The cursor is opened with the first read and the session is returned when
+ * all rows are read, a read fails or {@link #close()} is called.
+ */
+public class HibernateDatasetValueCursor {
+
+    private static final String ERROR_LOG = "Error while querying observation data!";
+
+    private final HibernateSessionHolder sessionHolder;
+
+    private final DaoFactory daoFactory;
+
+    private final AbstractObservationRequest request;
+
+    private final List<Long> datasets;
+
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    private final Set<Long> skipped = new HashSet<>();
+
+    private final int fetchSize;
+
+    private Criterion temporalFilterCriterion;
+
+    private Session session;
+
+    private ScrollableResults results;
+
+    private DataEntity<?> current;
+
+    private DataEntity<?> previous;
+
+    private int rowsSinceClear;
+
+    private boolean exhausted;
+
+    private OwsExceptionReport failure;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param datasets
+     *            the dataset ids in ascending order
+     * @param fetchSize
+     *            JDBC fetch size of the cursor
+     */
+    public HibernateDatasetValueCursor(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            AbstractObservationRequest request, List<Long> datasets, int fetchSize) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+        this.daoFactory = daoFactory;
+        this.request = request;
+        this.datasets = datasets;
+        this.fetchSize = fetchSize;
+        for (int i = 0; i < datasets.size(); i++) {
+            positions.put(datasets.get(i), i);
+        }
+    }
+
+    /**
+     * Set the temporal filter {@link Criterion}
+     *
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}
+     */
+    public void setTemporalFilterCriterion(Criterion temporalFilterCriterion) {
+        this.temporalFilterCriterion = temporalFilterCriterion;
+    }
+
+    /**
+     * Check if the cursor provides another value for the dataset. Values of
+     * preceding datasets are skipped.
+     *
+     * @param dataset
+     *            the dataset id
+     * @return <code>true</code>, if the next row belongs to the dataset
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying the values
+     */
+    public synchronized boolean hasNext(Long dataset) throws OwsExceptionReport {
+        while (current != null || advance()) {
+            Long currentDataset = current.getDatasetId();
+            if (currentDataset.equals(dataset)) {
+                return true;
+            }
+            if (getPosition(currentDataset) > getPosition(dataset)) {
+                return false;
+            }
+            skipped.add(currentDataset);
+            session.evict(current);
+            current = null;
+        }
+        return false;
+    }
+
+    /**
+     * Get the next value of the dataset
+     *
+     * @param dataset
+     *            the dataset id
+     * @return the next value
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying the values
+     */
+    public synchronized DataEntity<?> next(Long dataset) throws OwsExceptionReport {
+        if (!hasNext(dataset)) {
+            throw new NoSuchElementException();
+        }
+        previous = current;
+        current = null;
+        return previous;
+    }
+
+    /**
+     * Check if values of the dataset were skipped by the cursor.
+     *
+     * @param dataset
+     *            the dataset id
+     * @return <code>true</code>, if values were skipped
+     */
+    public synchronized boolean isSkipped(Long dataset) {
+        return skipped.contains(dataset);
+    }
+
+    /**
+     * Close the cursor and return the session. Closing a cursor which was not
+     * opened yet has no effect, because converters may close the observation
+     * stream of the response, e.g. when merging the observations, before the
+     * values are read.
+     */
+    public synchronized void close() {
+        if (results == null && session == null) {
+            return;
+        }
+        exhausted = true;
+        current = null;
+        previous = null;
+        try {
+            if (results != null) {
+                results.close();
+            }
+        } finally {
+            results = null;
+            if (session != null) {
+                sessionHolder.returnSession(session);
+                session = null;
+            }
+        }
+    }
+
+    private boolean advance() throws OwsExceptionReport {
+        if (failure != null) {
+            throw failure;
+        }
+        if (exhausted) {
+            return false;
+        }
+        try {
+            if (results == null) {
+                session = sessionHolder.getSession();
+                results = daoFactory.getValueDAO().getScrollableSeriesValuesFor(request, datasets,
+                        temporalFilterCriterion, fetchSize, session);
+            }
+            if (previous != null) {
+                session.evict(previous);
+                previous = null;
+            }
+            if (fetchSize > 0 && rowsSinceClear >= fetchSize) {
+                // evict the associated entities loaded with the values
+                session.clear();
+                rowsSinceClear = 0;
+            }
+            if (results.next()) {
+                current = (DataEntity<?>) results.get(0);
+                rowsSinceClear++;
+                return true;
+            }
+            close();
+            return false;
+        } catch (HibernateException he) {
+            close();
+            failure = new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+            throw failure;
+        }
+    }
+
+    private int getPosition(Long dataset) {
+        Integer position = positions.get(dataset);
+        return position != null ? position : -1;
+    }
+
+}
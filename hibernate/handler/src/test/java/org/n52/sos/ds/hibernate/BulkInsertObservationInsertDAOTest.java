@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Checks the dataset first/last values after inserting observations in bulk
+ * mode. The observations are inserted in an order in which neither the first
+ * nor the last value is part of the first or last flush window.
+ */
+public class BulkInsertObservationInsertDAOTest extends AbstractObservationInsertDAOTest {
+
+    private static final int VALUES = 120;
+
+    private static final int STEP = 7;
+
+    private static final DateTime START = new DateTime("2016-01-01T00:00:00Z");
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        insertSensor(PROCEDURE3, OFFERING3, OBSPROP3, null, OmConstants.OBS_TYPE_MEASUREMENT);
+        insertObservationDAO.setBulkInsertObservation(true);
+    }
+
+    @After
+    public void resetBulkMode() {
+        insertObservationDAO.setBulkInsertObservation(false);
+    }
+
+    @Test
+    public void testFirstAndLastValuesAfterBulkInsertion() throws OwsExceptionReport, ConverterException {
+        List<Integer> offsets = Lists.newArrayListWithCapacity(VALUES);
+        for (int i = 0; i < VALUES; i++) {
+            // the first value is inserted at index 60 and the last at index 77
+            offsets.add((i * STEP + VALUES / 2) % VALUES);
+        }
+        insertObservationDAO.insertObservation(createRequest(offsets));
+        checkDataset(0, VALUES - 1);
+
+        // extend the dataset in both directions
+        insertObservationDAO.insertObservation(createRequest(Lists.newArrayList(VALUES + 1, -2, VALUES, -1)));
+        checkDataset(-2, VALUES + 1);
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        // not used, the test only checks the dataset
+    }
+
+    private void checkDataset(int first, int last) {
+        Session session = null;
+        try {
+            session = getSession();
+            DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                    .createAlias(DatasetEntity.PROPERTY_PROCEDURE, "p")
+                    .add(Restrictions.eq("p." + DescribableEntity.PROPERTY_IDENTIFIER, PROCEDURE3)).uniqueResult();
+            assertThat(dataset.getFirstValueAt(), is(getTime(first).toDate()));
+            assertThat(dataset.getLastValueAt(), is(getTime(last).toDate()));
+            assertThat(dataset.getFirstObservation().getSamplingTimeStart(), is(getTime(first).toDate()));
+            assertThat(dataset.getLastObservation().getSamplingTimeEnd(), is(getTime(last).toDate()));
+            assertThat(dataset.getFirstQuantityValue().doubleValue(), is(getValue(first)));
+            assertThat(dataset.getLastQuantityValue().doubleValue(), is(getValue(last)));
+            assertThat(dataset.getResultTimeStart(), is(getTime(first).toDate()));
+            assertThat(dataset.getResultTimeEnd(), is(getTime(last).toDate()));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private DateTime getTime(int offset) {
+        return START.plusMinutes(offset);
+    }
+
+    private double getValue(int offset) {
+        return OBS_VAL + offset;
+    }
+
+    private InsertObservationRequest createRequest(List<Integer> offsets)
+            throws OwsExceptionReport, ConverterException {
+        OmObservationConstellation constellation;
+        Session session = null;
+        try {
+            session = getSession();
+            constellation = getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3, FEATURE3,
+                    OmConstants.OBS_TYPE_MEASUREMENT, session);
+        } finally {
+            returnSession(session);
+        }
+        List<OmObservation> observations = Lists.newArrayListWithCapacity(offsets.size());
+        for (int offset : offsets) {
+            OmObservation obs = new OmObservation();
+            obs.setObservationConstellation(constellation);
+            obs.setResultTime(new TimeInstant(getTime(offset)));
+            SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<>();
+            obsVal.setPhenomenonTime(new TimeInstant(getTime(offset)));
+            obsVal.setValue(new QuantityValue(getValue(offset), TEMP_UNIT));
+            obs.setValue(obsVal);
+            observations.add(obs);
+        }
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setAssignedSensorId(PROCEDURE3);
+        request.setOfferings(Lists.newArrayList(OFFERING3));
+        request.setObservation(observations);
+        return request;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Load test for the concurrent InsertObservation mode. Each thread count
+ * inserts the same number of single value requests spread over a few features,
+ * so that dataset/feature creation conflicts and independent constellations
+ * are exercised. The throughput per thread count is logged.
+ */
+public class ConcurrentInsertObservationInsertDAOTest extends AbstractObservationInsertDAOTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentInsertObservationInsertDAOTest.class);
+
+    private static final int REQUESTS_PER_RUN = 200;
+
+    private static final int FEATURES = 8;
+
+    private static final DateTime START = new DateTime("2016-01-01T00:00:00Z");
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        Session session = null;
+        try {
+            session = getSession();
+            HibernateMetadataCache.init(session);
+            insertSensor(PROCEDURE3, OFFERING3, OBSPROP3, null, OmConstants.OBS_TYPE_MEASUREMENT);
+        } finally {
+            returnSession(session);
+        }
+        insertObservationDAO.setConcurrentInsertObservation(true);
+    }
+
+    @After
+    public void resetConcurrentMode() {
+        insertObservationDAO.setConcurrentInsertObservation(false);
+    }
+
+    @Test
+    public void testConcurrentInsertObservationThroughput() throws Exception {
+        int run = 0;
+        for (int threads : new int[] { 1, 2, 4, 8 }) {
+            long before = countObservations();
+            long start = System.nanoTime();
+            insertConcurrently(threads, run++);
+            long duration = System.nanoTime() - start;
+            assertThat(countObservations() - before, is((long) REQUESTS_PER_RUN));
+            LOGGER.info("Inserted {} observations with {} threads in {} ms ({} obs/s)", REQUESTS_PER_RUN, threads,
+                    TimeUnit.NANOSECONDS.toMillis(duration), REQUESTS_PER_RUN * TimeUnit.SECONDS.toNanos(1) / duration);
+        }
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        // not used, the load test only checks the inserted observations
+    }
+
+    private void insertConcurrently(int threads, int run) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = Lists.newArrayListWithCapacity(REQUESTS_PER_RUN);
+            for (int i = 0; i < REQUESTS_PER_RUN; i++) {
+                InsertObservationRequest request =
+                        createRequest(FEATURE3 + "_" + i % FEATURES, START.plusDays(run).plusMinutes(i));
+                futures.add(executor.submit(() -> insertObservationDAO.insertObservation(request)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private InsertObservationRequest createRequest(String feature, DateTime time)
+            throws OwsExceptionReport, ConverterException {
+        OmObservationConstellation constellation;
+        Session session = null;
+        try {
+            session = getSession();
+            constellation = getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3, feature,
+                    OmConstants.OBS_TYPE_MEASUREMENT, session);
+        } finally {
+            returnSession(session);
+        }
+        OmObservation obs = new OmObservation();
+        obs.setObservationConstellation(constellation);
+        obs.setResultTime(new TimeInstant(time));
+        SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<>();
+        obsVal.setPhenomenonTime(new TimeInstant(time));
+        obsVal.setValue(new QuantityValue(OBS_VAL, TEMP_UNIT));
+        obs.setValue(obsVal);
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setAssignedSensorId(PROCEDURE3);
+        request.setOfferings(Lists.newArrayList(OFFERING3));
+        request.setObservation(Lists.newArrayList(obs));
+        return request;
+    }
+
+    private long countObservations() {
+        Session session = null;
+        try {
+            session = getSession();
+            return (Long) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+}
@@ -27,14 +27,18 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
 import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
 import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
 
@@ -81,6 +85,32 @@ public class InsertResultDAOTest
         assertThat(observedProperties.get(3).equals(OBS_PROP_3), is(true));
     }
 
+    @Test
+    public void test_createObservationValueFrom_RegexMetacharacterSeparators()
+            throws OwsExceptionReport {
+        final List<List<String>> values = createValues("2.2013-07-18T01:00:00Z|1.2013-07-18T02:00:00Z|2", "|", ".");
+        assertThat(values, contains(Arrays.asList("2013-07-18T01:00:00Z", "1"),
+                Arrays.asList("2013-07-18T02:00:00Z", "2")));
+    }
+
+    @Test
+    public void test_createObservationValueFrom_TrailingEmptyTokens()
+            throws OwsExceptionReport {
+        final List<List<String>> values =
+                createValues("2013-07-18T01:00:00Z,@@2013-07-18T02:00:00Z,2,,@@", ",", "@@");
+        assertThat(values, contains(Arrays.asList("2013-07-18T01:00:00Z", ""),
+                Arrays.asList("2013-07-18T02:00:00Z", "2", "", "")));
+    }
+
+    private List<List<String>> createValues(String resultValues, String tokenSeparator, String blockSeparator)
+            throws OwsExceptionReport {
+        final SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(tokenSeparator);
+        encoding.setBlockSeparator(blockSeparator);
+        return insertResultDAO.createObservationValueFrom(resultValues, createRecordWithSimpleObservation(),
+                encoding, -1, 0).getValue().getValue().getValues();
+    }
+
     private SweDataRecord createRecord() {
         SweDataRecord record = new SweDataRecord();
         record.addField(new SweField("phenomenonTime",
@@ -27,7 +27,9 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import org.hibernate.Session;
 import org.joda.time.DateTime;
@@ -48,6 +50,7 @@ import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
 import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
 import org.n52.shetland.ogc.swe.simpleType.SweTime;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.ds.hibernate.dao.DataAvailabilityResultTimeCache;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.event.events.ResultInsertion;
 import org.n52.sos.event.events.ResultTemplateInsertion;
@@ -92,6 +95,47 @@ public class InsertResultInsertDAOTest extends AbstractObservationInsertDAOTest
         checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME4, PROCEDURE3, OBSPROP3, FEATURE3, VAL4, TEMP_UNIT);
     }
 
+    @Test
+    public void testInsertResultWithExistingObservationInFlushGroup()
+            throws OwsExceptionReport, InterruptedException, EncodingException, ConverterException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        insertResultDAO.setAbortInsertResultForExistingObservations(false);
+        insertResult(CollectionHelper.list(TIME2), CollectionHelper.list(VAL2));
+        // the existing observation fails the group, the others are stored
+        insertResult(CollectionHelper.list(TIME1, TIME2, TIME3), CollectionHelper.list(VAL1, VAL2, VAL3));
+        assertInsertionAftermathBeforeAndAfterCacheReload();
+
+        checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME1, PROCEDURE3, OBSPROP3, FEATURE3, VAL1, TEMP_UNIT);
+        checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME2, PROCEDURE3, OBSPROP3, FEATURE3, VAL2, TEMP_UNIT);
+        checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME3, PROCEDURE3, OBSPROP3, FEATURE3, VAL3, TEMP_UNIT);
+    }
+
+    @Test
+    public void testInsertResultMergesUnfoldedResultTimes()
+            throws OwsExceptionReport, EncodingException, ConverterException {
+        DataAvailabilityResultTimeCache resultTimeCache = new DataAvailabilityResultTimeCache();
+        insertResultDAO.setDataAvailabilityResultTimeCache(Optional.of(resultTimeCache));
+        try {
+            insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+            resultTimeCache.getResultTimes(PROCEDURE3, OBSPROP3, FEATURE3, Collections.emptySet(),
+                    () -> Collections.singletonList(TIME1.toDate()));
+            insertResult(CollectionHelper.list(TIME2, TIME3), CollectionHelper.list(VAL2, VAL3));
+            assertThat(resultTimeCache.getResultTimes(PROCEDURE3, OBSPROP3, FEATURE3, Collections.emptySet(), () -> {
+                throw new AssertionError("result times should be cached");
+            }), contains(TIME1.toDate(), TIME2.toDate(), TIME3.toDate()));
+        } finally {
+            insertResultDAO.setDataAvailabilityResultTimeCache(Optional.empty());
+        }
+    }
+
+    private void insertResult(List<DateTime> times, List<Double> values) throws OwsExceptionReport {
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        req.setResultValues(makeResultValueString(times, values));
+        InsertResultResponse resp = insertResultDAO.insertResult(req);
+        this.serviceEventBus.submit(new ResultInsertion(req, resp));
+    }
+
     private void insertResultTemplate(String identifier, String procedureId, String offeringId, String obsPropId,
             String featureId) throws OwsExceptionReport, ConverterException, EncodingException {
         InsertResultTemplateRequest req = new InsertResultTemplateRequest();
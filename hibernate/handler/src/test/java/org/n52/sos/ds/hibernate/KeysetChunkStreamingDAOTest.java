@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ValueQueryContext;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares OFFSET and keyset pagination of the chunk streaming value query.
+ * Both modes have to return the same values in the same order, the duration
+ * of each mode is logged. The size of the series can be increased with
+ * <code>-DkeysetBenchmarkValues=x</code>, e.g. to 10000000 to reproduce the
+ * behavior of long time series.
+ */
+public class KeysetChunkStreamingDAOTest extends AbstractObservationInsertDAOTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeysetChunkStreamingDAOTest.class);
+
+    private static final int DEFAULT_VALUES = 5000;
+
+    private static final int VALUES_PER_REQUEST = 10000;
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final DateTime START = new DateTime("2016-01-01T00:00:00Z");
+
+    private int values;
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        values = Integer.getInteger("keysetBenchmarkValues", DEFAULT_VALUES);
+        insertSensor(PROCEDURE3, OFFERING3, OBSPROP3, null, OmConstants.OBS_TYPE_MEASUREMENT);
+        insertObservationDAO.setBulkInsertObservation(true);
+        for (int i = 0; i < values; i += VALUES_PER_REQUEST) {
+            insertObservationDAO.insertObservation(createRequest(i, Math.min(values, i + VALUES_PER_REQUEST)));
+        }
+    }
+
+    @After
+    public void resetBulkMode() {
+        insertObservationDAO.setBulkInsertObservation(false);
+    }
+
+    @Test
+    public void testKeysetPaginationReturnsSameValuesAsOffset() throws OwsExceptionReport {
+        long start = System.nanoTime();
+        List<Long> offsetIds = queryIds(false);
+        long offsetDuration = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<Long> keysetIds = queryIds(true);
+        long keysetDuration = System.nanoTime() - start;
+        assertThat(offsetIds.size(), is(values));
+        // both paths order by time and id, so the values are neither
+        // duplicated nor skipped across chunks
+        assertThat(new HashSet<>(offsetIds).size(), is(values));
+        assertThat(keysetIds, is(offsetIds));
+        LOGGER.info("Queried {} values in chunks of {}: offset {} ms, keyset {} ms", values, CHUNK_SIZE,
+                TimeUnit.NANOSECONDS.toMillis(offsetDuration), TimeUnit.NANOSECONDS.toMillis(keysetDuration));
+    }
+
+    @Test
+    public void testValueProjectionReturnsSameValues() throws OwsExceptionReport {
+        List<DataEntity<?>> entities = queryValues(true, false);
+        List<DataEntity<?>> projections = queryValues(true, true);
+        assertThat(projections.size(), is(values));
+        for (int i = 0; i < values; i++) {
+            DataEntity<?> entity = entities.get(i);
+            DataEntity<?> projection = projections.get(i);
+            assertThat(projection.getId(), is(entity.getId()));
+            assertThat(projection.getSamplingTimeStart(), is(entity.getSamplingTimeStart()));
+            assertThat(projection.getResultTime(), is(entity.getResultTime()));
+            assertThat(projection.getValue(), is(entity.getValue()));
+        }
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        // not used, the test only compares the queried values
+    }
+
+    private List<Long> queryIds(boolean keyset) throws OwsExceptionReport {
+        return queryValues(keyset, false).stream().map(DataEntity::getId).collect(Collectors.toList());
+    }
+
+    private List<DataEntity<?>> queryValues(boolean keyset, boolean projection) throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = getSession();
+            AbstractSeriesValueDAO valueDAO = daoFactory.getValueDAO();
+            GetObservationRequest request = new GetObservationRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+            DatasetEntity dataset = getDataset(session);
+            List<DataEntity<?>> result = new ArrayList<>(values);
+            int currentRow = 0;
+            List<DataEntity<?>> chunk;
+            do {
+                ValueQueryContext ctx = new ValueQueryContext(request, dataset, session).setChunkSize(CHUNK_SIZE)
+                        .setCurrentRow(currentRow).setKeysetPagination(keyset).setValueProjection(projection);
+                if (!result.isEmpty()) {
+                    DataEntity<?> last = result.get(result.size() - 1);
+                    ctx.setLastKey(valueDAO.getOrderValue(last, request), last.getId());
+                }
+                chunk = valueDAO.getStreamingSeriesValuesFor(ctx);
+                result.addAll(chunk);
+                currentRow += CHUNK_SIZE;
+                session.clear();
+            } while (chunk.size() == CHUNK_SIZE);
+            return result;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private DatasetEntity getDataset(Session session) {
+        return (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_PROCEDURE, "p")
+                .add(Restrictions.eq("p." + DescribableEntity.PROPERTY_IDENTIFIER, PROCEDURE3)).uniqueResult();
+    }
+
+    private InsertObservationRequest createRequest(int from, int to) throws OwsExceptionReport, ConverterException {
+        OmObservationConstellation constellation;
+        Session session = null;
+        try {
+            session = getSession();
+            constellation = getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3, FEATURE3,
+                    OmConstants.OBS_TYPE_MEASUREMENT, session);
+        } finally {
+            returnSession(session);
+        }
+        List<OmObservation> observations = Lists.newArrayListWithCapacity(to - from);
+        for (int i = from; i < to; i++) {
+            // two values per minute to get equal sampling times within and
+            // across the chunks
+            DateTime time = START.plusMinutes(i / 2);
+            OmObservation obs = new OmObservation();
+            obs.setObservationConstellation(constellation);
+            obs.setResultTime(new TimeInstant(time.plusSeconds(i % 2)));
+            SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<>();
+            obsVal.setPhenomenonTime(new TimeInstant(time));
+            obsVal.setValue(new QuantityValue(OBS_VAL + i, TEMP_UNIT));
+            obs.setValue(obsVal);
+            observations.add(obs);
+        }
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setAssignedSensorId(PROCEDURE3);
+        request.setOfferings(Lists.newArrayList(OFFERING3));
+        request.setObservation(observations);
+        return request;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.sos.event.events.ResultInsertion;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class DataAvailabilityResultTimeCacheTest {
+
+    private static final String PROCEDURE = "procedure";
+
+    private static final String OBSERVABLE_PROPERTY = "observableProperty";
+
+    private static final String FEATURE = "feature";
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void shouldLoadResultTimesOnce() throws OwsExceptionReport {
+        DataAvailabilityResultTimeCache cache = new DataAvailabilityResultTimeCache();
+        assertThat(getResultTimes(cache, FEATURE, time(2), time(1), time(2)), contains(time(1), time(2)));
+        assertThat(getResultTimes(cache, FEATURE, time(3)), contains(time(1), time(2)));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void shouldMergeInsertedResultTimes() throws OwsExceptionReport {
+        DataAvailabilityResultTimeCache cache = new DataAvailabilityResultTimeCache();
+        getResultTimes(cache, FEATURE, time(1), time(3));
+        getResultTimes(cache, "other", time(1));
+        cache.add(Arrays.asList(observation(FEATURE, time(2)), observation(FEATURE, time(3))));
+        assertThat(getResultTimes(cache, FEATURE), contains(time(1), time(2), time(3)));
+        assertThat(getResultTimes(cache, "other"), contains(time(1)));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldMergeInsertedResultTimesOfMatchingOfferings() throws OwsExceptionReport {
+        DataAvailabilityResultTimeCache cache = new DataAvailabilityResultTimeCache();
+        getResultTimes(cache, FEATURE, Collections.singleton("a"), time(1));
+        getResultTimes(cache, FEATURE, Collections.singleton("b"), time(1));
+        getResultTimes(cache, FEATURE, time(1));
+        OmObservation observation = observation(FEATURE, time(4));
+        observation.getObservationConstellation().addOffering("a");
+        cache.add(Arrays.asList(observation, observation(FEATURE, time(2)), observation(FEATURE, time(4)),
+                observation("other", time(3))));
+        assertThat(getResultTimes(cache, FEATURE, Collections.singleton("a")), contains(time(1), time(2), time(4)));
+        assertThat(getResultTimes(cache, FEATURE, Collections.singleton("b")), contains(time(1), time(2), time(4)));
+        assertThat(getResultTimes(cache, FEATURE), contains(time(1), time(2), time(4)));
+        assertThat(loads.get(), is(3));
+        cache.add(Collections.singletonList(observation));
+        observation.getObservationConstellation().setOfferings(Collections.singleton("a"));
+        observation.setResultTime(new TimeInstant(time(5)));
+        cache.add(Collections.singletonList(observation));
+        assertThat(getResultTimes(cache, FEATURE, Collections.singleton("a")),
+                contains(time(1), time(2), time(4), time(5)));
+        assertThat(getResultTimes(cache, FEATURE, Collections.singleton("b")), contains(time(1), time(2), time(4)));
+    }
+
+    @Test
+    public void shouldNotHandleNotUnfoldedResultInsertions() {
+        // InsertResult adds the unfolded observations
+        assertThat(new DataAvailabilityResultTimeCache().getTypes().contains(ResultInsertion.class), is(false));
+    }
+
+    @Test
+    public void shouldInvalidateForObservationsWithoutResultTime() throws OwsExceptionReport {
+        DataAvailabilityResultTimeCache cache = new DataAvailabilityResultTimeCache();
+        getResultTimes(cache, FEATURE, time(1));
+        cache.add(Collections.singletonList(observation(FEATURE, null)));
+        assertThat(getResultTimes(cache, FEATURE, time(5)), contains(time(5)));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() throws OwsExceptionReport {
+        DataAvailabilityResultTimeCache cache = new DataAvailabilityResultTimeCache();
+        cache.setSize(0);
+        getResultTimes(cache, FEATURE, time(1));
+        getResultTimes(cache, FEATURE, time(1));
+        assertThat(loads.get(), is(2));
+    }
+
+    private List<Date> getResultTimes(DataAvailabilityResultTimeCache cache, String feature, Date... resultTimes)
+            throws OwsExceptionReport {
+        return getResultTimes(cache, feature, Collections.emptySet(), resultTimes);
+    }
+
+    private List<Date> getResultTimes(DataAvailabilityResultTimeCache cache, String feature, Set<String> offerings,
+            Date... resultTimes) throws OwsExceptionReport {
+        return cache.getResultTimes(PROCEDURE, OBSERVABLE_PROPERTY, feature, offerings, () -> {
+            loads.incrementAndGet();
+            return Arrays.asList(resultTimes);
+        });
+    }
+
+    private static OmObservation observation(String feature, Date resultTime) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(PROCEDURE, "format", "xml"));
+        constellation.setObservableProperty(new OmObservableProperty(OBSERVABLE_PROPERTY));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(feature)));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        if (resultTime != null) {
+            observation.setResultTime(new TimeInstant(resultTime));
+        }
+        return observation;
+    }
+
+    private static Date time(int hour) {
+        return new DateTime(2020, 1, 1, hour, 0, DateTimeZone.UTC).toDate();
+    }
+
+}
@@ -27,9 +27,7 @@
  */
 package org.n52.sos.request.operator;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.n52.faroe.annotation.Setting;
@@ -252,12 +250,11 @@ public class AqdGetObservationOperatorV10 extends
     private void checkObservedProperties(final List<String> observedProperties) throws OwsExceptionReport {
         if (observedProperties != null) {
             final CompositeOwsException exceptions = new CompositeOwsException();
-            final Collection<String> validObservedProperties = getCache().getObservableProperties();
             for (final String obsProp : observedProperties) {
                 if (obsProp.isEmpty()) {
                     exceptions.add(new MissingObservedPropertyParameterException());
                 } else {
-                    if (!validObservedProperties.contains(obsProp)) {
+                    if (!getCache().hasObservableProperty(obsProp)) {
                         exceptions.add(new InvalidObservedPropertyParameterException(obsProp));
                     }
                 }
@@ -278,19 +275,18 @@ public class AqdGetObservationOperatorV10 extends
      */
     private void checkOfferingId(final List<String> offeringIds) throws OwsExceptionReport {
         if (offeringIds != null) {
-            final Set<String> offerings = getCache().getOfferings();
             final CompositeOwsException exceptions = new CompositeOwsException();
             for (final String offeringId : offeringIds) {
                 if (offeringId == null || offeringId.isEmpty()) {
                     exceptions.add(new MissingOfferingParameterException());
                 } else if (offeringId.contains(SosConstants.SEPARATOR_4_OFFERINGS)) {
                     final String[] offArray = offeringId.split(SosConstants.SEPARATOR_4_OFFERINGS);
-                    if (!offerings.contains(offArray[0])
+                    if (!getCache().hasOffering(offArray[0])
                             || !getCache().getProceduresForOffering(offArray[0]).contains(offArray[1])) {
                         exceptions.add(new InvalidOfferingParameterException(offeringId));
                     }
 
-                } else if (!offerings.contains(offeringId)) {
+                } else if (!getCache().hasOffering(offeringId)) {
                     exceptions.add(new InvalidOfferingParameterException(offeringId));
                 }
             }
@@ -30,10 +30,14 @@ package org.n52.sos.request.operator;
 import java.util.Collections;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.n52.janmayen.http.MediaType;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.Sos1Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
@@ -54,10 +58,17 @@ public class SosDescribeSensorOperatorV100 extends
     private static final Set<String> CONFORMANCE_CLASSES =
             Collections.singleton("http://www.opengis.net/spec/SOS/1.0/conf/core");
 
+    private SensorDescriptionCache sensorDescriptionCache;
+
     public SosDescribeSensorOperatorV100() {
         super(OPERATION_NAME, DescribeSensorRequest.class);
     }
 
+    @Inject
+    public void setSensorDescriptionCache(SensorDescriptionCache sensorDescriptionCache) {
+        this.sensorDescriptionCache = sensorDescriptionCache;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         if (SosConstants.SOS.equals(service) && Sos1Constants.SERVICEVERSION.equals(version)) {
@@ -66,6 +77,15 @@ public class SosDescribeSensorOperatorV100 extends
         return Collections.emptySet();
     }
 
+    @Override
+    public OwsServiceResponse receiveRequest(OwsServiceRequest request) throws OwsExceptionReport {
+        if (sensorDescriptionCache != null && request instanceof DescribeSensorRequest) {
+            return sensorDescriptionCache.receive((DescribeSensorRequest) request, getCache(),
+                    super::receiveRequest, getServiceEventBus());
+        }
+        return super.receiveRequest(request);
+    }
+
     @Override
     public DescribeSensorResponse receive(DescribeSensorRequest sosRequest) throws OwsExceptionReport {
         DescribeSensorResponse response = getOperationHandler().getSensorDescription(sosRequest);
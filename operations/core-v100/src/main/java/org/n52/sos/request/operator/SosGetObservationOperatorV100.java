@@ -195,13 +195,11 @@ public class SosGetObservationOperatorV100 extends
             if (observedProperties.isEmpty()) {
                 throw new MissingObservedPropertyParameterException();
             }
-            Collection<String> validObservedProperties =
-                    getCache().getObservableProperties();
             for (String obsProp : observedProperties) {
                 if (obsProp.isEmpty()) {
                     throw new MissingObservedPropertyParameterException();
                 } else {
-                    if (!validObservedProperties.contains(obsProp)) {
+                    if (!getCache().hasObservableProperty(obsProp)) {
                         throw new InvalidObservedPropertyParameterException(obsProp);
                     }
                 }
@@ -46,6 +46,7 @@ import org.n52.shetland.ogc.gml.CodeType;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sensorML.AbstractProcess;
 import org.n52.shetland.ogc.sensorML.AbstractSensorML;
@@ -111,6 +112,8 @@ public class SosDescribeSensorOperatorV20 extends
 
     private boolean encodeFullChildrenInDescribeSensor;
 
+    private SensorDescriptionCache sensorDescriptionCache;
+
     public SosDescribeSensorOperatorV20() {
         super(OPERATION_NAME, DescribeSensorRequest.class);
         postProcessor = new PostProcessor();
@@ -130,6 +133,11 @@ public class SosDescribeSensorOperatorV20 extends
         this.sosHelper = sosHelper;
     }
 
+    @Inject
+    public void setSensorDescriptionCache(SensorDescriptionCache sensorDescriptionCache) {
+        this.sensorDescriptionCache = sensorDescriptionCache;
+    }
+
     private String getServiceURL() {
         return sosHelper.getServiceURL();
     }
@@ -151,6 +159,15 @@ public class SosDescribeSensorOperatorV20 extends
         return Collections.emptySet();
     }
 
+    @Override
+    public OwsServiceResponse receiveRequest(OwsServiceRequest request) throws OwsExceptionReport {
+        if (sensorDescriptionCache != null && request instanceof DescribeSensorRequest) {
+            return sensorDescriptionCache.receive((DescribeSensorRequest) request, getCache(),
+                    super::receiveRequest, getServiceEventBus());
+        }
+        return super.receiveRequest(request);
+    }
+
     @Override
     public DescribeSensorResponse receive(DescribeSensorRequest request) throws OwsExceptionReport {
         return getOperationHandler().getSensorDescription(request);
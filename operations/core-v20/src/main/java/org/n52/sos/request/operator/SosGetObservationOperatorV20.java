@@ -305,19 +305,18 @@ public class SosGetObservationOperatorV20 extends
      */
     private void checkOfferingId(final List<String> offeringIds) throws OwsExceptionReport {
         if (offeringIds != null) {
-            Set<String> offerings = getCache().getOfferings();
             CompositeOwsException exceptions = new CompositeOwsException();
             offeringIds.forEach(offeringId -> {
                 if (offeringId == null || offeringId.isEmpty()) {
                     exceptions.add(new MissingOfferingParameterException());
                 } else if (offeringId.contains(SosConstants.SEPARATOR_4_OFFERINGS)) {
                     final String[] offArray = offeringId.split(SosConstants.SEPARATOR_4_OFFERINGS);
-                    if (!offerings.contains(offArray[0])
+                    if (!getCache().hasOffering(offArray[0])
                             || !getCache().getProceduresForOffering(offArray[0]).contains(offArray[1])) {
                         exceptions.add(new InvalidOfferingParameterException(offeringId));
                     }
 
-                } else if (!offerings.contains(offeringId)) {
+                } else if (!getCache().hasOffering(offeringId)) {
                     exceptions.add(new InvalidOfferingParameterException(offeringId));
                 }
             });
@@ -100,7 +100,7 @@ public class SosDeleteSensorOperatorV20 extends
 
     private void checkProcedureIdentifier(String procedureIdentifier) throws OwsExceptionReport {
         if (procedureIdentifier != null && !procedureIdentifier.isEmpty()) {
-            if (!getCache().getProcedures().contains(procedureIdentifier)) {
+            if (!getCache().hasProcedure(procedureIdentifier)) {
                 throw new InvalidProcedureParameterException(procedureIdentifier);
             }
         } else {
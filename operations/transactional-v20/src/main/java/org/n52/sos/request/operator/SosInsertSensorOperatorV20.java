@@ -417,7 +417,7 @@ public class SosInsertSensorOperatorV20 extends
     private void checkProcedureAndOfferingCombination(InsertSensorRequest request) throws OwsExceptionReport {
         for (SosOffering offering : request.getAssignedOfferings()) {
             if (!offering.isParentOffering()
-                    && getCache().getPublishedOfferings().contains(offering.getIdentifier())) {
+                    && getCache().hasPublishedOffering(offering.getIdentifier())) {
                 throw new InvalidParameterValueException().at(Sos2Constants.InsertSensorParams.offeringIdentifier)
                         .withMessage(
                                 "The offering with the identifier '%s' still exists in this service "
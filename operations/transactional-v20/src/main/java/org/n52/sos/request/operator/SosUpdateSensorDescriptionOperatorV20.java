@@ -110,7 +110,7 @@ public class SosUpdateSensorDescriptionOperatorV20 extends
 
     private void checkProcedureIdentifier(String procedureIdentifier) throws OwsExceptionReport {
         if (procedureIdentifier != null && !procedureIdentifier.isEmpty()) {
-            if (!getCache().getPublishedProcedures().contains(procedureIdentifier)) {
+            if (!getCache().hasPublishedProcedure(procedureIdentifier)) {
                 throw new InvalidProcedureParameterException(procedureIdentifier);
             }
         } else {
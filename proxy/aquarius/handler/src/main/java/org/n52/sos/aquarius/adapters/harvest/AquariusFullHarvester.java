@@ -54,6 +54,7 @@ public class AquariusFullHarvester extends AbstractAquariusHarvester implements
             try {
                 AquariusConnector connector = ((AquariusHarvesterContext) context).getConnector();
                 clearMaps();
+                getTimeSeriesDataCache().invalidateAll();
                 checkGradesAndQualifier(connector);
                 getParameterList(connector);
                 getUnitList(connector);
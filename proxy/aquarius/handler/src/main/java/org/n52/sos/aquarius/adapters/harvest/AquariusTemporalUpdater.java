@@ -88,6 +88,8 @@ public class AquariusTemporalUpdater extends AbstractAquariusHarvester implement
                             .setChangesSinceToken(changedSince.toDate().toInstant())
                             .setChangeEventType(ChangeEvent.Data.name()));
             if (timeSeriesUniqueIds != null && timeSeriesUniqueIds.getTimeSeriesUniqueIds() != null) {
+                getTimeSeriesDataCache().invalidate(timeSeriesUniqueIds.getTimeSeriesUniqueIds().stream()
+                        .map(TimeSeriesUniqueIds::getUniqueId).collect(Collectors.toSet()));
                 for (TimeSeriesDescription timeSeries : getTimeSeriesDescriptions(
                         timeSeriesUniqueIds.getTimeSeriesUniqueIds(), connector)) {
                     DatasetEntity dataset = getDatasetRepository().getOneByIdentifier(timeSeries.getUniqueId());
@@ -27,7 +27,6 @@
  */
 package org.n52.sos.aquarius.dao;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
@@ -35,6 +34,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,10 +47,14 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProviderException;
 import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.io.request.IoParameters;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
 import org.n52.janmayen.http.HTTPStatus;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.sensorweb.server.db.assembler.core.DatasetAssembler;
 import org.n52.sensorweb.server.db.assembler.value.ValueConnector;
 import org.n52.sensorweb.server.db.old.dao.DbQuery;
@@ -57,6 +63,7 @@ import org.n52.sensorweb.server.helgoland.adapters.web.Counter;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.UnitEntity;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
@@ -71,6 +78,7 @@ import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.ds.AquariusHelper;
 import org.n52.sos.aquarius.ds.AquariusTimeHelper;
+import org.n52.sos.aquarius.ds.AquariusTimeSeriesDataCache;
 import org.n52.sos.aquarius.ds.Point;
 import org.n52.sos.aquarius.ds.TimeSeriesData;
 import org.n52.sos.aquarius.harvest.AquariusEntityBuilder;
@@ -94,9 +102,17 @@ import com.google.common.collect.Maps;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+@Configurable
 @SuppressFBWarnings({ "EI_EXPOSE_REP2" })
-public class AquariusGetObservationDao extends AbstractAquariusDao
-        implements GetObservationDao, ValueConnector, ApiQueryHelper, AquariusTimeHelper, AquariusEntityBuilder {
+public class AquariusGetObservationDao extends AbstractAquariusDao implements GetObservationDao, ValueConnector,
+        ApiQueryHelper, AquariusTimeHelper, AquariusEntityBuilder, Destroyable {
+
+    public static final String CONCURRENCY = "proxy.aquarius.getObservation.concurrency";
+
+    public static final String TIMEOUT = "proxy.aquarius.getObservation.timeout";
+
+    public static final String WINDOW = "proxy.aquarius.getObservation.window";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AquariusGetObservationDao.class);
     private static final String ERROR_LAST_OBSERVATION = "Error while querying last observation";
     private static final String ERROR_FIRST_OBSERVATION = "Error while querying first observation";
@@ -114,6 +130,16 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
 
     private DbQueryFactory dbQueryFactory;
 
+    private AquariusTimeSeriesDataCache timeSeriesDataCache;
+
+    private int concurrency = 4;
+
+    private long timeout = 120000L;
+
+    private long window = TimeUnit.DAYS.toMillis(90);
+
+    private ExecutorService executor;
+
     @Inject
     public void setDatasetAssembler(DatasetAssembler assembler) {
         this.assembler = assembler;
@@ -144,6 +170,67 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         this.dbQueryFactory = dbQueryFactory;
     }
 
+    @Inject
+    public void setAquariusTimeSeriesDataCache(AquariusTimeSeriesDataCache timeSeriesDataCache) {
+        this.timeSeriesDataCache = timeSeriesDataCache;
+    }
+
+    /**
+     * Set the number of time series that are queried concurrently
+     *
+     * @param concurrency
+     *            Number of concurrent queries
+     */
+    @Setting(CONCURRENCY)
+    public synchronized void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(concurrency, 1);
+        shutdownExecutor();
+    }
+
+    /**
+     * Set the time in seconds the time series data queries of one request have
+     * to complete in
+     *
+     * @param timeout
+     *            Timeout in seconds, no deadline if <code>0</code>
+     */
+    @Setting(TIMEOUT)
+    public void setTimeout(int timeout) {
+        this.timeout = TimeUnit.SECONDS.toMillis(timeout);
+    }
+
+    /**
+     * Set the length in days of the time windows the time series data are
+     * queried and streamed in
+     *
+     * @param window
+     *            Window length in days, not paged if <code>0</code>
+     */
+    @Setting(WINDOW)
+    public void setWindow(int window) {
+        this.window = TimeUnit.DAYS.toMillis(window);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        shutdownExecutor();
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(concurrency,
+                    new GroupedAndNamedThreadFactory("52n-sos-aquarius-observation"));
+        }
+        return executor;
+    }
+
+    private synchronized void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
     @Override
     @Transactional()
     public GetObservationResponse queryObservationData(GetObservationRequest request, GetObservationResponse response)
@@ -182,31 +269,22 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         try {
             AquariusConnector connection = getAquariusConnector();
             List<DatasetEntity> datasets = getDatasets(createDbQuery(request)).collect(Collectors.toList());
+            Map<String, DatasetEntity> datasetMap = Maps.newHashMap();
+            datasets.forEach(dataset -> datasetMap.put(dataset.getIdentifier(), dataset));
+            List<AquariusTimeSeriesDataPages> datasetData =
+                    new AquariusTimeSeriesDataFetcher(getExecutor(), timeout).fetch(
+                            datasets.stream().map(DatasetEntity::getIdentifier).collect(Collectors.toList()),
+                            identifier -> createPages(datasetMap.get(identifier), request, connection).prefetch());
             Counter counter = new Counter();
-            for (DatasetEntity dataset : datasets) {
-                String identifier = dataset.getIdentifier();
-                Collection<TimeSeriesDataServiceResponse> data = Lists.newArrayList();
-                if (request.hasTemporalFilters()) {
-                    // query with temporal filter
-                    for (IndeterminateValue temporalFilter : request.getFirstLatestTemporalFilter()) {
-                        checkAndAdd(data, queryForTemporalFilter(identifier, temporalFilter, connection));
-                    }
-                    for (TemporalFilter temporalFilter : request.getNotFirstLatestTemporalFilter()) {
-                        if (temporalFilter != null) {
-                            checkAndAdd(data, queryForTemporalFilter(identifier, temporalFilter, connection));
-                        }
-                    }
-                } else {
-                    checkAndAdd(data, connection.getTimeSeriesData(identifier, null, null));
-                }
-                if (!data.isEmpty() || data.isEmpty()
-                        && getProfileHandler().getActiveProfile().isShowMetadataOfEmptyObservations()) {
-                    AquariusStreamingValue streamingValue = new AquariusStreamingValue(observationHelper);
-                    List<DataEntity<?>> dataEntities = new LinkedList<>();
-                    for (TimeSeriesDataServiceResponse timeSeriesData : data) {
-                        dataEntities.addAll(convertTimeSeriesData(timeSeriesData, dataset, counter));
-                    }
-                    streamingValue.setResultValues(dataEntities);
+            for (int i = 0; i < datasets.size(); i++) {
+                DatasetEntity dataset = datasets.get(i);
+                AquariusStreamingValue streamingValue = new AquariusStreamingValue(observationHelper);
+                AquariusTimeValuePairCreator valueCreator = new AquariusTimeValuePairCreator(observationHelper,
+                        dataset, aquariusHelper.isSetApplyRounding());
+                streamingValue.setResultValues(datasetData.get(i), this::getPoints,
+                        point -> createDataEntity(dataset, point, counter), valueCreator::create);
+                if (streamingValue.hasNext()
+                        || getProfileHandler().getActiveProfile().isShowMetadataOfEmptyObservations()) {
                     ObservationStream observationStream = new DatasetOmObservationCreator(dataset, request,
                             requestedLocale, pdf, observationCreatorContext, session).create();
                     OmObservation observationTemplate = observationStream.next();
@@ -226,10 +304,34 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         return response;
     }
 
-    private void checkAndAdd(Collection<TimeSeriesDataServiceResponse> data, TimeSeriesDataServiceResponse ts) {
-        if (ts != null) {
-            data.add(ts);
+    private AquariusTimeSeriesDataPages createPages(DatasetEntity dataset, GetObservationRequest request,
+            AquariusConnector connection) {
+        String identifier = dataset.getIdentifier();
+        AquariusTimeSeriesDataPages pages = new AquariusTimeSeriesDataPages();
+        DateTime first = dataset.isSetFirstValueAt() ? new DateTime(dataset.getFirstValueAt()) : null;
+        DateTime last = dataset.isSetLastValueAt() ? new DateTime(dataset.getLastValueAt()) : null;
+        if (request.hasTemporalFilters()) {
+            // query with temporal filter
+            for (IndeterminateValue temporalFilter : request.getFirstLatestTemporalFilter()) {
+                pages.add(() -> queryForTemporalFilter(identifier, temporalFilter, connection));
+            }
+            for (TemporalFilter temporalFilter : request.getNotFirstLatestTemporalFilter()) {
+                if (temporalFilter != null) {
+                    if (TimeOperator.TM_During.equals(temporalFilter.getOperator())
+                            && temporalFilter.getTime() instanceof TimePeriod) {
+                        TimePeriod period = (TimePeriod) temporalFilter.getTime();
+                        pages.add(period.getStart(), period.getEnd(), first, last, window,
+                                (from, to) -> getTimeSeriesData(identifier, from, to, connection));
+                    } else {
+                        pages.add(() -> queryForTemporalFilter(identifier, temporalFilter, connection));
+                    }
+                }
+            }
+        } else {
+            pages.add(null, null, first, last, window,
+                    (from, to) -> getTimeSeriesData(identifier, from, to, connection));
         }
+        return pages;
     }
 
     protected Stream<DatasetEntity> getDatasets(DbQuery query) {
@@ -255,15 +357,14 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         switch (temporalFilter.getOperator()) {
             case TM_During:
                 if (temporalFilter.getTime() instanceof TimePeriod) {
-                    return connection.getTimeSeriesData(identifier, ((TimePeriod) temporalFilter.getTime()).getStart(),
-                            ((TimePeriod) temporalFilter.getTime()).getEnd());
+                    return getTimeSeriesData(identifier, ((TimePeriod) temporalFilter.getTime()).getStart(),
+                            ((TimePeriod) temporalFilter.getTime()).getEnd(), connection);
                 }
                 break;
             case TM_Equals:
                 if (temporalFilter.getTime() instanceof TimeInstant) {
-                    return connection.getTimeSeriesData(identifier,
-                            ((TimeInstant) temporalFilter.getTime()).getValue(),
-                            ((TimeInstant) temporalFilter.getTime()).getValue());
+                    return getTimeSeriesData(identifier, ((TimeInstant) temporalFilter.getTime()).getValue(),
+                            ((TimeInstant) temporalFilter.getTime()).getValue(), connection);
                 }
                 break;
             default:
@@ -355,10 +456,28 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
     private List<DataEntity<?>> getData(Date start, Date end, DatasetEntity series, AquariusConnector connector)
             throws OwsExceptionReport {
         TimeSeriesDataServiceResponse timeSeriesData =
-                connector.getTimeSeriesData(series.getIdentifier(), new DateTime(start), new DateTime(end));
+                getTimeSeriesData(series.getIdentifier(), new DateTime(start), new DateTime(end), connector);
         return convertTimeSeriesData(timeSeriesData, series, new Counter());
     }
 
+    private TimeSeriesDataServiceResponse getTimeSeriesData(String identifier, DateTime from, DateTime to,
+            AquariusConnector connection) throws OwsExceptionReport {
+        if (timeSeriesDataCache == null || !timeSeriesDataCache.isEnabled()) {
+            return connection.getTimeSeriesData(identifier, from, to);
+        }
+        List<Object> options = aquariusHelper.getTimeSeriesDataOptions();
+        // full coverage responses contain points outside of the queried range
+        TimeSeriesDataServiceResponse cached =
+                timeSeriesDataCache.get(identifier, options, from, to, !aquariusHelper.isSetFullCoverage());
+        if (cached != null) {
+            return cached;
+        }
+        long version = timeSeriesDataCache.getVersion();
+        TimeSeriesDataServiceResponse data = connection.getTimeSeriesData(identifier, from, to);
+        timeSeriesDataCache.put(identifier, options, from, to, data, version);
+        return data;
+    }
+
     private List<DataEntity<?>> convertTimeSeriesData(TimeSeriesDataServiceResponse original, DatasetEntity dataset,
             Counter counter) {
         TimeSeriesData timeSeriesData = new TimeSeriesData(original);
@@ -367,6 +486,11 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
                 : Collections.emptyList();
     }
 
+    private List<Point> getPoints(TimeSeriesDataServiceResponse original) {
+        return original.getPoints() != null ? aquariusHelper.applyChecker(original).getPoints()
+                : Collections.emptyList();
+    }
+
     private List<DataEntity<?>> convertData(List<Point> points, DatasetEntity dataset, Counter counter) {
         List<DataEntity<?>> measurements = new LinkedList<>();
         for (Point point : points) {
@@ -27,17 +27,24 @@
  */
 package org.n52.sos.aquarius.dao;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 import org.n52.series.db.beans.DataEntity;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.StreamingValue;
 import org.n52.shetland.ogc.om.TimeValuePair;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.aquarius.ds.Point;
 import org.n52.sos.ds.observation.ObservationHelper;
 
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 @SuppressFBWarnings({ "EI_EXPOSE_REP", "EI_EXPOSE_REP2" })
@@ -45,6 +52,14 @@ public class AquariusStreamingValue extends StreamingValue<DataEntity<?>> {
 
     private Iterator<DataEntity<?>> seriesValuesResult;
     private ObservationHelper observationHelper;
+    private AquariusTimeSeriesDataPages pages;
+    private Function<TimeSeriesDataServiceResponse, List<Point>> pointExtractor;
+    private Function<Point, DataEntity<?>> pointConverter;
+    private Function<Point, TimeValuePair> pointValueConverter;
+    private Iterator<Point> points = Collections.emptyIterator();
+    private boolean continuation;
+    private Instant lastTime;
+    private Point nextPoint;
 
     public AquariusStreamingValue(ObservationHelper observationHelper) {
         this.observationHelper = observationHelper;
@@ -58,25 +73,62 @@ public class AquariusStreamingValue extends StreamingValue<DataEntity<?>> {
         this.seriesValuesResult = values.iterator();
     }
 
+    /**
+     * Set the pages to stream the values from. The pages are queried and the
+     * points are converted one after another while the values are consumed.
+     * The time value pairs are created directly from the points, entities are
+     * only created for observations requested by {@link #next()}.
+     *
+     * @param pages
+     *            The pages of the time series data
+     * @param pointExtractor
+     *            Extracts the checked points of a page
+     * @param pointConverter
+     *            Converts a point with value to an entity
+     * @param pointValueConverter
+     *            Converts a point with value to a time value pair
+     */
+    public void setResultValues(AquariusTimeSeriesDataPages pages,
+            Function<TimeSeriesDataServiceResponse, List<Point>> pointExtractor,
+            Function<Point, DataEntity<?>> pointConverter, Function<Point, TimeValuePair> pointValueConverter) {
+        this.pages = pages;
+        this.pointExtractor = pointExtractor;
+        this.pointConverter = pointConverter;
+        this.pointValueConverter = pointValueConverter;
+    }
+
     @Override
     public DataEntity<?> nextEntity() throws OwsExceptionReport {
-        return (DataEntity<?>) seriesValuesResult.next();
+        if (seriesValuesResult != null) {
+            return seriesValuesResult.next();
+        }
+        return pointConverter.apply(nextPoint());
     }
 
     @Override
     public TimeValuePair nextValue() throws OwsExceptionReport {
         if (hasNext()) {
-            DataEntity<?> resultObject = seriesValuesResult.next();
-            TimeValuePair value = observationHelper.createTimeValuePairFrom(resultObject);
-            return value;
+            if (seriesValuesResult != null) {
+                return observationHelper.createTimeValuePairFrom(nextEntity());
+            }
+            return pointValueConverter.apply(nextPoint());
         }
         return null;
     }
 
+    private Point nextPoint() throws OwsExceptionReport {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Point point = nextPoint;
+        nextPoint = null;
+        return point;
+    }
+
     @Override
     public OmObservation next() throws NoSuchElementException, OwsExceptionReport {
         OmObservation observation = getObservationTemplate().cloneTemplate();
-        DataEntity<?> resultObject = seriesValuesResult.next();
+        DataEntity<?> resultObject = nextEntity();
         observationHelper.addValuesToObservation(resultObject, observation, getResponseFormat());
         checkForModifications(observation);
         return observation;
@@ -84,7 +136,28 @@ public class AquariusStreamingValue extends StreamingValue<DataEntity<?>> {
 
     @Override
     public boolean hasNext() throws OwsExceptionReport {
-        return seriesValuesResult != null && seriesValuesResult.hasNext();
+        if (seriesValuesResult != null) {
+            return seriesValuesResult.hasNext();
+        }
+        while (nextPoint == null) {
+            if (points.hasNext()) {
+                Point point = points.next();
+                // windows of a paged time range share their boundary
+                if (point != null && (!continuation || lastTime == null || point.getInstant().isAfter(lastTime))) {
+                    lastTime = point.getInstant();
+                    if (point.hasValue()) {
+                        nextPoint = point;
+                    }
+                }
+            } else if (pages != null && pages.hasNext()) {
+                TimeSeriesDataServiceResponse data = pages.next();
+                continuation = pages.isContinuation();
+                points = data != null ? pointExtractor.apply(data).iterator() : Collections.emptyIterator();
+            } else {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -98,4 +171,4 @@ public class AquariusStreamingValue extends StreamingValue<DataEntity<?>> {
         // TODO Auto-generated method stub
 
     }
-}
\ No newline at end of file
+}
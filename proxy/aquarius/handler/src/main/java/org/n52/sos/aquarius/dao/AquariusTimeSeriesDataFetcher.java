@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * Queries the time series data of several datasets concurrently. The number of
+ * concurrent queries is limited by the threads of the executor, the results
+ * are returned in the order of the identifiers.
+ *
+ * @since 6.0.0
+ */
+public class AquariusTimeSeriesDataFetcher {
+
+    private final ExecutorService executor;
+
+    private final long timeout;
+
+    /**
+     * Constructor
+     *
+     * @param executor
+     *            The executor to run the queries with
+     * @param timeout
+     *            Time in milliseconds all queries of one request have to
+     *            complete in, no deadline if <code>0</code> or less
+     */
+    public AquariusTimeSeriesDataFetcher(ExecutorService executor, long timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Query the data for the identifiers
+     *
+     * @param <T>
+     *            The data type
+     * @param identifiers
+     *            Identifiers of the time series to query
+     * @param query
+     *            The query to run for each identifier
+     * @return The queried data in the order of the identifiers
+     * @throws OwsExceptionReport
+     *             If a query fails or the deadline is exceeded
+     */
+    public <T> List<T> fetch(List<String> identifiers, TimeSeriesDataQuery<T> query) throws OwsExceptionReport {
+        long deadline = System.currentTimeMillis() + timeout;
+        List<Future<T>> futures = new ArrayList<>(identifiers.size());
+        try {
+            for (String identifier : identifiers) {
+                futures.add(executor.submit(() -> query.query(identifier)));
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                if (timeout > 0) {
+                    results.add(future.get(Math.max(deadline - System.currentTimeMillis(), 0L),
+                            TimeUnit.MILLISECONDS));
+                } else {
+                    results.add(future.get());
+                }
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Querying the time series data took longer than %d ms!", timeout)
+                    .setStatus(HTTPStatus.GATEWAY_TIME_OUT);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) e.getCause();
+            }
+            throw new NoApplicableCodeException().causedBy(e.getCause())
+                    .withMessage("Error while querying the time series data!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Interrupted while querying the time series data!");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Query for the data of a single time series
+     *
+     * @param <T>
+     *            The data type
+     */
+    @FunctionalInterface
+    public interface TimeSeriesDataQuery<T> {
+
+        T query(String identifier) throws OwsExceptionReport;
+
+    }
+
+}
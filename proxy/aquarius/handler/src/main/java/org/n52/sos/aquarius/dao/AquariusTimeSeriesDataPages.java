@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.dao;
+
+import java.util.LinkedList;
+
+import org.joda.time.DateTime;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+
+/**
+ * Lazily queried pages of the time series data of a dataset. Long time ranges
+ * are split into windows which are queried from Aquarius one after another
+ * while the values are streamed, only the first page is queried in advance.
+ *
+ * @since 6.0.0
+ */
+public class AquariusTimeSeriesDataPages {
+
+    private final LinkedList<Page> pages = new LinkedList<>();
+
+    private Page prefetched;
+
+    private TimeSeriesDataServiceResponse prefetchedData;
+
+    private boolean continuation;
+
+    /**
+     * Add a single page
+     *
+     * @param query
+     *            The query of the page
+     * @return this
+     */
+    public AquariusTimeSeriesDataPages add(PageQuery query) {
+        pages.add(new Page(query, false));
+        return this;
+    }
+
+    /**
+     * Add the pages of a time range. The range is split into windows of the
+     * defined length between the later of <code>from</code> and
+     * <code>first</code> and the earlier of <code>to</code> and
+     * <code>last</code>. The first and the last window keep the
+     * <code>from</code> and <code>to</code> bounds of the range.
+     *
+     * @param from
+     *            The start of the time range, unbounded if <code>null</code>
+     * @param to
+     *            The end of the time range, unbounded if <code>null</code>
+     * @param first
+     *            Time of the first value of the time series, if known
+     * @param last
+     *            Time of the last value of the time series, if known
+     * @param window
+     *            Length of the windows in milliseconds, the range is not split
+     *            if <code>0</code> or less
+     * @param query
+     *            The query of a window
+     * @return this
+     */
+    public AquariusTimeSeriesDataPages add(DateTime from, DateTime to, DateTime first, DateTime last, long window,
+            RangeQuery query) {
+        DateTime start = later(from, first);
+        DateTime end = earlier(to, last);
+        if (window <= 0 || start == null || end == null || end.getMillis() - start.getMillis() <= window) {
+            pages.add(new Page(() -> query.query(from, to), false));
+            return this;
+        }
+        DateTime windowStart = from;
+        long windowEnd = start.getMillis() + window;
+        boolean continued = false;
+        while (windowEnd < end.getMillis()) {
+            DateTime pageStart = windowStart;
+            DateTime pageEnd = new DateTime(windowEnd, start.getZone());
+            pages.add(new Page(() -> query.query(pageStart, pageEnd), continued));
+            windowStart = pageEnd;
+            windowEnd += window;
+            continued = true;
+        }
+        DateTime pageStart = windowStart;
+        pages.add(new Page(() -> query.query(pageStart, to), true));
+        return this;
+    }
+
+    /**
+     * Query the first page in advance
+     *
+     * @return this
+     * @throws OwsExceptionReport
+     *             If the query fails
+     */
+    public AquariusTimeSeriesDataPages prefetch() throws OwsExceptionReport {
+        if (prefetched == null && !pages.isEmpty()) {
+            prefetched = pages.poll();
+            prefetchedData = prefetched.query.query();
+        }
+        return this;
+    }
+
+    public boolean hasNext() {
+        return prefetched != null || !pages.isEmpty();
+    }
+
+    /**
+     * Query the next page
+     *
+     * @return the time series data of the next page, may be
+     *         <code>null</code>
+     * @throws OwsExceptionReport
+     *             If the query fails
+     */
+    public TimeSeriesDataServiceResponse next() throws OwsExceptionReport {
+        if (prefetched != null) {
+            TimeSeriesDataServiceResponse data = prefetchedData;
+            continuation = prefetched.continuation;
+            prefetched = null;
+            prefetchedData = null;
+            return data;
+        }
+        Page page = pages.poll();
+        if (page == null) {
+            return null;
+        }
+        continuation = page.continuation;
+        return page.query.query();
+    }
+
+    /**
+     * @return <code>true</code>, if the page returned by {@link #next()}
+     *         continues the time range of the previous page and may repeat
+     *         its last value at the window boundary
+     */
+    public boolean isContinuation() {
+        return continuation;
+    }
+
+    private static DateTime later(DateTime a, DateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static DateTime earlier(DateTime a, DateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Query for the time series data of a page
+     */
+    @FunctionalInterface
+    public interface PageQuery {
+
+        TimeSeriesDataServiceResponse query() throws OwsExceptionReport;
+
+    }
+
+    /**
+     * Query for the time series data of a time range
+     */
+    @FunctionalInterface
+    public interface RangeQuery {
+
+        TimeSeriesDataServiceResponse query(DateTime from, DateTime to) throws OwsExceptionReport;
+
+    }
+
+    private static final class Page {
+
+        private final PageQuery query;
+
+        private final boolean continuation;
+
+        Page(PageQuery query, boolean continuation) {
+            this.query = query;
+            this.continuation = continuation;
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.dao;
+
+import java.math.BigDecimal;
+
+import org.joda.time.DateTimeZone;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.series.wml.WaterMLConstants;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.swe.simpleType.SweQualityHolder;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.sos.aquarius.ds.Grade;
+import org.n52.sos.aquarius.ds.Point;
+import org.n52.sos.aquarius.ds.Qualifier;
+import org.n52.sos.aquarius.ds.QualifierKey;
+import org.n52.sos.ds.observation.ObservationHelper;
+
+/**
+ * Creates the {@link TimeValuePair}s of an Aquarius time series directly from
+ * the {@link Point}s. The values are equal to the values the
+ * {@link ObservationHelper} creates from the entities of the
+ * {@link org.n52.sos.aquarius.harvest.AquariusEntityBuilder}, without creating
+ * the entities.
+ */
+public class AquariusTimeValuePairCreator {
+
+    private final ObservationHelper observationHelper;
+
+    private final UoM unit;
+
+    private final boolean applyRounding;
+
+    public AquariusTimeValuePairCreator(ObservationHelper observationHelper, DatasetEntity dataset,
+            boolean applyRounding) {
+        this.observationHelper = observationHelper;
+        this.unit = dataset.isSetUnit() ? new UoM(dataset.getUnit().getUnit()) : null;
+        this.applyRounding = applyRounding;
+    }
+
+    /**
+     * Create the time value pair of the point
+     *
+     * @param point
+     *            The point
+     * @return The time value pair or <code>null</code> if the point has no
+     *         value
+     */
+    public TimeValuePair create(Point point) {
+        TimeInstant time = new TimeInstant(point.getDateTime().withZone(DateTimeZone.UTC));
+        if (point.isNumeric()) {
+            return new TimeValuePair(time, createQuantityValue(point));
+        } else if (point.isDisplay()) {
+            TextValue value = new TextValue(point.getValue().getDisplay());
+            if (unit != null) {
+                value.setUnit(unit);
+            }
+            return new TimeValuePair(time, value);
+        }
+        return null;
+    }
+
+    private QuantityValue createQuantityValue(Point point) {
+        BigDecimal numeric = applyRounding && point.isDisplay() ? point.getDisplayAsBigDecimal()
+                : point.getNumericAsBigDecimal();
+        SweQualityHolder holder = new SweQualityHolder();
+        Qualifier detectionLimit = null;
+        if (point.hasQualifiers()) {
+            for (Qualifier qualifier : point.getQualifiers()) {
+                if (qualifier.getKey().isEquals(QualifierKey.ABOVE)
+                        || qualifier.getKey().isEquals(QualifierKey.BELOW)) {
+                    detectionLimit = qualifier;
+                } else {
+                    holder.addQuality(createQuality(qualifier.getIdentifier(), qualifier.getIdentifier(),
+                            qualifier.getIdentifier()));
+                }
+            }
+        }
+        if (point.hasGrades()) {
+            for (Grade grade : point.getGrades()) {
+                holder.addQuality(createQuality(grade.getDisplayName(), grade.getDescription(), grade.getGradeCode()));
+            }
+        }
+        QuantityValue value = new QuantityValue(detectionLimit == null ? numeric : null);
+        if (unit != null) {
+            value.setUnit(unit);
+        }
+        if (detectionLimit != null) {
+            holder.addQuality(createDetectionLimit(numeric, detectionLimit.getKey().isEquals(QualifierKey.ABOVE)));
+            holder.addReference(WaterMLConstants.EN_CENSORED_REASON,
+                    createCensoredReason(detectionLimit.getKey().isEquals(QualifierKey.ABOVE)));
+        }
+        if (holder.isSetQuality() || holder.isSetReferences()) {
+            value.setQuality(holder);
+        }
+        return value;
+    }
+
+    private SweText createQuality(String name, String description, String value) {
+        SweText quality = new SweText();
+        if (name != null && !name.isEmpty()) {
+            quality.setName(name);
+        }
+        if (description != null && !description.isEmpty()) {
+            quality.setDescription(description);
+        }
+        quality.setValue(value);
+        return quality;
+    }
+
+    private SweQuantity createDetectionLimit(BigDecimal limit, boolean above) {
+        SweQuantity quantity = new SweQuantity(limit, unit);
+        if (above) {
+            quantity.setDefinition(observationHelper.getQualifierDefinitionAbove());
+            quantity.setDescription(observationHelper.getQualifierDescriptionAbove());
+        } else {
+            quantity.setDefinition(observationHelper.getQualifierDefinitionBelow());
+            quantity.setDescription(observationHelper.getQualifierDescriptionBelow());
+        }
+        return quantity;
+    }
+
+    private ReferenceType createCensoredReason(boolean above) {
+        ReferenceType reference = new ReferenceType();
+        if (above) {
+            reference.setHref(observationHelper.getCensoredReasonHrefAbove());
+            reference.setTitle(observationHelper.getCensoredReasonTitleAbove());
+        } else {
+            reference.setHref(observationHelper.getCensoredReasonHrefBelow());
+            reference.setTitle(observationHelper.getCensoredReasonTitleBelow());
+        }
+        return reference;
+    }
+
+}
@@ -297,6 +297,10 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
         return applyRounding;
     }
 
+    public boolean isSetFullCoverage() {
+        return DataType.CORRECTED.equals(getDataType()) && returnFullCoverage;
+    }
+
     public boolean isSetUseGradesFromFile() {
         return useGradesFromFile;
     }
@@ -565,6 +569,23 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
         }
     }
 
+    /**
+     * Get the options of the time series data requests created by
+     * {@link #getTimeSeriesDataRequest(String, DateTime, DateTime)}, used to
+     * key cached time series data
+     *
+     * @return the request options
+     */
+    public List<Object> getTimeSeriesDataOptions() {
+        switch (getDataType()) {
+            case CORRECTED:
+                return Arrays.asList(DataType.CORRECTED, returnFullCoverage, includeGapMarkers, applyRounding);
+            case RAW:
+            default:
+                return Arrays.asList(DataType.RAW, applyRounding);
+        }
+    }
+
     public Range<DateTime> getTimeRange(TimeSeriesDescription timeSeries) {
         switch (getDataType()) {
             case CORRECTED:
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.ds;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesPoint;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded local cache of Aquarius time series data segments. A segment is the
+ * response of a time series data query for a unique id, the request options
+ * (e.g. the data type) and a time range. Each segment keeps the point
+ * timestamps in a sorted <code>long</code> column so that queries for sub
+ * ranges of a cached segment are answered locally without querying Aquarius
+ * again.
+ *
+ * The size of the cache is limited by the total number of cached points.
+ * Segments are invalidated by the {@link #invalidate(Collection)} calls of the
+ * temporal updater when Aquarius reports data changes and expire after the
+ * configured time.
+ *
+ * @since 6.0.0
+ */
+@Configurable
+public class AquariusTimeSeriesDataCache {
+
+    public static final String SIZE = "proxy.aquarius.cache.timeseries.size";
+
+    public static final String EXPIRY = "proxy.aquarius.cache.timeseries.expiry";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AquariusTimeSeriesDataCache.class);
+
+    private final AtomicLong version = new AtomicLong();
+
+    private long size = 500000L;
+
+    private long expiry = 60L;
+
+    private Cache<Key, Segments> cache;
+
+    /**
+     * Set the maximum number of time series points to keep in the cache
+     *
+     * @param size
+     *            Maximum number of points, the cache is disabled if
+     *            <code>0</code>
+     */
+    @Setting(SIZE)
+    public synchronized void setSize(int size) {
+        this.size = Math.max(size, 0);
+        this.cache = null;
+    }
+
+    /**
+     * Set the time in minutes after which cached time series data expire
+     *
+     * @param expiry
+     *            Expiry in minutes, no expiry if <code>0</code>
+     */
+    @Setting(EXPIRY)
+    public synchronized void setExpiry(int expiry) {
+        this.expiry = Math.max(expiry, 0);
+        this.cache = null;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Get the current version of the cache. The version changes with each
+     * invalidation and has to be passed to
+     * {@link #put(String, Object, DateTime, DateTime, TimeSeriesDataServiceResponse, long)}
+     * to prevent caching data that was queried before an invalidation.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Get the cached time series data for the unique id, the request options
+     * and the time range
+     *
+     * @param uniqueId
+     *            The time series unique id
+     * @param options
+     *            The options of the time series data request
+     * @param from
+     *            The start of the time range, unbounded if <code>null</code>
+     * @param to
+     *            The end of the time range, unbounded if <code>null</code>
+     * @param subRange
+     *            Answer the query from cached segments which contain the time
+     *            range
+     * @return the cached time series data or <code>null</code> if not
+     *         cached
+     */
+    public TimeSeriesDataServiceResponse get(String uniqueId, Object options, DateTime from, DateTime to,
+            boolean subRange) {
+        Cache<Key, Segments> segments = getCache();
+        if (segments == null || uniqueId == null) {
+            return null;
+        }
+        Segments cached = segments.getIfPresent(new Key(uniqueId, options));
+        if (cached != null) {
+            TimeSeriesDataServiceResponse data = cached.get(toNanos(from, Long.MIN_VALUE),
+                    toNanos(to, Long.MAX_VALUE), subRange);
+            if (data != null) {
+                LOGGER.debug("Time series data for {} from {}/{} loaded from cache", uniqueId, from, to);
+            }
+            return data;
+        }
+        return null;
+    }
+
+    /**
+     * Add the time series data queried for the unique id, the request options
+     * and the time range to the cache
+     *
+     * @param uniqueId
+     *            The time series unique id
+     * @param options
+     *            The options of the time series data request
+     * @param from
+     *            The start of the time range, unbounded if <code>null</code>
+     * @param to
+     *            The end of the time range, unbounded if <code>null</code>
+     * @param data
+     *            The queried time series data
+     * @param queryVersion
+     *            The version of the cache before the data was queried
+     */
+    public void put(String uniqueId, Object options, DateTime from, DateTime to,
+            TimeSeriesDataServiceResponse data, long queryVersion) {
+        Cache<Key, Segments> segments = getCache();
+        if (segments == null || uniqueId == null || data == null) {
+            return;
+        }
+        Segment segment = Segment.of(toNanos(from, Long.MIN_VALUE), toNanos(to, Long.MAX_VALUE), data);
+        if (segment == null || segment.size() > size) {
+            return;
+        }
+        synchronized (version) {
+            if (queryVersion == version.get()) {
+                segments.asMap().compute(new Key(uniqueId, options), (key, cached) -> cached != null ? cached.with(segment)
+                        : new Segments(Collections.singletonList(segment)));
+            }
+        }
+    }
+
+    public void invalidate(Collection<String> uniqueIds) {
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, Segments> segments = cache;
+            if (segments != null) {
+                Set<String> ids = new HashSet<>(uniqueIds);
+                segments.asMap().keySet().removeIf(key -> ids.contains(key.uniqueId));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (version) {
+            version.incrementAndGet();
+            Cache<Key, Segments> segments = cache;
+            if (segments != null) {
+                segments.invalidateAll();
+            }
+        }
+    }
+
+    private synchronized Cache<Key, Segments> getCache() {
+        if (cache == null && isEnabled()) {
+            CacheBuilder<Key, Segments> builder = CacheBuilder.newBuilder().concurrencyLevel(1)
+                    .maximumWeight(size).weigher((Key key, Segments segments) -> segments.weight());
+            if (expiry > 0) {
+                builder.expireAfterWrite(expiry, TimeUnit.MINUTES);
+            }
+            cache = builder.build();
+        }
+        return cache;
+    }
+
+    private static long toNanos(DateTime time, long unbounded) {
+        return time != null ? TimeUnit.MILLISECONDS.toNanos(time.getMillis()) : unbounded;
+    }
+
+    private static final class Key {
+
+        private final String uniqueId;
+
+        private final Object options;
+
+        Key(String uniqueId, Object options) {
+            this.uniqueId = uniqueId;
+            this.options = options;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uniqueId, options);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(uniqueId, other.uniqueId) && Objects.equals(options, other.options);
+        }
+    }
+
+    private static final class Segments {
+
+        private final List<Segment> segments;
+
+        Segments(List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        TimeSeriesDataServiceResponse get(long from, long to, boolean subRange) {
+            for (Segment segment : segments) {
+                if (segment.from == from && segment.to == to) {
+                    return segment.slice(0, segment.size());
+                }
+            }
+            if (subRange) {
+                for (Segment segment : segments) {
+                    if (segment.from <= from && segment.to >= to) {
+                        return segment.slice(segment.lowerBound(from), segment.upperBound(to));
+                    }
+                }
+            }
+            return null;
+        }
+
+        Segments with(Segment segment) {
+            List<Segment> list = new LinkedList<>();
+            list.add(segment);
+            for (Segment cached : segments) {
+                if (cached.from < segment.from || cached.to > segment.to) {
+                    list.add(cached);
+                }
+            }
+            return new Segments(list);
+        }
+
+        int weight() {
+            long weight = 0;
+            for (Segment segment : segments) {
+                weight += segment.size() + 1;
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        }
+    }
+
+    private static final class Segment {
+
+        private final long from;
+
+        private final long to;
+
+        private final long[] times;
+
+        private final TimeSeriesDataServiceResponse data;
+
+        private Segment(long from, long to, long[] times, TimeSeriesDataServiceResponse data) {
+            this.from = from;
+            this.to = to;
+            this.times = times;
+            this.data = data;
+        }
+
+        static Segment of(long from, long to, TimeSeriesDataServiceResponse data) {
+            List<TimeSeriesPoint> points = data.getPoints() != null ? data.getPoints() : Collections.emptyList();
+            long[] times = new long[points.size()];
+            int i = 0;
+            for (TimeSeriesPoint point : points) {
+                if (point == null || point.getTimestamp() == null
+                        || point.getTimestamp().getDateTimeOffset() == null) {
+                    return null;
+                }
+                Instant instant = point.getTimestamp().getDateTimeOffset();
+                try {
+                    times[i] = Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1000000000L),
+                            instant.getNano());
+                } catch (ArithmeticException e) {
+                    return null;
+                }
+                if (i > 0 && times[i] < times[i - 1]) {
+                    return null;
+                }
+                i++;
+            }
+            return new Segment(from, to, times, data);
+        }
+
+        int size() {
+            return times.length;
+        }
+
+        int lowerBound(long time) {
+            int index = Arrays.binarySearch(times, time);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index > 0 && times[index - 1] == time) {
+                index--;
+            }
+            return index;
+        }
+
+        int upperBound(long time) {
+            int index = Arrays.binarySearch(times, time);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index < times.length && times[index] == time) {
+                index++;
+            }
+            return index;
+        }
+
+        TimeSeriesDataServiceResponse slice(int start, int end) {
+            TimeSeriesDataServiceResponse slice = new TimeSeriesDataServiceResponse();
+            slice.setUniqueId(data.getUniqueId());
+            slice.setParameter(data.getParameter());
+            slice.setLabel(data.getLabel());
+            slice.setLocationIdentifier(data.getLocationIdentifier());
+            slice.setUnit(data.getUnit());
+            slice.setApprovals(data.getApprovals());
+            slice.setQualifiers(data.getQualifiers());
+            slice.setMethods(data.getMethods());
+            slice.setGrades(data.getGrades());
+            slice.setGapTolerances(data.getGapTolerances());
+            slice.setInterpolationTypes(data.getInterpolationTypes());
+            slice.setNotes(data.getNotes());
+            slice.setTimeRange(data.getTimeRange());
+            slice.setResponseVersion(data.getResponseVersion());
+            slice.setResponseTime(data.getResponseTime());
+            slice.setSummary(data.getSummary());
+            slice.setPoints(data.getPoints() != null ? new ArrayList<>(data.getPoints().subList(start, end))
+                    : new ArrayList<>());
+            slice.setNumPoints((long) (end - start));
+            return slice;
+        }
+    }
+
+}
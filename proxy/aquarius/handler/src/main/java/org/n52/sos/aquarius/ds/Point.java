@@ -115,6 +115,10 @@ public class Point implements AquariusTimeHelper {
         return getDisplay() != null && !getDisplay().isEmpty();
     }
 
+    public boolean hasValue() {
+        return isNumeric() || isDisplay();
+    }
+
     private String getDisplay() {
         return getValue().getDisplay();
     }
@@ -53,6 +53,7 @@ import org.n52.sos.aquarius.AquariusConstants;
 import org.n52.sos.aquarius.dao.AquariusGetObservationDao;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.ds.AquariusHelper;
+import org.n52.sos.aquarius.ds.AquariusTimeSeriesDataCache;
 import org.n52.sos.aquarius.ds.Point;
 import org.n52.sos.proxy.harvest.AbstractHarvester;
 import org.n52.sos.proxy.harvest.AbstractProxyHelper;
@@ -101,6 +102,9 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
     @Inject
     private AquariusHelper aquariusHelper;
 
+    @Inject
+    private AquariusTimeSeriesDataCache timeSeriesDataCache;
+
     protected void clearMaps() {
         PROCEDURES.clear();
         PHENOMEON.clear();
@@ -129,6 +133,10 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
         return aquariusHelper;
     }
 
+    public AquariusTimeSeriesDataCache getTimeSeriesDataCache() {
+        return timeSeriesDataCache;
+    }
+
     @Override
     public AbstractProxyHelper getProxyHelper() {
         return getAquariusHelper();
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.dao;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.aquarius.ds.AquariusConnector;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+
+public class AquariusTimeSeriesDataFetcherTest {
+
+    private static final int LATENCY = 100;
+
+    private static final int CONCURRENCY = 4;
+
+    private ExecutorService executor;
+
+    private LatencyConnector connector;
+
+    private List<String> identifiers;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(CONCURRENCY);
+        connector = new LatencyConnector();
+        identifiers = IntStream.range(0, 12).mapToObj(i -> "ts-" + i).collect(Collectors.toList());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_return_data_in_identifier_order() throws OwsExceptionReport {
+        List<TimeSeriesDataServiceResponse> data = new AquariusTimeSeriesDataFetcher(executor, 0L)
+                .fetch(identifiers, identifier -> connector.getTimeSeriesData(identifier, null, null));
+        Assertions.assertEquals(identifiers,
+                data.stream().map(TimeSeriesDataServiceResponse::getUniqueId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void should_query_concurrently_within_limit() throws OwsExceptionReport {
+        long start = System.currentTimeMillis();
+        new AquariusTimeSeriesDataFetcher(executor, 0L).fetch(identifiers,
+                identifier -> connector.getTimeSeriesData(identifier, null, null));
+        long duration = System.currentTimeMillis() - start;
+        Assertions.assertEquals(CONCURRENCY, connector.getMaxConcurrent());
+        Assertions.assertTrue(duration < identifiers.size() * LATENCY,
+                "Queries were not executed concurrently: " + duration + " ms");
+    }
+
+    @Test
+    public void should_fail_when_deadline_is_exceeded() {
+        Assertions.assertThrows(OwsExceptionReport.class, () -> new AquariusTimeSeriesDataFetcher(executor, LATENCY)
+                .fetch(identifiers, identifier -> connector.getTimeSeriesData(identifier, null, null)));
+    }
+
+    /**
+     * {@link AquariusConnector} that simulates the latency of the Aquarius
+     * service.
+     */
+    private static class LatencyConnector extends AquariusConnector {
+
+        private final AtomicInteger concurrent = new AtomicInteger();
+
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        LatencyConnector() {
+            super(null, null);
+        }
+
+        @Override
+        public TimeSeriesDataServiceResponse getTimeSeriesData(String timeSeriesUniqueId, DateTime queryFrom,
+                DateTime queryTo) throws OwsExceptionReport {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return new TimeSeriesDataServiceResponse().setUniqueId(timeSeriesUniqueId);
+        }
+
+        int getMaxConcurrent() {
+            return maxConcurrent.get();
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.dao;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.aquarius.ds.Point;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.DoubleWithDisplay;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.StatisticalDateTimeOffset;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesPoint;
+
+public class AquariusTimeSeriesDataPagesTest {
+
+    private static final DateTime START = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void should_split_range_into_windows() throws OwsExceptionReport {
+        List<DateTime[]> ranges = new ArrayList<>();
+        AquariusTimeSeriesDataPages pages = new AquariusTimeSeriesDataPages().add(null, null, START,
+                START.plusDays(10), 4 * DAY, (from, to) -> {
+                    ranges.add(new DateTime[] { from, to });
+                    return null;
+                });
+        List<Boolean> continuations = new ArrayList<>();
+        while (pages.hasNext()) {
+            pages.next();
+            continuations.add(pages.isContinuation());
+        }
+        Assertions.assertEquals(3, ranges.size());
+        Assertions.assertNull(ranges.get(0)[0]);
+        Assertions.assertEquals(START.plusDays(4), ranges.get(0)[1]);
+        Assertions.assertEquals(START.plusDays(4), ranges.get(1)[0]);
+        Assertions.assertEquals(START.plusDays(8), ranges.get(1)[1]);
+        Assertions.assertEquals(START.plusDays(8), ranges.get(2)[0]);
+        Assertions.assertNull(ranges.get(2)[1]);
+        Assertions.assertEquals(List.of(false, true, true), continuations);
+    }
+
+    @Test
+    public void should_not_split_short_or_unknown_ranges() throws OwsExceptionReport {
+        List<DateTime[]> ranges = new ArrayList<>();
+        AquariusTimeSeriesDataPages pages = new AquariusTimeSeriesDataPages()
+                .add(START, START.plusDays(2), null, null, 4 * DAY, (from, to) -> {
+                    ranges.add(new DateTime[] { from, to });
+                    return null;
+                }).add(null, null, null, START, 4 * DAY, (from, to) -> {
+                    ranges.add(new DateTime[] { from, to });
+                    return null;
+                });
+        while (pages.hasNext()) {
+            pages.next();
+        }
+        Assertions.assertEquals(2, ranges.size());
+        Assertions.assertEquals(START, ranges.get(0)[0]);
+        Assertions.assertEquals(START.plusDays(2), ranges.get(0)[1]);
+        Assertions.assertNull(ranges.get(1)[0]);
+        Assertions.assertNull(ranges.get(1)[1]);
+    }
+
+    @Test
+    public void should_query_pages_lazily_and_skip_boundary_values() throws OwsExceptionReport {
+        List<DateTime> queried = new ArrayList<>();
+        AquariusTimeSeriesDataPages pages = new AquariusTimeSeriesDataPages().add(START, START.plusDays(6), null,
+                null, 2 * DAY, (from, to) -> {
+                    queried.add(from);
+                    return createData(from, to);
+                }).prefetch();
+        Assertions.assertEquals(1, queried.size());
+
+        AquariusStreamingValue value = new AquariusStreamingValue(null);
+        value.setResultValues(pages,
+                data -> data.getPoints().stream().map(Point::new).collect(Collectors.toList()), point -> {
+                    QuantityDataEntity entity = new QuantityDataEntity();
+                    entity.setSamplingTimeStart(point.getDateTime().toDate());
+                    return entity;
+                }, point -> null);
+        List<DataEntity<?>> entities = new ArrayList<>();
+        while (value.hasNext()) {
+            entities.add(value.nextEntity());
+            Assertions.assertTrue(queried.size() <= entities.size() / 2 + 1);
+        }
+        Assertions.assertEquals(3, queried.size());
+        Assertions.assertEquals(7, entities.size());
+        Assertions.assertEquals(START.plusDays(6).toDate(), entities.get(6).getSamplingTimeStart());
+    }
+
+    @Test
+    public void should_create_values_without_entities() throws OwsExceptionReport {
+        AquariusTimeSeriesDataPages pages = new AquariusTimeSeriesDataPages().add(START, START.plusDays(2), null,
+                null, DAY, (from, to) -> createData(from, to));
+        DatasetEntity dataset = new DatasetEntity();
+        AquariusStreamingValue value = new AquariusStreamingValue(null);
+        value.setResultValues(pages,
+                data -> data.getPoints().stream().map(Point::new).collect(Collectors.toList()), point -> {
+                    throw new AssertionError("entity created");
+                }, new AquariusTimeValuePairCreator(null, dataset, false)::create);
+        List<TimeValuePair> values = new ArrayList<>();
+        while (value.hasNext()) {
+            values.add(value.nextValue());
+        }
+        Assertions.assertEquals(3, values.size());
+        Assertions.assertEquals(new TimeInstant(START.plusDays(2)), values.get(2).getTime());
+        Assertions.assertEquals(new QuantityValue(BigDecimal.valueOf(1.0)), values.get(2).getValue());
+    }
+
+    private TimeSeriesDataServiceResponse createData(DateTime from, DateTime to) {
+        ArrayList<TimeSeriesPoint> points = new ArrayList<>();
+        for (DateTime time = from; !time.isAfter(to); time = time.plusDays(1)) {
+            points.add(new TimeSeriesPoint()
+                    .setTimestamp(new StatisticalDateTimeOffset()
+                            .setDateTimeOffset(Instant.ofEpochMilli(time.getMillis())))
+                    .setValue(new DoubleWithDisplay().setNumeric(1.0)));
+        }
+        TimeSeriesDataServiceResponse data = new TimeSeriesDataServiceResponse();
+        data.setPoints(points);
+        return data;
+    }
+
+}
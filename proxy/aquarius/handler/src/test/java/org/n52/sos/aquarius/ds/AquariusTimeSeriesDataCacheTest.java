@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.ds;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.sos.aquarius.ds.AquariusHelper.DataType;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.DoubleWithDisplay;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.StatisticalDateTimeOffset;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesPoint;
+
+public class AquariusTimeSeriesDataCacheTest {
+
+    private static final String ID = "ts";
+
+    private static final List<Object> RAW = Arrays.asList(DataType.RAW, false);
+
+    private static final List<Object> CORRECTED = Arrays.asList(DataType.CORRECTED, false, false, false);
+
+    private static final DateTime START = new DateTime(2021, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    @Test
+    public void should_answer_sub_range_from_cached_segment() {
+        AquariusTimeSeriesDataCache cache = new AquariusTimeSeriesDataCache();
+        cache.put(ID, RAW, START, START.plusHours(9), createData(10), cache.getVersion());
+
+        TimeSeriesDataServiceResponse data = cache.get(ID, RAW, START.plusHours(2), START.plusHours(4), true);
+        Assertions.assertNotNull(data);
+        Assertions.assertEquals(3, data.getPoints().size());
+        Assertions.assertEquals(3L, data.getNumPoints());
+        Assertions.assertEquals(2.0, data.getPoints().get(0).getValue().getNumeric());
+        Assertions.assertEquals(4.0, data.getPoints().get(2).getValue().getNumeric());
+        Assertions.assertEquals(ID, data.getUniqueId());
+
+        Assertions.assertNull(cache.get(ID, RAW, START.plusHours(2), START.plusHours(4), false));
+        Assertions.assertNull(cache.get(ID, RAW, START.minusHours(1), START.plusHours(4), true));
+        Assertions.assertEquals(10, cache.get(ID, RAW, START, START.plusHours(9), false).getPoints().size());
+    }
+
+    @Test
+    public void should_answer_bounded_range_from_unbounded_segment() {
+        AquariusTimeSeriesDataCache cache = new AquariusTimeSeriesDataCache();
+        cache.put(ID, RAW, null, null, createData(10), cache.getVersion());
+
+        TimeSeriesDataServiceResponse data = cache.get(ID, RAW, START.plusMinutes(30), START.plusMinutes(90), true);
+        Assertions.assertEquals(1, data.getPoints().size());
+        Assertions.assertEquals(1.0, data.getPoints().get(0).getValue().getNumeric());
+        Assertions.assertTrue(cache.get(ID, RAW, START.plusHours(20), START.plusHours(30), true).getPoints().isEmpty());
+    }
+
+    @Test
+    public void should_not_cache_invalidated_data() {
+        AquariusTimeSeriesDataCache cache = new AquariusTimeSeriesDataCache();
+        cache.put(ID, RAW, null, null, createData(10), cache.getVersion());
+        cache.invalidate(Collections.singleton(ID));
+        Assertions.assertNull(cache.get(ID, RAW, null, null, true));
+
+        long version = cache.getVersion();
+        cache.invalidate(Collections.singleton("other"));
+        cache.put(ID, RAW, null, null, createData(10), version);
+        Assertions.assertNull(cache.get(ID, RAW, null, null, true));
+    }
+
+    @Test
+    public void should_key_segments_by_request_options() {
+        AquariusTimeSeriesDataCache cache = new AquariusTimeSeriesDataCache();
+        cache.put(ID, RAW, null, null, createData(10), cache.getVersion());
+        Assertions.assertNull(cache.get(ID, CORRECTED, null, null, true));
+
+        cache.put(ID, CORRECTED, null, null, createData(5), cache.getVersion());
+        Assertions.assertEquals(10, cache.get(ID, Arrays.asList(DataType.RAW, false), null, null, true)
+                .getPoints().size());
+        Assertions.assertEquals(5, cache.get(ID, CORRECTED, null, null, true).getPoints().size());
+
+        cache.invalidate(Collections.singleton(ID));
+        Assertions.assertNull(cache.get(ID, RAW, null, null, true));
+        Assertions.assertNull(cache.get(ID, CORRECTED, null, null, true));
+    }
+
+    @Test
+    public void should_not_cache_more_points_than_size() {
+        AquariusTimeSeriesDataCache cache = new AquariusTimeSeriesDataCache();
+        cache.setSize(5);
+        cache.put(ID, RAW, null, null, createData(10), cache.getVersion());
+        Assertions.assertNull(cache.get(ID, RAW, null, null, true));
+
+        cache.setSize(0);
+        Assertions.assertFalse(cache.isEnabled());
+        cache.put(ID, RAW, null, null, createData(1), cache.getVersion());
+        Assertions.assertNull(cache.get(ID, RAW, null, null, true));
+    }
+
+    private TimeSeriesDataServiceResponse createData(int size) {
+        ArrayList<TimeSeriesPoint> points = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            points.add(new TimeSeriesPoint()
+                    .setTimestamp(new StatisticalDateTimeOffset().setDateTimeOffset(
+                            Instant.ofEpochMilli(START.plusHours(i).getMillis())))
+                    .setValue(new DoubleWithDisplay().setNumeric((double) i)));
+        }
+        TimeSeriesDataServiceResponse data = new TimeSeriesDataServiceResponse();
+        data.setUniqueId(ID);
+        data.setPoints(points);
+        data.setNumPoints((long) size);
+        return data;
+    }
+
+}
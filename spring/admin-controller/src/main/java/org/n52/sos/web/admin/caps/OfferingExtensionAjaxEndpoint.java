@@ -98,7 +98,7 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
     private void checkOffering(final String offering) throws NoSuchOfferingException {
         LOGGER.trace("checkOffering('{}')", offering);
         LOGGER.trace("Offerings im Cache: {}", Arrays.toString(getCache().getOfferings().toArray()));
-        if (!getCache().getOfferings().contains(offering)) {
+        if (!getCache().hasOffering(offering)) {
             throw new NoSuchOfferingException(offering);
         }
     }